@@ -22,6 +22,8 @@
 
 package org.jboss.as.connector.deployers;
 
+import java.util.concurrent.Executor;
+
 import org.jboss.as.connector.ConnectorServices;
 import org.jboss.as.connector.deployers.processors.DsDependencyProcessor;
 import org.jboss.as.connector.deployers.processors.DsDeploymentProcessor;
@@ -52,6 +54,7 @@ import org.jboss.as.deployment.module.ModuleDependencyProcessor;
 import org.jboss.as.deployment.module.ModuleDeploymentProcessor;
 import org.jboss.as.deployment.module.NestedJarInlineProcessor;
 import org.jboss.as.deployment.naming.ModuleContextProcessor;
+import org.jboss.as.deployment.processor.AnnotationIndexExecutorService;
 import org.jboss.as.deployment.processor.AnnotationIndexProcessor;
 import org.jboss.as.deployment.unit.DeploymentUnitProcessor;
 import org.jboss.as.deployment.unit.DeploymentUnitProcessorService;
@@ -103,7 +106,10 @@ public class RaDeploymentActivator implements ServiceActivator {
 
         addDeploymentProcessor(batchBuilder, new NestedJarInlineProcessor(), NestedJarInlineProcessor.PRIORITY);
         addDeploymentProcessor(batchBuilder, new ManifestAttachmentProcessor(), ManifestAttachmentProcessor.PRIORITY);
-        addDeploymentProcessor(batchBuilder, new AnnotationIndexProcessor(), AnnotationIndexProcessor.PRIORITY);
+        batchBuilder.addServiceValueIfNotExist(AnnotationIndexExecutorService.SERVICE_NAME, Values.immediateValue(new AnnotationIndexExecutorService()));
+        final InjectedValue<Executor> indexExecutor = new InjectedValue<Executor>();
+        addDeploymentProcessor(batchBuilder, new AnnotationIndexProcessor(indexExecutor), AnnotationIndexProcessor.PRIORITY)
+            .addDependency(AnnotationIndexExecutorService.SERVICE_NAME, Executor.class, indexExecutor);
         addDeploymentProcessor(batchBuilder, new RarConfigProcessor(), RarConfigProcessor.PRIORITY);
 
         addDeploymentProcessor(batchBuilder, new ModuleDependencyProcessor(), ModuleDependencyProcessor.PRIORITY);
@@ -164,7 +164,7 @@ public class AS7JndiStrategy implements JndiStrategy {
         final String className = obj.getClass().getName();
         log.tracef("Binding %s under %s", className, jndiName);
 
-        final Reference reference = ModularReference.create(className, new StringRefAddr("class", className), AS7JndiStrategy.class);
+        final Reference reference = ModularReference.createImmutable(className, new StringRefAddr("class", className), AS7JndiStrategy.class);
         reference.add(new StringRefAddr("name", jndiName));
 
         if (objs.putIfAbsent(qualifiedName(jndiName, className), obj) != null)
@@ -46,7 +46,8 @@ import org.jboss.as.model.ServerModel;
 public interface DomainClient extends Closeable {
 
     /**
-     * Get the current domain model.
+     * Get the current domain model.  The client keeps the model it last returned and only fetches the updates
+     * applied since, so successive calls may return the same instance, brought up to date.
      *
      * @return The domain model
      */
@@ -52,6 +52,7 @@ import org.jboss.as.model.AbstractServerModelUpdate;
 import org.jboss.as.model.DomainModel;
 import org.jboss.as.model.HostModel;
 import org.jboss.as.model.ServerModel;
+import org.jboss.as.model.UpdateFailedException;
 import org.jboss.as.model.UpdateResultHandler;
 import org.jboss.as.model.UpdateResultHandlerResponse;
 import org.jboss.as.protocol.ByteDataInput;
@@ -92,6 +93,10 @@ public class DomainClientImpl implements DomainClient {
     private final ThreadFactory threadFactory = Executors.defaultThreadFactory();
     private final ExecutorService executorService = Executors.newCachedThreadPool(threadFactory);
 
+    // Copy of the domain model, kept up to date with the updates applied on the domain controller
+    private final Object domainModelLock = new Object();
+    private final DomainModelCache domainModelCache = new DomainModelCache(CONFIG);
+
     public DomainClientImpl(InetAddress address, int port) {
         this.address = address;
         this.port = port;
@@ -99,10 +104,12 @@ public class DomainClientImpl implements DomainClient {
 
     @Override
     public DomainModel getDomainModel() {
-        try {
-            return new GetDomainOperation().executeForResult(getConnectionStrategy());
-        } catch (Exception e) {
-            throw new ManagementException("Failed to get domain model.", e);
+        synchronized (domainModelLock) {
+            try {
+                return new GetDomainOperation().executeForResult(getConnectionStrategy());
+            } catch (Exception e) {
+                throw new ManagementException("Failed to get domain model.", e);
+            }
         }
     }
 
@@ -284,14 +291,63 @@ public class DomainClientImpl implements DomainClient {
             return DomainClientProtocol.GET_DOMAIN_RESPONSE;
         }
 
+        @Override
+        protected void sendRequest(final int protocolVersion, final OutputStream outputStream) throws IOException {
+            if (domainModelCache.isEmpty()) {
+                return;
+            }
+            // Ask only for the updates applied since the revision of our copy
+            ByteDataOutput output = null;
+            try {
+                output = new SimpleByteDataOutput(outputStream);
+                output.writeByte(DomainClientProtocol.PARAM_DOMAIN_MODEL_REVISION);
+                output.writeLong(domainModelCache.getEpoch());
+                output.writeLong(domainModelCache.getRevision());
+                output.close();
+            } finally {
+                safeClose(output);
+            }
+        }
+
         @Override
         protected final DomainModel receiveResponse(final InputStream input) throws IOException {
             final Unmarshaller unmarshaller = getUnmarshaller();
             unmarshaller.start(createByteInput(input));
-            expectHeader(unmarshaller, DomainClientProtocol.RETURN_DOMAIN_MODEL);
-            final DomainModel domainModel = unmarshal(unmarshaller, DomainModel.class);
-            unmarshaller.finish();
-            return domainModel;
+            byte param = unmarshaller.readByte();
+            if (param != DomainClientProtocol.PARAM_DOMAIN_MODEL_REVISION) {
+                // A domain controller which does not keep revisions always sends the whole model
+                if (param != DomainClientProtocol.RETURN_DOMAIN_MODEL) {
+                    throw new IOException("Invalid byte token.  Expecting '" + DomainClientProtocol.RETURN_DOMAIN_MODEL + "' received '" + param + "'");
+                }
+                final DomainModel domainModel = unmarshal(unmarshaller, DomainModel.class);
+                unmarshaller.finish();
+                return domainModel;
+            }
+            final long epoch = unmarshaller.readLong();
+            final long revision = unmarshaller.readLong();
+            param = unmarshaller.readByte();
+            if (param == DomainClientProtocol.RETURN_DOMAIN_MODEL_UPDATE_COUNT) {
+                final int count = unmarshaller.readInt();
+                final List<AbstractDomainModelUpdate<?>> updates = new ArrayList<AbstractDomainModelUpdate<?>>(count);
+                for (int i = 0; i < count; i++) {
+                    expectHeader(unmarshaller, DomainClientProtocol.PARAM_DOMAIN_MODEL_UPDATE);
+                    updates.add(unmarshal(unmarshaller, AbstractDomainModelUpdate.class));
+                }
+                unmarshaller.finish();
+                try {
+                    domainModelCache.update(updates, epoch, revision);
+                } catch (UpdateFailedException e) {
+                    // Our copy no longer matches; start again from the whole model next time
+                    throw new IOException("Failed to apply domain model update", e);
+                }
+            } else if (param == DomainClientProtocol.RETURN_DOMAIN_MODEL) {
+                final DomainModel domainModel = unmarshal(unmarshaller, DomainModel.class);
+                unmarshaller.finish();
+                domainModelCache.reset(domainModel, epoch, revision);
+            } else {
+                throw new IOException("Invalid byte token.  Expecting '" + DomainClientProtocol.RETURN_DOMAIN_MODEL + "' received '" + param + "'");
+            }
+            return domainModelCache.getCopy();
         }
     }
 
@@ -749,6 +805,12 @@ public class DomainClientImpl implements DomainClient {
             return DomainClientProtocol.EXECUTE_DEPLOYMENT_PLAN_RESPONSE;
         }
 
+        @Override
+        protected boolean isStreamed() {
+            // The results are read as each step of the plan completes
+            return true;
+        }
+
         @Override
         protected void sendRequest(final int protocolVersion, final OutputStream output) throws IOException {
             final Marshaller marshaller = getMarshaller();
@@ -790,6 +852,12 @@ public class DomainClientImpl implements DomainClient {
             return DomainClientProtocol.ADD_DEPLOYMENT_CONTENT_RESPONSE;
         }
 
+        @Override
+        protected boolean isStreamed() {
+            // The deployment content is sent as it is read rather than held in memory
+            return true;
+        }
+
         @Override
         protected void sendRequest(final int protocolVersion, final OutputStream outputStream) throws IOException {
             ByteDataOutput output = null;
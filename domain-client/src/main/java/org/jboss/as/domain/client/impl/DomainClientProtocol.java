@@ -98,4 +98,6 @@ public interface DomainClientProtocol {
     int STOP_SERVER_RESPONSE = 0x79;
     int RESTART_SERVER_REQUEST = 0x7A;
     int RESTART_SERVER_RESPONSE = 0x7B;
+    int PARAM_DOMAIN_MODEL_REVISION = 0x7C;
+    int RETURN_DOMAIN_MODEL_UPDATE_COUNT = 0x7D;
 }
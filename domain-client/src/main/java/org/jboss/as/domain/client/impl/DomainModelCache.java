@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.domain.client.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import org.jboss.as.model.AbstractDomainModelUpdate;
+import org.jboss.as.model.DomainModel;
+import org.jboss.as.model.UpdateFailedException;
+import org.jboss.as.protocol.ProtocolUtils;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.Unmarshaller;
+import static org.jboss.marshalling.Marshalling.createByteInput;
+import static org.jboss.marshalling.Marshalling.createByteOutput;
+
+/**
+ * A client side copy of the domain model, kept up to date with the updates applied on the domain controller since
+ * a given revision.
+ * <p>
+ * The cached model is never handed out; callers get a {@link #getCopy() copy} they are free to keep or modify. If
+ * an update cannot be applied the cache is emptied, so the next request asks for the whole model again.
+ *
+ * @author John Bailey
+ */
+final class DomainModelCache {
+    private final MarshallingConfiguration config;
+    private DomainModel domainModel;
+    private long epoch;
+    private long revision;
+
+    DomainModelCache(final MarshallingConfiguration config) {
+        if (config == null) {
+            throw new IllegalArgumentException("config is null");
+        }
+        this.config = config;
+    }
+
+    /**
+     * Determine whether the cache holds no model.
+     *
+     * @return {@code true} if there is no model
+     */
+    synchronized boolean isEmpty() {
+        return domainModel == null;
+    }
+
+    /**
+     * Get the epoch of the domain controller the cached model came from.
+     *
+     * @return the epoch
+     */
+    synchronized long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Get the revision of the cached model.
+     *
+     * @return the revision
+     */
+    synchronized long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Replace the cached model with a whole model received from the domain controller.
+     *
+     * @param domainModel the model, which must not be used by the caller afterwards
+     * @param epoch the epoch of the domain controller
+     * @param revision the revision of the model
+     */
+    synchronized void reset(final DomainModel domainModel, final long epoch, final long revision) {
+        if (domainModel == null) {
+            throw new IllegalArgumentException("domainModel is null");
+        }
+        this.domainModel = domainModel;
+        this.epoch = epoch;
+        this.revision = revision;
+    }
+
+    /**
+     * Apply the updates the domain controller applied since the revision of the cached model.
+     *
+     * @param updates the updates, in the order they were applied
+     * @param epoch the epoch of the domain controller
+     * @param revision the revision of the model once the updates are applied
+     * @throws UpdateFailedException if an update cannot be applied, in which case the cache is emptied
+     */
+    synchronized void update(final List<AbstractDomainModelUpdate<?>> updates, final long epoch, final long revision) throws UpdateFailedException {
+        if (domainModel == null) {
+            throw new IllegalStateException("No domain model to update");
+        }
+        boolean ok = false;
+        try {
+            for (AbstractDomainModelUpdate<?> update : updates) {
+                domainModel.update(update);
+            }
+            ok = true;
+        } catch (RuntimeException e) {
+            throw new UpdateFailedException(e);
+        } finally {
+            if (ok) {
+                this.epoch = epoch;
+                this.revision = revision;
+            } else {
+                // The copy may be partly updated and no longer matches any revision
+                invalidate();
+            }
+        }
+    }
+
+    /**
+     * Empty the cache.
+     */
+    synchronized void invalidate() {
+        domainModel = null;
+        epoch = 0L;
+        revision = 0L;
+    }
+
+    /**
+     * Get a copy of the cached model.
+     *
+     * @return the copy
+     * @throws IOException if the model cannot be copied
+     */
+    synchronized DomainModel getCopy() throws IOException {
+        if (domainModel == null) {
+            throw new IllegalStateException("No domain model cached");
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final Marshaller marshaller = ProtocolUtils.getMarshaller(config);
+        marshaller.start(createByteOutput(bytes));
+        marshaller.writeObject(domainModel);
+        marshaller.finish();
+        final Unmarshaller unmarshaller = ProtocolUtils.getUnmarshaller(config);
+        unmarshaller.start(createByteInput(new ByteArrayInputStream(bytes.toByteArray())));
+        final DomainModel copy = ProtocolUtils.unmarshal(unmarshaller, DomainModel.class);
+        unmarshaller.finish();
+        return copy;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.domain.client.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.jboss.as.model.AbstractDomainModelUpdate;
+import org.jboss.as.model.AbstractServerModelUpdate;
+import org.jboss.as.model.DomainExtensionAdd;
+import org.jboss.as.model.DomainModel;
+import org.jboss.as.model.HostModel;
+import org.jboss.as.model.UpdateFailedException;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.SimpleClassResolver;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link DomainModelCache}.
+ *
+ * @author John Bailey
+ */
+public class DomainModelCacheTestCase {
+
+    private DomainModelCache cache;
+
+    @Before
+    public void setUp() {
+        final MarshallingConfiguration config = new MarshallingConfiguration();
+        config.setClassResolver(new SimpleClassResolver(DomainModelCacheTestCase.class.getClassLoader()));
+        cache = new DomainModelCache(config);
+    }
+
+    @Test
+    public void testEmptyUntilReset() throws Exception {
+        assertTrue(cache.isEmpty());
+        cache.reset(model("a"), 5L, 2L);
+        assertFalse(cache.isEmpty());
+        assertEquals(5L, cache.getEpoch());
+        assertEquals(2L, cache.getRevision());
+    }
+
+    @Test
+    public void testCopiesAreIndependentOfTheCache() throws Exception {
+        cache.reset(model("a"), 1L, 1L);
+        final DomainModel first = cache.getCopy();
+        first.update(new DomainExtensionAdd("b"));
+
+        final DomainModel second = cache.getCopy();
+        assertNotSame(first, second);
+        assertEquals(Collections.singleton("a"), second.getExtensions());
+
+        cache.update(updates("c"), 1L, 2L);
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b")), first.getExtensions());
+        assertEquals(Collections.singleton("a"), second.getExtensions());
+        assertEquals(new HashSet<String>(Arrays.asList("a", "c")), cache.getCopy().getExtensions());
+    }
+
+    @Test
+    public void testUpdateAdvancesRevision() throws Exception {
+        cache.reset(model("a"), 1L, 1L);
+        cache.update(updates("b", "c"), 1L, 3L);
+        assertEquals(1L, cache.getEpoch());
+        assertEquals(3L, cache.getRevision());
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c")), cache.getCopy().getExtensions());
+    }
+
+    @Test
+    public void testFailedUpdateInvalidates() throws Exception {
+        cache.reset(model("a"), 1L, 1L);
+        try {
+            // The second update fails after the first was applied
+            cache.update(updates("b", "a"), 1L, 3L);
+            fail("Duplicate extension applied");
+        } catch (UpdateFailedException expected) {
+        }
+        assertTrue(cache.isEmpty());
+        assertEquals(0L, cache.getRevision());
+    }
+
+    @Test
+    public void testUnexpectedFailureInvalidates() throws Exception {
+        cache.reset(model("a"), 1L, 1L);
+        try {
+            cache.update(Collections.<AbstractDomainModelUpdate<?>>singletonList(new BrokenUpdate()), 1L, 2L);
+            fail("Broken update applied");
+        } catch (UpdateFailedException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        cache.reset(model("a"), 1L, 1L);
+        cache.invalidate();
+        assertTrue(cache.isEmpty());
+        try {
+            cache.getCopy();
+            fail("Copy of an empty cache");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private static DomainModel model(final String... extensions) throws UpdateFailedException {
+        final DomainModel model = new DomainModel();
+        for (AbstractDomainModelUpdate<?> update : updates(extensions)) {
+            model.update(update);
+        }
+        return model;
+    }
+
+    private static final class BrokenUpdate extends AbstractDomainModelUpdate<Void> {
+        private static final long serialVersionUID = 1L;
+
+        protected void applyUpdate(final DomainModel element) throws UpdateFailedException {
+            throw new IllegalStateException("broken update");
+        }
+
+        public AbstractDomainModelUpdate<?> getCompensatingUpdate(final DomainModel original) {
+            return null;
+        }
+
+        public AbstractServerModelUpdate<Void> getServerModelUpdate() {
+            return null;
+        }
+
+        public List<String> getAffectedServers(final DomainModel domainModel, final HostModel hostModel) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static List<AbstractDomainModelUpdate<?>> updates(final String... extensions) {
+        final AbstractDomainModelUpdate<?>[] updates = new AbstractDomainModelUpdate<?>[extensions.length];
+        for (int i = 0; i < extensions.length; i++) {
+            updates[i] = new DomainExtensionAdd(extensions[i]);
+        }
+        return Arrays.asList(updates);
+    }
+}
@@ -2,23 +2,51 @@ package org.jboss.as.domain.controller;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
-/** A task that uses the executor service to concurrently execute other tasks */
+/**
+ * A task that uses the executor service to concurrently execute other tasks, or that fans them out
+ * with the bounded parallelism of an {@link UpdateFanOut} when they update individual servers.
+ */
 class ConcurrentUpdateTask implements Runnable {
 
     private final List<Runnable> concurrentTasks;
     private final ExecutorService executorService;
+    private final UpdateFanOut fanOut;
+    private final String serverGroupName;
+    private final int maxGroupConcurrency;
 
     ConcurrentUpdateTask(final List<Runnable> concurrentTasks, final ExecutorService executorService) {
         this.concurrentTasks = concurrentTasks;
         this.executorService = executorService;
+        this.fanOut = null;
+        this.serverGroupName = null;
+        this.maxGroupConcurrency = 0;
+    }
+
+    /**
+     * Constructor for tasks that each update one server of a server group and do not wait on other tasks.
+     * At most {@code maxGroupConcurrency} of them run at once, or any number if it is {@code 0}.
+     */
+    ConcurrentUpdateTask(final List<Runnable> serverTasks, final UpdateFanOut fanOut, final String serverGroupName,
+            final int maxGroupConcurrency) {
+        this.concurrentTasks = serverTasks;
+        this.executorService = null;
+        this.fanOut = fanOut;
+        this.serverGroupName = serverGroupName;
+        this.maxGroupConcurrency = maxGroupConcurrency;
     }
 
     @Override
     public void run() {
+        if (fanOut != null) {
+            runFannedOut();
+            return;
+        }
+
 
         // Submit each task to the executor
         List<Future<?>> futures = new ArrayList<Future<?>>();
@@ -41,6 +69,34 @@ class ConcurrentUpdateTask implements Runnable {
         }
     }
 
+    private void runFannedOut() {
+        UpdateFanOut.Batch<Runnable, Void> batch = fanOut.newBatch();
+        for (final Runnable r : concurrentTasks) {
+            batch.submit(r, serverGroupName, maxGroupConcurrency, new Callable<Void>() {
+                @Override
+                public Void call() {
+                    r.run();
+                    return null;
+                }
+            });
+        }
+
+        // Wait until all complete before returning, reporting failures as they happen
+        try {
+            UpdateFanOut.Completion<Runnable, Void> completion;
+            while ((completion = batch.take()) != null) {
+                try {
+                    completion.get();
+                } catch (ExecutionException e) {
+                    DomainDeploymentHandler.logger.errorf(e, "ConcurrentUpdateTask caught ExecutionException waiting for task %s", completion.getKey().toString());
+                }
+            }
+        } catch (InterruptedException e) {
+            DomainDeploymentHandler.logger.errorf("ConcurrentUpdateTask caught InterruptedException waiting for tasks in server group %s; returning", serverGroupName);
+            Thread.currentThread().interrupt();
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("ConcurrentUpdateTask{tasks={");
@@ -23,12 +23,14 @@
 package org.jboss.as.domain.controller;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,6 +40,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -55,10 +58,14 @@ import org.jboss.as.model.AbstractHostModelUpdate;
 import org.jboss.as.model.AbstractServerModelUpdate;
 import org.jboss.as.model.DomainModel;
 import org.jboss.as.model.HostModel;
+import org.jboss.as.model.ServerGroupElement;
 import org.jboss.as.model.ServerModel;
 import org.jboss.as.model.UpdateFailedException;
 import org.jboss.as.model.UpdateResultHandlerResponse;
+import org.jboss.as.protocol.ProtocolUtils;
 import org.jboss.logging.Logger;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.Unmarshaller;
 import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.ServiceName;
@@ -67,6 +74,8 @@ import org.jboss.msc.service.StartException;
 import org.jboss.msc.service.StopContext;
 import org.jboss.msc.value.InjectedValue;
 import org.jboss.staxmapper.XMLMapper;
+import static org.jboss.marshalling.Marshalling.createByteInput;
+import static org.jboss.marshalling.Marshalling.createByteOutput;
 
 /**
  * A Domain controller instance.
@@ -76,15 +85,28 @@ import org.jboss.staxmapper.XMLMapper;
 public class DomainController implements Service<DomainController> {
     private static final Logger log = Logger.getLogger("org.jboss.as.domain.controller");
     public static final ServiceName SERVICE_NAME = ServiceName.JBOSS.append("domain", "controller");
+    /** System property holding the interval between heartbeats to each server manager, in milliseconds */
+    public static final String HEARTBEAT_INTERVAL = "jboss.domain.heartbeat.interval";
+    /** System property holding the suspicion level above which a server manager is considered unreachable */
+    public static final String HEARTBEAT_PHI_THRESHOLD = "jboss.domain.heartbeat.phi-threshold";
+    private static final long DEFAULT_HEARTBEAT_INTERVAL = 5000L;
+    private static final double DEFAULT_HEARTBEAT_PHI_THRESHOLD = 8.0;
+    private static final int UPDATE_JOURNAL_CAPACITY = 256;
     private DomainModel domainModel;
+    private DomainUpdateJournal updateJournal;
     private final ConcurrentMap<String, ServerManagerClient> clients = new ConcurrentHashMap<String, ServerManagerClient>();
     private final InjectedValue<XMLMapper> xmlMapper = new InjectedValue<XMLMapper>();
     private final InjectedValue<File> domainConfigDir = new InjectedValue<File>();
     private final InjectedValue<File> domainDeploymentsDir = new InjectedValue<File>();
     private final InjectedValue<ScheduledExecutorService> scheduledExecutorService = new InjectedValue<ScheduledExecutorService>();
     private volatile DomainConfigurationPersister configPersister;
-    private ScheduledFuture<?> pollingFuture;
+    private final Set<String> unreachable = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<String> heartbeatsInProgress = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private volatile HeartbeatFailureDetector failureDetector;
+    private volatile double phiThreshold;
+    private ScheduledFuture<?> heartbeatFuture;
     private DomainDeploymentHandler deploymentPlanHandler;
+    private volatile UpdateFanOut updateFanOut;
     private DomainDeploymentRepository deploymentRepository;
 
     public DomainController() {
@@ -121,17 +143,23 @@ public class DomainController implements Service<DomainController> {
 
             log.info("Parsing Domain Configuration");
             domainModel = parseDomain(xmlMapper.getValue());
+            updateJournal = new DomainUpdateJournal(UPDATE_JOURNAL_CAPACITY);
 
+            updateFanOut = UpdateFanOut.create(scheduledExecutorService.getValue());
             deploymentPlanHandler = new DomainDeploymentHandler(this, scheduledExecutorService.getValue());
-            pollingFuture = scheduledExecutorService.getValue().scheduleAtFixedRate(new Runnable() {
+            final long heartbeatInterval = Long.getLong(HEARTBEAT_INTERVAL, DEFAULT_HEARTBEAT_INTERVAL).longValue();
+            final String threshold = System.getProperty(HEARTBEAT_PHI_THRESHOLD);
+            phiThreshold = threshold == null ? DEFAULT_HEARTBEAT_PHI_THRESHOLD : Double.parseDouble(threshold);
+            failureDetector = new HeartbeatFailureDetector(heartbeatInterval);
+            final long now = System.currentTimeMillis();
+            for (String id : clients.keySet()) {
+                failureDetector.reset(id, now);
+            }
+            heartbeatFuture = scheduledExecutorService.getValue().scheduleAtFixedRate(new Runnable() {
                 public void run() {
-                    for(ServerManagerClient client : clients.values()) {
-                        if(!client.isActive()) {
-                            log.warnf("Registered Server Manager [%s] is no longer active", client.getId());
-                        }
-                    }
+                    checkHeartbeats();
                 }
-            }, 30L, 30L, TimeUnit.SECONDS);
+            }, heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
         } catch (IllegalStateException e) {
             throw new StartException("Failed to start " + getClass().getSimpleName(), e);
         }
@@ -144,8 +172,8 @@ public class DomainController implements Service<DomainController> {
     public synchronized void stop(final StopContext stopContext) {
         log.info("Stopping Domain Controller");
         domainModel = null;
-        if(pollingFuture != null) {
-            pollingFuture.cancel(true);
+        if(heartbeatFuture != null) {
+            heartbeatFuture.cancel(true);
         }
     }
 
@@ -160,12 +188,34 @@ public class DomainController implements Service<DomainController> {
         if(clients.putIfAbsent(domainControllerClient.getId(), domainControllerClient) != null) {
             // TODO: Handle duplicate client
         }
+        else {
+            final HeartbeatFailureDetector detector = failureDetector;
+            if (detector != null) {
+                detector.reset(domainControllerClient.getId(), System.currentTimeMillis());
+            }
+        }
     }
 
     public void removeClient(final String id) {
         if(clients.remove(id) == null) {
             // TODO: Handle non-existent client
         }
+        final HeartbeatFailureDetector detector = failureDetector;
+        if (detector != null) {
+            detector.remove(id);
+        }
+        unreachable.remove(id);
+    }
+
+    /**
+     * Check whether a server manager is registered and answering heartbeats. Server managers that are
+     * not are left out of domain updates and deployment plans until they answer again.
+     *
+     * @param serverManagerName the name of the server manager
+     * @return true if the server manager is reachable
+     */
+    public boolean isServerManagerReachable(final String serverManagerName) {
+        return clients.containsKey(serverManagerName) && !unreachable.contains(serverManagerName);
     }
 
     // -----------------------------------  Operations invoked by DomainClient
@@ -174,6 +224,38 @@ public class DomainController implements Service<DomainController> {
         return domainModel;
     }
 
+    /**
+     * Take a copy of the domain model that later updates leave alone, so that it can be pushed to a server manager
+     * without holding the lock of this controller while it is sent.  Only the marshalling is done under the lock.
+     *
+     * @return the copy
+     * @throws IOException if the model cannot be copied
+     */
+    private DomainModel getDomainModelSnapshot() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        synchronized (this) {
+            final Marshaller marshaller = ProtocolUtils.getMarshaller(ProtocolUtils.MODULAR_CONFIG);
+            marshaller.start(createByteOutput(bytes));
+            marshaller.writeObject(domainModel);
+            marshaller.finish();
+        }
+        final Unmarshaller unmarshaller = ProtocolUtils.getUnmarshaller(ProtocolUtils.MODULAR_CONFIG);
+        unmarshaller.start(createByteInput(new ByteArrayInputStream(bytes.toByteArray())));
+        final DomainModel snapshot = ProtocolUtils.unmarshal(unmarshaller, DomainModel.class);
+        unmarshaller.finish();
+        return snapshot;
+    }
+
+    /**
+     * Get the journal of the updates applied to the domain model.  Updates are applied while holding the lock
+     * of this controller, so the model and its revision can be read consistently by synchronizing on it.
+     *
+     * @return the journal
+     */
+    public synchronized DomainUpdateJournal getUpdateJournal() {
+        return updateJournal;
+    }
+
     public Set<String> getServerManagerNames() {
         return Collections.unmodifiableSet(clients.keySet());
     }
@@ -277,7 +359,11 @@ public class DomainController implements Service<DomainController> {
             mapper.parseDocument(domainUpdates, XMLInputFactory.newInstance().createXMLStreamReader(new BufferedInputStream(reader)));
             final DomainModel domainModel = new DomainModel();
             for(final AbstractDomainModelUpdate<?> update : domainUpdates) {
-                domainModel.update(update);
+                try {
+                    domainModel.update(update);
+                } catch (UpdateFailedException e) {
+                    throw new IllegalStateException("Failed applying " + update + " from domain.xml", e);
+                }
             }
             return domainModel;
         } catch (RuntimeException e) {
@@ -373,7 +459,7 @@ public class DomainController implements Service<DomainController> {
             if (ok) {
                 try {
                     AbstractDomainModelUpdate<?> rollback = update.getCompensatingUpdate(domainModel);
-                    domainModel.update(update);
+                    applyToDomainModel(update);
                     // Add the rollback after success so we don't rollback
                     // the failed update -- which should not have changed anything
                     rollbacks.add(0, rollback);
@@ -398,10 +484,12 @@ public class DomainController implements Service<DomainController> {
             for (int i = 0; i < rollbacks.size(); i++) {
                 AbstractDomainModelUpdate<?> rollback = rollbacks.get(i);
                 try {
-                    domainModel.update(rollback);
+                    applyToDomainModel(rollback);
                 }
                 catch (UpdateFailedException e) {
                     // TODO uh oh. Reload from the file?
+                    log.errorf(e, "Failed rolling back %s", rollback);
+                    discardUpdateJournal();
                 }
             }
         }
@@ -430,6 +518,14 @@ public class DomainController implements Service<DomainController> {
                 responses.add(failure);
             }
         }
+        else if (unreachable.contains(server.getHostName())) {
+            log.debugf("Server manager %s is not answering heartbeats", server.getHostName());
+            responses = new ArrayList<UpdateResultHandlerResponse<?>>();
+            UpdateResultHandlerResponse<?> failure = UpdateResultHandlerResponse.createFailureResponse(new IllegalStateException("host " + server.getHostName() + " is not answering heartbeats"));
+            for (int i = 0; i < updates.size(); i++) {
+                responses.add(failure);
+            }
+        }
         else {
             responses = client.updateServerModel(server.getServerName(), updates, allowOverallRollback);
         }
@@ -451,14 +547,38 @@ public class DomainController implements Service<DomainController> {
         return (domainModel.getDeployment(deploymentName) == null);
     }
 
+    private synchronized void applyToDomainModel(final AbstractDomainModelUpdate<?> update) throws UpdateFailedException {
+        try {
+            domainModel.update(update);
+        } catch (RuntimeException e) {
+            // Unlike a failed update, an unexpected failure may leave the update partly applied
+            discardUpdateJournal();
+            throw new UpdateFailedException("Failed applying " + update, e);
+        }
+        updateJournal.record(update);
+    }
+
+    /**
+     * Start a new journal after the model was changed in a way the journal cannot describe, so that clients holding
+     * a copy of the model fetch it whole again.
+     */
+    private synchronized void discardUpdateJournal() {
+        updateJournal = new DomainUpdateJournal(UPDATE_JOURNAL_CAPACITY);
+    }
+
     private List<DomainUpdateApplierResponse> applyUpdatesToServerManagers(final List<AbstractDomainModelUpdate<?>> updates,
             List<AbstractDomainModelUpdate<?>> rollbacks) {
 
         List<DomainUpdateApplierResponse> result = new ArrayList<DomainUpdateApplierResponse>(updates.size());
 
         // We update server managers concurrently
-        Map<String, Future<List<ModelUpdateResponse<List<ServerIdentity>>>>> futures = new HashMap<String, Future<List<ModelUpdateResponse<List<ServerIdentity>>>>>();
+        UpdateFanOut.Batch<String, List<ModelUpdateResponse<List<ServerIdentity>>>> batch = updateFanOut.newBatch();
         for (Map.Entry<String, ServerManagerClient> entry : clients.entrySet()) {
+            if (unreachable.contains(entry.getKey())) {
+                // It gets the whole model once it answers heartbeats again
+                log.debugf("Not pushing domain updates to unreachable server manager %s", entry.getKey());
+                continue;
+            }
             final ServerManagerClient client = entry.getValue();
             final Callable<List<ModelUpdateResponse<List<ServerIdentity>>>> callable = new Callable<List<ModelUpdateResponse<List<ServerIdentity>>>>() {
 
@@ -469,39 +589,79 @@ public class DomainController implements Service<DomainController> {
 
             };
 
-            futures.put(entry.getKey(), scheduledExecutorService.getValue().submit(callable));
+            batch.submit(entry.getKey(), null, 0, callable);
         }
 
-        log.debugf("Domain updates pushed to %s server manager(s)", futures.size());
+        log.debugf("Domain updates pushed to %s server manager(s)", batch.getOutstanding());
+
+        // Read the responses as each server manager completes. Once one has failed we know
+        // everything gets rolled back, so each server manager that has applied anything
+        // is told to roll back as soon as its response is in, without waiting for the rest
+        Map<String, List<ModelUpdateResponse<List<ServerIdentity>>>> responses = new HashMap<String, List<ModelUpdateResponse<List<ServerIdentity>>>>();
+        Map<String, UpdateFailedException> callFailures = new HashMap<String, UpdateFailedException>();
+        UpdateFanOut.Batch<String, Boolean> rollbackBatch = null;
+        try {
+            UpdateFanOut.Completion<String, List<ModelUpdateResponse<List<ServerIdentity>>>> completion;
+            while ((completion = batch.take()) != null) {
+                String host = completion.getKey();
+                List<ModelUpdateResponse<List<ServerIdentity>>> rspList = null;
+                try {
+                    rspList = completion.get();
+                    responses.put(host, rspList);
+                } catch (ExecutionException e) {
+                    log.debug("Execution exception reading server manager response", e);
+                    callFailures.put(host, new UpdateFailedException(e));
+                }
+                if (rollbackBatch == null && (rspList == null || !isSuccess(rspList))) {
+                    log.warn("One or more updates failed on some server managers; rolling back");
+                    rollbackDomainModel(rollbacks);
+                    rollbackBatch = updateFanOut.newBatch();
+                    for (Map.Entry<String, List<ModelUpdateResponse<List<ServerIdentity>>>> entry : responses.entrySet()) {
+                        submitServerManagerRollback(rollbackBatch, entry.getKey(), entry.getValue(), rollbacks);
+                    }
+                }
+                else if (rollbackBatch != null && rspList != null) {
+                    submitServerManagerRollback(rollbackBatch, host, rspList, rollbacks);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.debug("Interrupted reading server manager response");
+            Thread.currentThread().interrupt();
+            for (String host : clients.keySet()) {
+                if (!responses.containsKey(host) && !callFailures.containsKey(host)) {
+                    callFailures.put(host, new UpdateFailedException(e));
+                }
+            }
+            if (rollbackBatch == null) {
+                rollbackDomainModel(rollbacks);
+                rollbackBatch = updateFanOut.newBatch();
+                for (Map.Entry<String, List<ModelUpdateResponse<List<ServerIdentity>>>> entry : responses.entrySet()) {
+                    submitServerManagerRollback(rollbackBatch, entry.getKey(), entry.getValue(), rollbacks);
+                }
+            }
+        }
 
         // Collate the results for each update
-        boolean ok = true;
         for (int i = 0; i < updates.size(); i++) {
 
             Map<String, UpdateFailedException> hostFailures = new HashMap<String, UpdateFailedException>();
             List<ServerIdentity> servers = new ArrayList<ServerIdentity>();
 
-            for (Map.Entry<String, Future<List<ModelUpdateResponse<List<ServerIdentity>>>>> entry : futures.entrySet()) {
-                try {
-                    List<ModelUpdateResponse<List<ServerIdentity>>> list = entry.getValue().get();
-                    if (list.size() > i) {
-                        ModelUpdateResponse<List<ServerIdentity>> hostResponse = list.get(i);
-                        if (hostResponse.isSuccess()) {
-                            servers.addAll(hostResponse.getResult());
-                        }
-                        else {
-                            hostFailures.put(entry.getKey(), hostResponse.getUpdateException());
-                        }
+            if (i == 0) {
+                hostFailures.putAll(callFailures);
+            }
+            for (Map.Entry<String, List<ModelUpdateResponse<List<ServerIdentity>>>> entry : responses.entrySet()) {
+                List<ModelUpdateResponse<List<ServerIdentity>>> list = entry.getValue();
+                if (list.size() > i) {
+                    ModelUpdateResponse<List<ServerIdentity>> hostResponse = list.get(i);
+                    if (hostResponse.isSuccess()) {
+                        servers.addAll(hostResponse.getResult());
+                    }
+                    else {
+                        hostFailures.put(entry.getKey(), hostResponse.getUpdateException());
                     }
-                    // else this host didn't get this far
-                } catch (InterruptedException e) {
-                    log.debug("Interrupted reading server manager response");
-                    Thread.currentThread().interrupt();
-                    hostFailures.put(entry.getKey(), new UpdateFailedException(e));
-                } catch (ExecutionException e) {
-                    log.debug("Execution exception reading server manager response", e);
-                    hostFailures.put(entry.getKey(), new UpdateFailedException(e));
                 }
+                // else this host didn't get this far
             }
             if (hostFailures.size() == 0) {
                 log.debugf("%s servers affected by update %s", servers.size(), i);
@@ -510,7 +670,6 @@ public class DomainController implements Service<DomainController> {
             else {
                 log.debugf("%s server managers failed on update %s", hostFailures.size(), i);
                 result.add(new DomainUpdateApplierResponse(hostFailures));
-                ok = false;
                 // No point processing other updates, as we are going to roll them back.
                 // Act as if we did the whole thing one update at a time and this
                 // failure stopped us doing the rest
@@ -518,88 +677,39 @@ public class DomainController implements Service<DomainController> {
             }
         }
 
-        if (!ok) {
-
-            // Some server manager failed, so we gotta roll 'em all back
-
-            log.warn("One or more updates failed on some server managers; rolling back");
+        if (rollbackBatch != null) {
 
-            // Apply compensating updates to fix our local model
-            for (int i = 0; i < rollbacks.size(); i++) {
-                AbstractDomainModelUpdate<?> rollback = rollbacks.get(i);
-                try {
-                    domainModel.update(rollback);
-                }
-                catch (UpdateFailedException e) {
-                    // TODO uh oh. Reload from the file?
-                }
+            // Server managers we could not reach get the whole model, as do those that fail
+            // to roll back, as soon as their rollback fails
+            UpdateFanOut.Batch<String, Boolean> resyncBatch = updateFanOut.newBatch();
+            for (String host : callFailures.keySet()) {
+                submitServerManagerResync(resyncBatch, host);
             }
-
-            // List of servers we fail to successfully roll back
-            Set<String> outOfSync = new HashSet<String>();
-
-            Map<String, Future<Boolean>> rollbackFutures = new HashMap<String, Future<Boolean>>(futures.size());
-            for (Map.Entry<String, Future<List<ModelUpdateResponse<List<ServerIdentity>>>>> entry : futures.entrySet()) {
-                try {
-                    // For this host figure out how many updates need to be rolled back
-                    List<ModelUpdateResponse<List<ServerIdentity>>> rspList = entry.getValue().get();
-                    int idx = rspList.size() - 1;
-                    if (idx >= 0 && !rspList.get(idx).isSuccess()) {
-                        idx--; // !isSuccess one shouldn't have affected model state so no rollback of it
-                    }
-                    if (idx < 0) {
-                        // This host didn't apply anything
-                        continue;
+            try {
+                UpdateFanOut.Completion<String, Boolean> completion;
+                while ((completion = rollbackBatch.take()) != null) {
+                    boolean rolledBack;
+                    try {
+                        rolledBack = completion.get().booleanValue();
+                    } catch (ExecutionException e) {
+                        log.debugf(e, "Failed rolling back server manager %s", completion.getKey());
+                        rolledBack = false;
                     }
-
-                    // Set up the rollback list
-                    final List<AbstractDomainModelUpdate<?>> serverManagerRollbacks =
-                        (idx == rollbacks.size() -1) ? rollbacks : new ArrayList<AbstractDomainModelUpdate<?>>(idx + 1);
-                    if (serverManagerRollbacks != rollbacks) {
-                        // Rollbacks are in reverse order from updates. We take
-                        // the last X=idx items from the rollback list since
-                        // those correspond to the updates that didn't fail and need rollback
-                        for (int j = rollbacks.size() - 1 - idx; j < rollbacks.size(); j++) {
-                            serverManagerRollbacks.add(rollbacks.get(j));
-                        }
+                    if (!rolledBack) {
+                        submitServerManagerResync(resyncBatch, completion.getKey());
                     }
-                    // Tell the host to roll back
-                    final ServerManagerClient client = clients.get(entry.getKey());
-                    Callable<Boolean> callable = new Callable<Boolean>() {
-                        @Override
-                        public Boolean call() throws Exception {
-                            List<ModelUpdateResponse<List<ServerIdentity>>> rsp = client.updateDomainModel(serverManagerRollbacks);
-                            return Boolean.valueOf(rsp.size() == serverManagerRollbacks.size() && rsp.get(rsp.size() - 1).isSuccess());
-                        }
-                    };
-                    rollbackFutures.put(entry.getKey(), scheduledExecutorService.getValue().submit(callable));
-
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    outOfSync.add(entry.getKey());
-                } catch (ExecutionException e) {
-                    outOfSync.add(entry.getKey());
                 }
-            }
-
-            // Wait until rollbacks complete
-            for (Map.Entry<String, Future<Boolean>> entry : rollbackFutures.entrySet()) {
-                try {
-                    if (!entry.getValue().get()) {
-                        outOfSync.add(entry.getKey());
+                UpdateFanOut.Completion<String, Boolean> resync;
+                while ((resync = resyncBatch.take()) != null) {
+                    try {
+                        resync.get();
+                    } catch (ExecutionException e) {
+                        log.errorf(e, "Failed pushing the domain model to server manager %s", resync.getKey());
                     }
-                }  catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    outOfSync.add(entry.getKey());
-                } catch (ExecutionException e) {
-                    outOfSync.add(entry.getKey());
                 }
-            }
-
-            for (String host : outOfSync) {
-                // Rollback failed; need to push the whole model
-                ServerManagerClient client = clients.get(host);
-                client.updateDomainModel(domainModel);
+            } catch (InterruptedException e) {
+                log.debug("Interrupted waiting for server manager rollbacks");
+                Thread.currentThread().interrupt();
             }
 
             // Update the result list to record the rollbacks
@@ -614,6 +724,85 @@ public class DomainController implements Service<DomainController> {
         return result;
     }
 
+    private static boolean isSuccess(final List<ModelUpdateResponse<List<ServerIdentity>>> rspList) {
+        for (ModelUpdateResponse<List<ServerIdentity>> rsp : rspList) {
+            if (!rsp.isSuccess()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rollbackDomainModel(final List<AbstractDomainModelUpdate<?>> rollbacks) {
+        // Apply compensating updates to fix our local model
+        for (int i = 0; i < rollbacks.size(); i++) {
+            AbstractDomainModelUpdate<?> rollback = rollbacks.get(i);
+            try {
+                applyToDomainModel(rollback);
+            }
+            catch (UpdateFailedException e) {
+                // TODO uh oh. Reload from the file?
+                log.errorf(e, "Failed rolling back %s", rollback);
+                discardUpdateJournal();
+            }
+        }
+    }
+
+    private void submitServerManagerRollback(final UpdateFanOut.Batch<String, Boolean> rollbackBatch, final String host,
+            final List<ModelUpdateResponse<List<ServerIdentity>>> rspList, final List<AbstractDomainModelUpdate<?>> rollbacks) {
+
+        // For this host figure out how many updates need to be rolled back
+        int idx = rspList.size() - 1;
+        if (idx >= 0 && !rspList.get(idx).isSuccess()) {
+            idx--; // !isSuccess one shouldn't have affected model state so no rollback of it
+        }
+        if (idx < 0) {
+            // This host didn't apply anything
+            return;
+        }
+
+        // Set up the rollback list
+        final List<AbstractDomainModelUpdate<?>> serverManagerRollbacks =
+            (idx == rollbacks.size() -1) ? rollbacks : new ArrayList<AbstractDomainModelUpdate<?>>(idx + 1);
+        if (serverManagerRollbacks != rollbacks) {
+            // Rollbacks are in reverse order from updates. We take
+            // the last X=idx items from the rollback list since
+            // those correspond to the updates that didn't fail and need rollback
+            for (int j = rollbacks.size() - 1 - idx; j < rollbacks.size(); j++) {
+                serverManagerRollbacks.add(rollbacks.get(j));
+            }
+        }
+        // Tell the host to roll back
+        final ServerManagerClient client = clients.get(host);
+        if (client == null) {
+            return;
+        }
+        Callable<Boolean> callable = new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                List<ModelUpdateResponse<List<ServerIdentity>>> rsp = client.updateDomainModel(serverManagerRollbacks);
+                return Boolean.valueOf(rsp.size() == serverManagerRollbacks.size() && rsp.get(rsp.size() - 1).isSuccess());
+            }
+        };
+        rollbackBatch.submit(host, null, 0, callable);
+    }
+
+    private void submitServerManagerResync(final UpdateFanOut.Batch<String, Boolean> resyncBatch, final String host) {
+        // Rollback failed; need to push the whole model
+        final ServerManagerClient client = clients.get(host);
+        if (client == null) {
+            return;
+        }
+        Callable<Boolean> callable = new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                client.updateDomainModel(getDomainModelSnapshot());
+                return Boolean.TRUE;
+            }
+        };
+        resyncBatch.submit(host, null, 0, callable);
+    }
+
     private List<DomainUpdateResult<?>> applyUpdatesToServers(final List<AbstractDomainModelUpdate<?>> updates,
                                                               final List<DomainUpdateApplierResponse> domainResults,
                                                               final boolean allowOverallRollback) {
@@ -633,34 +822,37 @@ public class DomainController implements Service<DomainController> {
 
         log.debugf("updates affect %s", updatesByServer.keySet());
 
-        // TODO Add param to configure pushing out concurrently
+        // Push them out concurrently, folding in each server's results as it completes
+        UpdateFanOut.Batch<ServerIdentity, List<UpdateResultHandlerResponse<?>>> batch = updateFanOut.newBatch();
         for (Map.Entry<ServerIdentity, List<AbstractServerModelUpdate<?>>> entry : updatesByServer.entrySet()) {
-            ServerIdentity server = entry.getKey();
-            List<AbstractServerModelUpdate<?>> serverUpdates = entry.getValue();
-            // Push them out
-            List<UpdateResultHandlerResponse<?>> rsps = applyUpdatesToServer(server, serverUpdates, allowOverallRollback);
-            for (int i = 0; i < serverUpdates.size(); i++) {
-                UpdateResultHandlerResponse<?> rsp = rsps.get(i);
-                AbstractServerModelUpdate<?> serverUpdate = entry.getValue().get(i);
-                DomainUpdateResult<Object> dur = resultsByUpdate.get(serverUpdate);
-
-                if (rsp.isCancelled()) {
-                    dur = dur.newWithAddedCancellation(server);
-                }
-                else if (rsp.isTimedOut()) {
-                    dur = dur.newWithAddedTimeout(server);
-                }
-                else if (rsp.isRolledBack()) {
-                    dur = dur.newWithAddedRollback(server);
-                }
-                else if (rsp.getFailureResult() != null) {
-                    dur = dur.newWithAddedFailure(server, rsp.getFailureResult());
+            final ServerIdentity server = entry.getKey();
+            final List<AbstractServerModelUpdate<?>> serverUpdates = entry.getValue();
+            Callable<List<UpdateResultHandlerResponse<?>>> callable = new Callable<List<UpdateResultHandlerResponse<?>>>() {
+                @Override
+                public List<UpdateResultHandlerResponse<?>> call() throws Exception {
+                    return applyUpdatesToServer(server, serverUpdates, allowOverallRollback);
                 }
-                else {
-                    dur = dur.newWithAddedResult(server, rsp.getSuccessResult());
+            };
+            batch.submit(server, server.getServerGroupName(), getMaxUpdateConcurrency(server.getServerGroupName()), callable);
+        }
+
+        try {
+            UpdateFanOut.Completion<ServerIdentity, List<UpdateResultHandlerResponse<?>>> completion;
+            while ((completion = batch.take()) != null) {
+                ServerIdentity server = completion.getKey();
+                List<AbstractServerModelUpdate<?>> serverUpdates = updatesByServer.get(server);
+                List<UpdateResultHandlerResponse<?>> rsps;
+                try {
+                    rsps = completion.get();
+                } catch (ExecutionException e) {
+                    log.debugf(e, "Failed applying updates to %s", server);
+                    rsps = Collections.<UpdateResultHandlerResponse<?>>nCopies(serverUpdates.size(), UpdateResultHandlerResponse.createFailureResponse(e.getCause()));
                 }
-                resultsByUpdate.put(serverUpdate, dur);
+                recordServerResults(server, serverUpdates, rsps, resultsByUpdate);
             }
+        } catch (InterruptedException e) {
+            log.debug("Interrupted reading server responses");
+            Thread.currentThread().interrupt();
         }
 
         result = new ArrayList<DomainUpdateResult<?>>();
@@ -676,6 +868,32 @@ public class DomainController implements Service<DomainController> {
         return result;
     }
 
+    private static void recordServerResults(final ServerIdentity server, final List<AbstractServerModelUpdate<?>> serverUpdates,
+            final List<UpdateResultHandlerResponse<?>> rsps, final Map<AbstractServerModelUpdate<?>, DomainUpdateResult<Object>> resultsByUpdate) {
+        for (int i = 0; i < serverUpdates.size(); i++) {
+            UpdateResultHandlerResponse<?> rsp = rsps.get(i);
+            AbstractServerModelUpdate<?> serverUpdate = serverUpdates.get(i);
+            DomainUpdateResult<Object> dur = resultsByUpdate.get(serverUpdate);
+
+            if (rsp.isCancelled()) {
+                dur = dur.newWithAddedCancellation(server);
+            }
+            else if (rsp.isTimedOut()) {
+                dur = dur.newWithAddedTimeout(server);
+            }
+            else if (rsp.isRolledBack()) {
+                dur = dur.newWithAddedRollback(server);
+            }
+            else if (rsp.getFailureResult() != null) {
+                dur = dur.newWithAddedFailure(server, rsp.getFailureResult());
+            }
+            else {
+                dur = dur.newWithAddedResult(server, rsp.getSuccessResult());
+            }
+            resultsByUpdate.put(serverUpdate, dur);
+        }
+    }
+
     private Map<ServerIdentity, List<AbstractServerModelUpdate<?>>> getUpdatesByServer(
             final List<AbstractDomainModelUpdate<?>> domainUpdates,
             final List<DomainUpdateApplierResponse> domainResults,
@@ -699,6 +917,77 @@ public class DomainController implements Service<DomainController> {
         return result;
     }
 
+    private void checkHeartbeats() {
+        final HeartbeatFailureDetector detector = failureDetector;
+        final long now = System.currentTimeMillis();
+        for (final ServerManagerClient client : clients.values()) {
+            final String id = client.getId();
+            final double phi = detector.phi(id, now);
+            if (phi > phiThreshold && unreachable.add(id)) {
+                log.warnf("Registered Server Manager [%s] has stopped answering heartbeats (phi %.1f); excluding it from domain updates", id, Double.valueOf(phi));
+                client.setReachable(false);
+            }
+            // Only one heartbeat per server manager at a time, so a hung one does not tie up more threads
+            if (heartbeatsInProgress.add(id)) {
+                try {
+                    scheduledExecutorService.getValue().execute(new Runnable() {
+                        public void run() {
+                            try {
+                                if (client.heartbeat()) {
+                                    heartbeatReceived(client);
+                                }
+                            } finally {
+                                heartbeatsInProgress.remove(id);
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    heartbeatsInProgress.remove(id);
+                }
+            }
+        }
+    }
+
+    private void heartbeatReceived(final ServerManagerClient client) {
+        final String id = client.getId();
+        if (clients.get(id) != client) {
+            // Unregistered meanwhile
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        if (unreachable.contains(id)) {
+            // Start over, so the outage does not count as an interval between heartbeats
+            failureDetector.reset(id, now);
+            client.setReachable(true);
+            log.infof("Registered Server Manager [%s] is answering heartbeats again; pushing the domain model", id);
+            try {
+                client.updateDomainModel(getDomainModelSnapshot());
+                unreachable.remove(id);
+            } catch (Exception e) {
+                log.errorf(e, "Failed pushing the domain model to server manager %s", id);
+                client.setReachable(false);
+            }
+        }
+        else {
+            failureDetector.heartbeat(id, now);
+        }
+    }
+
+    UpdateFanOut getUpdateFanOut() {
+        return updateFanOut;
+    }
+
+    /**
+     * Get the maximum number of servers in a server group to update at the same time.
+     *
+     * @param serverGroupName the name of the server group
+     * @return the group's limit, or {@code 0} if only the overall limit applies
+     */
+    int getMaxUpdateConcurrency(final String serverGroupName) {
+        final ServerGroupElement serverGroup = getDomainModel().getServerGroup(serverGroupName);
+        return serverGroup == null ? 0 : serverGroup.getMaxUpdateConcurrency();
+    }
+
     UpdateResultHandlerResponse<?> restartServer(ServerIdentity server, long gracefulTimeout) {
         ServerStatus status = restartServer(server.getHostName(), server.getServerName(), gracefulTimeout);
         switch (status) {
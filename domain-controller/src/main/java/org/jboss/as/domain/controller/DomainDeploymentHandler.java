@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -331,8 +332,15 @@ public class DomainDeploymentHandler {
         logger.debugf("Creating server tasks for %s domain responses", rsps.size());
         // Organize all the impacted servers by ServerGroup, sorted within a group by ServerManager
         Map<String, SortedSet<ServerIdentity>> serversByGroup = new HashMap<String, SortedSet<ServerIdentity>>();
+        Set<ServerIdentity> excluded = new HashSet<ServerIdentity>();
         for (DomainUpdateApplierResponse duar : rsps) {
             for (ServerIdentity serverId : duar.getServers()) {
+                if (!domainController.isServerManagerReachable(serverId.getHostName())) {
+                    if (excluded.add(serverId)) {
+                        logger.infof("Excluding %s from the plan; its server manager is not answering heartbeats", serverId);
+                    }
+                    continue;
+                }
                 String serverGroupName = serverId.getServerGroupName();
                 SortedSet<ServerIdentity> set = serversByGroup.get(serverGroupName);
                 if (set == null) {
@@ -420,11 +428,19 @@ public class DomainDeploymentHandler {
                     }
                 }
 
+                // Each server update goes through the fan-out, so it counts against
+                // the overall and per group limits even when rolling
+                UpdateFanOut fanOut = domainController.getUpdateFanOut();
+                int maxGroupConcurrency = domainController.getMaxUpdateConcurrency(serverGroupName);
                 if (groupPlan.isRollingToServers()) {
-                    concurrentGroupsList.add(new RollingUpdateTask(groupTasks));
+                    List<Runnable> rollingTasks = new ArrayList<Runnable>(groupTasks.size());
+                    for (Runnable groupTask : groupTasks) {
+                        rollingTasks.add(new ConcurrentUpdateTask(Collections.singletonList(groupTask), fanOut, serverGroupName, maxGroupConcurrency));
+                    }
+                    concurrentGroupsList.add(new RollingUpdateTask(rollingTasks));
                 }
                 else {
-                    concurrentGroupsList.add(new ConcurrentUpdateTask(groupTasks, getDeploymentExecutor()));
+                    concurrentGroupsList.add(new ConcurrentUpdateTask(groupTasks, fanOut, serverGroupName, maxGroupConcurrency));
                 }
             }
             masterList.add(new ConcurrentUpdateTask(concurrentGroupsList, getDeploymentExecutor()));
@@ -0,0 +1,120 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.domain.controller;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.as.model.AbstractDomainModelUpdate;
+
+/**
+ * Record of the most recent updates applied to the domain model.  Each update bumps the model revision, so a client
+ * holding the model at some revision can be brought up to date with the updates applied since, rather than with a
+ * full copy of the model.  Revisions are only meaningful within an epoch; a new epoch starts whenever the domain
+ * model is loaded, or is changed in a way the journal cannot describe.
+ */
+public final class DomainUpdateJournal {
+
+    private static final AtomicLong lastEpoch = new AtomicLong();
+
+    private final long epoch = nextEpoch();
+    private final int capacity;
+    private final LinkedList<AbstractDomainModelUpdate<?>> updates = new LinkedList<AbstractDomainModelUpdate<?>>();
+    private long revision;
+
+    /**
+     * Create a journal.
+     *
+     * @param capacity the number of updates to keep
+     */
+    public DomainUpdateJournal(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity is negative");
+        }
+        this.capacity = capacity;
+    }
+
+    private static long nextEpoch() {
+        // A journal started in the same millisecond as the one it replaces must still have an epoch of its own
+        for (;;) {
+            final long last = lastEpoch.get();
+            final long next = Math.max(System.currentTimeMillis(), last + 1L);
+            if (lastEpoch.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Record an update which has been applied to the model.
+     *
+     * @param update the update
+     */
+    public synchronized void record(final AbstractDomainModelUpdate<?> update) {
+        revision++;
+        updates.addLast(update);
+        if (updates.size() > capacity) {
+            updates.removeFirst();
+        }
+    }
+
+    /**
+     * Get the epoch of this journal.
+     *
+     * @return the epoch
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Get the current revision of the model.
+     *
+     * @return the revision
+     */
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Get the updates applied since the given revision.
+     *
+     * @param epoch the epoch of the revision
+     * @param revision the revision
+     * @return the updates in the order they were applied, or {@code null} if the journal no longer holds all of them
+     *         or the revision does not belong to this journal
+     */
+    public synchronized List<AbstractDomainModelUpdate<?>> getUpdatesSince(final long epoch, final long revision) {
+        if (epoch != this.epoch || revision > this.revision) {
+            return null;
+        }
+        final long missed = this.revision - revision;
+        if (missed > updates.size()) {
+            return null;
+        }
+        return new ArrayList<AbstractDomainModelUpdate<?>>(updates.subList(updates.size() - (int) missed, updates.size()));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.domain.controller;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Phi accrual failure detector for the heartbeats of server managers.
+ * <p>
+ * For each server manager the detector keeps a window of the intervals between the heartbeat replies it received.
+ * Rather than declaring a server manager dead after a fixed timeout, it computes phi, the negative base 10 logarithm
+ * of the probability that a reply is still to come given the time since the last one, assuming normally distributed
+ * intervals. A phi of 8 means roughly a one in a hundred million chance of declaring a live server manager dead. A
+ * server manager whose replies have always been irregular thus gets more slack than one whose replies are regular.
+ * <p>
+ * Until there are intervals to go on, the heartbeat interval is used as their mean. The standard deviation has a
+ * lower bound, and one missed heartbeat is tolerated before phi starts to rise, so that a server manager is not
+ * declared dead because its first few replies happened to be very regular.
+ */
+final class HeartbeatFailureDetector {
+
+    private static final int WINDOW_SIZE = 100;
+
+    private final long heartbeatInterval;
+    private final long minStdDeviation;
+    private final ConcurrentMap<String, History> histories = new ConcurrentHashMap<String, History>();
+
+    /**
+     * Create a new detector.
+     *
+     * @param heartbeatInterval the interval between heartbeats, in milliseconds
+     */
+    HeartbeatFailureDetector(final long heartbeatInterval) {
+        if (heartbeatInterval <= 0) {
+            throw new IllegalArgumentException("heartbeatInterval must be positive");
+        }
+        this.heartbeatInterval = heartbeatInterval;
+        this.minStdDeviation = Math.max(heartbeatInterval / 4, 1L);
+    }
+
+    /**
+     * Start watching a server manager, or start over for one that was declared dead, as if a heartbeat reply had just
+     * been received with no history of earlier ones.
+     *
+     * @param id the server manager id
+     * @param now the current time, in milliseconds
+     */
+    void reset(final String id, final long now) {
+        histories.put(id, new History(now));
+    }
+
+    /**
+     * Stop watching a server manager.
+     *
+     * @param id the server manager id
+     */
+    void remove(final String id) {
+        histories.remove(id);
+    }
+
+    /**
+     * Record a heartbeat reply.
+     *
+     * @param id the server manager id
+     * @param now the time the reply was received, in milliseconds
+     */
+    void heartbeat(final String id, final long now) {
+        final History history = histories.get(id);
+        if (history == null) {
+            reset(id, now);
+        } else {
+            history.add(now);
+        }
+    }
+
+    /**
+     * Compute the suspicion level of a server manager.
+     *
+     * @param id the server manager id
+     * @param now the current time, in milliseconds
+     * @return phi, or {@code 0} if the server manager is not being watched
+     */
+    double phi(final String id, final long now) {
+        final History history = histories.get(id);
+        if (history == null) {
+            return 0.0;
+        }
+        return history.phi(now);
+    }
+
+    private final class History {
+        private final long[] intervals = new long[WINDOW_SIZE];
+        private int count;
+        private int next;
+        private long sum;
+        private long squaredSum;
+        private long last;
+
+        private History(final long now) {
+            last = now;
+        }
+
+        synchronized void add(final long now) {
+            final long interval = Math.max(now - last, 0L);
+            last = now;
+            if (count == WINDOW_SIZE) {
+                final long dropped = intervals[next];
+                sum -= dropped;
+                squaredSum -= dropped * dropped;
+            } else {
+                count++;
+            }
+            intervals[next] = interval;
+            next = (next + 1) % WINDOW_SIZE;
+            sum += interval;
+            squaredSum += interval * interval;
+        }
+
+        synchronized double phi(final long now) {
+            final double mean;
+            final double variance;
+            if (count == 0) {
+                mean = heartbeatInterval;
+                variance = 0.0;
+            } else {
+                mean = (double) sum / count;
+                variance = (double) squaredSum / count - mean * mean;
+            }
+            final double stdDeviation = Math.max(Math.sqrt(Math.max(variance, 0.0)), minStdDeviation);
+            // Tolerate one missed heartbeat before suspicion starts to rise
+            final double y = ((now - last) - (mean + heartbeatInterval)) / stdDeviation;
+            // Logistic approximation of the cumulative normal distribution
+            final double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+            if (y > 0) {
+                return -Math.log10(e / (1.0 + e));
+            } else {
+                return -Math.log10(1.0 - 1.0 / (1.0 + e));
+            }
+        }
+    }
+}
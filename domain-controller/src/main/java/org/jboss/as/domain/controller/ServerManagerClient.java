@@ -58,6 +58,23 @@ public interface ServerManagerClient {
      */
     boolean isActive();
 
+    /**
+     * Send a heartbeat to the server manager and wait for its reply. Unlike other requests, heartbeats
+     * are sent while the client is {@link #setReachable(boolean) unreachable}, so that the server manager's
+     * recovery can be noticed.
+     *
+     * @return true if the server manager replied, false if not.
+     */
+    boolean heartbeat();
+
+    /**
+     * Mark whether the server manager is answering heartbeats. While it is unreachable, requests other than
+     * heartbeats fail immediately, and marking it unreachable fails the requests in progress.
+     *
+     * @param reachable whether the server manager is reachable
+     */
+    void setReachable(boolean reachable);
+
     /**
      * Update the client with a new version of the full domain.
      *
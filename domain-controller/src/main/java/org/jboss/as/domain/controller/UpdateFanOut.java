@@ -0,0 +1,305 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.domain.controller;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Fans calls out to server managers and servers with bounded parallelism, and hands their results back in the order
+ * they complete.
+ * <p>
+ * Calls are grouped into {@link Batch batches}, one per domain operation. All batches share one limit on the number
+ * of calls in progress. A call made for a server group may also carry the group's own limit, taken from its
+ * {@link org.jboss.as.model.ServerGroupElement#getMaxUpdateConcurrency() server-group element}, on the calls in
+ * progress for that group. Calls that cannot start yet
+ * wait in a single queue and are started in submission order as others complete, skipping calls whose server group
+ * is at its limit; no executor thread is held while a call waits. The caller of a batch takes each result as soon as
+ * its call completes, so one slow host does not hold back the results of the others.
+ * <p>
+ * Only calls that do not themselves wait on other calls of this fan-out should be submitted, otherwise they could
+ * hold every slot while waiting for calls that cannot start.
+ */
+final class UpdateFanOut {
+
+    /** System property holding the maximum number of calls in progress across the domain */
+    static final String MAX_CONCURRENCY = "jboss.domain.update.max-concurrency";
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 16;
+
+    private final Executor executor;
+    private final int maxConcurrency;
+    private final LinkedList<Call<?>> pending = new LinkedList<Call<?>>();
+    private final Map<String, Integer> runningByGroup = new HashMap<String, Integer>();
+    private int running;
+
+    /**
+     * Create a new fan-out.
+     *
+     * @param executor the executor running the calls
+     * @param maxConcurrency the maximum number of calls in progress, or {@code 0} for no limit
+     */
+    UpdateFanOut(final Executor executor, final int maxConcurrency) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor is null");
+        }
+        if (maxConcurrency < 0) {
+            throw new IllegalArgumentException("maxConcurrency is negative");
+        }
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency == 0 ? Integer.MAX_VALUE : maxConcurrency;
+    }
+
+    /**
+     * Create a new fan-out with the limit given by the {@link #MAX_CONCURRENCY} system property.
+     *
+     * @param executor the executor running the calls
+     * @return the fan-out
+     */
+    static UpdateFanOut create(final Executor executor) {
+        return new UpdateFanOut(executor, Integer.getInteger(MAX_CONCURRENCY, DEFAULT_MAX_CONCURRENCY).intValue());
+    }
+
+    /**
+     * Start a new batch of calls.
+     *
+     * @param <K> the type of the key identifying each call, typically a host name or server identity
+     * @param <T> the type of the call results
+     * @return the batch
+     */
+    <K, T> Batch<K, T> newBatch() {
+        return new Batch<K, T>();
+    }
+
+    private void dispatch() {
+        for (;;) {
+            final Call<?> next;
+            synchronized (this) {
+                next = nextRunnable();
+                if (next == null) {
+                    return;
+                }
+            }
+            try {
+                executor.execute(next);
+            } catch (RejectedExecutionException e) {
+                try {
+                    next.complete(null, e);
+                } finally {
+                    release(next);
+                }
+            }
+        }
+    }
+
+    private Call<?> nextRunnable() {
+        assert Thread.holdsLock(this);
+        if (running >= maxConcurrency) {
+            return null;
+        }
+        final Iterator<Call<?>> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            final Call<?> call = iterator.next();
+            final Integer groupRunning = call.group == null ? null : runningByGroup.get(call.group);
+            if (groupRunning != null && groupRunning.intValue() >= call.maxGroupConcurrency) {
+                continue;
+            }
+            iterator.remove();
+            running++;
+            if (call.group != null) {
+                runningByGroup.put(call.group, Integer.valueOf(groupRunning == null ? 1 : groupRunning.intValue() + 1));
+            }
+            return call;
+        }
+        return null;
+    }
+
+    private void finished(final Call<?> call) {
+        release(call);
+        dispatch();
+    }
+
+    private synchronized void release(final Call<?> call) {
+        running--;
+        if (call.group != null) {
+            final int groupRunning = runningByGroup.get(call.group).intValue() - 1;
+            if (groupRunning == 0) {
+                runningByGroup.remove(call.group);
+            } else {
+                runningByGroup.put(call.group, Integer.valueOf(groupRunning));
+            }
+        }
+    }
+
+    /**
+     * The calls made for one domain operation.
+     *
+     * @param <K> the type of the key identifying each call
+     * @param <T> the type of the call results
+     */
+    final class Batch<K, T> {
+        private final BlockingQueue<Completion<K, T>> completed = new LinkedBlockingQueue<Completion<K, T>>();
+        private int outstanding;
+
+        private Batch() {
+        }
+
+        /**
+         * Submit a call.
+         *
+         * @param key the key identifying the call in its {@link Completion}
+         * @param group the server group the call counts against, or {@code null} if it only counts against the
+         *            overall limit
+         * @param maxGroupConcurrency the maximum number of calls in progress for the server group, or {@code 0} for
+         *            no limit
+         * @param callable the call
+         */
+        void submit(final K key, final String group, final int maxGroupConcurrency, final Callable<T> callable) {
+            if (maxGroupConcurrency < 0) {
+                throw new IllegalArgumentException("maxGroupConcurrency is negative");
+            }
+            synchronized (this) {
+                outstanding++;
+            }
+            synchronized (UpdateFanOut.this) {
+                pending.add(new BatchCall(key, group, maxGroupConcurrency, callable));
+            }
+            dispatch();
+        }
+
+        /**
+         * Get the number of submitted calls whose results have not been taken yet.
+         *
+         * @return the number of calls
+         */
+        synchronized int getOutstanding() {
+            return outstanding;
+        }
+
+        /**
+         * Wait for the next call to complete.
+         *
+         * @return the completed call, or {@code null} if all submitted calls have already been taken
+         * @throws InterruptedException if interrupted while waiting
+         */
+        Completion<K, T> take() throws InterruptedException {
+            synchronized (this) {
+                if (outstanding == 0) {
+                    return null;
+                }
+                outstanding--;
+            }
+            return completed.take();
+        }
+
+        private final class BatchCall extends Call<T> {
+            private final K key;
+
+            private BatchCall(final K key, final String group, final int maxGroupConcurrency, final Callable<T> callable) {
+                super(group, maxGroupConcurrency, callable);
+                this.key = key;
+            }
+
+            void complete(final T result, final Throwable failure) {
+                completed.add(new Completion<K, T>(key, result, failure));
+            }
+        }
+    }
+
+    /**
+     * The outcome of a call.
+     *
+     * @param <K> the type of the key identifying the call
+     * @param <T> the type of the call result
+     */
+    static final class Completion<K, T> {
+        private final K key;
+        private final T result;
+        private final Throwable failure;
+
+        private Completion(final K key, final T result, final Throwable failure) {
+            this.key = key;
+            this.result = result;
+            this.failure = failure;
+        }
+
+        /**
+         * Get the key the call was submitted with.
+         *
+         * @return the key
+         */
+        K getKey() {
+            return key;
+        }
+
+        /**
+         * Get the result of the call.
+         *
+         * @return the result
+         * @throws ExecutionException if the call threw an exception, or could not be run
+         */
+        T get() throws ExecutionException {
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return result;
+        }
+    }
+
+    private abstract class Call<T> implements Runnable {
+        private final String group;
+        private final int maxGroupConcurrency;
+        private final Callable<T> callable;
+
+        Call(final String group, final int maxGroupConcurrency, final Callable<T> callable) {
+            this.group = group;
+            this.maxGroupConcurrency = maxGroupConcurrency == 0 ? Integer.MAX_VALUE : maxGroupConcurrency;
+            this.callable = callable;
+        }
+
+        public void run() {
+            T result = null;
+            Throwable failure = null;
+            try {
+                result = callable.call();
+            } catch (Throwable t) {
+                failure = t;
+            }
+            try {
+                complete(result, failure);
+            } finally {
+                finished(this);
+            }
+        }
+
+        abstract void complete(T result, Throwable failure);
+    }
+}
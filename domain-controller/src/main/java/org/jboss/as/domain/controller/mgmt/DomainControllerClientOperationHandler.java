@@ -22,6 +22,7 @@
 
 package org.jboss.as.domain.controller.mgmt;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -41,6 +42,7 @@ import org.jboss.as.domain.client.api.deployment.DeploymentPlan;
 import org.jboss.as.domain.client.impl.DomainUpdateApplierResponse;
 import org.jboss.as.domain.client.impl.DomainClientProtocol;
 import org.jboss.as.domain.controller.DomainController;
+import org.jboss.as.domain.controller.DomainUpdateJournal;
 import org.jboss.as.domain.controller.StreamedResponse;
 import org.jboss.as.model.AbstractDomainModelUpdate;
 import org.jboss.as.model.AbstractHostModelUpdate;
@@ -194,19 +196,95 @@ public class  DomainControllerClientOperationHandler extends AbstractMessageHand
     }
 
     private class GetDomainOperation extends ManagementResponse {
+        private boolean revisionRequested;
+        private long epoch;
+        private long revision;
 
         @Override
         protected final byte getResponseCode() {
             return DomainClientProtocol.GET_DOMAIN_RESPONSE;
         }
 
+        @Override
+        protected final void readRequest(final InputStream inputStream) throws IOException {
+            // Clients which keep a copy of the model send the revision they hold; older ones send nothing
+            ByteDataInput input = null;
+            try {
+                input = new SimpleByteDataInput(inputStream);
+                final int param = input.read();
+                if (param != -1) {
+                    if (param != DomainClientProtocol.PARAM_DOMAIN_MODEL_REVISION) {
+                        throw new IOException("Invalid parameter " + param + " received");
+                    }
+                    revisionRequested = true;
+                    epoch = input.readLong();
+                    revision = input.readLong();
+                }
+            } finally {
+                safeClose(input);
+            }
+        }
+
         @Override
         protected void sendResponse(final OutputStream outputStream) throws IOException {
-                final Marshaller marshaller = getMarshaller();
-                marshaller.start(createByteOutput(outputStream));
-                marshaller.writeByte(DomainClientProtocol.RETURN_DOMAIN_MODEL);
-                marshaller.writeObject(domainController.getDomainModel());
-                marshaller.finish();
+            if (!revisionRequested) {
+                final ByteArrayOutputStream modelSnapshot = new ByteArrayOutputStream();
+                synchronized (domainController) {
+                    final Marshaller marshaller = getMarshaller();
+                    marshaller.start(createByteOutput(modelSnapshot));
+                    marshaller.writeByte(DomainClientProtocol.RETURN_DOMAIN_MODEL);
+                    marshaller.writeObject(domainController.getDomainModel());
+                    marshaller.finish();
+                }
+                modelSnapshot.writeTo(outputStream);
+                return;
+            }
+            // Hold the controller only while taking a consistent snapshot, so that a slow client does not hold
+            // back updates: the journaled updates are never modified once applied and can be written afterwards,
+            // but the model itself is marshalled into a buffer before the controller is released
+            final long currentEpoch;
+            final long currentRevision;
+            final List<AbstractDomainModelUpdate<?>> updates;
+            final ByteArrayOutputStream modelSnapshot;
+            synchronized (domainController) {
+                final DomainUpdateJournal journal = domainController.getUpdateJournal();
+                updates = journal.getUpdatesSince(epoch, revision);
+                currentEpoch = journal.getEpoch();
+                currentRevision = journal.getRevision();
+                if (updates == null) {
+                    modelSnapshot = new ByteArrayOutputStream();
+                    final Marshaller modelMarshaller = getMarshaller();
+                    modelMarshaller.start(createByteOutput(modelSnapshot));
+                    writeRevision(modelMarshaller, currentEpoch, currentRevision);
+                    // The client is too far behind, or the model was reloaded since it last synchronized
+                    modelMarshaller.writeByte(DomainClientProtocol.RETURN_DOMAIN_MODEL);
+                    modelMarshaller.writeObject(domainController.getDomainModel());
+                    modelMarshaller.finish();
+                } else {
+                    modelSnapshot = null;
+                }
+            }
+            if (modelSnapshot != null) {
+                modelSnapshot.writeTo(outputStream);
+                return;
+            }
+            log.debugf("Sending %d domain model updates since revision %d", updates.size(), revision);
+            final Marshaller marshaller = getMarshaller();
+            marshaller.start(createByteOutput(outputStream));
+            writeRevision(marshaller, currentEpoch, currentRevision);
+            marshaller.writeByte(DomainClientProtocol.RETURN_DOMAIN_MODEL_UPDATE_COUNT);
+            marshaller.writeInt(updates.size());
+            for (AbstractDomainModelUpdate<?> update : updates) {
+                marshaller.writeByte(DomainClientProtocol.PARAM_DOMAIN_MODEL_UPDATE);
+                marshaller.writeObject(update);
+            }
+            marshaller.finish();
+        }
+
+        private void writeRevision(final Marshaller marshaller, final long epoch, final long revision) throws IOException {
+            marshaller.writeByte(DomainClientProtocol.PARAM_DOMAIN_MODEL_REVISION);
+            marshaller.writeLong(epoch);
+            marshaller.writeLong(revision);
         }
     }
 
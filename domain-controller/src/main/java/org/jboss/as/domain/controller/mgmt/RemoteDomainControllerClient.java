@@ -49,9 +49,11 @@ import org.jboss.as.model.UpdateResultHandlerResponse;
 import org.jboss.as.protocol.ProtocolUtils;
 import static org.jboss.as.protocol.ProtocolUtils.unmarshal;
 import org.jboss.as.protocol.mgmt.ManagementException;
+import org.jboss.as.protocol.mgmt.ManagementMultiplexer;
 import org.jboss.as.protocol.mgmt.ManagementRequest;
 import org.jboss.as.protocol.mgmt.ManagementRequestConnectionStrategy;
 import org.jboss.as.protocol.mgmt.ServerManagerProtocol;
+import org.jboss.logging.Logger;
 import org.jboss.marshalling.Marshaller;
 import static org.jboss.marshalling.Marshalling.createByteInput;
 import static org.jboss.marshalling.Marshalling.createByteOutput;
@@ -63,11 +65,19 @@ import org.jboss.marshalling.Unmarshaller;
  * @author John Bailey
  */
 public class RemoteDomainControllerClient implements ServerManagerClient {
+    private static final Logger log = Logger.getLogger("org.jboss.as.domain.controller");
+
     private final String id;
     private final InetAddress address;
     private final int port;
     private final ScheduledExecutorService executorService;
     private final ThreadFactory threadFactory;
+    // protected by {@code this}
+    private ManagementMultiplexer multiplexer;
+    // protected by {@code this}
+    private boolean connecting;
+    private volatile boolean multiplexingUnsupported;
+    private volatile boolean reachable = true;
 
     public RemoteDomainControllerClient(final String id, final InetAddress address, final int port, final ScheduledExecutorService executorService, final ThreadFactory threadFactory) {
         this.id = id;
@@ -124,6 +134,31 @@ public class RemoteDomainControllerClient implements ServerManagerClient {
         }
     }
 
+    /** {@inheritDoc} */
+    public boolean heartbeat() {
+        try {
+            new HeartbeatRequest().executeForResult(getReachableConnectionStrategy());
+            return true;
+        } catch (Exception e) {
+            log.tracef(e, "Heartbeat to server manager %s failed", id);
+            return false;
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void setReachable(final boolean reachable) {
+        this.reachable = reachable;
+        if (!reachable) {
+            // Closing the shared connection fails every request in progress on it
+            synchronized (this) {
+                if (multiplexer != null) {
+                    multiplexer.close();
+                    multiplexer = null;
+                }
+            }
+        }
+    }
+
     @Override
     public HostModel getHostModel() {
         try {
@@ -267,6 +302,18 @@ public class RemoteDomainControllerClient implements ServerManagerClient {
     }
 
 
+    private class HeartbeatRequest extends ServerManagerRequest<Void> {
+        @Override
+        public final byte getRequestCode() {
+            return ServerManagerProtocol.HEARTBEAT_REQUEST;
+        }
+
+        @Override
+        protected final byte getResponseCode() {
+            return ServerManagerProtocol.HEARTBEAT_RESPONSE;
+        }
+    }
+
     private class UpdateDomainModelRequest extends ServerManagerRequest<List<ModelUpdateResponse<List<ServerIdentity>>>> {
         private final List<AbstractDomainModelUpdate<?>> updates;
 
@@ -588,7 +635,53 @@ public class RemoteDomainControllerClient implements ServerManagerClient {
         return ProtocolUtils.getUnmarshaller(ProtocolUtils.MODULAR_CONFIG);
     }
 
-    private ManagementRequestConnectionStrategy getConnectionStrategy() {
+    private ManagementRequestConnectionStrategy getConnectionStrategy() throws IOException {
+        if (!reachable) {
+            throw new IOException("Server manager " + id + " is not answering heartbeats");
+        }
+        return getReachableConnectionStrategy();
+    }
+
+    private ManagementRequestConnectionStrategy getReachableConnectionStrategy() {
+        if (!multiplexingUnsupported) {
+            synchronized (this) {
+                if (multiplexer != null && multiplexer.isOpen()) {
+                    return new ManagementRequestConnectionStrategy.MultiplexedConnectionStrategy(multiplexer);
+                }
+                multiplexer = null;
+                if (connecting) {
+                    // Another caller is negotiating; don't wait for it, the handshake can take the whole timeout
+                    return new ManagementRequestConnectionStrategy.EstablishConnectingStrategy(address, port, 10L, executorService, threadFactory);
+                }
+                connecting = true;
+            }
+            ManagementMultiplexer connected = null;
+            try {
+                connected = ManagementMultiplexer.connect(address, port, 10L, executorService, threadFactory);
+            } catch (ManagementException e) {
+                log.debugf(e, "Server manager %s does not support multiplexed connections", id);
+                multiplexingUnsupported = true;
+            } catch (IOException e) {
+                // Fall back to a dedicated connection, which will report the failure to the caller
+                log.debugf(e, "Failed to establish a multiplexed connection to server manager %s", id);
+            } finally {
+                synchronized (this) {
+                    connecting = false;
+                    if (connected != null) {
+                        if (reachable) {
+                            multiplexer = connected;
+                        } else {
+                            // declared unreachable while we were connecting
+                            connected.close();
+                            connected = null;
+                        }
+                    }
+                }
+            }
+            if (connected != null) {
+                return new ManagementRequestConnectionStrategy.MultiplexedConnectionStrategy(connected);
+            }
+        }
         return new ManagementRequestConnectionStrategy.EstablishConnectingStrategy(address, port, 10L, executorService, threadFactory);
     }
 
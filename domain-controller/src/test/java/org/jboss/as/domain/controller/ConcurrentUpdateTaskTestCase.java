@@ -0,0 +1,138 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.domain.controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link ConcurrentUpdateTask} fanning its tasks out through an {@link UpdateFanOut}.
+ */
+public class ConcurrentUpdateTaskTestCase {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void testAllTasksRunWithinGroupLimit() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        for (int i = 0; i < 6; i++) {
+            final String name = "server-" + i;
+            tasks.add(new Runnable() {
+                public void run() {
+                    final int now = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), now));
+                    }
+                    try {
+                        Thread.sleep(50L);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    completed.add(name);
+                }
+            });
+        }
+
+        new ConcurrentUpdateTask(tasks, new UpdateFanOut(executor, 0), "main-server-group", 2).run();
+
+        // run() returns only once every task has completed
+        assertEquals(6, completed.size());
+        assertTrue("Group limit exceeded: " + maxRunning.get(), maxRunning.get() <= 2);
+    }
+
+    @Test(timeout = 10000)
+    public void testFailedTaskDoesNotStopOthers() throws Exception {
+        final CountDownLatch ran = new CountDownLatch(2);
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        tasks.add(new Runnable() {
+            public void run() {
+                ran.countDown();
+                throw new IllegalStateException("server unreachable");
+            }
+        });
+        tasks.add(new Runnable() {
+            public void run() {
+                ran.countDown();
+            }
+        });
+
+        new ConcurrentUpdateTask(tasks, new UpdateFanOut(executor, 1), "main-server-group", 0).run();
+        assertEquals(0, ran.getCount());
+    }
+
+    @Test(timeout = 10000)
+    public void testInterruptedWhileWaiting() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Runnable> tasks = Collections.<Runnable>singletonList(new Runnable() {
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        final ConcurrentUpdateTask task = new ConcurrentUpdateTask(tasks, new UpdateFanOut(executor, 0), "main-server-group", 0);
+        final AtomicInteger interrupted = new AtomicInteger();
+        final Thread waiter = new Thread(new Runnable() {
+            public void run() {
+                task.run();
+                if (Thread.currentThread().isInterrupted()) {
+                    interrupted.incrementAndGet();
+                }
+            }
+        });
+        waiter.start();
+        assertTrue(started.await(5L, TimeUnit.SECONDS));
+        waiter.interrupt();
+        waiter.join(5000L);
+        // the waiter returns with its interrupt status kept, without waiting for the task
+        assertFalse(waiter.isAlive());
+        assertEquals(1, interrupted.get());
+        release.countDown();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.domain.controller;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link HeartbeatFailureDetector}. The detector is given the time of each event, so the tests run on a
+ * simulated clock rather than waiting.
+ */
+public class HeartbeatFailureDetectorTestCase {
+
+    private static final long INTERVAL = 1000L;
+    private static final double THRESHOLD = 8.0;
+    private static final double DELTA = 1e-9;
+
+    private final HeartbeatFailureDetector detector = new HeartbeatFailureDetector(INTERVAL);
+    private long now = 1000000L;
+
+    @Test
+    public void testUnwatchedServerManager() {
+        assertEquals(0.0, detector.phi("unknown", now), 0.0);
+    }
+
+    @Test
+    public void testPhiRisesWithSilence() {
+        detector.reset("host", now);
+        regularHeartbeats("host", 10);
+
+        // One missed heartbeat is tolerated: phi is that of a reply being exactly on time
+        assertTrue(detector.phi("host", now + INTERVAL) < 0.001);
+        assertEquals(Math.log10(2.0), detector.phi("host", now + 2 * INTERVAL), DELTA);
+        double previous = 0.0;
+        for (long elapsed = 0; elapsed <= 5 * INTERVAL; elapsed += INTERVAL / 10) {
+            final double phi = detector.phi("host", now + elapsed);
+            assertTrue("phi fell at " + elapsed, phi >= previous);
+            previous = phi;
+        }
+        assertTrue(detector.phi("host", now + 3 * INTERVAL) < THRESHOLD);
+        assertTrue(detector.phi("host", now + 4 * INTERVAL) > THRESHOLD);
+    }
+
+    @Test
+    public void testHeartbeatIntervalIsUsedWithoutHistory() {
+        detector.reset("host", now);
+        assertEquals(Math.log10(2.0), detector.phi("host", now + 2 * INTERVAL), DELTA);
+        // A heartbeat from a server manager that is not watched starts watching it
+        detector.heartbeat("other", now);
+        assertEquals(Math.log10(2.0), detector.phi("other", now + 2 * INTERVAL), DELTA);
+    }
+
+    @Test
+    public void testIrregularHistoryGetsMoreSlack() {
+        detector.reset("regular", now);
+        detector.reset("irregular", now);
+        final long start = now;
+        regularHeartbeats("regular", 100);
+        now = start;
+        irregularHeartbeats("irregular", 100);
+
+        assertEquals(detector.phi("regular", now), detector.phi("irregular", now), 0.001);
+        final long silence = now + 3 * INTERVAL + INTERVAL / 2;
+        assertTrue(detector.phi("regular", silence) > THRESHOLD);
+        assertTrue(detector.phi("irregular", silence) < THRESHOLD);
+    }
+
+    @Test
+    public void testWindowForgetsOldIntervals() {
+        final HeartbeatFailureDetector reference = new HeartbeatFailureDetector(INTERVAL);
+        detector.reset("host", now);
+        irregularHeartbeats("host", 100);
+        reference.reset("host", now);
+
+        // 99 regular intervals still leave one irregular interval in the window
+        for (int i = 0; i < 99; i++) {
+            now += INTERVAL;
+            detector.heartbeat("host", now);
+            reference.heartbeat("host", now);
+        }
+        final long silence = 3 * INTERVAL;
+        assertTrue(detector.phi("host", now + silence) < reference.phi("host", now + silence));
+
+        now += INTERVAL;
+        detector.heartbeat("host", now);
+        reference.heartbeat("host", now);
+        assertEquals(reference.phi("host", now + silence), detector.phi("host", now + silence), DELTA);
+    }
+
+    @Test
+    public void testSuspectAndUnsuspect() {
+        detector.reset("host", now);
+        regularHeartbeats("host", 20);
+
+        // The server manager stops answering until it is suspected
+        final long lastReply = now;
+        while (detector.phi("host", now) <= THRESHOLD) {
+            now += INTERVAL;
+        }
+        assertEquals(4 * INTERVAL, now - lastReply);
+
+        // It answers again and, as the domain controller does, is watched from scratch
+        detector.reset("host", now);
+        assertTrue(detector.phi("host", now) < 0.001);
+        regularHeartbeats("host", 5);
+        assertTrue(detector.phi("host", now + 3 * INTERVAL) < THRESHOLD);
+        assertTrue(detector.phi("host", now + 4 * INTERVAL) > THRESHOLD);
+    }
+
+    @Test
+    public void testOutageCountedAsIntervalAddsSlack() {
+        detector.reset("host", now);
+        regularHeartbeats("host", 20);
+        now += 60 * INTERVAL;
+        // Recording the reply after an outage, rather than resetting, puts the outage in the window
+        detector.heartbeat("host", now);
+        assertTrue(detector.phi("host", now + 10 * INTERVAL) < THRESHOLD);
+    }
+
+    @Test
+    public void testRemove() {
+        detector.reset("host", now);
+        regularHeartbeats("host", 5);
+        detector.remove("host");
+        assertEquals(0.0, detector.phi("host", now + 100 * INTERVAL), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidInterval() {
+        new HeartbeatFailureDetector(0L);
+    }
+
+    private void regularHeartbeats(final String id, final int count) {
+        for (int i = 0; i < count; i++) {
+            now += INTERVAL;
+            detector.heartbeat(id, now);
+        }
+    }
+
+    /**
+     * Heartbeats alternating between half and one and a half intervals apart: the mean interval is the heartbeat
+     * interval, the standard deviation half of it.
+     */
+    private void irregularHeartbeats(final String id, final int count) {
+        for (int i = 0; i < count; i++) {
+            now += i % 2 == 0 ? INTERVAL / 2 : INTERVAL + INTERVAL / 2;
+            detector.heartbeat(id, now);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.domain.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link UpdateFanOut}.
+ */
+public class UpdateFanOutTestCase {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final BlockingQueue<String> started = new LinkedBlockingQueue<String>();
+    private final Map<String, CountDownLatch> gates = new HashMap<String, CountDownLatch>();
+
+    @After
+    public void shutdown() {
+        for (CountDownLatch gate : gates.values()) {
+            gate.countDown();
+        }
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void testOverallLimit() throws Exception {
+        final UpdateFanOut fanOut = new UpdateFanOut(executor, 2);
+        final UpdateFanOut.Batch<String, String> batch = fanOut.newBatch();
+        for (int i = 0; i < 4; i++) {
+            batch.submit("call-" + i, null, 0, gated("call-" + i));
+        }
+        // calls start in submission order as slots free up
+        assertEquals("call-0", nextStarted());
+        assertEquals("call-1", nextStarted());
+        assertNothingStarted();
+
+        open("call-1");
+        assertEquals("call-1", batch.take().getKey());
+        assertEquals("call-2", nextStarted());
+        assertNothingStarted();
+
+        open("call-0");
+        open("call-2");
+        assertEquals("call-3", nextStarted());
+        open("call-3");
+        assertEquals(3, drain(batch));
+    }
+
+    @Test(timeout = 10000)
+    public void testBatchesShareLimit() throws Exception {
+        final UpdateFanOut fanOut = new UpdateFanOut(executor, 1);
+        final UpdateFanOut.Batch<String, String> first = fanOut.newBatch();
+        final UpdateFanOut.Batch<String, String> second = fanOut.newBatch();
+        first.submit("a", null, 0, gated("a"));
+        second.submit("b", null, 0, gated("b"));
+        assertEquals("a", nextStarted());
+        assertNothingStarted();
+
+        open("a");
+        assertEquals("a", first.take().getKey());
+        assertEquals("b", nextStarted());
+        open("b");
+        assertEquals("b", second.take().getKey());
+    }
+
+    @Test(timeout = 10000)
+    public void testGroupLimit() throws Exception {
+        final UpdateFanOut fanOut = new UpdateFanOut(executor, 0);
+        final UpdateFanOut.Batch<String, String> batch = fanOut.newBatch();
+        batch.submit("main-1", "main", 1, gated("main-1"));
+        batch.submit("main-2", "main", 1, gated("main-2"));
+        batch.submit("other-1", "other", 2, gated("other-1"));
+        batch.submit("ungrouped", null, 0, gated("ungrouped"));
+        batch.submit("other-2", "other", 2, gated("other-2"));
+        batch.submit("other-3", "other", 2, gated("other-3"));
+
+        // each group has its own limit, and calls of a group at its limit are skipped, not waited for
+        assertEquals("main-1", nextStarted());
+        assertEquals("other-1", nextStarted());
+        assertEquals("ungrouped", nextStarted());
+        assertEquals("other-2", nextStarted());
+        assertNothingStarted();
+
+        open("other-1");
+        assertEquals("other-1", batch.take().getKey());
+        assertEquals("other-3", nextStarted());
+        assertNothingStarted();
+
+        open("main-1");
+        assertEquals("main-1", batch.take().getKey());
+        assertEquals("main-2", nextStarted());
+        open("main-2");
+        open("other-2");
+        open("other-3");
+        open("ungrouped");
+        assertEquals(4, drain(batch));
+    }
+
+    @Test(timeout = 10000)
+    public void testResultsInCompletionOrder() throws Exception {
+        final UpdateFanOut fanOut = new UpdateFanOut(executor, 0);
+        final UpdateFanOut.Batch<String, String> batch = fanOut.newBatch();
+        batch.submit("slow", null, 0, gated("slow"));
+        batch.submit("medium", null, 0, gated("medium"));
+        batch.submit("fast", null, 0, gated("fast"));
+        assertEquals(3, batch.getOutstanding());
+
+        open("fast");
+        UpdateFanOut.Completion<String, String> completion = batch.take();
+        assertEquals("fast", completion.getKey());
+        assertEquals("fast-result", completion.get());
+        open("medium");
+        assertEquals("medium", batch.take().getKey());
+        open("slow");
+        assertEquals("slow", batch.take().getKey());
+
+        assertEquals(0, batch.getOutstanding());
+        assertNull(batch.take());
+    }
+
+    @Test(timeout = 10000)
+    public void testFailureIsReported() throws Exception {
+        final UpdateFanOut fanOut = new UpdateFanOut(executor, 1);
+        final UpdateFanOut.Batch<String, String> batch = fanOut.newBatch();
+        final IllegalStateException failure = new IllegalStateException("host unreachable");
+        batch.submit("broken", null, 0, new Callable<String>() {
+            public String call() {
+                throw failure;
+            }
+        });
+        batch.submit("working", null, 0, gated("working"));
+
+        final UpdateFanOut.Completion<String, String> completion = batch.take();
+        assertEquals("broken", completion.getKey());
+        try {
+            completion.get();
+            fail("Failure was not reported");
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        // the failed call freed its slot
+        assertEquals("working", nextStarted());
+        open("working");
+        assertEquals("working-result", batch.take().get());
+    }
+
+    @Test(timeout = 10000)
+    public void testRejectedCallIsReported() throws Exception {
+        final AtomicInteger executions = new AtomicInteger();
+        final UpdateFanOut fanOut = new UpdateFanOut(new Executor() {
+            public void execute(final Runnable command) {
+                if (executions.getAndIncrement() == 0) {
+                    throw new RejectedExecutionException("saturated");
+                }
+                executor.execute(command);
+            }
+        }, 1);
+        final UpdateFanOut.Batch<String, String> batch = fanOut.newBatch();
+        batch.submit("rejected", "main", 1, gated("rejected"));
+        batch.submit("accepted", "main", 1, gated("accepted"));
+
+        final UpdateFanOut.Completion<String, String> completion = batch.take();
+        assertEquals("rejected", completion.getKey());
+        try {
+            completion.get();
+            fail("Rejection was not reported");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        // the rejected call released both its overall and its group slot
+        assertEquals("accepted", nextStarted());
+        open("accepted");
+        assertEquals("accepted", batch.take().getKey());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeConcurrency() {
+        new UpdateFanOut(executor, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeGroupConcurrency() {
+        final UpdateFanOut.Batch<String, String> batch = new UpdateFanOut(executor, 0).newBatch();
+        batch.submit("call", "main", -1, gated("call"));
+    }
+
+    /**
+     * A call that reports it started and then waits for its gate to be {@link #open(String) opened}.
+     */
+    private Callable<String> gated(final String name) {
+        final CountDownLatch gate = new CountDownLatch(1);
+        synchronized (gates) {
+            gates.put(name, gate);
+        }
+        return new Callable<String>() {
+            public String call() throws Exception {
+                started.add(name);
+                gate.await();
+                return name + "-result";
+            }
+        };
+    }
+
+    private void open(final String name) {
+        synchronized (gates) {
+            gates.get(name).countDown();
+        }
+    }
+
+    private String nextStarted() throws InterruptedException {
+        final String name = started.poll(5L, TimeUnit.SECONDS);
+        if (name == null) {
+            throw new AssertionError("No call was started");
+        }
+        return name;
+    }
+
+    private void assertNothingStarted() throws InterruptedException {
+        assertNull(started.poll(200L, TimeUnit.MILLISECONDS));
+    }
+
+    private static int drain(final UpdateFanOut.Batch<String, String> batch) throws Exception {
+        int count = 0;
+        UpdateFanOut.Completion<String, String> completion;
+        while ((completion = batch.take()) != null) {
+            completion.get();
+            count++;
+        }
+        return count;
+    }
+}
@@ -28,20 +28,22 @@ package org.jboss.as.deployment;
  * @author John E. Bailey
  */
 public enum DeploymentPhases {
-    STRUCTURE(0L),
-    VALIDATE(STRUCTURE.plus(1000000L)),
-    PARSE_DESCRIPTORS(VALIDATE.plus(1000000L)),
-    MODULE_DEPENDENCIES(PARSE_DESCRIPTORS.plus(1000000L)),
-    MODULARIZE(MODULE_DEPENDENCIES.plus(1000000L)),
-    POST_MODULE_DESCRIPTORS(MODULARIZE.plus(1000000L)),
+    STRUCTURE(0L, true),
+    VALIDATE(STRUCTURE.plus(1000000L), false),
+    PARSE_DESCRIPTORS(VALIDATE.plus(1000000L), true),
+    MODULE_DEPENDENCIES(PARSE_DESCRIPTORS.plus(1000000L), false),
+    MODULARIZE(MODULE_DEPENDENCIES.plus(1000000L), false),
+    POST_MODULE_DESCRIPTORS(MODULARIZE.plus(1000000L), false),
     //...
-    INSTALL_SERVICES(POST_MODULE_DESCRIPTORS.plus(1000000L)),
-    CLEANUP(INSTALL_SERVICES.plus(1000000L));
+    INSTALL_SERVICES(POST_MODULE_DESCRIPTORS.plus(1000000L), false),
+    CLEANUP(INSTALL_SERVICES.plus(1000000L), false);
 
     private final long priority;
+    private final boolean concurrent;
 
-    private DeploymentPhases(long priority) {
+    private DeploymentPhases(long priority, boolean concurrent) {
         this.priority = priority;
+        this.concurrent = concurrent;
     }
 
     public long plus(final long offset) {
@@ -51,4 +53,30 @@ public enum DeploymentPhases {
     public long priority() {
         return priority;
     }
+
+    /**
+     * Determine whether different deployment units may run through this phase at the same time.  Processors in a
+     * concurrent phase only read and attach to their own deployment unit context; they must not use its batch builder.
+     *
+     * @return {@code true} if the phase may be run concurrently for independent deployment units
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    /**
+     * Get the phase a processor with the given priority belongs to.
+     *
+     * @param priority the processor priority
+     * @return the phase
+     */
+    public static DeploymentPhases forPriority(final long priority) {
+        final DeploymentPhases[] phases = values();
+        for (int i = phases.length - 1; i > 0; i--) {
+            if (priority >= phases[i].priority) {
+                return phases[i];
+            }
+        }
+        return phases[0];
+    }
 }
@@ -26,6 +26,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.jboss.jandex.Index;
 import org.jboss.msc.service.ServiceName;
 import org.jboss.vfs.VirtualFile;
 
@@ -67,4 +68,22 @@ public interface ServerDeploymentRepository {
      * @throws IOException
      */
     Closeable mountDeploymentContent(String name, String runtimeName, byte[] deploymentHash, VirtualFile mountPoint) throws IOException;
+
+    /**
+     * Gets the annotation index previously stored for the content with the given hash, if any.
+     *
+     * @param deploymentHash internal identification hash. Cannot be <code>null</code>
+     * @return the stored index, or <code>null</code> if none is available
+     */
+    Index getAnnotationIndex(byte[] deploymentHash);
+
+    /**
+     * Stores the annotation index for the content with the given hash, so it need not be rebuilt
+     * the next time the content is deployed.
+     *
+     * @param deploymentHash internal identification hash. Cannot be <code>null</code>
+     * @param index the annotation index. Cannot be <code>null</code>
+     * @throws IOException
+     */
+    void addAnnotationIndex(byte[] deploymentHash, Index index) throws IOException;
 }
@@ -22,6 +22,9 @@
 
 package org.jboss.as.deployment.chain;
 
+import org.jboss.as.deployment.DeploymentPhases;
+import org.jboss.as.deployment.unit.DeploymentUnitContext;
+import org.jboss.as.deployment.unit.DeploymentUnitProcessingException;
 import org.jboss.as.deployment.unit.DeploymentUnitProcessor;
 import org.jboss.msc.service.ServiceName;
 
@@ -56,4 +59,14 @@ public interface DeploymentChain extends DeploymentUnitProcessor {
      * @param priority The priority location to remove the processor from
      */
     void removeProcessor(DeploymentUnitProcessor processor, long priority);
+
+    /**
+     * Process the deployment unit using only the processors of the chain which belong to the given phase.
+     * Running every phase in order is equivalent to {@link #processDeployment(DeploymentUnitContext)}.
+     *
+     * @param context the deployment unit context
+     * @param phase the phase to run
+     * @throws DeploymentUnitProcessingException if an error occurs during processing
+     */
+    void processDeployment(DeploymentUnitContext context, DeploymentPhases phase) throws DeploymentUnitProcessingException;
 }
@@ -22,20 +22,30 @@
 
 package org.jboss.as.deployment.chain;
 
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.jboss.as.deployment.DeploymentPhases;
 import org.jboss.as.deployment.unit.DeploymentUnitContext;
 import org.jboss.as.deployment.unit.DeploymentUnitProcessingException;
 import org.jboss.as.deployment.unit.DeploymentUnitProcessor;
 
 /**
  * Deployment chain implementation used to execute multiple DeploymentUnitProcessor instances in priority order.
+ * The time spent in each processor is accumulated across all the deployment units processed by the chain.
  *
  * @author John E. Bailey
  */
 public class DeploymentChainImpl implements DeploymentChain {
     private final Set<OrderedProcessor> orderedProcessors = new ConcurrentSkipListSet<OrderedProcessor>();
+    private final ConcurrentMap<OrderedProcessor, AtomicLong> processorTimes = new ConcurrentHashMap<OrderedProcessor, AtomicLong>();
     private final String name;
 
     public DeploymentChainImpl(String name) {
@@ -57,8 +67,69 @@ public class DeploymentChainImpl implements DeploymentChain {
     public void processDeployment(DeploymentUnitContext context) throws DeploymentUnitProcessingException {
         final Set<OrderedProcessor> processors = this.orderedProcessors;
         for(OrderedProcessor orderedProcessor : processors) {
+            process(orderedProcessor, context);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void processDeployment(DeploymentUnitContext context, DeploymentPhases phase) throws DeploymentUnitProcessingException {
+        final Set<OrderedProcessor> processors = this.orderedProcessors;
+        for(OrderedProcessor orderedProcessor : processors) {
+            if(orderedProcessor.phase == phase) {
+                process(orderedProcessor, context);
+            }
+        }
+    }
+
+    private void process(OrderedProcessor orderedProcessor, DeploymentUnitContext context) throws DeploymentUnitProcessingException {
+        final long start = System.nanoTime();
+        try {
             orderedProcessor.processor.processDeployment(context);
+        } finally {
+            AtomicLong time = processorTimes.get(orderedProcessor);
+            if(time == null) {
+                final AtomicLong existing = processorTimes.putIfAbsent(orderedProcessor, time = new AtomicLong());
+                if(existing != null)
+                    time = existing;
+            }
+            time.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Get the time spent so far in each processor of this chain, in milliseconds.
+     *
+     * @return the processing times keyed by processor class name and priority, in chain order
+     */
+    public Map<String, Long> getProcessorTimes() {
+        final Map<String, Long> times = new LinkedHashMap<String, Long>();
+        for(OrderedProcessor orderedProcessor : orderedProcessors) {
+            final AtomicLong time = processorTimes.get(orderedProcessor);
+            if(time != null) {
+                times.put(orderedProcessor.processingOrder + ":" + orderedProcessor.name, Long.valueOf(TimeUnit.NANOSECONDS.toMillis(time.get())));
+            }
+        }
+        return times;
+    }
+
+    /**
+     * Get the time spent so far in each phase by the processors of this chain, in milliseconds.
+     *
+     * @return the processing times keyed by phase
+     */
+    public Map<DeploymentPhases, Long> getPhaseTimes() {
+        final Map<DeploymentPhases, Long> times = new EnumMap<DeploymentPhases, Long>(DeploymentPhases.class);
+        for(OrderedProcessor orderedProcessor : orderedProcessors) {
+            final AtomicLong time = processorTimes.get(orderedProcessor);
+            if(time != null) {
+                final Long current = times.get(orderedProcessor.phase);
+                times.put(orderedProcessor.phase, Long.valueOf((current == null ? 0L : current.longValue()) + time.get()));
+            }
+        }
+        for(Map.Entry<DeploymentPhases, Long> entry : times.entrySet()) {
+            entry.setValue(Long.valueOf(TimeUnit.NANOSECONDS.toMillis(entry.getValue().longValue())));
         }
+        return times;
     }
 
     @Override
@@ -70,7 +141,9 @@ public class DeploymentChainImpl implements DeploymentChain {
 
     @Override
     public void removeProcessor(DeploymentUnitProcessor processor, long priority) {
-        orderedProcessors.remove(new OrderedProcessor(processor, priority));
+        final OrderedProcessor orderedProcessor = new OrderedProcessor(processor, priority);
+        orderedProcessors.remove(orderedProcessor);
+        processorTimes.remove(orderedProcessor);
     }
 
     @Override
@@ -82,6 +155,7 @@ public class DeploymentChainImpl implements DeploymentChain {
         private final DeploymentUnitProcessor processor;
         private final String name;
         private final long processingOrder;
+        private final DeploymentPhases phase;
 
         private OrderedProcessor(final DeploymentUnitProcessor processor, final long processingOrder) {
             if (processor == null)
@@ -90,6 +164,7 @@ public class DeploymentChainImpl implements DeploymentChain {
             this.processor = processor;
             this.name = processor.getClass().getName();
             this.processingOrder = processingOrder;
+            this.phase = DeploymentPhases.forPriority(processingOrder);
         }
 
         @Override
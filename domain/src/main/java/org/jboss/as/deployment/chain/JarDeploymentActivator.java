@@ -22,6 +22,8 @@
 
 package org.jboss.as.deployment.chain;
 
+import java.util.concurrent.Executor;
+
 import org.jboss.as.deployment.module.DeploymentModuleLoader;
 import org.jboss.as.deployment.module.DeploymentModuleLoaderProcessor;
 import org.jboss.as.deployment.module.DeploymentModuleLoaderService;
@@ -31,6 +33,7 @@ import org.jboss.as.deployment.module.ModuleDependencyProcessor;
 import org.jboss.as.deployment.module.ModuleDeploymentProcessor;
 import org.jboss.as.deployment.module.NestedJarInlineProcessor;
 import org.jboss.as.deployment.naming.ModuleContextProcessor;
+import org.jboss.as.deployment.processor.AnnotationIndexExecutorService;
 import org.jboss.as.deployment.processor.AnnotationIndexProcessor;
 import org.jboss.as.deployment.processor.ServiceActivatorDependencyProcessor;
 import org.jboss.as.deployment.processor.ServiceActivatorProcessor;
@@ -69,7 +72,10 @@ public class JarDeploymentActivator implements ServiceActivator {
             .addDependency(DeploymentChainProviderService.SERVICE_NAME, DeploymentChainProvider.class, new DeploymentChainProviderInjector<DeploymentChain>(deploymentChainValue, new JarDeploymentChainSelector(), JAR_DEPLOYMENT_CHAIN_PRIORITY));
 
         addDeploymentProcessor(batchBuilder, new ManifestAttachmentProcessor(), ManifestAttachmentProcessor.PRIORITY);
-        addDeploymentProcessor(batchBuilder, new AnnotationIndexProcessor(), AnnotationIndexProcessor.PRIORITY);
+        batchBuilder.addServiceValueIfNotExist(AnnotationIndexExecutorService.SERVICE_NAME, Values.immediateValue(new AnnotationIndexExecutorService()));
+        final InjectedValue<Executor> indexExecutor = new InjectedValue<Executor>();
+        addDeploymentProcessor(batchBuilder, new AnnotationIndexProcessor(indexExecutor), AnnotationIndexProcessor.PRIORITY)
+            .addDependency(AnnotationIndexExecutorService.SERVICE_NAME, Executor.class, indexExecutor);
         addDeploymentProcessor(batchBuilder, new ModuleDependencyProcessor(), ModuleDependencyProcessor.PRIORITY);
         addDeploymentProcessor(batchBuilder, new ModuleConfigProcessor(), ModuleConfigProcessor.PRIORITY);
         final InjectedValue<DeploymentModuleLoader> moduleLoaderInjector = new InjectedValue<DeploymentModuleLoader>();
@@ -0,0 +1,207 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.deployment.chain;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.deployment.DeploymentPhases;
+import org.jboss.as.deployment.unit.DeploymentUnitContext;
+import org.jboss.as.deployment.unit.DeploymentUnitProcessingException;
+import org.jboss.logging.Logger;
+
+/**
+ * Runs a group of independent deployment units through their deployment chains phase by phase.  Every unit
+ * completes a phase before any unit starts the next one.  {@link DeploymentPhases#isConcurrent() Concurrent}
+ * phases are run for all the units at the same time using the given executor; the other phases are run for one
+ * unit after another, in the order the units were added, on the calling thread.
+ * <p>
+ * A unit whose processing fails is reported to its {@link FailureHandler} and takes no part in later phases.
+ * Instances are not thread safe and may only be processed once.
+ */
+public final class PhasedDeploymentProcessor {
+    private static final Logger log = Logger.getLogger("org.jboss.as.deployment");
+
+    private final Executor executor;
+    private final List<Unit> units = new ArrayList<Unit>();
+    private final Set<DeploymentChain> chains = new LinkedHashSet<DeploymentChain>();
+    private final Map<DeploymentPhases, Long> phaseTimes = new EnumMap<DeploymentPhases, Long>(DeploymentPhases.class);
+
+    /**
+     * Construct a new instance.
+     *
+     * @param executor the executor used to run concurrent phases
+     */
+    public PhasedDeploymentProcessor(final Executor executor) {
+        if (executor == null)
+            throw new IllegalArgumentException("executor is null");
+        this.executor = executor;
+    }
+
+    /**
+     * Add a deployment unit to be processed.
+     *
+     * @param chain the deployment chain for the unit
+     * @param context the deployment unit context
+     * @param failureHandler the handler notified if processing the unit fails
+     */
+    public void addDeployment(final DeploymentChain chain, final DeploymentUnitContext context, final FailureHandler failureHandler) {
+        units.add(new Unit(chain, context, failureHandler));
+        chains.add(chain);
+    }
+
+    /**
+     * Process all the added deployment units.
+     */
+    public void processDeployments() {
+        for (DeploymentPhases phase : DeploymentPhases.values()) {
+            if (units.isEmpty())
+                break;
+            final long start = System.nanoTime();
+            if (phase.isConcurrent() && units.size() > 1) {
+                processConcurrently(phase);
+            } else {
+                processSerially(phase);
+            }
+            phaseTimes.put(phase, Long.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        }
+        log.debugf("Deployment phase times (ms): %s", phaseTimes);
+        for (DeploymentChain chain : chains) {
+            if (chain instanceof DeploymentChainImpl) {
+                log.debugf("Deployment processor times for %s (ms): %s", chain.getName(), ((DeploymentChainImpl) chain).getProcessorTimes());
+            }
+        }
+        units.clear();
+        chains.clear();
+    }
+
+    /**
+     * Get the elapsed time of each phase which has been run, in milliseconds.  As phases are run for all
+     * the units at once, this is the time the whole group spent in the phase.
+     *
+     * @return the phase times
+     */
+    public Map<DeploymentPhases, Long> getPhaseTimes() {
+        return new EnumMap<DeploymentPhases, Long>(phaseTimes);
+    }
+
+    private void processSerially(final DeploymentPhases phase) {
+        final Iterator<Unit> iterator = units.iterator();
+        while (iterator.hasNext()) {
+            final Unit unit = iterator.next();
+            try {
+                unit.process(phase);
+            } catch (Throwable t) {
+                iterator.remove();
+                unit.fail(t);
+            }
+        }
+    }
+
+    private void processConcurrently(final DeploymentPhases phase) {
+        final List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(units.size());
+        for (final Unit unit : units) {
+            final FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+                public Void call() throws Exception {
+                    unit.process(phase);
+                    return null;
+                }
+            });
+            tasks.add(task);
+            executor.execute(task);
+        }
+        // Barrier: wait for every unit to finish the phase
+        boolean interrupted = false;
+        final Iterator<Unit> iterator = units.iterator();
+        for (FutureTask<Void> task : tasks) {
+            final Unit unit = iterator.next();
+            try {
+                while (true) {
+                    try {
+                        task.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } catch (ExecutionException e) {
+                iterator.remove();
+                unit.fail(e.getCause());
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Unit {
+        private final DeploymentChain chain;
+        private final DeploymentUnitContext context;
+        private final FailureHandler failureHandler;
+
+        private Unit(final DeploymentChain chain, final DeploymentUnitContext context, final FailureHandler failureHandler) {
+            this.chain = chain;
+            this.context = context;
+            this.failureHandler = failureHandler;
+        }
+
+        private void process(final DeploymentPhases phase) throws DeploymentUnitProcessingException {
+            chain.processDeployment(context, phase);
+        }
+
+        private void fail(final Throwable cause) {
+            final DeploymentUnitProcessingException e = cause instanceof DeploymentUnitProcessingException
+                    ? (DeploymentUnitProcessingException) cause
+                    : new DeploymentUnitProcessingException("Failed to process deployment " + context.getName(), cause);
+            try {
+                failureHandler.handleFailure(e);
+            } catch (Throwable t) {
+                log.errorf(t, "Failed to handle processing failure of deployment %s", context.getName());
+            }
+        }
+    }
+
+    /**
+     * Handler notified when a deployment unit fails processing.
+     */
+    public interface FailureHandler {
+
+        /**
+         * Handle the failure of a deployment unit.
+         *
+         * @param e the processing failure
+         */
+        void handleFailure(DeploymentUnitProcessingException e);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.deployment.processor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.msc.service.Service;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StartException;
+import org.jboss.msc.service.StopContext;
+
+/**
+ * Service providing the executor on which the {@link AnnotationIndexProcessor} reads the class files of large
+ * deployments.  The executor is shared by all deployment chains and has a bounded number of threads, so deploying many
+ * archives at once does not start threads for each of them.  Idle threads are let go.
+ *
+ * @author John E. Bailey
+ */
+public class AnnotationIndexExecutorService implements Service<Executor> {
+    public static final ServiceName SERVICE_NAME = ServiceName.JBOSS.append("deployment", "annotation-index", "executor");
+
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    private final int threads;
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Create an instance with a thread for each available processor.
+     */
+    public AnnotationIndexExecutorService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create an instance with the given number of threads.
+     *
+     * @param threads the maximum number of threads
+     */
+    public AnnotationIndexExecutorService(final int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+        this.threads = threads;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized void start(final StartContext context) throws StartException {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new IndexThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        this.executor = executor;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized void stop(final StopContext context) {
+        executor.shutdown();
+        executor = null;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized Executor getValue() throws IllegalStateException {
+        final Executor executor = this.executor;
+        if (executor == null)
+            throw new IllegalStateException("Annotation index executor is not started");
+        return executor;
+    }
+
+    private static final class IndexThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "annotation-index-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
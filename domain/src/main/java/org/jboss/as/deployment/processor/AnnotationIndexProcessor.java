@@ -24,23 +24,44 @@ package org.jboss.as.deployment.processor;
 
 import org.jboss.as.deployment.AttachmentKey;
 import org.jboss.as.deployment.DeploymentPhases;
+import org.jboss.as.deployment.attachment.DeploymentContentAttachment;
 import org.jboss.as.deployment.unit.DeploymentUnitContext;
 import org.jboss.as.deployment.unit.DeploymentUnitProcessingException;
 import org.jboss.as.deployment.unit.DeploymentUnitProcessor;
 import org.jboss.jandex.Index;
 import org.jboss.jandex.Indexer;
+import org.jboss.logging.Logger;
+import org.jboss.msc.value.Value;
 import org.jboss.vfs.VFSUtils;
 import org.jboss.vfs.VirtualFile;
 import org.jboss.vfs.VisitorAttributes;
 import org.jboss.vfs.util.SuffixMatchFilter;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
+import static org.jboss.as.deployment.attachment.DeploymentContentAttachment.getDeploymentContentAttachment;
 import static org.jboss.as.deployment.attachment.VirtualFileAttachment.getVirtualFileAttachment;
 
 /**
  * Deployment unit processor responsible for creating and attaching an annotation index for a deployment unit.
+ * <p>
+ * The class files of large deployments are read and decompressed in chunks on the shared
+ * {@link AnnotationIndexExecutorService executor}, while the calling thread indexes the chunks already read.  A few
+ * chunks are read ahead, so the class files of a deployment are never all held in memory at once.  The index of a
+ * deployment held in the server deployment repository is stored alongside its content, so redeploying the same
+ * content does not index it again.
  *
  * @author John E. Bailey
  */
@@ -48,6 +69,35 @@ public class AnnotationIndexProcessor implements DeploymentUnitProcessor {
     public static final AttachmentKey<Index> ATTACHMENT_KEY = new AttachmentKey<Index>(Index.class);
     public static final long PRIORITY = DeploymentPhases.PARSE_DESCRIPTORS.plus(200L);
 
+    /** The number of class files below which the deployment is read on the calling thread. */
+    static final int PARALLEL_THRESHOLD = 256;
+    /** The number of class files read by each task. */
+    static final int CHUNK_SIZE = 64;
+    /** The number of chunks read ahead of the one being indexed. */
+    static final int READ_AHEAD = 8;
+
+    private static final Logger log = Logger.getLogger("org.jboss.as.deployment");
+
+    private final Value<? extends Executor> executor;
+
+    /**
+     * Create an instance which reads class files on the calling thread.
+     */
+    public AnnotationIndexProcessor() {
+        executor = null;
+    }
+
+    /**
+     * Create an instance which reads the class files of large deployments on the given executor.
+     *
+     * @param executor the executor, typically injected from the {@link AnnotationIndexExecutorService}
+     */
+    public AnnotationIndexProcessor(final Value<? extends Executor> executor) {
+        if (executor == null)
+            throw new IllegalArgumentException("executor is null");
+        this.executor = executor;
+    }
+
     /**
      * Process this deployment for annotations.  This will use an annotation indexer to create an index of all annotations
      * found in this deployment and attach it to the deployment unit context.
@@ -59,23 +109,112 @@ public class AnnotationIndexProcessor implements DeploymentUnitProcessor {
         if(context.getAttachment(ATTACHMENT_KEY) != null)
             return;
 
+        final DeploymentContentAttachment content = getDeploymentContentAttachment(context);
+        if(content != null) {
+            final Index index = content.getRepository().getAnnotationIndex(content.getDeploymentHash());
+            if(index != null) {
+                context.putAttachment(ATTACHMENT_KEY, index);
+                return;
+            }
+        }
+
         final VirtualFile virtualFile = getVirtualFileAttachment(context);
-        final Indexer indexer = new Indexer();
+        final Index index;
         try {
             final List<VirtualFile> classChildren = virtualFile.getChildren(new SuffixMatchFilter(".class", VisitorAttributes.RECURSE_LEAVES_ONLY));
-            for(VirtualFile classFile : classChildren) {
-                InputStream inputStream = null;
-                try {
-                    inputStream = classFile.openStream();
-                    indexer.index(inputStream);
-                } finally {
-                    VFSUtils.safeClose(inputStream);
-                }
+            if(executor == null || classChildren.size() < PARALLEL_THRESHOLD) {
+                index = index(classChildren);
+            } else {
+                index = index(classChildren, executor.getValue(), CHUNK_SIZE);
             }
-            final Index index = indexer.complete();
             context.putAttachment(ATTACHMENT_KEY, index);
         } catch(Throwable t) {
             throw new DeploymentUnitProcessingException("Failed to index deployment root for annotations", t);
         }
+
+        if(content != null) {
+            try {
+                content.getRepository().addAnnotationIndex(content.getDeploymentHash(), index);
+            } catch (IOException e) {
+                log.debugf(e, "Failed to store annotation index for %s", virtualFile);
+            }
+        }
+    }
+
+    static Index index(final List<VirtualFile> classFiles) throws IOException {
+        final Indexer indexer = new Indexer();
+        for(VirtualFile classFile : classFiles) {
+            InputStream inputStream = null;
+            try {
+                inputStream = classFile.openStream();
+                indexer.index(inputStream);
+            } finally {
+                VFSUtils.safeClose(inputStream);
+            }
+        }
+        return indexer.complete();
+    }
+
+    static Index index(final List<VirtualFile> classFiles, final Executor executor, final int chunkSize) throws IOException {
+        final Indexer indexer = new Indexer();
+        final LinkedList<FutureTask<List<byte[]>>> reads = new LinkedList<FutureTask<List<byte[]>>>();
+        final int size = classFiles.size();
+        int next = 0;
+        try {
+            while(next < size || !reads.isEmpty()) {
+                while(next < size && reads.size() < READ_AHEAD) {
+                    final List<VirtualFile> chunk = classFiles.subList(next, Math.min(next + chunkSize, size));
+                    final FutureTask<List<byte[]>> read = new FutureTask<List<byte[]>>(new Callable<List<byte[]>>() {
+                        public List<byte[]> call() throws IOException {
+                            return read(chunk);
+                        }
+                    });
+                    try {
+                        executor.execute(read);
+                    } catch (RejectedExecutionException e) {
+                        read.run();
+                    }
+                    reads.add(read);
+                    next += chunk.size();
+                }
+                // Index in the order the class files were found, whatever order the chunks are read in
+                for(byte[] classBytes : get(reads.removeFirst())) {
+                    indexer.index(new ByteArrayInputStream(classBytes));
+                }
+            }
+        } finally {
+            for(FutureTask<List<byte[]>> read : reads) {
+                read.cancel(true);
+            }
+        }
+        return indexer.complete();
+    }
+
+    private static List<byte[]> read(final List<VirtualFile> classFiles) throws IOException {
+        final List<byte[]> classes = new ArrayList<byte[]>(classFiles.size());
+        for(VirtualFile classFile : classFiles) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(classFile.getSize(), Integer.MAX_VALUE));
+            VFSUtils.copyStreamAndClose(classFile.openStream(), bytes);
+            classes.add(bytes.toByteArray());
+        }
+        return classes;
+    }
+
+    private static <T> T get(final FutureTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading class files");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if(cause instanceof IOException)
+                throw (IOException) cause;
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if(cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException("Failed to read class files", cause);
+        }
     }
 }
@@ -40,6 +40,7 @@ public enum Attribute {
 
     // domain 1.0 attributes in alpha order
     ALLOWED("allowed"),
+    BOOT_CONCURRENCY("boot-concurrency"),
     DEFAULT_INTERFACE("default-interface"),
     DEBUG_ENABLED("debug-enabled"),
     DEBUG_OPTIONS("debug-options"),
@@ -51,6 +52,7 @@ public enum Attribute {
     JAVA_HOME("java-home"),
     MAX_SIZE("max-size"),
     MAX_THREADS("max-threads"),
+    MAX_UPDATE_CONCURRENCY("max-update-concurrency"),
     MODULE("module"),
     MULTICAST_ADDRESS("multicast-address"),
     MULTICAST_PORT("multicast-port"),
@@ -71,6 +73,7 @@ public enum Attribute {
     SIZE("size"),
     SOCKET_BINDING_GROUP("socket-binding-group"),
     START("start"),
+    START_PRIORITY("start-priority"),
     TYPE("type"),
     VALUE("value")
     ;
@@ -63,6 +63,7 @@ public final class HostModel extends AbstractModel<HostModel> {
     private LocalDomainControllerElement localDomainController;
     private RemoteDomainControllerElement remoteDomainController;
     private ManagementElement managementElement;
+    private int serverBootConcurrency;
 
     private final PropertiesElement systemProperties = new PropertiesElement(Element.PROPERTY, true);
 
@@ -129,6 +130,19 @@ public final class HostModel extends AbstractModel<HostModel> {
         }
     }
 
+    /**
+     * Gets the maximum number of servers the server manager boots at the same time.
+     *
+     * @return the limit, or <code>0</code> if none was configured and the server manager should choose
+     */
+    public int getServerBootConcurrency() {
+        return serverBootConcurrency;
+    }
+
+    void setServerBootConcurrency(int serverBootConcurrency) {
+        this.serverBootConcurrency = serverBootConcurrency;
+    }
+
     public List<String> getActiveServerNames() {
         List<String> result = new ArrayList<String>();
 
@@ -280,6 +294,9 @@ public final class HostModel extends AbstractModel<HostModel> {
 
         if (!servers.isEmpty()) {
             streamWriter.writeStartElement(Element.SERVERS.getLocalName());
+            if (serverBootConcurrency != 0) {
+                streamWriter.writeAttribute(Attribute.BOOT_CONCURRENCY.getLocalName(), String.valueOf(serverBootConcurrency));
+            }
             for (ServerElement server : servers.values()) {
                 streamWriter.writeStartElement(Element.SERVER.getLocalName());
                 server.writeContent(streamWriter);
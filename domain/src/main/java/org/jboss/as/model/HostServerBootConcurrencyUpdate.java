@@ -0,0 +1,72 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An update which changes the number of servers a {@link HostModel}'s server manager boots at the same time.
+ */
+public final class HostServerBootConcurrencyUpdate extends AbstractHostModelUpdate<Void> {
+
+    private static final long serialVersionUID = -4201781658935124497L;
+
+    private final int bootConcurrency;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param bootConcurrency the maximum number of servers to boot at once, or <code>0</code> to let the
+     *            server manager choose
+     */
+    public HostServerBootConcurrencyUpdate(final int bootConcurrency) {
+        if (bootConcurrency < 0) {
+            throw new IllegalArgumentException("bootConcurrency is negative");
+        }
+        this.bootConcurrency = bootConcurrency;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void applyUpdate(final HostModel element) throws UpdateFailedException {
+        element.setServerBootConcurrency(bootConcurrency);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public HostServerBootConcurrencyUpdate getCompensatingUpdate(final HostModel original) {
+        return new HostServerBootConcurrencyUpdate(original.getServerBootConcurrency());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AbstractServerModelUpdate<Void> getServerModelUpdate() {
+        return null;
+    }
+
+    @Override
+    public List<String> getAffectedServers(HostModel hostModel) {
+        return Collections.emptyList();
+    }
+}
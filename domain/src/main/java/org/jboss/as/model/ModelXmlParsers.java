@@ -1068,6 +1068,7 @@ public final class ModelXmlParsers {
 
             String name = null;
             String profile = null;
+            int maxUpdateConcurrency = 0;
             Collection<PropertyAdd> systemProperties = null;
 
             // Handle attributes
@@ -1096,6 +1097,17 @@ public final class ModelXmlParsers {
                             profile = value;
                             break;
                         }
+                        case MAX_UPDATE_CONCURRENCY: {
+                            try {
+                                maxUpdateConcurrency = Integer.parseInt(value);
+                            } catch (NumberFormatException e) {
+                                throw invalidAttributeValue(reader, i);
+                            }
+                            if (maxUpdateConcurrency < 0) {
+                                throw invalidAttributeValue(reader, i);
+                            }
+                            break;
+                        }
                         default:
                             throw ParseUtils.unexpectedAttribute(reader, i);
                     }
@@ -1109,6 +1121,9 @@ public final class ModelXmlParsers {
             }
 
             list.add(new DomainServerGroupAdd(name, profile));
+            if (maxUpdateConcurrency > 0) {
+                list.add(DomainServerGroupUpdate.create(name, new ServerGroupMaxUpdateConcurrencyUpdate(maxUpdateConcurrency)));
+            }
 
             // Handle elements
 
@@ -1929,7 +1944,32 @@ public final class ModelXmlParsers {
 
     static void parseServers(final XMLExtendedStreamReader reader, final List<? super AbstractHostModelUpdate<?>> list) throws XMLStreamException {
 
-        requireNoAttributes(reader);
+        // Handle attributes
+        final int count = reader.getAttributeCount();
+        for (int i = 0; i < count; i ++) {
+            final String value = reader.getAttributeValue(i);
+            if (reader.getAttributeNamespace(i) != null) {
+                throw unexpectedAttribute(reader, i);
+            } else {
+                final Attribute attribute = Attribute.forName(reader.getAttributeLocalName(i));
+                switch (attribute) {
+                    case BOOT_CONCURRENCY: {
+                        final int bootConcurrency;
+                        try {
+                            bootConcurrency = Integer.parseInt(value);
+                        } catch (NumberFormatException e) {
+                            throw invalidAttributeValue(reader, i);
+                        }
+                        if (bootConcurrency < 0) {
+                            throw invalidAttributeValue(reader, i);
+                        }
+                        list.add(new HostServerBootConcurrencyUpdate(bootConcurrency));
+                        break;
+                    }
+                    default: throw unexpectedAttribute(reader, i);
+                }
+            }
+        }
         // Handle elements
         Set<String> names = new HashSet<String>();
         while (reader.hasNext() && reader.nextTag() != END_ELEMENT) {
@@ -1957,6 +1997,7 @@ public final class ModelXmlParsers {
         String name = null;
         String group = null;
         Boolean start = null;
+        Integer startPriority = null;
         final int count = reader.getAttributeCount();
         for (int i = 0; i < count; i ++) {
             final String value = reader.getAttributeValue(i);
@@ -1980,6 +2021,14 @@ public final class ModelXmlParsers {
                         start = Boolean.valueOf(value);
                         break;
                     }
+                    case START_PRIORITY: {
+                        try {
+                            startPriority = Integer.valueOf(value);
+                        } catch (NumberFormatException e) {
+                            throw invalidAttributeValue(reader, i);
+                        }
+                        break;
+                    }
                     default: throw unexpectedAttribute(reader, i);
                 }
             }
@@ -2053,6 +2102,9 @@ public final class ModelXmlParsers {
 
         boolean isStart = start == null ? true : start.booleanValue();
         list.add(HostServerUpdate.create(name, new ServerElementStartStopUpdate(isStart)));
+        if (startPriority != null) {
+            list.add(HostServerUpdate.create(name, new ServerElementStartPriorityUpdate(startPriority.intValue())));
+        }
     }
 
     static void parseDomainPaths(final XMLExtendedStreamReader reader, List<? super AbstractDomainModelUpdate<?>> list) throws XMLStreamException {
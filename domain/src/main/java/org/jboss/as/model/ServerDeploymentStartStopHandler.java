@@ -32,13 +32,16 @@ import java.util.jar.Manifest;
 import org.jboss.as.deployment.DeploymentFailureListener;
 import org.jboss.as.deployment.DeploymentService;
 import org.jboss.as.deployment.ServerDeploymentRepository;
+import org.jboss.as.deployment.attachment.DeploymentContentAttachment;
 import org.jboss.as.deployment.attachment.ManifestAttachment;
 import org.jboss.as.deployment.chain.DeploymentChain;
 import org.jboss.as.deployment.chain.DeploymentChainProvider;
+import org.jboss.as.deployment.chain.PhasedDeploymentProcessor;
 import org.jboss.as.deployment.module.MountHandle;
 import org.jboss.as.deployment.unit.DeploymentUnitContext;
 import org.jboss.as.deployment.unit.DeploymentUnitContextImpl;
 import org.jboss.as.deployment.unit.DeploymentUnitProcessingException;
+import org.jboss.as.services.ServiceRegistryIndex;
 import org.jboss.logging.Logger;
 import org.jboss.msc.service.AbstractServiceListener;
 import org.jboss.msc.service.BatchBuilder;
@@ -69,6 +72,7 @@ public final class ServerDeploymentStartStopHandler implements Serializable {
             final UpdateResultHandler<?, P> resultHandler, final P param) {
         try {
             BatchBuilder batchBuilder = serviceContainer.batchBuilder();
+            batchBuilder.addListener(ServiceRegistryIndex.getInstance(serviceContainer));
             deploy(deploymentName, runtimeName, deploymentHash, batchBuilder, serviceContainer, resultHandler, param);
             batchBuilder.install();
         }
@@ -80,12 +84,24 @@ public final class ServerDeploymentStartStopHandler implements Serializable {
     public <P> void deploy(final String deploymentName, final String runtimeName, final byte[] deploymentHash,
             final BatchBuilder batchBuilder, final ServiceContainer serviceContainer,
             final UpdateResultHandler<?, P> resultHandler, final P param) {
+        deploy(deploymentName, runtimeName, deploymentHash, batchBuilder, serviceContainer, null, resultHandler, param);
+    }
+
+    /**
+     * Deploy, leaving the deployment chain to be run by the given processor together with other deployments,
+     * if one is provided.  Failures processing the chain are then reported to the result handler when the
+     * processor runs.
+     */
+    public <P> void deploy(final String deploymentName, final String runtimeName, final byte[] deploymentHash,
+            final BatchBuilder batchBuilder, final ServiceContainer serviceContainer, final PhasedDeploymentProcessor deploymentProcessor,
+            final UpdateResultHandler<?, P> resultHandler, final P param) {
         try {
             ServiceName deploymentServiceName = DeploymentService.getServiceName(deploymentName);
             // Add a listener so we can get ahold of the DeploymentService
             batchBuilder.addListener(new DeploymentServiceTracker<P>(deploymentServiceName, resultHandler, param));
 
-            activate(deploymentName, runtimeName, deploymentHash, deploymentServiceName, new ServiceActivatorContextImpl(batchBuilder), serviceContainer);
+            activate(deploymentName, runtimeName, deploymentHash, deploymentServiceName, new ServiceActivatorContextImpl(batchBuilder), serviceContainer,
+                    deploymentProcessor, resultHandler, param);
         }
         catch (RuntimeException e) {
             resultHandler.handleFailure(e, param);
@@ -145,7 +161,8 @@ public final class ServerDeploymentStartStopHandler implements Serializable {
         }
     }
 
-    private void activate(final String deploymentName, String runtimeName, final byte[] deploymentHash, final ServiceName deploymentServiceName, final ServiceActivatorContext context, final ServiceContainer serviceContainer) {
+    private <P> void activate(final String deploymentName, String runtimeName, final byte[] deploymentHash, final ServiceName deploymentServiceName, final ServiceActivatorContext context, final ServiceContainer serviceContainer,
+            final PhasedDeploymentProcessor deploymentProcessor, final UpdateResultHandler<?, P> resultHandler, final P param) {
         log.infof("Activating deployment: %s", deploymentName);
 
         MountHandle handle = null;
@@ -181,6 +198,8 @@ public final class ServerDeploymentStartStopHandler implements Serializable {
             final DeploymentUnitContext deploymentUnitContext = new DeploymentUnitContextImpl(deploymentServiceName.getSimpleName(), deploymentSubBatch, serviceBuilder);
             attachVirtualFile(deploymentUnitContext, deploymentRoot);
             deploymentUnitContext.putAttachment(MountHandle.ATTACHMENT_KEY, handle);
+            if (deploymentHash != null)
+                DeploymentContentAttachment.attachDeploymentContent(deploymentUnitContext, deploymentRepo, deploymentHash);
 
             // Get the optional Manifest for this deployment
             try {
@@ -197,6 +216,18 @@ public final class ServerDeploymentStartStopHandler implements Serializable {
             log.debugf("Executing deployment '%s' with chain: %s", deploymentName, deploymentChain);
             if(deploymentChain == null)
                 throw new RuntimeException("Failed determine the deployment chain for deployment root: " + deploymentRoot);
+            if(deploymentProcessor != null) {
+                final MountHandle mountHandle = handle;
+                deploymentProcessor.addDeployment(deploymentChain, deploymentUnitContext, new PhasedDeploymentProcessor.FailureHandler() {
+                    public void handleFailure(DeploymentUnitProcessingException e) {
+                        VFSUtils.safeClose(mountHandle);
+                        if (resultHandler != null) {
+                            resultHandler.handleFailure(new RuntimeException("Failed to process deployment chain.", e), param);
+                        }
+                    }
+                });
+                return;
+            }
             try {
                 deploymentChain.processDeployment(deploymentUnitContext);
             } catch (DeploymentUnitProcessingException e) {
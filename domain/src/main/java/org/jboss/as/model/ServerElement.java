@@ -48,6 +48,7 @@ public final class ServerElement extends AbstractModelElement<ServerElement> {
     private final Map<String, InterfaceElement> interfaces = new LinkedHashMap<String, InterfaceElement>();
     private final Map<String, PathElement> paths = new LinkedHashMap<String, PathElement>();
     private boolean start;
+    private int startPriority;
     private String bindingGroup;
     private int portOffset = 0;
     private JvmElement jvm;
@@ -80,6 +81,25 @@ public final class ServerElement extends AbstractModelElement<ServerElement> {
         this.start = start;
     }
 
+    /**
+     * Gets the priority with which this server is started when the server manager boots. Servers with a lower
+     * value are started before those with a higher one.
+     *
+     * @return the start priority; <code>0</code> if none was configured
+     */
+    public int getStartPriority() {
+        return startPriority;
+    }
+
+    /**
+     * Sets the priority with which this server is started when the server manager boots.
+     *
+     * @param startPriority the start priority
+     */
+    void setStartPriority(int startPriority) {
+        this.startPriority = startPriority;
+    }
+
     /**
      * Gets the name of the server.
      *
@@ -197,6 +217,9 @@ public final class ServerElement extends AbstractModelElement<ServerElement> {
         if (!start) {
             streamWriter.writeAttribute(Attribute.START.getLocalName(), "false");
         }
+        if (startPriority != 0) {
+            streamWriter.writeAttribute(Attribute.START_PRIORITY.getLocalName(), String.valueOf(startPriority));
+        }
 
         synchronized(paths) {
             if(! paths.isEmpty()) {
@@ -0,0 +1,58 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.model;
+
+/**
+ * Update to the start priority of a {@link ServerElement}.
+ */
+public class ServerElementStartPriorityUpdate extends AbstractModelUpdate<ServerElement, Void> {
+
+    private static final long serialVersionUID = 2735263913874528174L;
+
+    private final int startPriority;
+
+    public ServerElementStartPriorityUpdate(final int startPriority) {
+        this.startPriority = startPriority;
+    }
+
+    @Override
+    public ServerElementStartPriorityUpdate getCompensatingUpdate(ServerElement original) {
+        return new ServerElementStartPriorityUpdate(original.getStartPriority());
+    }
+
+    @Override
+    protected AbstractServerModelUpdate<Void> getServerModelUpdate() {
+        return null;
+    }
+
+    @Override
+    protected void applyUpdate(ServerElement element) throws UpdateFailedException {
+        element.setStartPriority(startPriority);
+    }
+
+    @Override
+    public Class<ServerElement> getModelElementType() {
+        return ServerElement.class;
+    }
+
+}
@@ -44,6 +44,7 @@ public final class ServerGroupElement extends AbstractModelElement<ServerGroupEl
     private final Map<String, ServerGroupDeploymentElement> deploymentMappings = new LinkedHashMap<String, ServerGroupDeploymentElement>();
     private String bindingGroup;
     private int portOffset = 0;
+    private int maxUpdateConcurrency;
     private JvmElement jvm;
     private final PropertiesElement systemProperties = new PropertiesElement(Element.PROPERTY, true);
 
@@ -112,6 +113,19 @@ public final class ServerGroupElement extends AbstractModelElement<ServerGroupEl
         return portOffset;
     }
 
+    /**
+     * Gets the maximum number of servers in this group the domain controller updates at the same time.
+     *
+     * @return the maximum number of servers, or <code>0</code> if only the domain wide limit applies
+     */
+    public int getMaxUpdateConcurrency() {
+        return maxUpdateConcurrency;
+    }
+
+    void setMaxUpdateConcurrency(final int maxUpdateConcurrency) {
+        this.maxUpdateConcurrency = maxUpdateConcurrency;
+    }
+
     /**
      * Gets the deployments mapped to this server group.
      *
@@ -165,7 +179,9 @@ public final class ServerGroupElement extends AbstractModelElement<ServerGroupEl
     public void writeContent(final XMLExtendedStreamWriter streamWriter) throws XMLStreamException {
         streamWriter.writeAttribute(Attribute.NAME.getLocalName(), name);
         streamWriter.writeAttribute(Attribute.PROFILE.getLocalName(), profile);
-
+        if (maxUpdateConcurrency != 0) {
+            streamWriter.writeAttribute(Attribute.MAX_UPDATE_CONCURRENCY.getLocalName(), String.valueOf(maxUpdateConcurrency));
+        }
 
         if (jvm != null) {
             streamWriter.writeStartElement(Element.JVM.getLocalName());
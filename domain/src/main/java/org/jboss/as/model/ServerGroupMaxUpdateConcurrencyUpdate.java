@@ -0,0 +1,72 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.model;
+
+/**
+ * An update which changes the number of servers in a {@link ServerGroupElement} the domain controller updates
+ * at the same time.
+ */
+public final class ServerGroupMaxUpdateConcurrencyUpdate extends AbstractModelUpdate<ServerGroupElement, Void> {
+
+    private static final long serialVersionUID = 6315409736410582164L;
+
+    private final int maxUpdateConcurrency;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param maxUpdateConcurrency the maximum number of servers in the group to update at once, or <code>0</code>
+     *            to apply only the domain wide limit
+     */
+    public ServerGroupMaxUpdateConcurrencyUpdate(final int maxUpdateConcurrency) {
+        if (maxUpdateConcurrency < 0) {
+            throw new IllegalArgumentException("maxUpdateConcurrency is negative");
+        }
+        this.maxUpdateConcurrency = maxUpdateConcurrency;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void applyUpdate(final ServerGroupElement element) throws UpdateFailedException {
+        element.setMaxUpdateConcurrency(maxUpdateConcurrency);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ServerGroupMaxUpdateConcurrencyUpdate getCompensatingUpdate(final ServerGroupElement original) {
+        return new ServerGroupMaxUpdateConcurrencyUpdate(original.getMaxUpdateConcurrency());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected AbstractServerModelUpdate<Void> getServerModelUpdate() {
+        // Only the domain controller reads the limit, when it updates the servers of the group
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Class<ServerGroupElement> getModelElementType() {
+        return ServerGroupElement.class;
+    }
+}
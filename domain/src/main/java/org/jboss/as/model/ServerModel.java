@@ -84,6 +84,8 @@ public final class ServerModel extends AbstractModel<ServerModel> {
     private int portOffset;
     private final PropertiesElement systemProperties = new PropertiesElement(Element.PROPERTY, true);
     private ManagementElement managementElement;
+    /** Number of updates applied to this model instance */
+    private transient long version;
 
     /**
      * Construct a new instance.
@@ -180,6 +182,29 @@ public final class ServerModel extends AbstractModel<ServerModel> {
         return managementElement;
     }
 
+    /**
+     * Apply an update to this model, counting it in the {@link #getVersion() version}. Holding this model's monitor
+     * while writing it out keeps updates from being applied meanwhile.
+     *
+     * @param update the update to apply
+     * @param <R> the update's result type
+     * @throws UpdateFailedException if an error occurs
+     */
+    @Override
+    public synchronized <R> void update(final AbstractModelUpdate<ServerModel, R> update) throws UpdateFailedException {
+        super.update(update);
+        version++;
+    }
+
+    /**
+     * Gets the number of updates applied to this model instance.
+     *
+     * @return the version
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected Class<ServerModel> getElementClass() {
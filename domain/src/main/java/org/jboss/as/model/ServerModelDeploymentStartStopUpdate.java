@@ -22,6 +22,7 @@
 
 package org.jboss.as.model;
 
+import org.jboss.as.deployment.chain.PhasedDeploymentProcessor;
 
 /**
 * Update used when updating a deployment element to be started or stopped.
@@ -75,8 +76,11 @@ public class ServerModelDeploymentStartStopUpdate extends AbstractServerModelUpd
         // has a bad smell
         if (deploymentElement != null) {
             if (isStart) {
+                final PhasedDeploymentProcessor deploymentProcessor = updateContext instanceof DeploymentUpdateContext
+                        ? ((DeploymentUpdateContext) updateContext).getDeploymentProcessor() : null;
                 startStopHandler.deploy(deploymentElement.getUniqueName(), deploymentElement.getRuntimeName(),
-                        deploymentElement.getSha1Hash(), updateContext.getBatchBuilder(), updateContext.getServiceContainer(), resultHandler, param);
+                        deploymentElement.getSha1Hash(), updateContext.getBatchBuilder(), updateContext.getServiceContainer(),
+                        deploymentProcessor, resultHandler, param);
             }
             else {
                 startStopHandler.undeploy(getDeploymentUnitName(), updateContext.getServiceContainer(), resultHandler, param);
@@ -0,0 +1,304 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.services;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+
+import org.jboss.msc.service.AbstractServiceListener;
+import org.jboss.msc.service.BatchBuilder;
+import org.jboss.msc.service.ServiceContainer;
+import org.jboss.msc.service.ServiceController;
+import org.jboss.msc.service.ServiceController.Mode;
+import org.jboss.msc.service.ServiceController.State;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.ServiceNotFoundException;
+import org.jboss.msc.service.StartException;
+
+/**
+ * An index of the services installed in a {@link ServiceContainer}, kept up to date by listening to the
+ * services themselves.  A container created by {@link #createIndexedContainer()} adds its index to every batch it
+ * creates, so all of its services are indexed.  For any other container the index must be added as a listener to
+ * each batch installed in it; services installed by batches it was not added to are not indexed.
+ * <p>
+ * The index holds on to the controllers of the indexed services, and so to their container.  It is kept until
+ * {@link #removeInstance(ServiceContainer)} is called or the indexed container is shut down.
+ * <p>
+ * Services are indexed by name and by state, so they can be queried and counted without walking the whole
+ * container.
+ */
+public final class ServiceRegistryIndex extends AbstractServiceListener<Object> {
+
+    private static final Map<ServiceContainer, ServiceRegistryIndex> INDEXES = new HashMap<ServiceContainer, ServiceRegistryIndex>();
+
+    private final TreeMap<String, Entry> services = new TreeMap<String, Entry>();
+    private final Map<State, NavigableSet<String>> servicesByState = new EnumMap<State, NavigableSet<String>>(State.class);
+
+    private ServiceRegistryIndex() {
+        for (State state : State.values()) {
+            servicesByState.put(state, new TreeSet<String>());
+        }
+    }
+
+    /**
+     * Get the index for the given container, creating it if needed.
+     *
+     * @param container the service container
+     * @return the index
+     */
+    public static ServiceRegistryIndex getInstance(final ServiceContainer container) {
+        synchronized (INDEXES) {
+            ServiceRegistryIndex index = INDEXES.get(container);
+            if (index == null) {
+                index = new ServiceRegistryIndex();
+                INDEXES.put(container, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Create a new service container whose services are all indexed.  MSC offers no listener for a whole container,
+     * so the returned container adds its index to every batch it creates.  Service controllers report the container
+     * underneath, and {@link #getInstance(ServiceContainer)} returns the same index for either.
+     *
+     * @return the container
+     */
+    public static ServiceContainer createIndexedContainer() {
+        final ServiceContainer container = ServiceContainer.Factory.create();
+        final ServiceRegistryIndex index = new ServiceRegistryIndex();
+        final ServiceContainer indexed = new IndexedServiceContainer(container, index);
+        synchronized (INDEXES) {
+            INDEXES.put(container, index);
+            INDEXES.put(indexed, index);
+        }
+        return indexed;
+    }
+
+    /**
+     * Remove the index for the given container, if there is one.  Called when the container is shut down; a later
+     * {@link #getInstance(ServiceContainer)} for the same container creates a new, empty index.
+     *
+     * @param container the service container
+     */
+    public static void removeInstance(final ServiceContainer container) {
+        final ServiceRegistryIndex index;
+        synchronized (INDEXES) {
+            index = INDEXES.remove(container);
+            if (index != null) {
+                // an indexed container is registered under the container underneath as well
+                INDEXES.values().removeAll(Collections.singleton(index));
+            }
+        }
+        if (index != null) {
+            index.clear();
+        }
+    }
+
+    private synchronized void clear() {
+        services.clear();
+        for (NavigableSet<String> names : servicesByState.values()) {
+            names.clear();
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void listenerAdded(final ServiceController<? extends Object> controller) {
+        update(controller, controller.getState());
+    }
+
+    /** {@inheritDoc} */
+    public void serviceStarting(final ServiceController<? extends Object> controller) {
+        update(controller, State.STARTING);
+    }
+
+    /** {@inheritDoc} */
+    public void serviceStarted(final ServiceController<? extends Object> controller) {
+        update(controller, State.UP);
+    }
+
+    /** {@inheritDoc} */
+    public void serviceFailed(final ServiceController<? extends Object> controller, final StartException reason) {
+        update(controller, State.START_FAILED);
+    }
+
+    /** {@inheritDoc} */
+    public void serviceStopping(final ServiceController<? extends Object> controller) {
+        update(controller, State.STOPPING);
+    }
+
+    /** {@inheritDoc} */
+    public void serviceStopped(final ServiceController<? extends Object> controller) {
+        update(controller, State.DOWN);
+    }
+
+    /** {@inheritDoc} */
+    public synchronized void serviceRemoved(final ServiceController<? extends Object> controller) {
+        final String name = controller.getName().getCanonicalName();
+        final Entry entry = services.get(name);
+        if (entry != null && entry.controller == controller) {
+            services.remove(name);
+            servicesByState.get(entry.state).remove(name);
+        }
+    }
+
+    private synchronized void update(final ServiceController<? extends Object> controller, final State state) {
+        final String name = controller.getName().getCanonicalName();
+        final Entry entry = services.get(name);
+        if (entry == null || entry.controller != controller) {
+            if (entry != null) {
+                servicesByState.get(entry.state).remove(name);
+            }
+            services.put(name, new Entry(controller, state));
+        } else if (entry.state != state) {
+            servicesByState.get(entry.state).remove(name);
+            entry.state = state;
+        }
+        servicesByState.get(state).add(name);
+    }
+
+    /**
+     * Get the number of indexed services.
+     *
+     * @return the number of services
+     */
+    public synchronized int getServiceCount() {
+        return services.size();
+    }
+
+    /**
+     * Get the number of indexed services in the given state.
+     *
+     * @param state the state
+     * @return the number of services in the state
+     */
+    public synchronized int getServiceCount(final State state) {
+        return servicesByState.get(state).size();
+    }
+
+    /**
+     * Find services, in order of their canonical names.
+     *
+     * @param state the state services must be in, or {@code null} for any state
+     * @param mode the mode services must have, or {@code null} for any mode
+     * @param namePrefix the prefix the canonical service names must start with, or {@code null} for any name
+     * @param offset the number of matching services to skip
+     * @param limit the maximum number of services to return, or {@code 0} for no limit
+     * @return the matching services
+     */
+    public synchronized List<ServiceController<?>> findServices(final State state, final Mode mode, final String namePrefix, final int offset, final int limit) {
+        if (offset < 0)
+            throw new IllegalArgumentException("offset is negative");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative");
+        NavigableSet<String> names = state == null ? services.navigableKeySet() : servicesByState.get(state);
+        if (namePrefix != null) {
+            names = names.tailSet(namePrefix, true);
+        }
+        if (names.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<ServiceController<?>> result = new ArrayList<ServiceController<?>>();
+        int skipped = 0;
+        final Iterator<String> iterator = names.iterator();
+        while (iterator.hasNext() && (limit == 0 || result.size() < limit)) {
+            final String name = iterator.next();
+            if (namePrefix != null && !name.startsWith(namePrefix)) {
+                break;
+            }
+            final ServiceController<?> controller = services.get(name).controller;
+            if (mode != null && controller.getMode() != mode) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            result.add(controller);
+        }
+        return result;
+    }
+
+    private static final class Entry {
+        private final ServiceController<?> controller;
+        private State state;
+
+        private Entry(final ServiceController<?> controller, final State state) {
+            this.controller = controller;
+            this.state = state;
+        }
+    }
+
+    /**
+     * A container which adds its index to every batch it creates.
+     */
+    private static final class IndexedServiceContainer implements ServiceContainer {
+        private final ServiceContainer delegate;
+        private final ServiceRegistryIndex index;
+
+        private IndexedServiceContainer(final ServiceContainer delegate, final ServiceRegistryIndex index) {
+            this.delegate = delegate;
+            this.index = index;
+        }
+
+        public void setExecutor(final Executor executor) {
+            delegate.setExecutor(executor);
+        }
+
+        public void shutdown() {
+            delegate.shutdown();
+            removeInstance(this);
+        }
+
+        public BatchBuilder batchBuilder() {
+            return delegate.batchBuilder().addListener(index);
+        }
+
+        public ServiceController<?> getRequiredService(final ServiceName serviceName) throws ServiceNotFoundException {
+            return delegate.getRequiredService(serviceName);
+        }
+
+        public ServiceController<?> getService(final ServiceName serviceName) {
+            return delegate.getService(serviceName);
+        }
+
+        public void dumpServices() {
+            delegate.dumpServices();
+        }
+
+        public void dumpServices(final PrintStream out) {
+            delegate.dumpServices(out);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.deployment.chain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.deployment.DeploymentPhases;
+import org.jboss.as.deployment.unit.DeploymentUnitContext;
+import org.jboss.as.deployment.unit.DeploymentUnitContextImpl;
+import org.jboss.as.deployment.unit.DeploymentUnitProcessingException;
+import org.jboss.as.deployment.unit.DeploymentUnitProcessor;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link PhasedDeploymentProcessor}.
+ */
+public class PhasedDeploymentProcessorTestCase {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPhasesCompleteForAllUnitsInOrder() throws Exception {
+        final DeploymentChainImpl chain = new DeploymentChainImpl("test");
+        chain.addProcessor(new RecordingProcessor("validate"), DeploymentPhases.VALIDATE.plus(100L));
+        chain.addProcessor(new RecordingProcessor("install"), DeploymentPhases.INSTALL_SERVICES.plus(100L));
+
+        final PhasedDeploymentProcessor processor = new PhasedDeploymentProcessor(executor);
+        processor.addDeployment(chain, context("a"), failureHandler("a"));
+        processor.addDeployment(chain, context("b"), failureHandler("b"));
+        processor.processDeployments();
+
+        assertEquals(4, events.size());
+        assertEquals("validate:a", events.get(0));
+        assertEquals("validate:b", events.get(1));
+        assertEquals("install:a", events.get(2));
+        assertEquals("install:b", events.get(3));
+        assertTrue(failures.isEmpty());
+        assertTrue(processor.getPhaseTimes().containsKey(DeploymentPhases.INSTALL_SERVICES));
+        assertEquals(2, chain.getProcessorTimes().size());
+    }
+
+    @Test
+    public void testConcurrentPhaseRunsUnitsTogether() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final DeploymentChainImpl chain = new DeploymentChainImpl("test");
+        chain.addProcessor(new DeploymentUnitProcessor() {
+            public void processDeployment(final DeploymentUnitContext context) throws DeploymentUnitProcessingException {
+                latch.countDown();
+                try {
+                    // Only returns promptly if the other unit is being parsed at the same time
+                    if (!latch.await(10L, TimeUnit.SECONDS))
+                        throw new DeploymentUnitProcessingException("Units were not parsed concurrently");
+                } catch (InterruptedException e) {
+                    throw new DeploymentUnitProcessingException(e);
+                }
+            }
+        }, DeploymentPhases.PARSE_DESCRIPTORS.plus(100L));
+
+        final PhasedDeploymentProcessor processor = new PhasedDeploymentProcessor(executor);
+        processor.addDeployment(chain, context("a"), failureHandler("a"));
+        processor.addDeployment(chain, context("b"), failureHandler("b"));
+        processor.processDeployments();
+
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    @Test
+    public void testFailedUnitSkipsLaterPhases() throws Exception {
+        final DeploymentChainImpl chain = new DeploymentChainImpl("test");
+        chain.addProcessor(new DeploymentUnitProcessor() {
+            public void processDeployment(final DeploymentUnitContext context) throws DeploymentUnitProcessingException {
+                if ("bad".equals(context.getName()))
+                    throw new DeploymentUnitProcessingException("bad deployment");
+            }
+        }, DeploymentPhases.PARSE_DESCRIPTORS.plus(100L));
+        chain.addProcessor(new RecordingProcessor("install"), DeploymentPhases.INSTALL_SERVICES.plus(100L));
+
+        final PhasedDeploymentProcessor processor = new PhasedDeploymentProcessor(executor);
+        processor.addDeployment(chain, context("good"), failureHandler("good"));
+        processor.addDeployment(chain, context("bad"), failureHandler("bad"));
+        processor.processDeployments();
+
+        assertEquals(1, events.size());
+        assertEquals("install:good", events.get(0));
+        assertEquals(1, failures.size());
+        assertEquals("bad", failures.get(0));
+    }
+
+    private static DeploymentUnitContext context(final String name) {
+        return new DeploymentUnitContextImpl(name, null, null);
+    }
+
+    private PhasedDeploymentProcessor.FailureHandler failureHandler(final String name) {
+        return new PhasedDeploymentProcessor.FailureHandler() {
+            public void handleFailure(final DeploymentUnitProcessingException e) {
+                failures.add(name);
+            }
+        };
+    }
+
+    private class RecordingProcessor implements DeploymentUnitProcessor {
+        private final String name;
+
+        private RecordingProcessor(final String name) {
+            this.name = name;
+        }
+
+        public void processDeployment(final DeploymentUnitContext context) throws DeploymentUnitProcessingException {
+            events.add(name + ":" + context.getName());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.deployment.processor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.as.deployment.ServerDeploymentRepository;
+import org.jboss.as.deployment.attachment.DeploymentContentAttachment;
+import org.jboss.as.deployment.attachment.VirtualFileAttachment;
+import org.jboss.as.deployment.unit.DeploymentUnitContext;
+import org.jboss.as.deployment.unit.DeploymentUnitContextImpl;
+import org.jboss.jandex.AnnotationTarget;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.Index;
+import org.jboss.msc.value.Values;
+import org.jboss.vfs.TempFileProvider;
+import org.jboss.vfs.VFS;
+import org.jboss.vfs.VFSUtils;
+import org.jboss.vfs.VirtualFile;
+import org.jboss.vfs.VisitorAttributes;
+import org.jboss.vfs.util.SuffixMatchFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link AnnotationIndexProcessor}, indexing the classes of the junit jar.
+ */
+public class AnnotationIndexProcessorTestCase {
+
+    private static final byte[] HASH = new byte[] {1, 2, 3};
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    private final AtomicInteger executions = new AtomicInteger();
+    private final Executor executor = new Executor() {
+        public void execute(final Runnable command) {
+            executions.incrementAndGet();
+            executorService.execute(command);
+        }
+    };
+    private TempFileProvider tempFileProvider;
+    private Closeable mount;
+    private VirtualFile root;
+    private List<VirtualFile> classFiles;
+
+    @Before
+    public void mountJar() throws Exception {
+        final File jar = new File(Test.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        tempFileProvider = TempFileProvider.create("test", Executors.newScheduledThreadPool(1));
+        root = VFS.getChild("annotation-index-test.jar");
+        mount = VFS.mountZip(jar, root, tempFileProvider);
+        classFiles = root.getChildren(new SuffixMatchFilter(".class", VisitorAttributes.RECURSE_LEAVES_ONLY));
+        assertTrue(classFiles.size() > 100);
+    }
+
+    @After
+    public void unmountJar() {
+        VFSUtils.safeClose(mount, tempFileProvider);
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testParallelIndexMatchesSequentialIndex() throws Exception {
+        final Index sequential = AnnotationIndexProcessor.index(classFiles);
+        final Index parallel = AnnotationIndexProcessor.index(classFiles, executor, 16);
+
+        assertEquals(classFiles.size(), parallel.getKnownClasses().size());
+        assertEquals(describe(sequential), describe(parallel));
+        final DotName testCase = DotName.createSimple("junit.framework.TestCase");
+        assertEquals(names(sequential.getKnownSubclasses(testCase)), names(parallel.getKnownSubclasses(testCase)));
+        assertEquals((classFiles.size() + 15) / 16, executions.get());
+    }
+
+    @Test
+    public void testRejectedReadsRunOnCallingThread() throws Exception {
+        final Index parallel = AnnotationIndexProcessor.index(classFiles, new Executor() {
+            public void execute(final Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        }, 16);
+        assertEquals(describe(AnnotationIndexProcessor.index(classFiles)), describe(parallel));
+    }
+
+    @Test
+    public void testReadFailureIsReported() throws Exception {
+        final List<VirtualFile> files = new ArrayList<VirtualFile>(classFiles);
+        files.add(files.size() / 2, root.getChild("missing/Missing.class"));
+        try {
+            AnnotationIndexProcessor.index(files, executor, 16);
+            fail("Missing class file was indexed");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testIndexIsStoredInRepository() throws Exception {
+        final RecordingRepository repository = new RecordingRepository(null);
+        final DeploymentUnitContext context = new DeploymentUnitContextImpl("test", null, null);
+        VirtualFileAttachment.attachVirtualFile(context, root);
+        DeploymentContentAttachment.attachDeploymentContent(context, repository, HASH);
+
+        new AnnotationIndexProcessor(Values.immediateValue(executor)).processDeployment(context);
+
+        final Index index = context.getAttachment(AnnotationIndexProcessor.ATTACHMENT_KEY);
+        assertEquals(classFiles.size(), index.getKnownClasses().size());
+        assertSame(index, repository.stored);
+        assertSame(HASH, repository.storedHash);
+    }
+
+    @Test
+    public void testStoredIndexIsUsed() throws Exception {
+        final Index stored = AnnotationIndexProcessor.index(Collections.<VirtualFile>emptyList());
+        final RecordingRepository repository = new RecordingRepository(stored);
+        final DeploymentUnitContext context = new DeploymentUnitContextImpl("test", null, null);
+        // No deployment root is attached, so indexing would fail
+        DeploymentContentAttachment.attachDeploymentContent(context, repository, HASH);
+
+        new AnnotationIndexProcessor(Values.immediateValue(executor)).processDeployment(context);
+
+        assertSame(stored, context.getAttachment(AnnotationIndexProcessor.ATTACHMENT_KEY));
+        assertNull(repository.stored);
+        assertEquals(0, executions.get());
+    }
+
+    private static List<String> describe(final Index index) {
+        final List<String> descriptions = new ArrayList<String>();
+        for (ClassInfo classInfo : index.getKnownClasses()) {
+            final StringBuilder builder = new StringBuilder(classInfo.toString());
+            builder.append(" extends ").append(classInfo.superName());
+            final List<String> annotations = new ArrayList<String>();
+            for (Map.Entry<DotName, List<AnnotationTarget>> entry : classInfo.annotations().entrySet()) {
+                annotations.add(entry.getKey() + "=" + entry.getValue().size());
+            }
+            Collections.sort(annotations);
+            builder.append(' ').append(annotations);
+            descriptions.add(builder.toString());
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+    private static List<String> names(final List<ClassInfo> classes) {
+        final List<String> names = new ArrayList<String>();
+        for (ClassInfo classInfo : classes) {
+            names.add(classInfo.name().toString());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static final class RecordingRepository implements ServerDeploymentRepository {
+        private final Index index;
+        private volatile Index stored;
+        private volatile byte[] storedHash;
+
+        private RecordingRepository(final Index index) {
+            this.index = index;
+        }
+
+        public byte[] addDeploymentContent(final String name, final String runtimeName, final InputStream stream) {
+            throw new UnsupportedOperationException();
+        }
+
+        public Closeable mountDeploymentContent(final String name, final String runtimeName, final byte[] deploymentHash, final VirtualFile mountPoint) {
+            throw new UnsupportedOperationException();
+        }
+
+        public Index getAnnotationIndex(final byte[] deploymentHash) {
+            return index;
+        }
+
+        public void addAnnotationIndex(final byte[] deploymentHash, final Index index) {
+            stored = index;
+            storedHash = deploymentHash;
+        }
+    }
+}
@@ -22,18 +22,27 @@
 
 package org.jboss.as.model.base;
 
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
+import org.jboss.as.model.Element;
 import org.jboss.as.model.HostModel;
 import org.jboss.as.model.ManagementElement;
 import org.jboss.as.model.UpdateFailedException;
 import org.jboss.as.model.base.util.ModelParsingSupport;
+import org.jboss.staxmapper.XMLContentWriter;
+import org.jboss.staxmapper.XMLExtendedStreamWriter;
+import org.jboss.staxmapper.XMLMapper;
 
 /**
  * @author Emanuel Muckenhuber
  */
 public abstract class HostModelTestBase extends DomainModelElementTestBase {
 
+    private static final String HOST_CONTENT = "<management interface=\"public\" port=\"9999\"/><domain-controller><local/></domain-controller>";
 
     public HostModelTestBase(String name) {
         super(name);
@@ -90,6 +99,54 @@ public abstract class HostModelTestBase extends DomainModelElementTestBase {
         }
     }
 
+    public void testServerBootSettings() throws Exception {
+        final String content = HOST_CONTENT + "<servers boot-concurrency=\"3\">"
+                + "<server name=\"first\" group=\"main\" start-priority=\"-5\"/>"
+                + "<server name=\"second\" group=\"main\"/>"
+                + "</servers>";
+        final HostModel model = parse(content);
+        assertEquals(3, model.getServerBootConcurrency());
+        assertEquals(-5, model.getServer("first").getStartPriority());
+        assertEquals(0, model.getServer("second").getStartPriority());
+    }
+
+    public void testServerBootSettingsDefaults() throws Exception {
+        final HostModel model = parse(HOST_CONTENT + "<servers><server name=\"first\" group=\"main\"/></servers>");
+        assertEquals(0, model.getServerBootConcurrency());
+        assertEquals(0, model.getServer("first").getStartPriority());
+    }
+
+    public void testServerBootSettingsRoundTrip() throws Exception {
+        final String content = HOST_CONTENT + "<servers boot-concurrency=\"2\">"
+                + "<server name=\"first\" group=\"main\" start-priority=\"10\"/>"
+                + "<server name=\"second\" group=\"main\"/>"
+                + "</servers>";
+        final HostModel model = ModelParsingSupport.parseHostModel(getXMLMapper(), write(parse(content)));
+        assertEquals(2, model.getServerBootConcurrency());
+        assertEquals(10, model.getServer("first").getStartPriority());
+        assertEquals(0, model.getServer("second").getStartPriority());
+
+        final String defaults = write(parse(HOST_CONTENT + "<servers><server name=\"first\" group=\"main\"/></servers>"));
+        assertFalse(defaults, defaults.contains("boot-concurrency"));
+        assertFalse(defaults, defaults.contains("start-priority"));
+    }
+
+    public void testInvalidServerBootSettings() throws Exception {
+        final String[] invalid = {
+                "<servers boot-concurrency=\"-1\"><server name=\"first\" group=\"main\"/></servers>",
+                "<servers boot-concurrency=\"many\"><server name=\"first\" group=\"main\"/></servers>",
+                "<servers><server name=\"first\" group=\"main\" start-priority=\"high\"/></servers>"
+        };
+        for (String content : invalid) {
+            try {
+                parse(HOST_CONTENT + content);
+                fail(content);
+            } catch (XMLStreamException ok) {
+                //
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void testSerializationDeserialization() throws Exception {
@@ -103,4 +160,22 @@ public abstract class HostModelTestBase extends DomainModelElementTestBase {
     String getFullContent(final String content) {
         return ModelParsingSupport.getXmlContent("host", getTargetNamespace(), getTargetNamespaceLocation(), content);
     }
+
+    String write(final HostModel model) throws XMLStreamException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(bytes);
+        try {
+            XMLMapper.Factory.create().deparseDocument(new XMLContentWriter() {
+                public void writeContent(final XMLExtendedStreamWriter streamWriter) throws XMLStreamException {
+                    streamWriter.writeStartDocument();
+                    streamWriter.writeStartElement(Element.HOST.getLocalName());
+                    model.writeContent(streamWriter);
+                    streamWriter.writeEndDocument();
+                }
+            }, writer);
+        } finally {
+            writer.close();
+        }
+        return new String(bytes.toByteArray());
+    }
 }
@@ -88,6 +88,29 @@ public abstract class ServerGroupElementTestBase extends DomainModelElementTestB
         assertEquals(0, testee.getSocketBindingPortOffset());
     }
 
+    public void testMaxUpdateConcurrency() throws Exception {
+        String fullcontent = getFullContent("<server-group name=\"test\" profile=\"test\" max-update-concurrency=\"2\"/>");
+        ServerGroupElement testee = getServerGroupElement(fullcontent);
+        assertEquals(2, testee.getMaxUpdateConcurrency());
+    }
+
+    public void testNoMaxUpdateConcurrency() throws Exception {
+        String fullcontent = getFullContent("<server-group name=\"test\" profile=\"test\"/>");
+        ServerGroupElement testee = getServerGroupElement(fullcontent);
+        assertEquals(0, testee.getMaxUpdateConcurrency());
+    }
+
+    public void testNegativeMaxUpdateConcurrency() throws Exception {
+        String fullcontent = getFullContent("<server-group name=\"test\" profile=\"test\" max-update-concurrency=\"-1\"/>");
+        try {
+            ModelParsingSupport.parseDomainModel(getXMLMapper(), fullcontent);
+            fail("Negative max-update-concurrency did not cause parsing failure");
+        }
+        catch (XMLStreamException good) {
+         // TODO validate the location stuff in the exception message
+        }
+    }
+
     public void testMissingName() throws Exception {
         String fullcontent = getFullContent("<server-group profile=\"test\"/>");
         try {
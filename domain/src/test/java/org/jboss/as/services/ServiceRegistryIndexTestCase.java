@@ -0,0 +1,249 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.msc.service.BatchBuilder;
+import org.jboss.msc.service.Service;
+import org.jboss.msc.service.ServiceContainer;
+import org.jboss.msc.service.ServiceController;
+import org.jboss.msc.service.ServiceController.Mode;
+import org.jboss.msc.service.ServiceController.State;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StartException;
+import org.jboss.msc.service.StopContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link ServiceRegistryIndex} against a real service container.
+ */
+public class ServiceRegistryIndexTestCase {
+
+    private static final ServiceName BASE = ServiceName.of("test", "index");
+
+    private ServiceContainer container;
+    private ServiceRegistryIndex index;
+
+    @Before
+    public void setUp() {
+        container = ServiceContainer.Factory.create();
+        index = ServiceRegistryIndex.getInstance(container);
+    }
+
+    @After
+    public void tearDown() {
+        container.shutdown();
+        ServiceRegistryIndex.removeInstance(container);
+    }
+
+    @Test
+    public void testServicesAreIndexedByState() throws Exception {
+        final BatchBuilder batchBuilder = container.batchBuilder();
+        batchBuilder.addListener(index);
+        batchBuilder.addService(BASE.append("a"), new TestService(false));
+        batchBuilder.addService(BASE.append("b"), new TestService(false));
+        batchBuilder.addService(BASE.append("c"), new TestService(false)).setInitialMode(Mode.NEVER);
+        batchBuilder.addService(BASE.append("d"), new TestService(true));
+        batchBuilder.install();
+
+        awaitCount(State.UP, 2);
+        awaitCount(State.START_FAILED, 1);
+        assertEquals(4, index.getServiceCount());
+        assertEquals(1, index.getServiceCount(State.DOWN));
+        assertEquals(names("a", "b"), names(index.findServices(State.UP, null, null, 0, 0)));
+        assertEquals(names("d"), names(index.findServices(State.START_FAILED, null, null, 0, 0)));
+    }
+
+    @Test
+    public void testFindServices() throws Exception {
+        final BatchBuilder batchBuilder = container.batchBuilder();
+        batchBuilder.addListener(index);
+        for (String name : Arrays.asList("x_1", "x_2", "x_3", "x_4", "y_1")) {
+            batchBuilder.addService(BASE.append(name), new TestService(false));
+        }
+        batchBuilder.addService(BASE.append("x_5"), new TestService(false)).setInitialMode(Mode.NEVER);
+        batchBuilder.install();
+        awaitCount(State.UP, 5);
+
+        final String prefix = BASE.append("x_").getCanonicalName();
+        assertEquals(names("x_1", "x_2", "x_3", "x_4", "x_5"), names(index.findServices(null, null, prefix, 0, 0)));
+        assertEquals(names("x_5"), names(index.findServices(null, Mode.NEVER, prefix, 0, 0)));
+        assertEquals(names("x_2", "x_3"), names(index.findServices(State.UP, null, prefix, 1, 2)));
+        assertEquals(names("x_4"), names(index.findServices(State.UP, Mode.ACTIVE, prefix, 3, 2)));
+        assertEquals(names(), names(index.findServices(State.UP, null, prefix, 4, 0)));
+        assertEquals(names(), names(index.findServices(null, null, "no.such.prefix", 0, 0)));
+        try {
+            index.findServices(null, null, null, -1, 0);
+            fail("Negative offset accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testRemovedServicesAreDropped() throws Exception {
+        final BatchBuilder batchBuilder = container.batchBuilder();
+        batchBuilder.addListener(index);
+        batchBuilder.addService(BASE.append("kept"), new TestService(false));
+        batchBuilder.addService(BASE.append("removed"), new TestService(false));
+        batchBuilder.install();
+        awaitCount(State.UP, 2);
+
+        container.getRequiredService(BASE.append("removed")).setMode(Mode.REMOVE);
+        awaitCount(State.UP, 1);
+        awaitCount(1);
+        assertEquals(names("kept"), names(index.findServices(null, null, null, 0, 0)));
+    }
+
+    @Test
+    public void testServicesOfUnindexedBatchesAreNotIndexed() throws Exception {
+        final BatchBuilder batchBuilder = container.batchBuilder();
+        batchBuilder.addService(BASE.append("unindexed"), new TestService(false));
+        batchBuilder.install();
+        final BatchBuilder indexed = container.batchBuilder();
+        indexed.addListener(index);
+        indexed.addService(BASE.append("indexed"), new TestService(false)).addDependency(BASE.append("unindexed"));
+        indexed.install();
+
+        awaitCount(State.UP, 1);
+        assertEquals(names("indexed"), names(index.findServices(null, null, null, 0, 0)));
+    }
+
+    @Test
+    public void testRemoveInstance() throws Exception {
+        assertSame(index, ServiceRegistryIndex.getInstance(container));
+        final BatchBuilder batchBuilder = container.batchBuilder();
+        batchBuilder.addListener(index);
+        batchBuilder.addService(BASE.append("a"), new TestService(false));
+        batchBuilder.install();
+        awaitCount(State.UP, 1);
+
+        ServiceRegistryIndex.removeInstance(container);
+        assertEquals(0, index.getServiceCount());
+        assertEquals(0, index.getServiceCount(State.UP));
+        final ServiceRegistryIndex replacement = ServiceRegistryIndex.getInstance(container);
+        assertNotSame(index, replacement);
+        assertEquals(0, replacement.getServiceCount());
+        index = replacement;
+    }
+
+    @Test
+    public void testIndexedContainerIndexesEveryBatch() throws Exception {
+        final ServiceContainer indexedContainer = ServiceRegistryIndex.createIndexedContainer();
+        try {
+            final ServiceRegistryIndex containerIndex = ServiceRegistryIndex.getInstance(indexedContainer);
+            final BatchBuilder first = indexedContainer.batchBuilder();
+            first.addService(BASE.append("first"), new TestService(false));
+            first.install();
+            final BatchBuilder second = indexedContainer.batchBuilder();
+            second.addService(BASE.append("second"), new TestService(false)).addDependency(BASE.append("first"));
+            second.install();
+
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+            while (containerIndex.getServiceCount(State.UP) != 2) {
+                if (System.nanoTime() > deadline) {
+                    fail("Services of the indexed container were not indexed");
+                }
+                Thread.sleep(10L);
+            }
+            assertEquals(names("first", "second"), names(containerIndex.findServices(null, null, null, 0, 0)));
+            // controllers report the container underneath, which shares the index
+            final ServiceContainer underlying = indexedContainer.getRequiredService(BASE.append("first")).getServiceContainer();
+            assertNotSame(indexedContainer, underlying);
+            assertSame(containerIndex, ServiceRegistryIndex.getInstance(underlying));
+        } finally {
+            indexedContainer.shutdown();
+        }
+        final ServiceRegistryIndex replacement = ServiceRegistryIndex.getInstance(indexedContainer);
+        assertEquals(0, replacement.getServiceCount());
+        ServiceRegistryIndex.removeInstance(indexedContainer);
+    }
+
+    private void awaitCount(final State state, final int count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (index.getServiceCount(state) != count) {
+            if (System.nanoTime() > deadline) {
+                fail("Expected " + count + " services in state " + state + " but found " + index.getServiceCount(state));
+            }
+            Thread.sleep(10L);
+        }
+    }
+
+    private void awaitCount(final int count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (index.getServiceCount() != count) {
+            if (System.nanoTime() > deadline) {
+                fail("Expected " + count + " services but found " + index.getServiceCount());
+            }
+            Thread.sleep(10L);
+        }
+    }
+
+    private static List<String> names(final String... names) {
+        final List<String> result = new ArrayList<String>();
+        for (String name : names) {
+            result.add(BASE.append(name).getCanonicalName());
+        }
+        return result;
+    }
+
+    private static List<String> names(final List<ServiceController<?>> controllers) {
+        final List<String> result = new ArrayList<String>();
+        for (ServiceController<?> controller : controllers) {
+            result.add(controller.getName().getCanonicalName());
+        }
+        return result;
+    }
+
+    private static final class TestService implements Service<Void> {
+        private final boolean fail;
+
+        private TestService(final boolean fail) {
+            this.fail = fail;
+        }
+
+        public void start(final StartContext context) throws StartException {
+            if (fail) {
+                throw new StartException("failing service");
+            }
+        }
+
+        public void stop(final StopContext context) {
+        }
+
+        public Void getValue() throws IllegalStateException {
+            return null;
+        }
+    }
+}
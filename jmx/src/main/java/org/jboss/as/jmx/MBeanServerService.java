@@ -44,7 +44,7 @@ import org.jboss.msc.service.StopContext;
 public class MBeanServerService implements Service<MBeanServer> {
     public static final ServiceName SERVICE_NAME = ServiceName.JBOSS.append("mbean", "server");
 
-    private MBeanServer mBeanServer;
+    private TcclMBeanServer mBeanServer;
 
     public static void addService(final BatchBuilder batchBuilder) {
         BatchServiceBuilder<?> serviceBuilder = batchBuilder.addService(MBeanServerService.SERVICE_NAME, new MBeanServerService());
@@ -58,6 +58,7 @@ public class MBeanServerService implements Service<MBeanServer> {
 
     /** {@inheritDoc} */
     public synchronized void stop(final StopContext context) {
+        mBeanServer.close();
         mBeanServer = null;
     }
 
@@ -37,6 +37,7 @@ import javax.management.StandardMBean;
 
 import org.jboss.as.jmx.MBeanServerService;
 import org.jboss.as.jmx.ObjectNameFactory;
+import org.jboss.as.services.ServiceRegistryIndex;
 import org.jboss.logging.Logger;
 import org.jboss.msc.service.BatchBuilder;
 import org.jboss.msc.service.BatchServiceBuilder;
@@ -75,27 +76,70 @@ public class ManagedServiceContainerService implements Service<Void> {
     /** {@inheritDoc} */
     public synchronized void start(final StartContext context) throws StartException {
         serviceContainer = context.getController().getServiceContainer();
+        final ServiceRegistryIndex index = ServiceRegistryIndex.getInstance(serviceContainer);
         ManagedServiceContainer mbean = new ManagedServiceContainer() {
 
             @Override
             public List<String> listServices() {
-                return getServiceList(null);
+                return getServiceList();
             }
 
             @Override
             public List<String> listServicesByMode(String mode) {
                 if (mode == null)
-                    return getServiceList(null);
-                String pattern = "mode " + Mode.valueOf(mode.trim().toUpperCase());
-                return getServiceList(pattern);
+                    return getServiceList();
+                Mode queryMode = Mode.valueOf(mode.trim().toUpperCase());
+                return describeServices(index.findServices(null, queryMode, null, 0, 0));
             }
 
             @Override
             public List<String> listServicesByState(String state) {
                 if (state == null)
-                    return getServiceList(null);
-                String pattern = "state=" + State.valueOf(state.trim().toUpperCase());
-                return getServiceList(pattern);
+                    return getServiceList();
+                State queryState = State.valueOf(state.trim().toUpperCase());
+                return describeServices(index.findServices(queryState, null, null, 0, 0));
+            }
+
+            @Override
+            public List<String> queryServices(String state, String mode, String namePrefix, int offset, int limit) {
+                State queryState = state == null ? null : State.valueOf(state.trim().toUpperCase());
+                Mode queryMode = mode == null ? null : Mode.valueOf(mode.trim().toUpperCase());
+                List<ServiceController<?>> controllers = index.findServices(queryState, queryMode, namePrefix, offset, limit);
+                List<String> names = new ArrayList<String>(controllers.size());
+                for (ServiceController<?> controller : controllers) {
+                    names.add(controller.getName().getCanonicalName());
+                }
+                return names;
+            }
+
+            @Override
+            public int getServiceCount() {
+                return index.getServiceCount();
+            }
+
+            @Override
+            public int getUpServiceCount() {
+                return index.getServiceCount(State.UP);
+            }
+
+            @Override
+            public int getDownServiceCount() {
+                return index.getServiceCount(State.DOWN);
+            }
+
+            @Override
+            public int getStartingServiceCount() {
+                return index.getServiceCount(State.STARTING);
+            }
+
+            @Override
+            public int getStartFailedServiceCount() {
+                return index.getServiceCount(State.START_FAILED);
+            }
+
+            @Override
+            public int getStoppingServiceCount() {
+                return index.getServiceCount(State.STOPPING);
             }
 
             @Override
@@ -111,7 +155,18 @@ public class ManagedServiceContainerService implements Service<Void> {
                 controller.setMode(Mode.valueOf(mode.trim().toUpperCase()));
             }
 
-            private List<String> getServiceList(String pattern) {
+            /**
+             * Describe services the way the container dump does, without the dependency details only the dump has.
+             */
+            private List<String> describeServices(List<ServiceController<?>> controllers) {
+                List<String> entries = new ArrayList<String>(controllers.size());
+                for (ServiceController<?> controller : controllers) {
+                    entries.add("Service '" + controller.getName() + "' mode " + controller.getMode() + " state=" + controller.getState());
+                }
+                return entries;
+            }
+
+            private List<String> getServiceList() {
                 List<String> entries = new ArrayList<String>();
                 ByteArrayOutputStream baos = new ByteArrayOutputStream();
                 serviceContainer.dumpServices(new PrintStream(baos));
@@ -119,8 +174,7 @@ public class ManagedServiceContainerService implements Service<Void> {
                 try {
                     String line = reader.readLine();
                     while (line != null) {
-                        if (pattern == null || line.contains(pattern))
-                            entries.add(line);
+                        entries.add(line);
                         line = reader.readLine();
                     }
                 } catch (IOException ex) {
@@ -153,6 +207,11 @@ public class ManagedServiceContainerService implements Service<Void> {
         return null;
     }
 
+    /**
+     * The management interface of the service container.  {@link #listServices} returns the full container dump and
+     * is expensive on large containers; listing by mode or state, {@link #queryServices} and the service counts are
+     * answered from the {@link ServiceRegistryIndex} and are cheap enough to poll.
+     */
     public interface ManagedServiceContainer {
         List<String> listServices();
 
@@ -160,6 +219,30 @@ public class ManagedServiceContainerService implements Service<Void> {
 
         List<String> listServicesByState(String state);
 
+        /**
+         * Get the canonical names of the matching services, in name order.
+         *
+         * @param state the service state, or {@code null} for any state
+         * @param mode the service mode, or {@code null} for any mode
+         * @param namePrefix the service name prefix, or {@code null} for any name
+         * @param offset the number of matching services to skip
+         * @param limit the maximum number of names to return, or {@code 0} for no limit
+         * @return the service names
+         */
+        List<String> queryServices(String state, String mode, String namePrefix, int offset, int limit);
+
+        int getServiceCount();
+
+        int getUpServiceCount();
+
+        int getDownServiceCount();
+
+        int getStartingServiceCount();
+
+        int getStartFailedServiceCount();
+
+        int getStoppingServiceCount();
+
         void setMode(String serviceName, String mode);
     }
 }
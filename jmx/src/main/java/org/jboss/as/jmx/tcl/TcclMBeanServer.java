@@ -22,7 +22,15 @@
 package org.jboss.as.jmx.tcl;
 
 import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.management.Attribute;
 import javax.management.AttributeList;
@@ -36,8 +44,12 @@ import javax.management.MBeanException;
 import javax.management.MBeanInfo;
 import javax.management.MBeanRegistrationException;
 import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
 import javax.management.NotCompliantMBeanException;
 import javax.management.NotificationFilter;
+import javax.management.NotificationFilterSupport;
 import javax.management.NotificationListener;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
@@ -50,6 +62,10 @@ import javax.management.loading.ClassLoaderRepository;
  * An MBeanServer wrapper that sets the thread context classloader before
  * calling the delegate MBeanServer method
  *
+ * The class loader of each MBean is cached by name, for setting the thread context class loader only.  An entry is
+ * dropped when the delegate reports that an MBean of that name was registered or unregistered, whether or not that
+ * went through this wrapper.
+ *
  * @author <a href="kabir.khan@jboss.com">Kabir Khan</a>
  * @version $Revision: 1.1 $
  */
@@ -57,8 +73,41 @@ public class TcclMBeanServer implements MBeanServer {
 
     private final MBeanServer delegate;
 
+    private final ConcurrentMap<ObjectName, CachedClassLoader> classLoaders = new ConcurrentHashMap<ObjectName, CachedClassLoader>();
+
+    /* Bumped before each invalidation, so a lookup racing with one does not leave a stale entry behind */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final NotificationListener registrationListener = new NotificationListener() {
+        public void handleNotification(final Notification notification, final Object handback) {
+            if (notification instanceof MBeanServerNotification) {
+                invalidate(((MBeanServerNotification) notification).getMBeanName());
+            }
+        }
+    };
+
     public TcclMBeanServer(MBeanServer delegate) {
         this.delegate = delegate;
+        final NotificationFilterSupport filter = new NotificationFilterSupport();
+        filter.enableType(MBeanServerNotification.REGISTRATION_NOTIFICATION);
+        filter.enableType(MBeanServerNotification.UNREGISTRATION_NOTIFICATION);
+        try {
+            delegate.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener, filter, null);
+        } catch (InstanceNotFoundException e) {
+            throw new IllegalStateException("MBeanServer has no delegate to report registrations", e);
+        }
+    }
+
+    /**
+     * Stop tracking MBean registrations and drop all cached class loaders.
+     */
+    public void close() {
+        try {
+            delegate.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener);
+        } catch (InstanceNotFoundException ignored) {
+        } catch (ListenerNotFoundException ignored) {
+        }
+        classLoaders.clear();
     }
 
     public void addNotificationListener(ObjectName name, NotificationListener listener, NotificationFilter filter, Object handback)
@@ -147,11 +196,67 @@ public class TcclMBeanServer implements MBeanServer {
         }
     }
 
+    /**
+     * Get the same attributes of several MBeans.  The MBeans are grouped by class loader, and the thread context
+     * class loader is switched once per group rather than once per MBean.  MBeans which are not registered are left
+     * out of the result.
+     *
+     * @param names The MBean names
+     * @param attributes The attribute names
+     * @return The attributes read, in the order of the names given
+     * @throws ReflectionException If reading the attributes of an MBean fails
+     */
+    public Map<ObjectName, AttributeList> getAttributes(Collection<ObjectName> names, String[] attributes) throws ReflectionException {
+        final Map<ClassLoaderKey, List<ObjectName>> namesByClassLoader = new LinkedHashMap<ClassLoaderKey, List<ObjectName>>();
+        for (ObjectName name : names) {
+            final ClassLoader classLoader;
+            try {
+                classLoader = getCachedClassLoaderFor(name);
+            } catch (InstanceNotFoundException e) {
+                continue;
+            }
+            final ClassLoaderKey key = new ClassLoaderKey(classLoader);
+            List<ObjectName> group = namesByClassLoader.get(key);
+            if (group == null) {
+                group = new ArrayList<ObjectName>();
+                namesByClassLoader.put(key, group);
+            }
+            group.add(name);
+        }
+
+        final Map<ObjectName, AttributeList> results = new LinkedHashMap<ObjectName, AttributeList>();
+        for (Map.Entry<ClassLoaderKey, List<ObjectName>> entry : namesByClassLoader.entrySet()) {
+            ClassLoader old = SecurityActions.setThreadContextClassLoader(entry.getKey().classLoader);
+            try {
+                for (ObjectName name : entry.getValue()) {
+                    try {
+                        results.put(name, delegate.getAttributes(name, attributes));
+                    } catch (InstanceNotFoundException ignored) {
+                    }
+                }
+            } finally {
+                resetClassLoader(old);
+            }
+        }
+        if (namesByClassLoader.size() > 1) {
+            final Map<ObjectName, AttributeList> ordered = new LinkedHashMap<ObjectName, AttributeList>();
+            for (ObjectName name : names) {
+                final AttributeList attributeList = results.get(name);
+                if (attributeList != null) {
+                    ordered.put(name, attributeList);
+                }
+            }
+            return ordered;
+        }
+        return results;
+    }
+
     public ClassLoader getClassLoader(ObjectName loaderName) throws InstanceNotFoundException {
         return delegate.getClassLoader(loaderName);
     }
 
     public ClassLoader getClassLoaderFor(ObjectName mbeanName) throws InstanceNotFoundException {
+        // not served from the cache, so that the delegate checks the caller's permission to get the class loader
         return delegate.getClassLoaderFor(mbeanName);
     }
 
@@ -235,7 +340,9 @@ public class TcclMBeanServer implements MBeanServer {
 
     public ObjectInstance registerMBean(Object object, ObjectName name) throws InstanceAlreadyExistsException, MBeanRegistrationException,
             NotCompliantMBeanException {
-        return delegate.registerMBean(object, name);
+        final ObjectInstance instance = delegate.registerMBean(object, name);
+        invalidate(instance.getObjectName());
+        return instance;
     }
 
     public void removeNotificationListener(ObjectName name, NotificationListener listener, NotificationFilter filter, Object handback)
@@ -297,14 +404,39 @@ public class TcclMBeanServer implements MBeanServer {
     }
 
     public void unregisterMBean(ObjectName name) throws InstanceNotFoundException, MBeanRegistrationException {
-        delegate.unregisterMBean(name);
+        try {
+            delegate.unregisterMBean(name);
+        } finally {
+            invalidate(name);
+        }
     }
 
     private ClassLoader pushClassLoader(ObjectName name) throws InstanceNotFoundException {
-        ClassLoader mbeanCl = delegate.getClassLoaderFor(name);
+        ClassLoader mbeanCl = getCachedClassLoaderFor(name);
         return SecurityActions.setThreadContextClassLoader(mbeanCl);
     }
 
+    private ClassLoader getCachedClassLoaderFor(ObjectName name) throws InstanceNotFoundException {
+        final CachedClassLoader cached = classLoaders.get(name);
+        if (cached != null) {
+            return cached.classLoader;
+        }
+        final int generation = this.generation.get();
+        final CachedClassLoader loaded = new CachedClassLoader(delegate.getClassLoaderFor(name));
+        if (!name.isPattern()) {
+            classLoaders.put(name, loaded);
+            if (this.generation.get() != generation) {
+                classLoaders.remove(name, loaded);
+            }
+        }
+        return loaded.classLoader;
+    }
+
+    private void invalidate(ObjectName name) {
+        generation.incrementAndGet();
+        classLoaders.remove(name);
+    }
+
     private ClassLoader pushClassLoaderByName(ObjectName loaderName) throws InstanceNotFoundException {
         ClassLoader mbeanCl = delegate.getClassLoader(loaderName);
         return SecurityActions.setThreadContextClassLoader(mbeanCl);
@@ -313,4 +445,34 @@ public class TcclMBeanServer implements MBeanServer {
     private void resetClassLoader(ClassLoader cl) {
         SecurityActions.resetThreadContextClassLoader(cl);
     }
+
+    /**
+     * A cache entry, which allows a {@code null} class loader to be cached as well.
+     */
+    private static final class CachedClassLoader {
+        private final ClassLoader classLoader;
+
+        private CachedClassLoader(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+    }
+
+    /**
+     * Groups MBeans by class loader identity.
+     */
+    private static final class ClassLoaderKey {
+        private final ClassLoader classLoader;
+
+        private ClassLoaderKey(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        public int hashCode() {
+            return System.identityHashCode(classLoader);
+        }
+
+        public boolean equals(Object obj) {
+            return obj instanceof ClassLoaderKey && ((ClassLoaderKey) obj).classLoader == classLoader;
+        }
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.jmx.tcl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the class loader cache of {@link TcclMBeanServer}.
+ *
+ * @author <a href="kabir.khan@jboss.com">Kabir Khan</a>
+ */
+public class TcclMBeanServerTestCase {
+
+    private final AtomicInteger classLoaderLookups = new AtomicInteger();
+    private MBeanServer platform;
+    private TcclMBeanServer server;
+    private ObjectName name;
+    private ClassLoader original;
+
+    @Before
+    public void setUp() throws Exception {
+        platform = MBeanServerFactory.newMBeanServer();
+        server = new TcclMBeanServer(countingServer(platform));
+        name = new ObjectName("jboss.test:type=tccl");
+        original = Thread.currentThread().getContextClassLoader();
+        // the MBean class loader must differ from the caller's for the switch to show
+        Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[0], null));
+    }
+
+    @After
+    public void tearDown() {
+        Thread.currentThread().setContextClassLoader(original);
+        server.close();
+    }
+
+    @Test
+    public void testContextClassLoaderIsSwitched() throws Exception {
+        final Recorder recorder = new Recorder();
+        server.registerMBean(recorder, name);
+        server.getAttribute(name, "Value");
+        assertSame(Recorder.class.getClassLoader(), recorder.contextClassLoader);
+    }
+
+    @Test
+    public void testClassLoaderIsCached() throws Exception {
+        server.registerMBean(new Recorder(), name);
+        final int before = classLoaderLookups.get();
+        for (int i = 0; i < 10; i++) {
+            server.getAttribute(name, "Value");
+            server.invoke(name, "reset", null, null);
+        }
+        assertEquals(1, classLoaderLookups.get() - before);
+    }
+
+    @Test
+    public void testUnregisterInvalidates() throws Exception {
+        server.registerMBean(new Recorder(), name);
+        server.getAttribute(name, "Value");
+        server.unregisterMBean(name);
+        try {
+            server.getAttribute(name, "Value");
+            fail("Unregistered MBean was read");
+        } catch (InstanceNotFoundException expected) {
+        }
+
+        final Recorder replacement = new Recorder();
+        server.registerMBean(replacement, name);
+        server.getAttribute(name, "Value");
+        assertSame(Recorder.class.getClassLoader(), replacement.contextClassLoader);
+    }
+
+    @Test
+    public void testUnregisterThroughDelegateInvalidates() throws Exception {
+        server.registerMBean(new Recorder(), name);
+        server.getAttribute(name, "Value");
+        final int before = classLoaderLookups.get();
+        platform.unregisterMBean(name);
+        try {
+            server.getAttribute(name, "Value");
+            fail("MBean unregistered from the delegate was read");
+        } catch (InstanceNotFoundException expected) {
+        }
+        platform.registerMBean(new Recorder(), name);
+        server.getAttribute(name, "Value");
+        server.getAttribute(name, "Value");
+        // one failed lookup and one for the new registration
+        assertEquals(2, classLoaderLookups.get() - before);
+    }
+
+    @Test
+    public void testGetClassLoaderForIsNotCached() throws Exception {
+        server.registerMBean(new Recorder(), name);
+        server.getAttribute(name, "Value");
+        final int before = classLoaderLookups.get();
+        assertSame(Recorder.class.getClassLoader(), server.getClassLoaderFor(name));
+        assertSame(Recorder.class.getClassLoader(), server.getClassLoaderFor(name));
+        assertEquals(2, classLoaderLookups.get() - before);
+    }
+
+    @Test
+    public void testBulkGetAttributes() throws Exception {
+        final ObjectName other = new ObjectName("jboss.test:type=tccl,name=other");
+        final ObjectName missing = new ObjectName("jboss.test:type=tccl,name=missing");
+        final Recorder first = new Recorder();
+        final Recorder second = new Recorder();
+        server.registerMBean(first, name);
+        server.registerMBean(second, other);
+        final int before = classLoaderLookups.get();
+
+        Map<ObjectName, AttributeList> results = server.getAttributes(Arrays.asList(other, missing, name), new String[] {"Value"});
+        assertEquals(Arrays.asList(other, name), Arrays.asList(results.keySet().toArray()));
+        assertEquals(1, results.get(name).size());
+        assertSame(Recorder.class.getClassLoader(), first.contextClassLoader);
+        assertSame(Recorder.class.getClassLoader(), second.contextClassLoader);
+        // one lookup per name, after which the registered ones are cached
+        assertEquals(3, classLoaderLookups.get() - before);
+
+        results = server.getAttributes(Arrays.asList(name, other), new String[] {"Value"});
+        assertEquals(Arrays.asList(name, other), Arrays.asList(results.keySet().toArray()));
+        assertEquals(3, classLoaderLookups.get() - before);
+    }
+
+    private MBeanServer countingServer(final MBeanServer delegate) {
+        return (MBeanServer) Proxy.newProxyInstance(MBeanServer.class.getClassLoader(), new Class<?>[] {MBeanServer.class},
+                new InvocationHandler() {
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                        if ("getClassLoaderFor".equals(method.getName())) {
+                            classLoaderLookups.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(delegate, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+
+    public interface RecorderMBean {
+        String getValue();
+
+        void reset();
+    }
+
+    public static class Recorder implements RecorderMBean {
+        private volatile ClassLoader contextClassLoader;
+
+        public String getValue() {
+            contextClassLoader = Thread.currentThread().getContextClassLoader();
+            return "value";
+        }
+
+        public void reset() {
+            contextClassLoader = null;
+        }
+    }
+}
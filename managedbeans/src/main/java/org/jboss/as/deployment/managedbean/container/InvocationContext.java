@@ -22,15 +22,15 @@
 
 package org.jboss.as.deployment.managedbean.container;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Implementation of {@link javax.interceptor.InvocationContext} which supports the execution of managed bean method invocations
- * with an associated interceptor chain.  Uses a simple iterator to manage stepping through the interceptor chain.
+ * with an associated interceptor chain.  Steps through the interceptor chain by index.
  *
  * @param <T> The target object type
  *
@@ -40,7 +40,8 @@ public class InvocationContext<T> implements javax.interceptor.InvocationContext
     private T target;
     private Method method;
     private Object[] parameters;
-    private final Iterator<ManagedBeanInterceptor.AroundInvokeInterceptor<?>> interceptors;
+    private final List<ManagedBeanInterceptor.AroundInvokeInterceptor<?>> interceptors;
+    private int position;
     private final Map<String, Object> contextData = Collections.emptyMap();
 
     /**
@@ -55,7 +56,7 @@ public class InvocationContext<T> implements javax.interceptor.InvocationContext
         this.target = target;
         this.method = method;
         this.parameters = parameters;
-        this.interceptors = interceptors.iterator();
+        this.interceptors = interceptors;
     }
 
     /** {@inheritDoc} */
@@ -92,17 +93,21 @@ public class InvocationContext<T> implements javax.interceptor.InvocationContext
      * {@inheritDoc}
      *
      * This implementation will first check to see if there are any more interceptors and if so, will use the next in the chain,
-     * if not it will run the method against the target object.
+     * if not it will run the method against the target object.  Exceptions thrown by the method are thrown unchanged.
      *
      * @return The result of the interceptor chain invocation.
      * @throws Exception
      */
     public Object proceed() throws Exception {
-        if(interceptors.hasNext()) {
-            final ManagedBeanInterceptor.AroundInvokeInterceptor<?> interceptor = interceptors.next();
+        if(position < interceptors.size()) {
+            final ManagedBeanInterceptor.AroundInvokeInterceptor<?> interceptor = interceptors.get(position++);
             return interceptor.intercept(this);
         } else {
-            return method.invoke(target, parameters);
+            try {
+                return method.invoke(target, parameters);
+            } catch (InvocationTargetException e) {
+                throw InvocationPlan.unwrap(e);
+            }
         }
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.deployment.managedbean.container;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import javax.interceptor.ExcludeClassInterceptors;
+
+/**
+ * The way invocations of one managed bean method are run, worked out once when the container is created rather than
+ * on every invocation.
+ */
+final class InvocationPlan {
+    private final Method method;
+    private final boolean intercepted;
+    private volatile boolean accessible;
+
+    /**
+     * Create a plan for a method.
+     *
+     * @param method The managed bean method
+     */
+    InvocationPlan(final Method method) {
+        this.method = method;
+        this.intercepted = !method.isAnnotationPresent(ExcludeClassInterceptors.class);
+        // public methods of public classes can be invoked as they are
+        this.accessible = Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(method.getDeclaringClass().getModifiers());
+    }
+
+    /**
+     * Create the plans for all the methods of a managed bean class which a proxy can intercept.  The methods of
+     * {@code Object} are left out; a proxy that is asked for one of those creates its plan when it is invoked.
+     *
+     * @param beanClass The managed bean class
+     * @return The plans, keyed by method
+     */
+    static Map<Method, InvocationPlan> createPlans(final Class<?> beanClass) {
+        final Map<Method, InvocationPlan> plans = new HashMap<Method, InvocationPlan>();
+        for (Class<?> current = beanClass; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                final int modifiers = method.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isPrivate(modifiers) && !Modifier.isFinal(modifiers)) {
+                    plans.put(method, new InvocationPlan(method));
+                }
+            }
+        }
+        return plans;
+    }
+
+    /**
+     * Get the managed bean method.  The method is made accessible the first time it is needed, so only the methods
+     * which are actually invoked are opened up.
+     *
+     * @return The method
+     */
+    Method getMethod() {
+        if (!accessible) {
+            method.setAccessible(true);
+            accessible = true;
+        }
+        return method;
+    }
+
+    /**
+     * Determine whether the interceptor chain runs around invocations of the method.
+     *
+     * @return {@code true} if the method is intercepted
+     */
+    boolean isIntercepted() {
+        return intercepted;
+    }
+
+    /**
+     * Get the exception thrown by an invoked method, so it can be thrown on unchanged.
+     *
+     * @param e The exception thrown by the reflective invocation
+     * @return The exception thrown by the method
+     */
+    static Exception unwrap(final InvocationTargetException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return e;
+    }
+}
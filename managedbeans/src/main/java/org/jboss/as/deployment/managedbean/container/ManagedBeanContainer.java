@@ -24,7 +24,9 @@ package org.jboss.as.deployment.managedbean.container;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import static org.jboss.as.deployment.managedbean.container.SecurityActions.getContextClassLoader;
 import static org.jboss.as.deployment.managedbean.container.SecurityActions.setContextClassLoader;
 
@@ -42,6 +44,8 @@ public class ManagedBeanContainer<T> {
     private final List<Method> preDestroyMethods;
     private final List<ResourceInjection<?>> resourceInjections;
     private final List<ManagedBeanInterceptor<?>> interceptors;
+    private final Map<Method, InvocationPlan> invocationPlans;
+    private volatile Class<? extends T> proxyClass;
 
     /**
      * Construct with managed bean configuration.
@@ -60,6 +64,7 @@ public class ManagedBeanContainer<T> {
         this.preDestroyMethods = preDestroyMethods;
         this.resourceInjections = resourceInjections;
         this.interceptors = interceptors;
+        this.invocationPlans = interceptors.isEmpty() ? Collections.<Method, InvocationPlan>emptyMap() : InvocationPlan.createPlans(beanClass);
     }
 
     /**
@@ -108,7 +113,7 @@ public class ManagedBeanContainer<T> {
                 }
             }
             try {
-                managedBean = ManagedBeanProxyHandler.createProxy(beanClass, deploymentClassLoader, managedBean, aroundInvokeInterceptors);
+                managedBean = ManagedBeanProxyHandler.createProxy(getProxyClass(), deploymentClassLoader, managedBean, aroundInvokeInterceptors, invocationPlans);
             } catch (Throwable t) {
                 throw new RuntimeException("Unable to create managed bean proxy for " + beanClass, t);
             }
@@ -116,5 +121,22 @@ public class ManagedBeanContainer<T> {
         return managedBean;
     }
 
-
+    /**
+     * Get the proxy class for the managed bean, generating it on first use.  Every instance of this container's bean
+     * shares the one class, so only the first proxy pays for defining it.
+     *
+     * @return The proxy class
+     */
+    private Class<? extends T> getProxyClass() {
+        Class<? extends T> proxyClass = this.proxyClass;
+        if (proxyClass == null) {
+            synchronized (this) {
+                proxyClass = this.proxyClass;
+                if (proxyClass == null) {
+                    this.proxyClass = proxyClass = ManagedBeanProxyHandler.createProxyClass(beanClass);
+                }
+            }
+        }
+        return proxyClass;
+    }
 }
@@ -22,6 +22,7 @@
 
 package org.jboss.as.deployment.managedbean.container;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
 
@@ -68,7 +69,11 @@ public class ManagedBeanInterceptor<T> {
         }
 
         Object intercept(final InvocationContext<?> invocationContext) throws Exception {
-            return aroundInvokeMethod.invoke(target, invocationContext);
+            try {
+                return aroundInvokeMethod.invoke(target, invocationContext);
+            } catch (InvocationTargetException e) {
+                throw InvocationPlan.unwrap(e);
+            }
         }
     }
 
@@ -26,16 +26,17 @@ import javassist.util.proxy.MethodHandler;
 import javassist.util.proxy.ProxyFactory;
 import javassist.util.proxy.ProxyObject;
 
-import javax.interceptor.ExcludeClassInterceptors;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Map;
 import static org.jboss.as.deployment.managedbean.container.SecurityActions.getContextClassLoader;
 import static org.jboss.as.deployment.managedbean.container.SecurityActions.setContextClassLoader;
 
 /**
- * Method handler used to proxy managed bean method invocations.  For each method called it will check to see if the method
- * supports interception and will execute a new {@link InvocationContext}.  If the method does not support interceptors,
- * it will run the method directly on the managed bean instance.
+ * Method handler used to proxy managed bean method invocations.  For each method called it will look up the method's
+ * {@link InvocationPlan}, and if the method supports interception will execute a new {@link InvocationContext}.  If the
+ * method does not support interceptors, it will run the method directly on the managed bean instance.
  *
  * @author John E. Bailey
  */
@@ -43,15 +44,33 @@ public class ManagedBeanProxyHandler<T> /* extends ProxyHandler<T> */ implements
     private final List<ManagedBeanInterceptor.AroundInvokeInterceptor<?>> interceptors;
     private final T instance;
     private final ClassLoader deploymentClassLoader;
+    private final Map<Method, InvocationPlan> invocationPlans;
 
-    public static <T> T createProxy(final Class<T> managedBeanClass, final ClassLoader deploymentClassLoader, final T managedBean, final List<ManagedBeanInterceptor.AroundInvokeInterceptor<?>> interceptors) throws IllegalAccessException, InstantiationException {
-        final ManagedBeanProxyHandler<T> handler = new ManagedBeanProxyHandler<T>(managedBean, interceptors, deploymentClassLoader);
-        //return ProxyFactory.createProxy(managedBeanClass, );
+    /**
+     * Generate the proxy class for a managed bean class.  The class can be used for any number of proxies.
+     *
+     * @param managedBeanClass The managed bean class
+     * @return The proxy class
+     */
+    public static <T> Class<? extends T> createProxyClass(final Class<T> managedBeanClass) {
         final ProxyFactory proxyFactory = new ProxyFactory();
         proxyFactory.setSuperclass(managedBeanClass);
+        return castClass(proxyFactory.createClass(), managedBeanClass);
+    }
 
-        final Class<? extends T> type = castClass(proxyFactory.createClass(), managedBeanClass);
-        T proxy = type.newInstance();
+    /**
+     * Create a proxy for a managed bean instance.
+     *
+     * @param proxyClass The proxy class, as returned by {@link #createProxyClass(Class)}
+     * @param deploymentClassLoader The classloader for the deployment
+     * @param managedBean The managed bean instance
+     * @param interceptors The interceptor chain
+     * @param invocationPlans The invocation plans of the managed bean methods
+     * @return The proxy
+     */
+    static <T> T createProxy(final Class<? extends T> proxyClass, final ClassLoader deploymentClassLoader, final T managedBean, final List<ManagedBeanInterceptor.AroundInvokeInterceptor<?>> interceptors, final Map<Method, InvocationPlan> invocationPlans) throws IllegalAccessException, InstantiationException {
+        final ManagedBeanProxyHandler<T> handler = new ManagedBeanProxyHandler<T>(managedBean, interceptors, deploymentClassLoader, invocationPlans);
+        T proxy = proxyClass.newInstance();
         ((ProxyObject)proxy).setHandler(handler);
         return proxy;
     }
@@ -67,37 +86,55 @@ public class ManagedBeanProxyHandler<T> /* extends ProxyHandler<T> */ implements
      *
      * @param managedBeanInstance The managed bean instance
      * @param interceptors The interceptor chain
+     * @param deploymentClassLoader The classloader for the deployment
+     * @param invocationPlans The invocation plans of the managed bean methods
      */
-    private ManagedBeanProxyHandler(final T managedBeanInstance, final List<ManagedBeanInterceptor.AroundInvokeInterceptor<?>> interceptors, final ClassLoader deploymentClassLoader) {
+    private ManagedBeanProxyHandler(final T managedBeanInstance, final List<ManagedBeanInterceptor.AroundInvokeInterceptor<?>> interceptors, final ClassLoader deploymentClassLoader, final Map<Method, InvocationPlan> invocationPlans) {
         //super(managedBeanInstance);
         this.instance = managedBeanInstance;
         this.interceptors = interceptors;
         this.deploymentClassLoader = deploymentClassLoader;
+        this.invocationPlans = invocationPlans;
     }
 
     /**
-     * Invoke a method on a managed bean instance method.
+     * Invoke a method on a managed bean instance method.  Exceptions thrown by the method or the interceptors are
+     * thrown unchanged.
      *
      * @param instance The the managed bean instance
      * @param method The method invoked
      * @param arguments The arguments to the method invocation
      * @return The value of the invocation context execution
+     * @throws Exception If the invocation fails
      */
-    protected Object invokeMethod(T instance, Method method, Object[] arguments) {
+    protected Object invokeMethod(T instance, Method method, Object[] arguments) throws Exception {
+        InvocationPlan plan = invocationPlans.get(method);
+        if (plan == null) {
+            plan = new InvocationPlan(method);
+        }
         final ClassLoader contextCl = getContextClassLoader();
+        if (contextCl == deploymentClassLoader) {
+            return invokeMethod(instance, plan, arguments);
+        }
         setContextClassLoader(deploymentClassLoader);
         try {
-            if(!method.isAnnotationPresent(ExcludeClassInterceptors.class)) {
-                return new InvocationContext<T>(instance, method, arguments, interceptors).proceed();
-            }
-            return method.invoke(instance, arguments);
-        } catch(Throwable t) {
-            throw new RuntimeException(t);
+            return invokeMethod(instance, plan, arguments);
         } finally {
             setContextClassLoader(contextCl);
         }
     }
 
+    private Object invokeMethod(final T instance, final InvocationPlan plan, final Object[] arguments) throws Exception {
+        if (plan.isIntercepted()) {
+            return new InvocationContext<T>(instance, plan.getMethod(), arguments, interceptors).proceed();
+        }
+        try {
+            return plan.getMethod().invoke(instance, arguments);
+        } catch (InvocationTargetException e) {
+            throw InvocationPlan.unwrap(e);
+        }
+    }
+
     @Override
     public Object invoke(Object o, Method method, Method proceed, Object[] arguments) throws Throwable {
         return invokeMethod(instance, method, arguments);
@@ -0,0 +1,161 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.deployment.managedbean.container;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import javax.interceptor.ExcludeClassInterceptors;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link InvocationPlan}, pinning down how exceptions thrown by managed bean methods and interceptors are
+ * passed on to the caller.
+ *
+ * @author John E. Bailey
+ */
+public class InvocationPlanTestCase {
+
+    @Test
+    public void testUnwrapReturnsCheckedException() {
+        final IOException cause = new IOException("checked");
+        assertSame(cause, InvocationPlan.unwrap(new InvocationTargetException(cause)));
+    }
+
+    @Test
+    public void testUnwrapReturnsRuntimeException() {
+        final IllegalStateException cause = new IllegalStateException("unchecked");
+        assertSame(cause, InvocationPlan.unwrap(new InvocationTargetException(cause)));
+    }
+
+    @Test
+    public void testUnwrapThrowsError() {
+        final AssertionError cause = new AssertionError("error");
+        try {
+            InvocationPlan.unwrap(new InvocationTargetException(cause));
+            fail("Error was not thrown");
+        } catch (AssertionError e) {
+            assertSame(cause, e);
+        }
+    }
+
+    @Test
+    public void testUnwrapKeepsOtherThrowableWrapped() {
+        final InvocationTargetException wrapped = new InvocationTargetException(new Throwable("neither"));
+        assertSame(wrapped, InvocationPlan.unwrap(wrapped));
+    }
+
+    @Test
+    public void testUnwrapKeepsMissingCauseWrapped() {
+        final InvocationTargetException wrapped = new InvocationTargetException(null);
+        assertSame(wrapped, InvocationPlan.unwrap(wrapped));
+    }
+
+    @Test
+    public void testPlans() throws Exception {
+        final Map<Method, InvocationPlan> plans = InvocationPlan.createPlans(Bean.class);
+        final InvocationPlan intercepted = plans.get(Bean.class.getMethod("intercepted"));
+        final InvocationPlan excluded = plans.get(Bean.class.getMethod("excluded"));
+        assertTrue(intercepted.isIntercepted());
+        assertFalse(excluded.isIntercepted());
+        assertFalse(plans.containsKey(Object.class.getMethod("toString")));
+        assertTrue(plans.containsKey(Bean.class.getDeclaredMethod("packageMethod")));
+        assertFalse(plans.containsKey(Bean.class.getDeclaredMethod("notProxied")));
+        assertFalse(plans.containsKey(Bean.class.getMethod("finalMethod")));
+        assertFalse(plans.containsKey(Bean.class.getMethod("staticMethod")));
+    }
+
+    @Test
+    public void testOnlyInvokedMethodsAreMadeAccessible() throws Exception {
+        final Map<Method, InvocationPlan> plans = InvocationPlan.createPlans(Bean.class);
+        Method packageMethod = null;
+        for (Method method : plans.keySet()) {
+            assertFalse(method.isAccessible());
+            if (method.getName().equals("packageMethod")) {
+                packageMethod = method;
+            }
+        }
+        assertNotNull(packageMethod);
+        final InvocationPlan plan = plans.get(packageMethod);
+        assertSame(packageMethod, plan.getMethod());
+        assertTrue(packageMethod.isAccessible());
+        assertFalse(plans.get(Bean.class.getMethod("intercepted")).getMethod().isAccessible());
+    }
+
+    @Test
+    public void testInvocationContextThrowsMethodExceptionsUnchanged() throws Exception {
+        final Bean bean = new Bean();
+        final IOException checked = new IOException("checked");
+        bean.toThrow = checked;
+        assertSame(checked, proceedAndCatch(bean));
+
+        final IllegalArgumentException unchecked = new IllegalArgumentException("unchecked");
+        bean.toThrow = unchecked;
+        assertSame(unchecked, proceedAndCatch(bean));
+
+        final OutOfMemoryError error = new OutOfMemoryError("error");
+        bean.toThrow = error;
+        assertSame(error, proceedAndCatch(bean));
+    }
+
+    private static Throwable proceedAndCatch(final Bean bean) throws Exception {
+        final InvocationContext<Bean> context = new InvocationContext<Bean>(bean, Bean.class.getMethod("intercepted"),
+                new Object[0], Collections.<ManagedBeanInterceptor.AroundInvokeInterceptor<?>>emptyList());
+        try {
+            context.proceed();
+        } catch (Throwable t) {
+            return t;
+        }
+        fail("Nothing was thrown");
+        return null;
+    }
+
+    public static class Bean {
+        Throwable toThrow;
+
+        public void intercepted() throws Throwable {
+            if (toThrow != null) {
+                throw toThrow;
+            }
+        }
+
+        @ExcludeClassInterceptors
+        public void excluded() {
+        }
+
+        private void notProxied() {
+        }
+
+        void packageMethod() {
+        }
+
+        public final void finalMethod() {
+        }
+
+        public static void staticMethod() {
+        }
+    }
+}
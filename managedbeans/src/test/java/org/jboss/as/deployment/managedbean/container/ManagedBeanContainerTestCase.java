@@ -0,0 +1,142 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.deployment.managedbean.container;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.interceptor.ExcludeClassInterceptors;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the proxies created by {@link ManagedBeanContainer}, comparing them with proxies created the way they were
+ * before the proxy class was shared, with a proxy factory for each instance.
+ *
+ * @author John E. Bailey
+ */
+public class ManagedBeanContainerTestCase {
+
+    private ManagedBeanContainer<CountingBean> container;
+
+    @Before
+    public void setUp() throws Exception {
+        RecordingInterceptor.invoked.clear();
+        final Method aroundInvoke = RecordingInterceptor.class.getMethod("intercept", javax.interceptor.InvocationContext.class);
+        final List<ManagedBeanInterceptor<?>> interceptors = Collections.<ManagedBeanInterceptor<?>>singletonList(
+                new ManagedBeanInterceptor<RecordingInterceptor>(RecordingInterceptor.class, aroundInvoke, Collections.<ResourceInjection<?>>emptyList()));
+        container = new ManagedBeanContainer<CountingBean>(CountingBean.class, getClass().getClassLoader(), null, null,
+                Collections.<ResourceInjection<?>>emptyList(), interceptors);
+    }
+
+    @Test
+    public void testInstancesShareProxyClass() throws Exception {
+        final CountingBean first = container.createInstance();
+        final CountingBean second = container.createInstance();
+        assertNotSame(first, second);
+        assertNotSame(CountingBean.class, first.getClass());
+        assertSame(first.getClass(), second.getClass());
+    }
+
+    @Test
+    public void testInstancesKeepTheirOwnState() throws Exception {
+        final CountingBean first = container.createInstance();
+        final CountingBean second = container.createInstance();
+        assertEquals(2, first.increment(2));
+        assertEquals(5, first.increment(3));
+        assertEquals(1, second.increment(1));
+    }
+
+    @Test
+    public void testResultsMatchPerInstanceProxyFactory() throws Exception {
+        final CountingBean shared = container.createInstance();
+        final List<Object> sharedResults = exercise(shared);
+        final List<String> sharedInvocations = new ArrayList<String>(RecordingInterceptor.invoked);
+
+        RecordingInterceptor.invoked.clear();
+        final CountingBean perInstance = createPerInstanceProxy();
+        final List<Object> perInstanceResults = exercise(perInstance);
+
+        assertEquals(perInstanceResults, sharedResults);
+        assertEquals(RecordingInterceptor.invoked, sharedInvocations);
+        assertEquals(Arrays.asList("increment", "increment", "fail"), sharedInvocations);
+    }
+
+    /**
+     * Create a proxy the way the container did before sharing proxy classes: a new proxy factory for every instance,
+     * and the invocation plan of each method worked out when it is invoked.
+     */
+    private static CountingBean createPerInstanceProxy() throws Exception {
+        final List<ManagedBeanInterceptor.AroundInvokeInterceptor<?>> interceptors = new ArrayList<ManagedBeanInterceptor.AroundInvokeInterceptor<?>>();
+        interceptors.add(new ManagedBeanInterceptor.AroundInvokeInterceptor<RecordingInterceptor>(new RecordingInterceptor(),
+                RecordingInterceptor.class.getMethod("intercept", javax.interceptor.InvocationContext.class)));
+        return ManagedBeanProxyHandler.createProxy(ManagedBeanProxyHandler.createProxyClass(CountingBean.class),
+                ManagedBeanContainerTestCase.class.getClassLoader(), new CountingBean(), interceptors,
+                Collections.<Method, InvocationPlan>emptyMap());
+    }
+
+    private static List<Object> exercise(final CountingBean bean) {
+        final List<Object> results = new ArrayList<Object>();
+        results.add(Integer.valueOf(bean.increment(4)));
+        results.add(Integer.valueOf(bean.increment(5)));
+        results.add(bean.getName());
+        try {
+            bean.fail();
+            results.add("no exception");
+        } catch (IOException e) {
+            results.add(e.getClass().getName() + ": " + e.getMessage());
+        }
+        return results;
+    }
+
+    public static class CountingBean {
+        private int count;
+
+        public int increment(final int by) {
+            count += by;
+            return count;
+        }
+
+        @ExcludeClassInterceptors
+        public String getName() {
+            return "counting";
+        }
+
+        public void fail() throws IOException {
+            throw new IOException("failed after " + count);
+        }
+    }
+
+    public static class RecordingInterceptor {
+        static final List<String> invoked = Collections.synchronizedList(new ArrayList<String>());
+
+        public Object intercept(final javax.interceptor.InvocationContext context) throws Exception {
+            invoked.add(context.getMethod().getName());
+            return context.proceed();
+        }
+    }
+}
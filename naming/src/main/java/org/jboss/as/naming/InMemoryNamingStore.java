@@ -22,8 +22,6 @@
 
 package org.jboss.as.naming;
 
-import org.jboss.as.naming.util.FastCopyHashMap;
-
 import javax.naming.Binding;
 import javax.naming.CannotProceedException;
 import javax.naming.CompositeName;
@@ -38,10 +36,10 @@ import javax.naming.event.NamingEvent;
 import javax.naming.event.NamingListener;
 import javax.naming.spi.ResolveResult;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.jboss.as.naming.util.NamingUtils.asReference;
 import static org.jboss.as.naming.util.NamingUtils.cannotProceedException;
@@ -59,6 +57,9 @@ import static org.jboss.as.naming.util.NamingUtils.notAContextException;
  * nodes or binding nodes.  The context nodes are allowed to have children and can be represented by a NamingContext.  A
  * binding node is only allowed to have a normal object binding.
  *
+ * Each context node keeps its children in a concurrent map, so lookups never lock and a bind, rebind or unbind
+ * only touches the map of the context it changes.
+ *
  * @author John E. Bailey
  */
 public class InMemoryNamingStore implements NamingStore {
@@ -152,7 +153,23 @@ public class InMemoryNamingStore implements NamingStore {
             return new NamingContext(emptyName, this, new Hashtable<String, Object>());
         }
         checkPermissions(name, JndiPermission.Action.LOOKUP);
-        return root.accept(new LookupVisitor(name));
+
+        TreeNode node = root;
+        for (int i = 0; i < name.size(); i++) {
+            if (!(node instanceof ContextNode)) {
+                final Name remainingName = name.getSuffix(node.fullName.size());
+                final Object boundObject = node.binding.getObject();
+                checkReferenceForContinuation(remainingName, boundObject);
+                return new ResolveResult(boundObject, remainingName);
+            }
+            final ContextNode contextNode = (ContextNode) node;
+            final String childName = name.get(i);
+            node = contextNode.children.get(childName);
+            if (node == null) {
+                throw nameNotFoundException(childName, contextNode.fullName);
+            }
+        }
+        return node.binding.getObject();
     }
 
     /**
@@ -269,42 +286,32 @@ public class InMemoryNamingStore implements NamingStore {
     }
 
     private class ContextNode extends TreeNode {
-        private volatile Map<String, TreeNode> children = Collections.emptyMap();
+        private final ConcurrentMap<String, TreeNode> children = new ConcurrentHashMap<String, TreeNode>();
 
         private ContextNode(final Name fullName, final NamingContext context) {
             super(fullName, new Binding(getLastComponent(fullName), Context.class.getName(), context));
         }
 
-        private synchronized void addChild(final String childName, final TreeNode childNode) throws NamingException {
-            if (children.containsKey(childName)) {
-                throw nameAlreadyBoundException(fullName.add(childName));
+        private void addChild(final String childName, final TreeNode childNode) throws NamingException {
+            if (children.putIfAbsent(childName, childNode) != null) {
+                throw nameAlreadyBoundException(((Name) fullName.clone()).add(childName));
             }
-            final Map<String, TreeNode> copy = new FastCopyHashMap<String, TreeNode>(children);
-            copy.put(childName, childNode);
-            children = copy;
         }
 
-        private synchronized TreeNode replaceChild(final String childName, final TreeNode childNode) throws NamingException {
-            final Map<String, TreeNode> copy = new FastCopyHashMap<String, TreeNode>(children);
-            final TreeNode existing = copy.put(childName, childNode);
-            children = copy;
-            return existing;
+        private TreeNode replaceChild(final String childName, final TreeNode childNode) throws NamingException {
+            return children.put(childName, childNode);
         }
 
-        private synchronized TreeNode removeChild(final String childName) throws NameNotFoundException {
-            if (!children.containsKey(childName)) {
+        private TreeNode removeChild(final String childName) throws NameNotFoundException {
+            final TreeNode existing = children.remove(childName);
+            if (existing == null) {
                 throw nameNotFoundException(childName, fullName);
             }
-            final Map<String, TreeNode> copy = new FastCopyHashMap<String, TreeNode>(children);
-            final TreeNode existing = copy.remove(childName);
-            children = copy;
             return existing;
         }
 
-        private synchronized void clear() {
-            final Map<String, TreeNode> copy = new FastCopyHashMap<String, TreeNode>(children);
-            copy.clear();
-            children = copy;
+        private void clear() {
+            children.clear();
         }
 
         protected final <T> T accept(NodeVisitor<T> visitor) throws NamingException {
@@ -466,27 +473,6 @@ public class InMemoryNamingStore implements NamingStore {
         }
     }
 
-    private final class LookupVisitor extends NodeTraversingVisitor<Object> {
-        private LookupVisitor(final Name targetName) {
-            super(targetName);
-        }
-
-        protected Object found(final ContextNode contextNode) throws NamingException {
-            return contextNode.binding.getObject();
-        }
-
-        protected Object found(final BindingNode bindingNode) throws NamingException {
-            return bindingNode.binding.getObject();
-        }
-
-        protected Object foundReferenceInsteadOfContext(final BindingNode bindingNode) throws NamingException {
-            final Name remainingName = targetName.getSuffix(bindingNode.fullName.size());
-            final Object boundObject = bindingNode.binding.getObject();
-            checkReferenceForContinuation(remainingName, boundObject);
-            return new ResolveResult(boundObject, remainingName);
-        }
-    }
-
     private final class ListVisitor extends NodeTraversingVisitor<List<NameClassPair>> {
         private ListVisitor(final Name targetName) {
             super(targetName);
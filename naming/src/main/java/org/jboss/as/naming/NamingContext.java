@@ -44,6 +44,8 @@ import javax.naming.event.NamingListener;
 import javax.naming.spi.NamingManager;
 import javax.naming.spi.ResolveResult;
 import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.jboss.as.naming.util.NamingUtils.asReference;
 import static org.jboss.as.naming.util.NamingUtils.asReferenceable;
@@ -102,6 +104,12 @@ public class NamingContext implements EventContext {
     /* The name parser */
     private static final NameParser nameParser = new NameParser();
 
+    /* The upper bound on string names remembered in parsed form */
+    private static final int MAX_PARSED_NAMES = 1024;
+
+    /* Names already parsed by lookup(String).  These are shared, so they are never handed out or modified. */
+    private static final ConcurrentMap<String, Name> parsedNames = new ConcurrentHashMap<String, Name>();
+
     /* The naming store providing the back-end storage */
     private final NamingStore namingStore;
 
@@ -197,7 +205,15 @@ public class NamingContext implements EventContext {
 
     /** {@inheritDoc} */
     public Object lookup(final String name) throws NamingException {
-        return lookup(parseName(name));
+        Name parsedName = parsedNames.get(name);
+        if (parsedName == null) {
+            parsedName = parseName(name);
+            if (parsedNames.size() >= MAX_PARSED_NAMES) {
+                parsedNames.clear();
+            }
+            parsedNames.put(name, parsedName);
+        }
+        return lookup(parsedName);
     }
 
     /** {@inheritDoc} */
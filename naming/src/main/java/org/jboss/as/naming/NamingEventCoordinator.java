@@ -25,35 +25,48 @@ package org.jboss.as.naming;
 import org.jboss.as.naming.util.FastCopyHashMap;
 
 import javax.naming.Binding;
+import javax.naming.CompositeName;
+import javax.naming.InvalidNameException;
 import javax.naming.Name;
 import javax.naming.event.EventContext;
 import javax.naming.event.NamespaceChangeListener;
 import javax.naming.event.NamingEvent;
 import javax.naming.event.NamingListener;
 import javax.naming.event.ObjectChangeListener;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Coordinator responsible for passing @(code NamingEvent} instances to registered @{code NamingListener} instances.  Two
- * maps are used to managed a mapping between a listener and its configuration as well as a mapping from target name to a list
- * of listener configurations.  These maps are updated atomically on listener add and remove.
+ * Coordinator responsible for passing @(code NamingEvent} instances to registered @{code NamingListener} instances.  A
+ * map is used to manage a mapping between a listener and its configuration, and a tree of target name components
+ * holds the listener configurations registered at each target.  Both are updated atomically on listener add and remove.
+ *
+ * Events are queued per listener.  A listener has at most one delivery task outstanding, which delivers a bounded
+ * batch of the events queued for it and then resubmits itself if more remain, so a burst of binds under a watched
+ * context reaches its listeners as batches instead of one task per event, without one busy listener holding up the
+ * others.  Firing an event while no listener is registered does nothing.
  *
  * @author John E. Bailey
  */
 public class NamingEventCoordinator {
-    private volatile Map<TargetScope, List<ListenerHolder>> holdersByTarget = Collections.emptyMap();
+    private final TargetNode root = new TargetNode();
     private volatile Map<NamingListener, ListenerHolder> holdersByListener = Collections.emptyMap();
 
     private final Executor executor = Executors.newSingleThreadExecutor();
 
+    /** The maximum number of events delivered to a listener before other listeners get their turn. */
+    static final int MAX_BATCH = 256;
+
     static final Integer[] DEFAULT_SCOPES = {EventContext.OBJECT_SCOPE, EventContext.ONELEVEL_SCOPE, EventContext.SUBTREE_SCOPE};
 
     /**
@@ -66,6 +79,12 @@ public class NamingEventCoordinator {
      */
     synchronized void addListener(final String target, final int scope, final NamingListener namingListener) {
         final TargetScope targetScope = new TargetScope(target, scope);
+        TargetNode node = root;
+        for (String component : targetScope.components) {
+            node = node.getOrCreateChild(component);
+        }
+        final List<ListenerHolder> holdersForTarget = node.holders(scope);
+
         // Do we have a holder for this listener
         ListenerHolder holder = holdersByListener.get(namingListener);
         if (holder == null) {
@@ -77,14 +96,9 @@ public class NamingEventCoordinator {
             holder.addTarget(targetScope);
         }
 
-        List<ListenerHolder> holdersForTarget = holdersByTarget.get(targetScope);
-        if (holdersForTarget == null) {
-            holdersForTarget = new CopyOnWriteArrayList<ListenerHolder>();
-            final Map<TargetScope, List<ListenerHolder>> byTargetCopy = new FastCopyHashMap<TargetScope, List<ListenerHolder>>(holdersByTarget);
-            byTargetCopy.put(targetScope, holdersForTarget);
-            holdersByTarget = byTargetCopy;
+        if (!holdersForTarget.contains(holder)) {
+            holdersForTarget.add(holder);
         }
-        holdersForTarget.add(holder);
     }
 
     /**
@@ -99,20 +113,30 @@ public class NamingEventCoordinator {
         if (holder == null) {
             return;
         }
+        holder.removed = true;
 
         final Map<NamingListener, ListenerHolder> byListenerCopy = new FastCopyHashMap<NamingListener, ListenerHolder>(holdersByListener);
         byListenerCopy.remove(namingListener);
         holdersByListener = byListenerCopy;
 
-        final Map<TargetScope, List<ListenerHolder>> byTargetCopy = new FastCopyHashMap<TargetScope, List<ListenerHolder>>(holdersByTarget);
         for (TargetScope targetScope : holder.targets) {
-            final List<ListenerHolder> holders = holdersByTarget.get(targetScope);
-            holders.remove(holder);
-            if (holders.isEmpty()) {
-                byTargetCopy.remove(targetScope);
+            removeHolder(root, targetScope, 0, holder);
+        }
+    }
+
+    private void removeHolder(final TargetNode node, final TargetScope targetScope, final int depth, final ListenerHolder holder) {
+        if (depth == targetScope.components.length) {
+            node.holders(targetScope.scope).remove(holder);
+            return;
+        }
+        final String component = targetScope.components[depth];
+        final TargetNode child = node.children.get(component);
+        if (child != null) {
+            removeHolder(child, targetScope, depth + 1, holder);
+            if (child.isEmpty()) {
+                node.removeChild(component);
             }
         }
-        holdersByTarget = byTargetCopy;
     }
 
     /**
@@ -128,89 +152,93 @@ public class NamingEventCoordinator {
      * @param scopes The scopes this event should be fired against
      */
     void fireEvent(final EventContext context, final Name name, final Binding existingBinding, final Binding newBinding, int type, final String changeInfo, final Integer... scopes) {
-        final String target = name.toString();
-        final Set<Integer> scopeSet = new HashSet<Integer>(Arrays.asList(scopes));
-        final NamingEvent event = new NamingEvent(context, type, newBinding, existingBinding, changeInfo);
-
-        final Set<ListenerHolder> holdersToFire = new HashSet<ListenerHolder>();
-
-        // Check for OBJECT_SCOPE based listeners
-        if (scopeSet.contains(EventContext.OBJECT_SCOPE)) {
-            final TargetScope targetScope = new TargetScope(target, EventContext.OBJECT_SCOPE);
-            final List<ListenerHolder> holders = holdersByTarget.get(targetScope);
-            if (holders != null) {
-                for (ListenerHolder holder : holders) {
-                    holdersToFire.add(holder);
-                }
-            }
+        if (holdersByListener.isEmpty()) {
+            return;
         }
 
-        // Check for ONELEVEL_SCOPE based listeners
-        if (scopeSet.contains(EventContext.ONELEVEL_SCOPE) && !name.isEmpty()) {
-            final TargetScope targetScope = new TargetScope(name.getPrefix(name.size() - 1).toString(), EventContext.ONELEVEL_SCOPE);
-            final List<ListenerHolder> holders = holdersByTarget.get(targetScope);
-            if (holders != null) {
-                for (ListenerHolder holder : holders) {
-                    holdersToFire.add(holder);
-                }
+        boolean objectScope = false;
+        boolean oneLevelScope = false;
+        boolean subtreeScope = false;
+        for (Integer scope : scopes) {
+            switch (scope) {
+                case EventContext.OBJECT_SCOPE:
+                    objectScope = true;
+                    break;
+                case EventContext.ONELEVEL_SCOPE:
+                    oneLevelScope = true;
+                    break;
+                case EventContext.SUBTREE_SCOPE:
+                    subtreeScope = true;
+                    break;
             }
         }
 
-        // Check for SUBTREE_SCOPE based listeners
-        if (scopeSet.contains(EventContext.SUBTREE_SCOPE) && !name.isEmpty()) {
-            for (int i = 1; i < name.size(); i++) {
-                final Name parentName = name.getPrefix(i);
-                final TargetScope targetScope = new TargetScope(parentName.toString(), EventContext.SUBTREE_SCOPE);
-                final List<ListenerHolder> holders = holdersByTarget.get(targetScope);
-                if (holders != null) {
-                    for (ListenerHolder holder : holders) {
-                        holdersToFire.add(holder);
-                    }
+        final int size = name.size();
+        final List<ListenerHolder> holdersToFire = new ArrayList<ListenerHolder>(4);
+        TargetNode node = root;
+        for (int depth = 0; node != null; depth++) {
+            // Check for SUBTREE_SCOPE based listeners on any proper, non-empty ancestor
+            if (subtreeScope && depth > 0 && depth < size) {
+                collect(node.subtreeHolders, holdersToFire);
+            }
+            // Check for ONELEVEL_SCOPE based listeners on the parent
+            if (oneLevelScope && depth == size - 1) {
+                collect(node.oneLevelHolders, holdersToFire);
+            }
+            // Check for OBJECT_SCOPE based listeners on the name itself
+            if (depth == size) {
+                if (objectScope) {
+                    collect(node.objectHolders, holdersToFire);
                 }
+                break;
             }
+            node = node.children.get(name.get(depth));
         }
 
-        executor.execute(new FireEventTask(holdersToFire, event));
+        if (holdersToFire.isEmpty()) {
+            return;
+        }
+        final NamingEvent event = new NamingEvent(context, type, newBinding, existingBinding, changeInfo);
+        for (ListenerHolder holder : holdersToFire) {
+            holder.queue(event);
+        }
     }
 
-    private class FireEventTask implements Runnable {
-        private final Set<ListenerHolder> listenerHolders;
-        private final NamingEvent event;
-
-        private FireEventTask(Set<ListenerHolder> listenerHolders, NamingEvent event) {
-            this.listenerHolders = listenerHolders;
-            this.event = event;
+    private static void collect(final List<ListenerHolder> holders, final List<ListenerHolder> holdersToFire) {
+        for (ListenerHolder holder : holders) {
+            if (!holdersToFire.contains(holder)) {
+                holdersToFire.add(holder);
+            }
         }
+    }
 
-        @Override
-        public void run() {
-            for (ListenerHolder holder : listenerHolders) {
-                final NamingListener listener = holder.listener;
-                switch (event.getType()) {
-                    case NamingEvent.OBJECT_ADDED:
-                        if (listener instanceof NamespaceChangeListener)
-                            ((NamespaceChangeListener) listener).objectAdded(event);
-                        break;
-                    case NamingEvent.OBJECT_REMOVED:
-                        if (listener instanceof NamespaceChangeListener)
-                            ((NamespaceChangeListener) listener).objectRemoved(event);
-                        break;
-                    case NamingEvent.OBJECT_RENAMED:
-                        if (listener instanceof NamespaceChangeListener)
-                            ((NamespaceChangeListener) listener).objectRenamed(event);
-                        break;
-                    case NamingEvent.OBJECT_CHANGED:
-                        if (listener instanceof ObjectChangeListener)
-                            ((ObjectChangeListener) listener).objectChanged(event);
-                        break;
-                }
-            }
+    private static void fire(final NamingListener listener, final NamingEvent event) {
+        switch (event.getType()) {
+            case NamingEvent.OBJECT_ADDED:
+                if (listener instanceof NamespaceChangeListener)
+                    ((NamespaceChangeListener) listener).objectAdded(event);
+                break;
+            case NamingEvent.OBJECT_REMOVED:
+                if (listener instanceof NamespaceChangeListener)
+                    ((NamespaceChangeListener) listener).objectRemoved(event);
+                break;
+            case NamingEvent.OBJECT_RENAMED:
+                if (listener instanceof NamespaceChangeListener)
+                    ((NamespaceChangeListener) listener).objectRenamed(event);
+                break;
+            case NamingEvent.OBJECT_CHANGED:
+                if (listener instanceof ObjectChangeListener)
+                    ((ObjectChangeListener) listener).objectChanged(event);
+                break;
         }
     }
 
-    private class ListenerHolder {
+    private class ListenerHolder implements Runnable {
         private volatile Set<TargetScope> targets = new HashSet<TargetScope>();
         private final NamingListener listener;
+        private final Queue<NamingEvent> pendingEvents = new ConcurrentLinkedQueue<NamingEvent>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean removed;
 
         private ListenerHolder(final NamingListener listener, final TargetScope initialTarget) {
             this.listener = listener;
@@ -220,15 +248,95 @@ public class NamingEventCoordinator {
         private synchronized void addTarget(final TargetScope targetScope) {
             targets.add(targetScope);
         }
+
+        private void queue(final NamingEvent event) {
+            pendingEvents.add(event);
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Deliver up to {@link #MAX_BATCH} queued events.  The scheduled flag is cleared before a final check of the
+         * queue, so events left over or queued while the batch was being delivered either schedule a new batch here,
+         * behind the batches of other listeners, or schedule it from {@link #queue(NamingEvent)}.
+         */
+        public void run() {
+            try {
+                NamingEvent event;
+                for (int i = 0; i < MAX_BATCH && (event = pendingEvents.poll()) != null; i++) {
+                    if (!removed) {
+                        fire(listener, event);
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                if (!pendingEvents.isEmpty() && scheduled.compareAndSet(false, true)) {
+                    executor.execute(this);
+                }
+            }
+        }
+    }
+
+    private static class TargetNode {
+        private volatile Map<String, TargetNode> children = Collections.emptyMap();
+        private final CopyOnWriteArrayList<ListenerHolder> objectHolders = new CopyOnWriteArrayList<ListenerHolder>();
+        private final CopyOnWriteArrayList<ListenerHolder> oneLevelHolders = new CopyOnWriteArrayList<ListenerHolder>();
+        private final CopyOnWriteArrayList<ListenerHolder> subtreeHolders = new CopyOnWriteArrayList<ListenerHolder>();
+
+        private CopyOnWriteArrayList<ListenerHolder> holders(final int scope) {
+            switch (scope) {
+                case EventContext.OBJECT_SCOPE:
+                    return objectHolders;
+                case EventContext.ONELEVEL_SCOPE:
+                    return oneLevelHolders;
+                case EventContext.SUBTREE_SCOPE:
+                    return subtreeHolders;
+                default:
+                    throw new IllegalArgumentException("Invalid event scope: " + scope);
+            }
+        }
+
+        private TargetNode getOrCreateChild(final String component) {
+            TargetNode child = children.get(component);
+            if (child == null) {
+                child = new TargetNode();
+                final Map<String, TargetNode> copy = new FastCopyHashMap<String, TargetNode>(children);
+                copy.put(component, child);
+                children = copy;
+            }
+            return child;
+        }
+
+        private void removeChild(final String component) {
+            final Map<String, TargetNode> copy = new FastCopyHashMap<String, TargetNode>(children);
+            copy.remove(component);
+            children = copy;
+        }
+
+        private boolean isEmpty() {
+            return children.isEmpty() && objectHolders.isEmpty() && oneLevelHolders.isEmpty() && subtreeHolders.isEmpty();
+        }
     }
 
     private class TargetScope {
         private final String target;
+        private final String[] components;
         private final int scope;
 
         private TargetScope(String target, int scope) {
             this.target = target;
             this.scope = scope;
+            final Name name;
+            try {
+                name = new CompositeName(target);
+            } catch (InvalidNameException e) {
+                throw new IllegalArgumentException("Invalid listener target: " + target, e);
+            }
+            components = new String[name.size()];
+            for (int i = 0; i < components.length; i++) {
+                components[i] = name.get(i);
+            }
         }
 
         @Override
@@ -22,8 +22,10 @@
 
 package org.jboss.as.naming.context;
 
+import java.lang.ref.SoftReference;
 import javax.naming.RefAddr;
 import javax.naming.Reference;
+import javax.naming.spi.ObjectFactory;
 import org.jboss.modules.Module;
 import org.jboss.modules.ModuleIdentifier;
 
@@ -31,11 +33,18 @@ import org.jboss.modules.ModuleIdentifier;
  * Reference implementation that captures a module name and allows object factories to be loaded and created from
  * modules.
  *
+ * A reference may declare itself immutable, meaning that its factory returns an equivalent object on every call.
+ * The object resolved on first lookup is then kept with the reference and returned by later lookups of the same
+ * binding, without calling the factory again.
+ *
  * @author John Bailey
  */
 public class ModularReference extends Reference {
     private static final long serialVersionUID = -4805781394834948096L;
     private final ModuleIdentifier moduleIdentifier;
+    private final boolean immutable;
+    private transient volatile SoftReference<ObjectFactory> factory;
+    private transient volatile Object resolvedObject;
 
     /**
      * Create a ModuleReference from a target type and factory class.
@@ -84,6 +93,19 @@ public class ModularReference extends Reference {
         return new ModularReference(className, addr, factoryClass.getName(), Module.forClass(factoryClass).getIdentifier());
     }
 
+    /**
+     * Create an immutable ModuleReference from a target class name, reference address and factory class.  The
+     * object it resolves to is cached with the binding.
+     *
+     * @param className The class name for the reference
+     * @param addr The address of the object
+     * @param factoryClass The factory class
+     * @return A ModularReference
+     */
+    public static ModularReference createImmutable(final String className, final RefAddr addr, final Class<?> factoryClass) {
+        return new ModularReference(className, addr, factoryClass.getName(), Module.forClass(factoryClass).getIdentifier(), true);
+    }
+
     /**
      * Create an instance.
      *
@@ -94,6 +116,7 @@ public class ModularReference extends Reference {
     public ModularReference(final String className, final String factory, final ModuleIdentifier moduleIdentifier) {
         super(className, factory, null);
         this.moduleIdentifier = moduleIdentifier;
+        this.immutable = false;
     }
 
     /**
@@ -105,8 +128,22 @@ public class ModularReference extends Reference {
      * @param moduleIdentifier The module name to load the factory class
      */
     public ModularReference(final String className, final RefAddr addr, final String factory, final ModuleIdentifier moduleIdentifier) {
+        this(className, addr, factory, moduleIdentifier, false);
+    }
+
+    /**
+     * Create an instance.
+     *
+     * @param className The class name of the target object type
+     * @param addr The address of the object
+     * @param factory The object factory class name
+     * @param moduleIdentifier The module name to load the factory class
+     * @param immutable Whether the resolved object may be cached with the binding
+     */
+    public ModularReference(final String className, final RefAddr addr, final String factory, final ModuleIdentifier moduleIdentifier, final boolean immutable) {
         super(className, addr, factory, null);
         this.moduleIdentifier = moduleIdentifier;
+        this.immutable = immutable;
     }
 
     /**
@@ -117,4 +154,32 @@ public class ModularReference extends Reference {
     public ModuleIdentifier getModuleIdentifier() {
         return moduleIdentifier;
     }
+
+    /**
+     * Determine whether the object this reference resolves to may be cached.
+     *
+     * @return {@code true} if the reference is immutable
+     */
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    ObjectFactory getCachedFactory() {
+        final SoftReference<ObjectFactory> factory = this.factory;
+        return factory == null ? null : factory.get();
+    }
+
+    void setCachedFactory(final ObjectFactory factory) {
+        this.factory = new SoftReference<ObjectFactory>(factory);
+    }
+
+    Object getResolvedObject() {
+        return resolvedObject;
+    }
+
+    void setResolvedObject(final Object resolvedObject) {
+        if (immutable) {
+            this.resolvedObject = resolvedObject;
+        }
+    }
 }
@@ -22,7 +22,12 @@
 
 package org.jboss.as.naming.context;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.naming.Context;
 import javax.naming.Name;
 import javax.naming.NamingException;
@@ -30,18 +35,31 @@ import javax.naming.Reference;
 import javax.naming.spi.ObjectFactory;
 import static org.jboss.as.naming.util.NamingUtils.asReference;
 import static org.jboss.as.naming.util.NamingUtils.namingException;
+import org.jboss.as.deployment.module.DeploymentModuleLoader;
 import org.jboss.modules.Module;
+import org.jboss.modules.ModuleClassLoader;
 
 /**
  * ObjectFactoryBuilder implementation used to support custom object factories being loaded from modules. This class
  * also provides the default object factory implementation.
  *
+ * Factory instances are cached per class loader and factory class name. The class loaders are only weakly
+ * referenced. Factories defined by deployment modules are not cached, as a cached instance would keep its
+ * deployment's class loader reachable after the deployment is undeployed.
+ *
  * @author John Bailey
  */
 public class ObjectFactoryBuilder implements javax.naming.spi.ObjectFactoryBuilder, ObjectFactory {
 
     public static final ObjectFactoryBuilder INSTANCE = new ObjectFactoryBuilder();
 
+    /** The upper bound on distinct {@link Context#OBJECT_FACTORIES} values remembered in split form. */
+    private static final int MAX_FACTORY_LISTS = 64;
+
+    private final ConcurrentMap<ClassLoaderKey, ConcurrentMap<String, SoftReference<ObjectFactory>>> factories = new ConcurrentHashMap<ClassLoaderKey, ConcurrentMap<String, SoftReference<ObjectFactory>>>();
+    private final ReferenceQueue<ClassLoader> collectedClassLoaders = new ReferenceQueue<ClassLoader>();
+    private final ConcurrentMap<String, String[]> factoryLists = new ConcurrentHashMap<String, String[]>();
+
     private ObjectFactoryBuilder() {
     }
 
@@ -82,11 +100,9 @@ public class ObjectFactoryBuilder implements javax.naming.spi.ObjectFactoryBuild
         }
         final String factoriesProp = (String)environment.get(Context.OBJECT_FACTORIES);
         if(factoriesProp != null) {
-            final String[] classes = factoriesProp.split(":");
-            for(String className : classes) {
+            for(String className : getFactoryList(factoriesProp)) {
                 try {
-                    final Class<?> factoryClass = classLoader.loadClass(className);
-                    final ObjectFactory objectFactory = ObjectFactory.class.cast(factoryClass.newInstance());
+                    final ObjectFactory objectFactory = getFactory(classLoader, className);
                     final Object result = objectFactory.getObjectInstance(ref, name, nameCtx, environment);
                     if(result != null) {
                         return result;
@@ -106,17 +122,153 @@ public class ObjectFactoryBuilder implements javax.naming.spi.ObjectFactoryBuild
     }
 
     private ObjectFactory factoryFromModularReference(ModularReference modularReference, final Hashtable<?, ?> environment) throws Exception {
-        final Module module = Module.getCurrentModuleLoader().loadModule(modularReference.getModuleIdentifier());
-        final ClassLoader classLoader = module.getClassLoader();
-        return factoryFromReference(modularReference, classLoader, environment);
+        ObjectFactory factory = modularReference.getCachedFactory();
+        if (factory == null) {
+            final Module module = Module.getCurrentModuleLoader().loadModule(modularReference.getModuleIdentifier());
+            final ClassLoader classLoader = module.getClassLoader();
+            factory = factoryFromReference(modularReference, classLoader, environment);
+            if (modularReference.isImmutable()) {
+                factory = new ResolvedObjectCache(modularReference, factory);
+            }
+            modularReference.setCachedFactory(factory);
+        }
+        return factory;
     }
 
     private ObjectFactory factoryFromReference(final Reference reference, final ClassLoader classLoader, final Hashtable<?, ?> environment) throws Exception {
         try {
-            final Class<?> factoryClass = classLoader.loadClass(reference.getFactoryClassName());
-            return ObjectFactory.class.cast(factoryClass.newInstance());
+            return getFactory(classLoader, reference.getFactoryClassName());
         } catch (Throwable t) {
             throw namingException("Failed to create object factory from classloader.", t);
         }
     }
+
+    /**
+     * Get the shared instance of a factory class, creating it on first use.  Factories which are not cacheable are
+     * created on every call.
+     *
+     * @param classLoader The class loader to load the factory class from
+     * @param className The factory class name
+     * @return The factory instance
+     * @throws Exception If the factory cannot be loaded or instantiated
+     */
+    private ObjectFactory getFactory(final ClassLoader classLoader, final String className) throws Exception {
+        final ConcurrentMap<String, SoftReference<ObjectFactory>> loaderFactories = getFactories(classLoader);
+        final SoftReference<ObjectFactory> cached = loaderFactories.get(className);
+        ObjectFactory factory = cached == null ? null : cached.get();
+        if (factory == null) {
+            final Class<?> factoryClass = classLoader.loadClass(className);
+            factory = ObjectFactory.class.cast(factoryClass.newInstance());
+            if (isCacheable(factoryClass)) {
+                loaderFactories.put(className, new SoftReference<ObjectFactory>(factory));
+            }
+        }
+        return factory;
+    }
+
+    /**
+     * Determine whether instances of a factory class may be cached.  A factory refers to the class loader which
+     * defined it, and through it to the class loaders it was looked up from, so caching it would keep those
+     * reachable as long as the factory is cached.  Deployment modules are the only class loaders that are unloaded,
+     * so factories they define are not cached.
+     *
+     * @param factoryClass The factory class
+     * @return {@code true} if instances may be cached
+     */
+    static boolean isCacheable(final Class<?> factoryClass) {
+        final ClassLoader classLoader = factoryClass.getClassLoader();
+        return !(classLoader instanceof ModuleClassLoader
+                && ((ModuleClassLoader) classLoader).getModule().getModuleLoader() instanceof DeploymentModuleLoader);
+    }
+
+    private ConcurrentMap<String, SoftReference<ObjectFactory>> getFactories(final ClassLoader classLoader) {
+        ConcurrentMap<String, SoftReference<ObjectFactory>> loaderFactories = factories.get(new ClassLoaderKey(classLoader, null));
+        if (loaderFactories == null) {
+            expungeCollectedClassLoaders();
+            loaderFactories = new ConcurrentHashMap<String, SoftReference<ObjectFactory>>();
+            final ConcurrentMap<String, SoftReference<ObjectFactory>> existing = factories.putIfAbsent(new ClassLoaderKey(classLoader, collectedClassLoaders), loaderFactories);
+            if (existing != null) {
+                loaderFactories = existing;
+            }
+        }
+        return loaderFactories;
+    }
+
+    private void expungeCollectedClassLoaders() {
+        java.lang.ref.Reference<? extends ClassLoader> collected;
+        while ((collected = collectedClassLoaders.poll()) != null) {
+            factories.remove(collected);
+        }
+    }
+
+    private String[] getFactoryList(final String factoriesProp) {
+        String[] classes = factoryLists.get(factoriesProp);
+        if (classes == null) {
+            classes = factoriesProp.split(":");
+            if (factoryLists.size() >= MAX_FACTORY_LISTS) {
+                factoryLists.clear();
+            }
+            factoryLists.put(factoriesProp, classes);
+        }
+        return classes;
+    }
+
+    /**
+     * Clear all cached factory instances.
+     */
+    public void clearFactoryCache() {
+        factories.clear();
+        factoryLists.clear();
+    }
+
+    /**
+     * Weak map key comparing class loaders by identity. A key whose class loader has been collected only equals
+     * itself, so it can still be removed once it shows up on the reference queue.
+     */
+    private static final class ClassLoaderKey extends WeakReference<ClassLoader> {
+        private final int hashCode;
+
+        ClassLoaderKey(final ClassLoader classLoader, final ReferenceQueue<ClassLoader> queue) {
+            super(classLoader, queue);
+            hashCode = System.identityHashCode(classLoader);
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof ClassLoaderKey)) {
+                return false;
+            }
+            final ClassLoader classLoader = get();
+            return classLoader != null && classLoader == ((ClassLoaderKey) obj).get();
+        }
+    }
+
+    /**
+     * Object factory for an immutable reference, which resolves the reference once and hands out the same object
+     * until the reference is rebound.
+     */
+    private static final class ResolvedObjectCache implements ObjectFactory {
+        private final ModularReference reference;
+        private final ObjectFactory factory;
+
+        ResolvedObjectCache(final ModularReference reference, final ObjectFactory factory) {
+            this.reference = reference;
+            this.factory = factory;
+        }
+
+        public Object getObjectInstance(final Object obj, final Name name, final Context nameCtx, final Hashtable<?, ?> environment) throws Exception {
+            Object result = reference.getResolvedObject();
+            if (result == null) {
+                result = factory.getObjectInstance(obj, name, nameCtx, environment);
+                reference.setResolvedObject(result);
+            }
+            return result;
+        }
+    }
 }
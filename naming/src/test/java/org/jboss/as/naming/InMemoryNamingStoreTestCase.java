@@ -34,10 +34,17 @@ import javax.naming.NameClassPair;
 import javax.naming.NameNotFoundException;
 import javax.naming.Reference;
 import javax.naming.spi.ResolveResult;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -297,4 +304,49 @@ public class InMemoryNamingStoreTestCase {
         }
         assertTrue("Not all expected results were returned", expected.isEmpty());
     }
+
+    @Test
+    public void testLookupDuringBindChurn() throws Exception {
+        final Context context = nameStore.createSubcontext(null, new CompositeName("subcontext"));
+        final Object object = new Object();
+        context.bind("stable", object);
+        final Name stableName = new CompositeName("subcontext/stable");
+
+        final int threads = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads * 2);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (int i = 0; i < threads; i++) {
+                final int thread = i;
+                results.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int j = 0; j < 1000; j++) {
+                            final Name name = new CompositeName("subcontext/churn-" + thread + "-" + j);
+                            nameStore.bind(null, name, new Object(), Object.class.getName());
+                            nameStore.unbind(null, name);
+                        }
+                        return null;
+                    }
+                }));
+                results.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int j = 0; j < 10000; j++) {
+                            assertEquals(object, nameStore.lookup(stableName));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, nameStore.list(new CompositeName("subcontext")).size());
+    }
 }
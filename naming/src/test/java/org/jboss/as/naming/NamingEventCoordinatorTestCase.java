@@ -25,6 +25,7 @@ package org.jboss.as.naming;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.naming.Binding;
 import javax.naming.CompositeName;
 import javax.naming.event.EventContext;
 import javax.naming.event.NamespaceChangeListener;
@@ -35,6 +36,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -160,6 +162,96 @@ public class NamingEventCoordinatorTestCase {
         assertEquals(1, subtreeListenerThree.capturedEvents.size());
     }
 
+    @Test
+    public void testFireOverlappingTargetsOnce() throws Exception {
+        final NamingEventCoordinator coordinator = new NamingEventCoordinator();
+
+        final CollectingListener listener = new CollectingListener(1);
+        coordinator.addListener("foo", EventContext.SUBTREE_SCOPE, listener);
+        coordinator.addListener("foo/bar", EventContext.ONELEVEL_SCOPE, listener);
+
+        coordinator.fireEvent(context, new CompositeName("foo/bar/baz"), null, null, NamingEvent.OBJECT_ADDED, "bind", EventContext.OBJECT_SCOPE, EventContext.ONELEVEL_SCOPE, EventContext.SUBTREE_SCOPE);
+
+        listener.latch.await(10L, TimeUnit.MILLISECONDS);
+        Thread.sleep(10L);
+
+        assertEquals(1, listener.capturedEvents.size());
+    }
+
+    @Test
+    public void testFireEventBurst() throws Exception {
+        final NamingEventCoordinator coordinator = new NamingEventCoordinator();
+
+        final CollectingListener subtreeListener = new CollectingListener(1000);
+        coordinator.addListener("foo", EventContext.SUBTREE_SCOPE, subtreeListener);
+
+        for (int i = 0; i < 1000; i++) {
+            coordinator.fireEvent(context, new CompositeName("foo/bar" + i), null, new Binding("bar" + i, null), NamingEvent.OBJECT_ADDED, "bind", EventContext.OBJECT_SCOPE, EventContext.ONELEVEL_SCOPE, EventContext.SUBTREE_SCOPE);
+        }
+
+        assertTrue(subtreeListener.latch.await(5L, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("bar" + i, subtreeListener.capturedEvents.get(i).getNewBinding().getName());
+        }
+    }
+
+    @Test
+    public void testRemovedListenerNotFired() throws Exception {
+        final NamingEventCoordinator coordinator = new NamingEventCoordinator();
+
+        final CollectingListener subtreeListener = new CollectingListener(0);
+        coordinator.addListener("foo", EventContext.SUBTREE_SCOPE, subtreeListener);
+        coordinator.removeListener(subtreeListener);
+
+        coordinator.fireEvent(context, new CompositeName("foo/bar"), null, null, NamingEvent.OBJECT_ADDED, "bind", EventContext.OBJECT_SCOPE, EventContext.ONELEVEL_SCOPE, EventContext.SUBTREE_SCOPE);
+        Thread.sleep(10L);
+
+        assertTrue(subtreeListener.capturedEvents.isEmpty());
+    }
+
+    @Test
+    public void testBusyListenerDoesNotHoldUpOthers() throws Exception {
+        final NamingEventCoordinator coordinator = new NamingEventCoordinator();
+        final int events = 3 * NamingEventCoordinator.MAX_BATCH;
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final CollectingListener busyListener = new CollectingListener(events) {
+            @Override
+            public void objectAdded(NamingEvent evt) {
+                try {
+                    release.await(5L, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.objectAdded(evt);
+            }
+        };
+        coordinator.addListener("busy", EventContext.SUBTREE_SCOPE, busyListener);
+        final AtomicInteger busyEventsBefore = new AtomicInteger(-1);
+        final CollectingListener quietListener = new CollectingListener(1) {
+            @Override
+            public void objectAdded(NamingEvent evt) {
+                busyEventsBefore.set(busyListener.capturedEvents.size());
+                super.objectAdded(evt);
+            }
+        };
+        coordinator.addListener("quiet", EventContext.SUBTREE_SCOPE, quietListener);
+
+        for (int i = 0; i < events; i++) {
+            coordinator.fireEvent(context, new CompositeName("busy/bar" + i), null, new Binding("bar" + i, null), NamingEvent.OBJECT_ADDED, "bind", EventContext.SUBTREE_SCOPE);
+        }
+        coordinator.fireEvent(context, new CompositeName("quiet/bar"), null, null, NamingEvent.OBJECT_ADDED, "bind", EventContext.SUBTREE_SCOPE);
+        release.countDown();
+
+        assertTrue(quietListener.latch.await(5L, TimeUnit.SECONDS));
+        assertTrue(busyListener.latch.await(5L, TimeUnit.SECONDS));
+        // the quiet listener's event was delivered after the busy listener's first batch, not after all its events
+        assertTrue(busyEventsBefore.get() <= NamingEventCoordinator.MAX_BATCH);
+        for (int i = 0; i < events; i++) {
+            assertEquals("bar" + i, busyListener.capturedEvents.get(i).getNewBinding().getName());
+        }
+    }
+
     private class CollectingListener implements ObjectChangeListener, NamespaceChangeListener {
         private final List<NamingEvent> capturedEvents = new ArrayList<NamingEvent>();
 
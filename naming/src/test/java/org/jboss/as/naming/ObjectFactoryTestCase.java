@@ -23,6 +23,7 @@
 package org.jboss.as.naming;
 
 import java.util.Hashtable;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.naming.Name;
@@ -51,6 +52,7 @@ public class ObjectFactoryTestCase {
     @Before
     public void setup() throws Exception {
         namingContext = new NamingContext(null);
+        ObjectFactoryBuilder.INSTANCE.clearFactoryCache();
     }
 
     @After
@@ -79,10 +81,45 @@ public class ObjectFactoryTestCase {
         assertEquals("Test Result", result);
     }
 
+    @Test
+    public void testObjectFactoryInstanceIsReused() throws Exception {
+        final Reference reference = new Reference("java.util.String", CountingObjectFactory.class.getName(), null);
+        namingContext.bind("test", reference);
+
+        final int before = CountingObjectFactory.instances.get();
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Counted Result", namingContext.lookup("test"));
+        }
+        assertEquals(1, CountingObjectFactory.instances.get() - before);
+    }
+
+    @Test
+    public void testObjectFactoriesPropertyFactoryIsReused() throws Exception {
+        final Hashtable<String, Object> environment = new Hashtable<String, Object>();
+        environment.put(Context.OBJECT_FACTORIES, CountingObjectFactory.class.getName() + ":" + TestObjectFactory.class.getName());
+
+        final int before = CountingObjectFactory.instances.get();
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Counted Result", ObjectFactoryBuilder.INSTANCE.getObjectInstance("test", null, null, environment));
+        }
+        assertEquals(1, CountingObjectFactory.instances.get() - before);
+    }
 
     public static class TestObjectFactory implements ObjectFactory {
         public Object getObjectInstance(Object obj, Name name, Context nameCtx, Hashtable<?, ?> environment) throws Exception {
             return "Test Result";
         }
     }
+
+    public static class CountingObjectFactory implements ObjectFactory {
+        static final AtomicInteger instances = new AtomicInteger();
+
+        public CountingObjectFactory() {
+            instances.incrementAndGet();
+        }
+
+        public Object getObjectInstance(Object obj, Name name, Context nameCtx, Hashtable<?, ?> environment) throws Exception {
+            return "Counted Result";
+        }
+    }
 }
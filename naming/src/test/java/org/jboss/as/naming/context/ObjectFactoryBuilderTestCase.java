@@ -0,0 +1,232 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.naming.context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.spi.ObjectFactory;
+import org.jboss.as.deployment.module.DeploymentModuleLoaderImpl;
+import org.jboss.modules.ClassSpec;
+import org.jboss.modules.DependencySpec;
+import org.jboss.modules.LocalLoader;
+import org.jboss.modules.Module;
+import org.jboss.modules.ModuleIdentifier;
+import org.jboss.modules.ModuleSpec;
+import org.jboss.modules.PackageSpec;
+import org.jboss.modules.PathFilter;
+import org.jboss.modules.PathFilters;
+import org.jboss.modules.Resource;
+import org.jboss.modules.ResourceLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the factory cache of {@link ObjectFactoryBuilder}, using a factory class defined by a deployment module.
+ *
+ * @author John Bailey
+ */
+public class ObjectFactoryBuilderTestCase {
+    public static final AtomicInteger deployedInstances = new AtomicInteger();
+    public static final AtomicInteger sharedInstances = new AtomicInteger();
+
+    private static final String PACKAGE_PATH = "org/jboss/as/naming/context";
+    private static final String DEPLOYED_FACTORY = DeployedObjectFactory.class.getName();
+
+    private DeploymentModuleLoaderImpl moduleLoader;
+    private Module module;
+
+    @Before
+    public void setup() throws Exception {
+        ObjectFactoryBuilder.INSTANCE.clearFactoryCache();
+        deployedInstances.set(0);
+        sharedInstances.set(0);
+
+        final ModuleIdentifier identifier = ModuleIdentifier.create("deployment.naming-test");
+        final ModuleSpec.Builder builder = ModuleSpec.build(identifier);
+        builder.addDependency(DependencySpec.createLocalDependencySpec(new TestLocalLoader(),
+                new HashSet<String>(Arrays.asList("javax/naming", "javax/naming/spi", PACKAGE_PATH))));
+        builder.addResourceRoot(new DeployedFactoryLoader());
+        builder.addDependency(DependencySpec.createLocalDependencySpec());
+        moduleLoader = new DeploymentModuleLoaderImpl();
+        moduleLoader.addModuleSpec(builder.create());
+        module = moduleLoader.loadModule(identifier);
+    }
+
+    @After
+    public void cleanup() {
+        moduleLoader.removeModule(module);
+        ObjectFactoryBuilder.INSTANCE.clearFactoryCache();
+    }
+
+    @Test
+    public void testDeployedFactoriesAreNotCacheable() throws Exception {
+        final Class<?> deployed = module.getClassLoader().loadClass(DEPLOYED_FACTORY);
+        assertSame(module.getClassLoader(), deployed.getClassLoader());
+        assertFalse(ObjectFactoryBuilder.isCacheable(deployed));
+        assertTrue(ObjectFactoryBuilder.isCacheable(SharedObjectFactory.class));
+        assertTrue(ObjectFactoryBuilder.isCacheable(String.class));
+    }
+
+    @Test
+    public void testDeployedFactoriesAreCreatedForEachLookup() throws Exception {
+        assertEquals("deployed", lookup(DEPLOYED_FACTORY));
+        assertEquals("deployed", lookup(DEPLOYED_FACTORY));
+        assertEquals("deployed", lookup(DEPLOYED_FACTORY));
+        assertEquals(3, deployedInstances.get());
+    }
+
+    @Test
+    public void testSharedFactoriesAreCachedForDeployments() throws Exception {
+        assertEquals("shared", lookup(SharedObjectFactory.class.getName()));
+        assertEquals("shared", lookup(SharedObjectFactory.class.getName()));
+        assertEquals(1, sharedInstances.get());
+    }
+
+    private Object lookup(final String factoryClassName) throws Exception {
+        final Hashtable<String, Object> environment = new Hashtable<String, Object>();
+        environment.put(Context.OBJECT_FACTORIES, factoryClassName);
+        final Thread thread = Thread.currentThread();
+        final ClassLoader original = thread.getContextClassLoader();
+        thread.setContextClassLoader(module.getClassLoader());
+        try {
+            return ObjectFactoryBuilder.INSTANCE.getObjectInstance("test", null, null, environment);
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    /**
+     * Factory class which the test module defines itself.
+     */
+    public static class DeployedObjectFactory implements ObjectFactory {
+        public DeployedObjectFactory() {
+            deployedInstances.incrementAndGet();
+        }
+
+        public Object getObjectInstance(Object obj, Name name, Context nameCtx, Hashtable<?, ?> environment) throws Exception {
+            return "deployed";
+        }
+    }
+
+    /**
+     * Factory class which the test module imports from the test class loader.
+     */
+    public static class SharedObjectFactory implements ObjectFactory {
+        public SharedObjectFactory() {
+            sharedInstances.incrementAndGet();
+        }
+
+        public Object getObjectInstance(Object obj, Name name, Context nameCtx, Hashtable<?, ?> environment) throws Exception {
+            return "shared";
+        }
+    }
+
+    /**
+     * Imports everything but the deployed factory from the test class loader.
+     */
+    private static final class TestLocalLoader implements LocalLoader {
+        public Class<?> loadClassLocal(final String name, final boolean resolve) {
+            if (DEPLOYED_FACTORY.equals(name)) {
+                return null;
+            }
+            try {
+                return Class.forName(name, resolve, ObjectFactoryBuilderTestCase.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+        }
+
+        public List<Resource> loadResourceLocal(final String name) {
+            return Collections.emptyList();
+        }
+
+        public Resource loadResourceLocal(final String root, final String name) {
+            return null;
+        }
+    }
+
+    /**
+     * Provides the bytes of the deployed factory class to the test module.
+     */
+    private static final class DeployedFactoryLoader implements ResourceLoader {
+        public String getRootName() {
+            return "naming-test";
+        }
+
+        public ClassSpec getClassSpec(final String name) throws IOException {
+            final String path = DEPLOYED_FACTORY.replace('.', '/') + ".class";
+            if (!path.equals(name) && !DEPLOYED_FACTORY.equals(name)) {
+                return null;
+            }
+            final InputStream in = ObjectFactoryBuilderTestCase.class.getClassLoader().getResourceAsStream(path);
+            try {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                final ClassSpec spec = new ClassSpec();
+                spec.setBytes(out.toByteArray());
+                return spec;
+            } finally {
+                in.close();
+            }
+        }
+
+        public PackageSpec getPackageSpec(final String name) {
+            return new PackageSpec();
+        }
+
+        public Resource getResource(final String name) {
+            return null;
+        }
+
+        public String getLibrary(final String name) {
+            return null;
+        }
+
+        public Collection<String> getPaths() {
+            return Collections.singleton(PACKAGE_PATH);
+        }
+
+        public PathFilter getExportFilter() {
+            return PathFilters.acceptAll();
+        }
+    }
+}
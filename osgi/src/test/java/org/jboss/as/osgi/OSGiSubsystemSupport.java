@@ -62,6 +62,7 @@ import org.jboss.as.osgi.service.FrameworkService;
 import org.jboss.as.osgi.service.PackageAdminService;
 import org.jboss.as.server.ServerEnvironment;
 import org.jboss.as.server.ServerEnvironmentService;
+import org.jboss.jandex.Index;
 import org.jboss.logging.Logger;
 import org.jboss.modules.Module;
 import org.jboss.modules.ModuleIdentifier;
@@ -595,5 +596,14 @@ public class OSGiSubsystemSupport {
             log.debugf("Mounted Zip: %s", mount);
             return mount;
         }
+
+        @Override
+        public Index getAnnotationIndex(byte[] hash) {
+            return null;
+        }
+
+        @Override
+        public void addAnnotationIndex(byte[] hash, Index index) throws IOException {
+        }
     }
 }
@@ -22,6 +22,7 @@
 
 package org.jboss.as.process;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -51,6 +52,22 @@ public final class Main {
     public static final String SERVER_MANAGER_PROCESS_NAME = "ServerManager";
     public static final String SERVER_MANAGER_MODULE = "org.jboss.as.server-manager";
 
+    private static void usage() {
+        System.out.println("Usage: java -jar jboss-modules.jar -mp <module path> org.jboss.as.process-manager [args...]");
+        System.out.println("           [-- <server manager JVM args...> [-- <server manager args...>]]\n");
+        System.out.println("where args include:");
+        System.out.println("    -jvm <path>                        Java executable used to launch the server manager");
+        System.out.println("    -jboss-home <dir>                  JBoss home directory");
+        System.out.println("    -mp <path>                         Module path passed to the server manager");
+        System.out.println("    -jar <jar>                         Modules jar passed to the server manager");
+        System.out.println("    -logmodule <module>                Log manager module passed to the server manager");
+        System.out.println("    -bind-addr <address>               Address of the process manager socket");
+        System.out.println("    -bind-port <port>                  Port of the process manager socket");
+        System.out.println("    -process-log-dir <dir>             Write the output of each process to its own file in this directory");
+        System.out.println("                                       instead of the console");
+        System.out.println("    -help                              Display this message and exit\n");
+    }
+
     public static void main(String[] args) throws IOException {
         MDC.put("process", "process manager");
 
@@ -63,6 +80,7 @@ public final class Main {
         String bootModule = SERVER_MANAGER_MODULE;
         String bindAddress = "127.0.0.1";
         int bindPort = 0;
+        File processLogDir = null;
 
         final List<String> javaOptions = new ArrayList<String>();
         final List<String> smOptions = new ArrayList<String>();
@@ -89,6 +107,11 @@ public final class Main {
                 bindAddress = args[++i];
             } else if ("-bind-port".equals(arg)) {
                 bindPort = Integer.parseInt(args[++i]);
+            } else if ("-process-log-dir".equals(arg)) {
+                processLogDir = new File(args[++i]);
+            } else if (CommandLineConstants.HELP.equals(arg)) {
+                usage();
+                return;
             } else if ("--".equals(arg)) {
                 for (i++; i < args.length; i++) {
                     arg = args[i];
@@ -104,6 +127,7 @@ public final class Main {
                 }
                 break OUT;
             } else {
+                usage();
                 throw new IllegalArgumentException("Bad option: " + arg);
             }
         }
@@ -135,7 +159,7 @@ public final class Main {
         configuration.setThreadFactory(Executors.defaultThreadFactory());
         configuration.setReadExecutor(Executors.newCachedThreadPool());
 
-        final ProcessManager processManager = new ProcessManager(configuration, System.out, System.err);
+        final ProcessManager processManager = new ProcessManager(configuration, System.out, System.err, processLogDir);
         final InetSocketAddress boundAddress = processManager.getServer().getBoundAddress();
 
         final List<String> initialCommand = new ArrayList<String>();
@@ -22,15 +22,10 @@
 
 package org.jboss.as.process;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintStream;
 import java.util.List;
 import java.util.Map;
 
@@ -157,13 +152,8 @@ final class ManagedProcess {
         final OutputStream stdin = process.getOutputStream();
         final InputStream stderr = process.getErrorStream();
         final InputStream stdout = process.getInputStream();
-        final Thread stderrThread = new Thread(new ReadTask(stderr, processManager.getStderr()));
-        stderrThread.setName(String.format("stderr for %s", processName));
-        stderrThread.start();
-        final Thread stdoutThread = new Thread(new ReadTask(stdout, processManager.getStdout()));
-        stdoutThread.setName(String.format("stdout for %s", processName));
-        stdoutThread.start();
-        final Thread joinThread = new Thread(new JoinTask(startTime));
+        final OutputPump.Registration output = processManager.getOutputPump().register(processName, stdout, stderr);
+        final Thread joinThread = new Thread(new JoinTask(startTime, output));
         joinThread.setName(String.format("reaper for %s", processName));
         joinThread.start();
         try {
@@ -204,9 +194,11 @@ final class ManagedProcess {
 
     private final class JoinTask implements Runnable {
         private final long startTime;
+        private final OutputPump.Registration output;
 
-        public JoinTask(final long startTime) {
+        public JoinTask(final long startTime, final OutputPump.Registration output) {
             this.startTime = startTime;
+            this.output = output;
         }
 
         public void run() {
@@ -221,6 +213,7 @@ final class ManagedProcess {
             } catch (InterruptedException e) {
                 // ignore
             }
+            processManager.getOutputPump().drain(output);
             synchronized (lock) {
                 final long endTime = System.currentTimeMillis();
                 state = State.DOWN;
@@ -237,39 +230,4 @@ final class ManagedProcess {
             }
         }
     }
-
-    private final class ReadTask implements Runnable {
-        private final InputStream source;
-        private final PrintStream target;
-
-        private ReadTask(final InputStream source, final PrintStream target) {
-            this.source = source;
-            this.target = target;
-        }
-
-        public void run() {
-            final InputStream source = this.source;
-            final String processName = ManagedProcess.this.processName;
-            try {
-                final BufferedReader reader = new BufferedReader(new InputStreamReader(new BufferedInputStream(source)));
-                final OutputStreamWriter writer = new OutputStreamWriter(target);
-                String s;
-                while ((s = reader.readLine()) != null) {
-                    synchronized (target) {
-                        writer.write('[');
-                        writer.write(processName);
-                        writer.write("] ");
-                        writer.write(s);
-                        writer.write('\n');
-                        writer.flush();
-                    }
-                }
-                source.close();
-            } catch (IOException e) {
-                log.error("Stream processing failed for process '%s': %s", processName, e);
-            } finally {
-                StreamUtils.safeClose(source);
-            }
-        }
-    }
 }
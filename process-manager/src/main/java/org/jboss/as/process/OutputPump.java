@@ -0,0 +1,563 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.process;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.as.protocol.StreamUtils;
+import org.jboss.logging.Logger;
+
+/**
+ * Copies the output of managed processes to its destination using a small, fixed set of threads.
+ * <p>
+ * Each registered process is assigned to one worker thread, which polls the process's stdout and stderr pipes for
+ * available bytes, splits them into lines prefixed with the process name, and collects the lines of one pass over all
+ * of its processes into a single write per destination. A pass reads a limited amount from each pipe, so that a
+ * process writing without pause cannot hold up the others, and a batch which grows large is written out before the
+ * pass ends. By default the destination is the process manager's own
+ * stdout or stderr; if a log directory is given, each process instead gets its own file there, which is rolled over
+ * once it reaches a maximum size.
+ * <p>
+ * Process pipes cannot be registered with a selector, so workers use {@link InputStream#available()} to avoid
+ * blocking on a quiet process and back off briefly when none of their processes produced output. Once a process
+ * exits, {@link #drain(Registration)} reads what remains in its pipes before they are closed. Draining does not wait
+ * for the end of the streams, which never comes while a child of the process still holds the pipes open.
+ */
+final class OutputPump {
+
+    /** System property naming the number of worker threads */
+    static final String THREADS_PROPERTY = "jboss.process.output.threads";
+    /** System property naming the size in bytes at which a process log file is rolled over */
+    static final String MAX_SIZE_PROPERTY = "jboss.process.output.max-size";
+    /** System property naming the number of rolled over process log files to keep */
+    static final String MAX_BACKUPS_PROPERTY = "jboss.process.output.max-backups";
+
+    private static final int DEFAULT_THREADS = 2;
+    private static final long DEFAULT_MAX_SIZE = 10L * 1024L * 1024L;
+    private static final int DEFAULT_MAX_BACKUPS = 5;
+
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_LINE_LENGTH = 8192;
+    /** The most bytes read from one pipe in one pass */
+    private static final int MAX_READ_PER_PASS = 64 * 1024;
+    /** The most bytes read from one pipe when draining it, in case a child of the process is still writing to it */
+    private static final int MAX_READ_PER_DRAIN = 1024 * 1024;
+    /** The batch size at which a batch is written without waiting for the end of the pass */
+    private static final int MAX_BATCH_SIZE = 64 * 1024;
+    private static final long IDLE_SLEEP = 20L;
+
+    private static final Logger log = Logger.getLogger("org.jboss.as.process");
+
+    private final Sink stdout;
+    private final Sink stderr;
+    private final File logDirectory;
+    private final long maxFileSize;
+    private final int maxBackups;
+    private final Worker[] workers;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    /**
+     * Create a pump which writes process output to the given console streams.
+     *
+     * @param stdout the stream receiving the stdout of all processes
+     * @param stderr the stream receiving the stderr of all processes
+     */
+    OutputPump(final PrintStream stdout, final PrintStream stderr) {
+        this(stdout, stderr, null);
+    }
+
+    /**
+     * Create a pump which writes the output of each process to its own file in the given directory, or to the given
+     * console streams if the directory is {@code null}.
+     *
+     * @param stdout the stream receiving the stdout of all processes
+     * @param stderr the stream receiving the stderr of all processes
+     * @param logDirectory the directory for process log files, or {@code null}
+     */
+    OutputPump(final PrintStream stdout, final PrintStream stderr, final File logDirectory) {
+        this(stdout, stderr, logDirectory, Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS).intValue(),
+                Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE).longValue(),
+                Integer.getInteger(MAX_BACKUPS_PROPERTY, DEFAULT_MAX_BACKUPS).intValue());
+    }
+
+    OutputPump(final PrintStream stdout, final PrintStream stderr, final File logDirectory, final int threads, final long maxFileSize, final int maxBackups) {
+        if (stdout == null) {
+            throw new IllegalArgumentException("stdout is null");
+        }
+        if (stderr == null) {
+            throw new IllegalArgumentException("stderr is null");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        if (logDirectory != null && ! logDirectory.isDirectory() && ! logDirectory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create process log directory " + logDirectory);
+        }
+        this.stdout = new ConsoleSink(stdout);
+        this.stderr = new ConsoleSink(stderr);
+        this.logDirectory = logDirectory;
+        this.maxFileSize = maxFileSize;
+        this.maxBackups = maxBackups;
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            final Worker worker = new Worker();
+            final Thread thread = new Thread(worker);
+            thread.setName(String.format("output pump %d", Integer.valueOf(i + 1)));
+            thread.setDaemon(true);
+            workers[i] = worker;
+            thread.start();
+        }
+    }
+
+    /**
+     * Start copying the output of a process.
+     *
+     * @param processName the process name
+     * @param processStdout the process's stdout pipe
+     * @param processStderr the process's stderr pipe
+     * @return the registration, to pass to {@link #drain(Registration)} once the process has exited
+     */
+    Registration register(final String processName, final InputStream processStdout, final InputStream processStderr) {
+        final Sink outSink;
+        final Sink errSink;
+        if (logDirectory != null) {
+            outSink = errSink = new RotatingFileSink(new File(logDirectory, fileName(processName)), maxFileSize, maxBackups);
+        } else {
+            outSink = stdout;
+            errSink = stderr;
+        }
+        final byte[] prefix = ("[" + processName + "] ").getBytes();
+        final Worker worker = workers[(nextWorker.getAndIncrement() & Integer.MAX_VALUE) % workers.length];
+        final Registration registration = new Registration(worker, outSink != stdout ? outSink : null,
+                new Source(processName, processStdout, prefix, outSink),
+                new Source(processName, processStderr, prefix, errSink));
+        worker.add(registration);
+        return registration;
+    }
+
+    /**
+     * Copy the output an exited process left in its pipes and close them. Returns once that output has been written.
+     *
+     * @param registration the registration returned by {@link #register(String, InputStream, InputStream)}
+     */
+    void drain(final Registration registration) {
+        registration.worker.drain(registration);
+    }
+
+    /**
+     * Stop the worker threads. Processes still registered are drained first.
+     */
+    void shutdown() {
+        for (Worker worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    private static String fileName(final String processName) {
+        final StringBuilder builder = new StringBuilder(processName.length() + 4);
+        for (int i = 0; i < processName.length(); i++) {
+            final char c = processName.charAt(i);
+            builder.append(Character.isLetterOrDigit(c) || c == '-' || c == '.' ? c : '_');
+        }
+        return builder.append(".log").toString();
+    }
+
+    static final class Registration {
+        private final Worker worker;
+        private final Sink ownSink;
+        private final Source stdout;
+        private final Source stderr;
+        private boolean drainRequested;
+        private boolean drained;
+
+        private Registration(final Worker worker, final Sink ownSink, final Source stdout, final Source stderr) {
+            this.worker = worker;
+            this.ownSink = ownSink;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+    }
+
+    private static final class Worker implements Runnable {
+        private final List<Registration> registrations = new CopyOnWriteArrayList<Registration>();
+        private final Map<Sink, ByteArrayOutputStream> batches = new IdentityHashMap<Sink, ByteArrayOutputStream>();
+        private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+        private boolean shutdown;
+        private boolean stopped;
+
+        void add(final Registration registration) {
+            registrations.add(registration);
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+
+        void drain(final Registration registration) {
+            synchronized (this) {
+                registration.drainRequested = true;
+                notifyAll();
+                boolean intr = false;
+                try {
+                    while (! registration.drained && ! stopped) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            intr = true;
+                        }
+                    }
+                } finally {
+                    if (intr) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        void shutdown() {
+            synchronized (this) {
+                shutdown = true;
+                notifyAll();
+                boolean intr = false;
+                try {
+                    while (! stopped) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            intr = true;
+                        }
+                    }
+                } finally {
+                    if (intr) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        public void run() {
+            try {
+                for (;;) {
+                    final boolean shutdown;
+                    synchronized (this) {
+                        shutdown = this.shutdown;
+                    }
+                    boolean progress = false;
+                    final List<Registration> finished = new ArrayList<Registration>(0);
+                    for (Registration registration : registrations) {
+                        final boolean drain;
+                        synchronized (this) {
+                            drain = registration.drainRequested || shutdown;
+                        }
+                        progress |= registration.stdout.poll(readBuffer, batches, drain);
+                        progress |= registration.stderr.poll(readBuffer, batches, drain);
+                        if (drain) {
+                            finished.add(registration);
+                        }
+                    }
+                    writeBatches();
+                    if (! finished.isEmpty()) {
+                        registrations.removeAll(finished);
+                        synchronized (this) {
+                            for (Registration registration : finished) {
+                                StreamUtils.safeClose(registration.stdout.input);
+                                StreamUtils.safeClose(registration.stderr.input);
+                                if (registration.ownSink != null) {
+                                    registration.ownSink.close();
+                                }
+                                registration.drained = true;
+                            }
+                            notifyAll();
+                        }
+                    }
+                    if (shutdown) {
+                        return;
+                    }
+                    if (! progress) {
+                        synchronized (this) {
+                            if (! this.shutdown && ! hasDrainRequest()) {
+                                try {
+                                    wait(registrations.isEmpty() ? 0L : IDLE_SLEEP);
+                                } catch (InterruptedException e) {
+                                    // ignore
+                                }
+                            }
+                        }
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    stopped = true;
+                    notifyAll();
+                }
+            }
+        }
+
+        private boolean hasDrainRequest() {
+            // Call under lock
+            for (Registration registration : registrations) {
+                if (registration.drainRequested) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void writeBatches() {
+            final Iterator<Map.Entry<Sink, ByteArrayOutputStream>> iterator = batches.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<Sink, ByteArrayOutputStream> entry = iterator.next();
+                final ByteArrayOutputStream batch = entry.getValue();
+                if (batch.size() > 0) {
+                    entry.getKey().write(batch);
+                    batch.reset();
+                }
+                if (entry.getKey().isClosed()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static final class Source {
+        private final String processName;
+        private final InputStream input;
+        private final byte[] prefix;
+        private final Sink sink;
+        private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+        private boolean eof;
+
+        private Source(final String processName, final InputStream input, final byte[] prefix, final Sink sink) {
+            this.processName = processName;
+            this.input = input;
+            this.prefix = prefix;
+            this.sink = sink;
+        }
+
+        /**
+         * Read what is available, up to a limit, and add all complete lines to the batch for the sink. The batch is
+         * written to the sink once it reaches {@link #MAX_BATCH_SIZE}. If {@code drain} is set, the source is
+         * finished afterwards, and the final partial line is added as well.
+         *
+         * @return {@code true} if any bytes were read
+         */
+        boolean poll(final byte[] buffer, final Map<Sink, ByteArrayOutputStream> batches, final boolean drain) {
+            if (eof) {
+                return false;
+            }
+            boolean progress = false;
+            try {
+                final int limit = drain ? MAX_READ_PER_DRAIN : MAX_READ_PER_PASS;
+                int total = 0;
+                int available;
+                while (total < limit && (available = input.available()) > 0) {
+                    final int read = input.read(buffer, 0, Math.min(Math.min(available, buffer.length), limit - total));
+                    if (read == -1) {
+                        eof = true;
+                        break;
+                    }
+                    progress = true;
+                    total += read;
+                    final ByteArrayOutputStream batch = batch(batches);
+                    addLines(buffer, read, batch);
+                    if (batch.size() >= MAX_BATCH_SIZE) {
+                        sink.write(batch);
+                        batch.reset();
+                    }
+                }
+                if (drain) {
+                    // Everything the exited process wrote is available by now. Reading on until the end of the
+                    // stream would block for as long as a child of the process keeps the pipe open.
+                    eof = true;
+                }
+            } catch (IOException e) {
+                if (! drain) {
+                    log.errorf("Stream processing failed for process '%s': %s", processName, e);
+                }
+                eof = true;
+            }
+            if (eof && partialLine.size() > 0) {
+                final ByteArrayOutputStream batch = batch(batches);
+                writeLine(batch);
+            }
+            return progress;
+        }
+
+        private ByteArrayOutputStream batch(final Map<Sink, ByteArrayOutputStream> batches) {
+            ByteArrayOutputStream batch = batches.get(sink);
+            if (batch == null) {
+                batch = new ByteArrayOutputStream(READ_BUFFER_SIZE);
+                batches.put(sink, batch);
+            }
+            return batch;
+        }
+
+        private void addLines(final byte[] buffer, final int length, final ByteArrayOutputStream batch) {
+            int start = 0;
+            for (int i = 0; i < length; i++) {
+                if (buffer[i] == '\n') {
+                    partialLine.write(buffer, start, i - start);
+                    writeLine(batch);
+                    start = i + 1;
+                } else if (partialLine.size() + i - start >= MAX_LINE_LENGTH) {
+                    partialLine.write(buffer, start, i - start);
+                    writeLine(batch);
+                    start = i;
+                }
+            }
+            partialLine.write(buffer, start, length - start);
+        }
+
+        private void writeLine(final ByteArrayOutputStream batch) {
+            batch.write(prefix, 0, prefix.length);
+            try {
+                partialLine.writeTo(batch);
+            } catch (IOException e) {
+                // not possible with a byte array
+                throw new IllegalStateException(e);
+            }
+            batch.write('\n');
+            partialLine.reset();
+        }
+    }
+
+    private interface Sink {
+
+        void write(ByteArrayOutputStream batch);
+
+        void close();
+
+        boolean isClosed();
+    }
+
+    private static final class ConsoleSink implements Sink {
+        private final PrintStream target;
+
+        private ConsoleSink(final PrintStream target) {
+            this.target = target;
+        }
+
+        public void write(final ByteArrayOutputStream batch) {
+            synchronized (target) {
+                try {
+                    batch.writeTo(target);
+                } catch (IOException e) {
+                    // PrintStream does not throw
+                }
+                target.flush();
+            }
+        }
+
+        public void close() {
+        }
+
+        public boolean isClosed() {
+            return false;
+        }
+    }
+
+    private static final class RotatingFileSink implements Sink {
+        private final File file;
+        private final long maxSize;
+        private final int maxBackups;
+        private OutputStream output;
+        private long size;
+        private boolean closed;
+
+        private RotatingFileSink(final File file, final long maxSize, final int maxBackups) {
+            this.file = file;
+            this.maxSize = maxSize;
+            this.maxBackups = maxBackups;
+        }
+
+        public void write(final ByteArrayOutputStream batch) {
+            if (closed) {
+                return;
+            }
+            try {
+                if (output == null) {
+                    size = file.length();
+                    output = new FileOutputStream(file, true);
+                }
+                if (size > 0 && maxSize > 0 && size + batch.size() > maxSize) {
+                    rollOver();
+                }
+                batch.writeTo(output);
+                output.flush();
+                size += batch.size();
+            } catch (IOException e) {
+                log.errorf("Failed to write process output to %s: %s", file, e);
+                StreamUtils.safeClose(output);
+                output = null;
+            }
+        }
+
+        private void rollOver() throws IOException {
+            StreamUtils.safeClose(output);
+            output = null;
+            if (maxBackups > 0) {
+                final File oldest = backup(maxBackups);
+                if (oldest.exists() && ! oldest.delete()) {
+                    log.warnf("Failed to delete process log file %s", oldest);
+                }
+                for (int i = maxBackups - 1; i >= 1; i--) {
+                    final File backup = backup(i);
+                    if (backup.exists() && ! backup.renameTo(backup(i + 1))) {
+                        log.warnf("Failed to rename process log file %s", backup);
+                    }
+                }
+                if (! file.renameTo(backup(1))) {
+                    log.warnf("Failed to rename process log file %s", file);
+                }
+            }
+            output = new FileOutputStream(file, false);
+            size = 0;
+        }
+
+        private File backup(final int index) {
+            return new File(file.getParentFile(), file.getName() + "." + index);
+        }
+
+        public void close() {
+            closed = true;
+            StreamUtils.safeClose(output);
+            output = null;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+}
@@ -22,6 +22,7 @@
 
 package org.jboss.as.process;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -64,12 +65,14 @@ public final class ProcessManager {
 
     private boolean shutdown;
 
-    private final PrintStream stdout;
-    private final PrintStream stderr;
+    private final OutputPump outputPump;
 
     public ProcessManager(final ProtocolServer.Configuration configuration, final PrintStream stdout, final PrintStream stderr) throws IOException {
-        this.stdout = stdout;
-        this.stderr = stderr;
+        this(configuration, stdout, stderr, null);
+    }
+
+    public ProcessManager(final ProtocolServer.Configuration configuration, final PrintStream stdout, final PrintStream stderr, final File processLogDirectory) throws IOException {
+        outputPump = new OutputPump(stdout, stderr, processLogDirectory);
         rng = new Random(new SecureRandom().nextLong());
         //noinspection ThisEscapedInObjectConstruction
         configuration.setConnectionHandler(new ProcessManagerServerHandler(this));
@@ -207,6 +210,7 @@ public final class ProcessManager {
                     // ignore
                 }
             }
+            outputPump.shutdown();
             log.info("All processes finished; exiting");
         }
     }
@@ -285,12 +289,8 @@ public final class ProcessManager {
         return server;
     }
 
-    PrintStream getStdout() {
-        return stdout;
-    }
-
-    PrintStream getStderr() {
-        return stderr;
+    OutputPump getOutputPump() {
+        return outputPump;
     }
 
     private static final class Key {
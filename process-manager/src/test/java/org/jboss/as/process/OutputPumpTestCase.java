@@ -0,0 +1,253 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.process;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link OutputPump}.
+ */
+public class OutputPumpTestCase {
+
+    private final CountingStream stdout = new CountingStream();
+    private final CountingStream stderr = new CountingStream();
+    private OutputPump pump;
+
+    @After
+    public void shutdown() {
+        if (pump != null) {
+            pump.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testLinesAreBatched() throws Exception {
+        pump = new OutputPump(new PrintStream(stdout), new PrintStream(stderr), null, 1, 0L, 0);
+        final StringBuilder lines = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            lines.append("line ").append(i).append('\n');
+            expected.append("[test] line ").append(i).append('\n');
+        }
+        final OutputPump.Registration registration = pump.register("test", stream(lines.toString()), stream("error\n"));
+        pump.drain(registration);
+
+        assertEquals(expected.toString(), stdout.toString());
+        assertEquals(1, stdout.writes);
+        assertEquals("[test] error\n", stderr.toString());
+    }
+
+    @Test(timeout = 10000)
+    public void testDrainAddsPartialLine() throws Exception {
+        pump = new OutputPump(new PrintStream(stdout), new PrintStream(stderr), null, 1, 0L, 0);
+        final OutputPump.Registration registration = pump.register("test", stream("one\ntwo"), stream(""));
+        pump.drain(registration);
+        assertEquals("[test] one\n[test] two\n", stdout.toString());
+    }
+
+    @Test(timeout = 10000)
+    public void testDrainDoesNotWaitForEndOfStream() throws Exception {
+        pump = new OutputPump(new PrintStream(stdout), new PrintStream(stderr), null, 1, 0L, 0);
+        // A child of the exited process still holds the pipes, so they never reach their end
+        final OpenPipe out = new OpenPipe("last words\npartial");
+        final OpenPipe err = new OpenPipe("");
+        final OutputPump.Registration registration = pump.register("test", out, err);
+        pump.drain(registration);
+
+        assertEquals("[test] last words\n[test] partial\n", stdout.toString());
+        assertTrue(out.closed);
+        assertTrue(err.closed);
+    }
+
+    @Test(timeout = 10000)
+    public void testOtherProcessesAreServedWhileOneIsQuiet() throws Exception {
+        pump = new OutputPump(new PrintStream(stdout), new PrintStream(stderr), null, 1, 0L, 0);
+        final OutputPump.Registration quiet = pump.register("quiet", new OpenPipe(""), new OpenPipe(""));
+        final OutputPump.Registration chatty = pump.register("chatty", stream("hello\n"), stream(""));
+        pump.drain(chatty);
+        assertEquals("[chatty] hello\n", stdout.toString());
+        pump.drain(quiet);
+    }
+
+    @Test(timeout = 10000)
+    public void testEndlessOutputDoesNotStarveOtherProcesses() throws Exception {
+        pump = new OutputPump(new PrintStream(stdout), new PrintStream(stderr), null, 1, 0L, 0);
+        final EndlessPipe flood = new EndlessPipe();
+        pump.register("flood", flood, new OpenPipe(""));
+        final OutputPump.Registration other = pump.register("other", stream("hello\n"), stream(""));
+        pump.drain(other);
+        assertTrue(stdout.toString().contains("[other] hello\n"));
+        pump.shutdown();
+        assertTrue(flood.closed);
+    }
+
+    @Test(timeout = 10000)
+    public void testLargeBatchIsWrittenEarly() throws Exception {
+        pump = new OutputPump(new PrintStream(stdout), new PrintStream(stderr), null, 1, 0L, 0);
+        final StringBuilder lines = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            lines.append("line ").append(i).append('\n');
+            expected.append("[test] line ").append(i).append('\n');
+        }
+        final OutputPump.Registration registration = pump.register("test", stream(lines.toString()), stream(""));
+        pump.drain(registration);
+
+        assertEquals(expected.toString(), stdout.toString());
+        assertTrue(String.valueOf(stdout.writes), stdout.writes > 1);
+    }
+
+    @Test(timeout = 10000)
+    public void testProcessLogFile() throws Exception {
+        final File dir = File.createTempFile("output-pump", "");
+        dir.delete();
+        try {
+            pump = new OutputPump(new PrintStream(stdout), new PrintStream(stderr), dir, 1, 0L, 0);
+            final OutputPump.Registration registration = pump.register("server:one", stream("out\n"), new OpenPipe("err\n"));
+            pump.drain(registration);
+
+            assertEquals(0, stdout.size());
+            final String content = read(new File(dir, "server_one.log"));
+            assertTrue(content, content.contains("[server:one] out\n"));
+            assertTrue(content, content.contains("[server:one] err\n"));
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    private static InputStream stream(final String content) {
+        return new ByteArrayInputStream(content.getBytes());
+    }
+
+    private static String read(final File file) throws IOException {
+        final InputStream input = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            int b;
+            while ((b = input.read()) != -1) {
+                bytes.write(b);
+            }
+            return bytes.toString();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Counts the writes reaching it.
+     */
+    private static final class CountingStream extends ByteArrayOutputStream {
+        private volatile int writes;
+
+        public synchronized void write(final byte[] b, final int off, final int len) {
+            writes++;
+            super.write(b, off, len);
+        }
+    }
+
+    /**
+     * A pipe which always has more output available, as for a process writing without pause.
+     */
+    private static final class EndlessPipe extends InputStream {
+        private volatile boolean closed;
+
+        public int available() {
+            return closed ? 0 : 4096;
+        }
+
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            for (int i = 0; i < len; i++) {
+                b[off + i] = (byte) (i % 80 == 79 ? '\n' : 'x');
+            }
+            return len;
+        }
+
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * A pipe whose content is available at once, but which blocks once empty, as the end of the stream is not
+     * reached while another process holds the pipe open.
+     */
+    private static final class OpenPipe extends InputStream {
+        private final InputStream content;
+        private final CountDownLatch closedLatch = new CountDownLatch(1);
+        private volatile boolean closed;
+
+        private OpenPipe(final String content) {
+            this.content = stream(content);
+        }
+
+        public int available() throws IOException {
+            return content.available();
+        }
+
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (content.available() > 0) {
+                return content.read(b, off, len);
+            }
+            try {
+                closedLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Stream closed");
+        }
+
+        public void close() {
+            closed = true;
+            closedLatch.countDown();
+        }
+    }
+}
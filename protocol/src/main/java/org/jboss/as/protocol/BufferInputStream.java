@@ -0,0 +1,308 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.protocol;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * The read-only stream of one inbound message.  The reading side of the connection {@link #push(ByteBuffer) pushes}
+ * filled buffers as chunks arrive; the handler reads straight out of those buffers, which are returned to their pool
+ * once consumed.
+ * <p>
+ * The bytes queued in the stream are bounded.  Once {@link #push(ByteBuffer)} reports that the bound is reached, the
+ * reading side should stop reading, either by {@link #awaitSpace() waiting} or, if it must not block, until the space
+ * callback given to the constructor is run.
+ */
+final class BufferInputStream extends InputStream {
+
+    /**
+     * The default number of queued inbound bytes at which the reading side should stop reading.
+     */
+    static final int DEFAULT_MAX_QUEUED_BYTES = 65536;
+
+    private final BufferPool pool;
+    private final int maxQueuedBytes;
+    private final Runnable spaceCallback;
+    // protected by {@code this}
+    private final Queue<ByteBuffer> buffers = new ArrayDeque<ByteBuffer>();
+    // protected by {@code this}
+    private boolean finished;
+    // protected by {@code this}
+    private boolean closed;
+    // protected by {@code this}
+    private IOException failure;
+    // protected by {@code this}
+    private int references = 1;
+    // protected by {@code this}
+    private boolean released;
+    // protected by {@code this}
+    private int queuedBytes;
+    // protected by {@code this}
+    private boolean full;
+
+    BufferInputStream(final BufferPool pool) {
+        this(pool, DEFAULT_MAX_QUEUED_BYTES, null);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param pool the pool the pushed buffers are returned to
+     * @param maxQueuedBytes the number of queued bytes at which {@link #push(ByteBuffer)} reports the stream full
+     * @param spaceCallback the task to run once a full stream has been drained below the bound or closed, or
+     *      {@code null}; it may be run with the monitor of this stream held, so it must not block
+     */
+    BufferInputStream(final BufferPool pool, final int maxQueuedBytes, final Runnable spaceCallback) {
+        if (maxQueuedBytes < 1) {
+            throw new IllegalArgumentException("maxQueuedBytes must be at least 1");
+        }
+        this.pool = pool;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.spaceCallback = spaceCallback;
+    }
+
+    /**
+     * Add a flipped buffer to the end of the message.  Ownership of the buffer passes to this stream.
+     *
+     * @param buffer the buffer
+     * @return {@code true} if more may be pushed, {@code false} if the queued bytes reached the bound and reading
+     *      should stop until the stream is drained
+     */
+    boolean push(final ByteBuffer buffer) {
+        synchronized (this) {
+            if (! closed && ! finished) {
+                buffers.add(buffer);
+                queuedBytes += buffer.limit();
+                notifyAll();
+                if (queuedBytes >= maxQueuedBytes) {
+                    full = true;
+                    return false;
+                }
+                return true;
+            }
+        }
+        pool.free(buffer);
+        return true;
+    }
+
+    /**
+     * Wait until a full stream is drained below its bound, or is closed.
+     *
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    synchronized void awaitSpace() throws InterruptedIOException {
+        while (full && ! closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /**
+     * Mark the end of the message.
+     */
+    synchronized void finish() {
+        finished = true;
+        notifyAll();
+    }
+
+    /**
+     * Terminate the message abnormally.  Readers will receive an exception once the data already pushed is consumed.
+     *
+     * @param cause the read failure
+     */
+    synchronized void fail(final IOException cause) {
+        if (! finished) {
+            failure = cause;
+            finished = true;
+            notifyAll();
+        }
+    }
+
+    public synchronized int read() throws IOException {
+        final ByteBuffer buffer = current(true);
+        return buffer == null ? -1 : buffer.get() & 0xff;
+    }
+
+    public synchronized int read(final byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = current(true);
+        if (buffer == null) {
+            return -1;
+        }
+        int total = 0;
+        do {
+            final int cnt = Math.min(len, buffer.remaining());
+            buffer.get(b, off, cnt);
+            off += cnt;
+            len -= cnt;
+            total += cnt;
+        } while (len > 0 && (buffer = current(false)) != null);
+        return total;
+    }
+
+    public synchronized long skip(long n) throws IOException {
+        long total = 0;
+        ByteBuffer buffer;
+        while (n > 0 && (buffer = current(total == 0)) != null) {
+            final int cnt = (int) Math.min(n, (long) buffer.remaining());
+            buffer.position(buffer.position() + cnt);
+            n -= cnt;
+            total += cnt;
+        }
+        return total;
+    }
+
+    public synchronized int available() throws IOException {
+        int total = 0;
+        for (ByteBuffer buffer : buffers) {
+            total += buffer.remaining();
+        }
+        return total;
+    }
+
+    /**
+     * Get a view of this stream which keeps it readable after this stream itself is closed.  The buffers are only
+     * returned to the pool once both are closed.  This lets a handler hand the message off to another thread without
+     * copying it, even though the connection closes the message as soon as the handler returns.
+     *
+     * @return the view
+     * @throws IOException if the stream is already closed
+     */
+    InputStream retain() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            references++;
+        }
+        return new FilterInputStream(this) {
+            private boolean done;
+
+            public void close() throws IOException {
+                synchronized (this) {
+                    if (done) {
+                        return;
+                    }
+                    done = true;
+                }
+                release();
+            }
+        };
+    }
+
+    public void close() throws IOException {
+        synchronized (this) {
+            if (released) {
+                return;
+            }
+            released = true;
+        }
+        release();
+    }
+
+    private void release() {
+        final boolean wasFull;
+        synchronized (this) {
+            if (--references > 0) {
+                return;
+            }
+            closed = true;
+            wasFull = full;
+            full = false;
+            queuedBytes = 0;
+            notifyAll();
+        }
+        // no more pushes can be accepted, so the queue is ours alone
+        ByteBuffer buffer;
+        while ((buffer = buffers.poll()) != null) {
+            pool.free(buffer);
+        }
+        if (wasFull) {
+            spaceAvailable();
+        }
+    }
+
+    private void spaceAvailable() {
+        if (spaceCallback != null) {
+            spaceCallback.run();
+        }
+    }
+
+    /**
+     * Get the buffer to read from, discarding any exhausted buffers.  Must be called with the monitor held.
+     *
+     * @param block {@code true} to wait for data to arrive, {@code false} to return {@code null} if none is queued
+     * @return the buffer, or {@code null} at the end of the message
+     * @throws IOException if the stream is closed or the message failed
+     */
+    private ByteBuffer current(final boolean block) throws IOException {
+        for (;;) {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            final ByteBuffer buffer = buffers.peek();
+            if (buffer != null) {
+                if (buffer.hasRemaining()) {
+                    return buffer;
+                }
+                buffers.poll();
+                queuedBytes -= buffer.limit();
+                pool.free(buffer);
+                if (full && queuedBytes < maxQueuedBytes) {
+                    full = false;
+                    notifyAll();
+                    spaceAvailable();
+                }
+                continue;
+            }
+            if (! block) {
+                return null;
+            }
+            if (failure != null) {
+                throw new IOException("Message was not completely received", failure);
+            }
+            if (finished) {
+                return null;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+}
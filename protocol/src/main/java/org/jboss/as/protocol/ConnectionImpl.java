@@ -24,7 +24,6 @@ package org.jboss.as.protocol;
 
 import java.io.BufferedOutputStream;
 import java.io.EOFException;
-import java.io.FilterInputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -32,6 +31,7 @@ import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.concurrent.Executor;
 import org.jboss.logging.Logger;
 
@@ -57,14 +57,16 @@ final class ConnectionImpl implements Connection {
 
     private volatile MessageHandler messageHandler;
 
-    private final Executor readExecutor;
+    private final OrderedExecutor dispatcher;
+
+    private final BufferPool bufferPool = BufferPool.HEAP;
 
     private volatile Object attachment;
 
     ConnectionImpl(final Socket socket, final MessageHandler handler, final Executor readExecutor) {
         this.socket = socket;
         messageHandler = handler;
-        this.readExecutor = readExecutor;
+        dispatcher = new OrderedExecutor(readExecutor);
     }
 
     public OutputStream writeMessage() throws IOException {
@@ -157,68 +159,84 @@ final class ConnectionImpl implements Connection {
     Runnable getReadTask() {
         return new Runnable() {
             public void run() {
+                BufferInputStream message = null;
                 try {
-                    Pipe pipe = null;
                     final InputStream is = socket.getInputStream();
-                    OutputStream mos = null;
-                    final int bufferSize = 8192;
-                    final byte[] buffer = new byte[bufferSize];
                     for (;;) {
-
                         int cmd = is.read();
                         switch (cmd) {
                             case -1: {
                                 log.trace("Received end of stream");
                                 // end of stream
-                                safeHandleShutdown();
-                                boolean done;
-                                if (mos != null) {
-                                    mos.close();
-                                    pipe.await();
-                                }
-                                synchronized (lock) {
-                                    readDone = true;
-                                    done = writeDone;
-                                }
-                                if (done) {
-                                    StreamUtils.safeClose(socket);
-                                    safeHandleFinished();
+                                if (message != null) {
+                                    message.finish();
+                                    message = null;
                                 }
+                                dispatcher.execute(new Runnable() {
+                                    public void run() {
+                                        safeHandleShutdown();
+                                        boolean done;
+                                        synchronized (lock) {
+                                            readDone = true;
+                                            done = writeDone;
+                                        }
+                                        if (done) {
+                                            StreamUtils.safeClose(socket);
+                                            safeHandleFinished();
+                                        }
+                                    }
+                                });
                                 return;
                             }
                             case CHUNK_START: {
-                                if (mos == null) {
-                                    pipe = new Pipe(8192);
+                                if (message == null) {
                                     // new message!
-                                    final InputStream pis = pipe.getIn();
-                                    mos = pipe.getOut();
-
-                                    readExecutor.execute(new Runnable() {
+                                    final BufferInputStream newMessage = new BufferInputStream(bufferPool);
+                                    message = newMessage;
+                                    dispatcher.execute(new Runnable() {
                                         public void run() {
-                                            safeHandleMessage(new MessageInputStream(pis));
+                                            safeHandleMessage(newMessage);
                                         }
                                     });
                                 }
                                 int cnt = StreamUtils.readInt(is);
                                 log.tracef("Received data chunk of size %d", Integer.valueOf(cnt));
                                 while (cnt > 0) {
-                                    int sc = is.read(buffer, 0, Math.min(cnt, bufferSize));
-                                    if (sc == -1) {
-                                        throw new EOFException("Unexpected end of stream");
+                                    final ByteBuffer buffer = bufferPool.take();
+                                    boolean ok = false;
+                                    try {
+                                        final byte[] array = buffer.array();
+                                        final int offset = buffer.arrayOffset();
+                                        final int len = Math.min(cnt, buffer.capacity());
+                                        int pos = 0;
+                                        while (pos < len) {
+                                            final int sc = is.read(array, offset + pos, len - pos);
+                                            if (sc == -1) {
+                                                throw new EOFException("Unexpected end of stream");
+                                            }
+                                            pos += sc;
+                                        }
+                                        buffer.limit(len);
+                                        cnt -= len;
+                                        ok = true;
+                                    } finally {
+                                        if (! ok) {
+                                            bufferPool.free(buffer);
+                                        }
+                                    }
+                                    if (! message.push(buffer)) {
+                                        // the handler has fallen behind; read on once it catches up
+                                        message.awaitSpace();
                                     }
-                                    mos.write(buffer, 0, sc);
-                                    cnt -= sc;
                                 }
                                 break;
                             }
                             case CHUNK_END: {
                                 log.trace("Received end data marker");
-                                if (mos != null) {
+                                if (message != null) {
                                     // end message
-                                    mos.close();
-                                    pipe.await();
-                                    mos = null;
-                                    pipe = null;
+                                    message.finish();
+                                    message = null;
                                 }
                                 break;
                             }
@@ -227,8 +245,15 @@ final class ConnectionImpl implements Connection {
                             }
                         }
                     }
-                } catch (IOException e) {
-                    safeHandlerFailure(e);
+                } catch (final IOException e) {
+                    if (message != null) {
+                        message.fail(e);
+                    }
+                    dispatcher.execute(new Runnable() {
+                        public void run() {
+                            safeHandlerFailure(e);
+                        }
+                    });
                 }
             }
         };
@@ -275,22 +300,6 @@ final class ConnectionImpl implements Connection {
         }
     }
 
-    final class MessageInputStream extends FilterInputStream {
-
-        protected MessageInputStream(InputStream in) {
-            super(in);
-        }
-
-        @Override
-        public void close() throws IOException {
-            try {
-                while (in.read() != -1) {}
-            } finally {
-                super.close();
-            }
-        }
-    }
-
     final class MessageOutputStream extends FilterOutputStream {
 
         private final byte[] hdr = new byte[5];
@@ -338,7 +347,7 @@ final class ConnectionImpl implements Connection {
                 lock.notify();
                 if (writeDone) throw new IOException("Write channel closed");
                 if (readDone) {
-                    readExecutor.execute(new Runnable() {
+                    dispatcher.execute(new Runnable() {
                         public void run() {
                             safeHandleFinished();
                         }
@@ -0,0 +1,204 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.jboss.as.protocol.ProtocolConstants.*;
+
+/**
+ * Incremental decoder for the {@code CHUNK_START}/{@code CHUNK_END} message framing.  Bytes may be fed in
+ * arbitrarily sized pieces.  Each message is passed to the {@link Listener} as soon as it starts; its data is
+ * copied into pooled buffers which are handed to the message stream as they fill, so the decoder never waits
+ * for the message to be consumed.  Instead, {@link #decode(ByteBuffer)} reports when a message stream holds as
+ * many unconsumed bytes as it may queue, and the caller should stop reading until the resume task is run.
+ * Instances are not thread safe.
+ */
+final class MessageFrameDecoder {
+
+    private static final int STATE_COMMAND = 0;
+    private static final int STATE_LENGTH = 1;
+    private static final int STATE_DATA = 2;
+
+    private final BufferPool bufferPool;
+    private final int maxQueuedBytes;
+    private final Runnable resumeTask;
+    private final Listener listener;
+
+    private int state = STATE_COMMAND;
+    private int length;
+    private int lengthBytes;
+    private BufferInputStream message;
+    private ByteBuffer current;
+
+    MessageFrameDecoder(final BufferPool bufferPool, final Listener listener) {
+        this(bufferPool, BufferInputStream.DEFAULT_MAX_QUEUED_BYTES, null, listener);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param bufferPool the pool of the buffers message data is copied into
+     * @param maxQueuedBytes the number of unconsumed bytes of a message at which reading should stop
+     * @param resumeTask the task run once a message which stopped reading has been drained; it may be run by the
+     *      consumer of the message with the message's monitor held, so it must not block
+     * @param listener the listener for decoded messages
+     */
+    MessageFrameDecoder(final BufferPool bufferPool, final int maxQueuedBytes, final Runnable resumeTask, final Listener listener) {
+        this.bufferPool = bufferPool;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.resumeTask = resumeTask;
+        this.listener = listener;
+    }
+
+    /**
+     * Decode all the remaining bytes of the given buffer.  The bytes are always consumed, so the amount queued
+     * beyond the bound is at most the size of the buffer.
+     *
+     * @param buffer the buffer to decode
+     * @return {@code true} if reading may go on, {@code false} if it should stop until the resume task is run
+     * @throws IOException if the stream is not correctly framed
+     */
+    boolean decode(final ByteBuffer buffer) throws IOException {
+        boolean more = true;
+        while (buffer.hasRemaining()) {
+            switch (state) {
+                case STATE_COMMAND: {
+                    final int cmd = buffer.get() & 0xff;
+                    switch (cmd) {
+                        case CHUNK_START: {
+                            if (message == null) {
+                                // new message!
+                                message = new BufferInputStream(bufferPool, maxQueuedBytes, resumeTask);
+                                listener.handleMessage(message);
+                            }
+                            length = 0;
+                            lengthBytes = 0;
+                            state = STATE_LENGTH;
+                            break;
+                        }
+                        case CHUNK_END: {
+                            if (message != null) {
+                                // end message
+                                message.finish();
+                                message = null;
+                            }
+                            break;
+                        }
+                        default: {
+                            throw new IOException("Invalid command byte read: " + cmd);
+                        }
+                    }
+                    break;
+                }
+                case STATE_LENGTH: {
+                    length = (length << 8) | (buffer.get() & 0xff);
+                    if (++lengthBytes == 4) {
+                        if (length < 0) {
+                            throw new IOException("Invalid chunk size read: " + length);
+                        }
+                        state = length == 0 ? STATE_COMMAND : STATE_DATA;
+                    }
+                    break;
+                }
+                case STATE_DATA: {
+                    ByteBuffer current = this.current;
+                    if (current == null) {
+                        current = this.current = bufferPool.take();
+                    }
+                    final int cnt = Math.min(length, Math.min(buffer.remaining(), current.remaining()));
+                    final int limit = buffer.limit();
+                    buffer.limit(buffer.position() + cnt);
+                    current.put(buffer);
+                    buffer.limit(limit);
+                    length -= cnt;
+                    if (length == 0 || ! current.hasRemaining()) {
+                        current.flip();
+                        this.current = null;
+                        if (! message.push(current)) {
+                            more = false;
+                        }
+                    }
+                    if (length == 0) {
+                        state = STATE_COMMAND;
+                    }
+                    break;
+                }
+                default: {
+                    throw new IllegalStateException();
+                }
+            }
+        }
+        return more;
+    }
+
+    /**
+     * Signal the end of input.  A message which was started but not ended is terminated as though a
+     * {@code CHUNK_END} had been received, just like the blocking reader does.
+     *
+     * @throws EOFException if the stream ended in the middle of a chunk
+     */
+    void endOfInput() throws EOFException {
+        if (state != STATE_COMMAND) {
+            final EOFException e = new EOFException("Unexpected end of stream");
+            fail(e);
+            throw e;
+        }
+        if (message != null) {
+            message.finish();
+            message = null;
+        }
+    }
+
+    /**
+     * Abort the message in progress, if any, because of a read failure.
+     *
+     * @param cause the read failure
+     */
+    void fail(final IOException cause) {
+        if (current != null) {
+            bufferPool.free(current);
+            current = null;
+        }
+        if (message != null) {
+            message.fail(cause);
+            message = null;
+        }
+    }
+
+    /**
+     * Callback for decoded messages.
+     */
+    interface Listener {
+
+        /**
+         * Handle a new message.  The message data will become readable from the stream as it is decoded.
+         *
+         * @param message the message stream
+         */
+        void handleMessage(InputStream message);
+    }
+}
@@ -0,0 +1,467 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.protocol;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import org.jboss.logging.Logger;
+
+import static org.jboss.as.protocol.ProtocolConstants.*;
+
+/**
+ * A connection over a non-blocking {@link SocketChannel} which is read by a {@link SelectorThread}.  Inbound
+ * messages are decoded on the selector thread into pooled buffers and handed to the message handler, one at a
+ * time and in order, on the read executor.  While the handler has a message's worth of unconsumed bytes queued,
+ * the channel is not read.  Writes go straight to the channel; whatever the channel does not accept immediately is
+ * queued and flushed by the selector thread.
+ */
+final class NioConnectionImpl implements Connection {
+
+    private static final Logger log = Logger.getLogger("org.jboss.as.protocol.connection");
+
+    /**
+     * The number of queued outbound bytes at which writers start to block.
+     */
+    private static final int MAX_QUEUED_BYTES = 65536;
+
+    private final SocketChannel channel;
+    private final SelectorThread selectorThread;
+    private final OrderedExecutor dispatcher;
+    private final MessageFrameDecoder decoder;
+
+    private final Object lock = new Object();
+    // protected by {@link #lock}
+    private OutputStream sender;
+    // protected by {@link #lock}
+    private boolean readDone;
+    // protected by {@link #lock}
+    private boolean writeDone;
+    // protected by {@link #lock}
+    private SelectionKey key;
+    // protected by {@link #lock}
+    private final Queue<ByteBuffer> writeQueue = new ArrayDeque<ByteBuffer>();
+    // protected by {@link #lock}
+    private int queuedBytes;
+
+    // only accessed from the selector thread
+    private boolean readsEnded;
+
+    private volatile MessageHandler messageHandler;
+    private volatile Object attachment;
+
+    NioConnectionImpl(final SocketChannel channel, final SelectorThread selectorThread, final MessageHandler handler, final Executor readExecutor) {
+        this.channel = channel;
+        this.selectorThread = selectorThread;
+        dispatcher = new OrderedExecutor(readExecutor);
+        messageHandler = handler;
+        decoder = new MessageFrameDecoder(selectorThread.getBufferPool(), BufferInputStream.DEFAULT_MAX_QUEUED_BYTES, new Runnable() {
+            public void run() {
+                selectorThread.execute(new Runnable() {
+                    public void run() {
+                        resumeReads();
+                    }
+                });
+            }
+        }, new MessageFrameDecoder.Listener() {
+            public void handleMessage(final InputStream message) {
+                dispatcher.execute(new Runnable() {
+                    public void run() {
+                        safeHandleMessage(message);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Register this connection with its selector thread, which starts the reading of messages.
+     */
+    void register() {
+        selectorThread.execute(new Runnable() {
+            public void run() {
+                synchronized (lock) {
+                    try {
+                        final int ops = writeQueue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+                        key = channel.register(selectorThread.getSelector(), ops, NioConnectionImpl.this);
+                    } catch (ClosedChannelException e) {
+                        log.tracef("Channel closed before it could be registered");
+                    }
+                }
+            }
+        });
+    }
+
+    public OutputStream writeMessage() throws IOException {
+        final OutputStream os;
+        synchronized (lock) {
+            if (writeDone) {
+                throw new IOException("Writes are already shut down");
+            }
+            while (sender != null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            boolean ok = false;
+            try {
+                sender = new MessageOutputStream();
+                os = new BufferedOutputStream(sender);
+                ok = true;
+            } finally {
+                if (! ok) {
+                    // let someone else try
+                    lock.notify();
+                }
+            }
+        }
+        return os;
+    }
+
+    public void shutdownWrites() throws IOException {
+        synchronized (lock) {
+            if (writeDone) return;
+            while (sender != null || ! writeQueue.isEmpty()) {
+                if (! channel.isOpen()) {
+                    break;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            writeDone = true;
+            if (readDone) {
+                channel.close();
+            } else {
+                channel.socket().shutdownOutput();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    public void close() throws IOException {
+        synchronized (lock) {
+            sender = null;
+            readDone = true;
+            writeDone = true;
+            writeQueue.clear();
+            queuedBytes = 0;
+            channel.close();
+            lock.notifyAll();
+        }
+    }
+
+    public void setMessageHandler(final MessageHandler messageHandler) {
+        if (messageHandler == null) {
+            throw new IllegalArgumentException("messageHandler is null");
+        }
+        this.messageHandler = messageHandler;
+    }
+
+    public InetAddress getPeerAddress() {
+        return channel.socket().getInetAddress();
+    }
+
+    public void attach(final Object attachment) {
+        this.attachment = attachment;
+    }
+
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    /**
+     * Read whatever is available from the channel.  Called from the selector thread.
+     */
+    void handleReadable() {
+        final ByteBuffer buffer = selectorThread.getReadBuffer();
+        buffer.clear();
+        try {
+            final int res = channel.read(buffer);
+            if (res == -1) {
+                log.trace("Received end of stream");
+                readsEnded = true;
+                suspendReads();
+                decoder.endOfInput();
+                dispatcher.execute(new Runnable() {
+                    public void run() {
+                        safeHandleShutdown();
+                        boolean done;
+                        synchronized (lock) {
+                            readDone = true;
+                            done = writeDone;
+                        }
+                        if (done) {
+                            StreamUtils.safeClose(channel);
+                            safeHandleFinished();
+                        }
+                    }
+                });
+                return;
+            }
+            log.tracef("Received %d bytes", Integer.valueOf(res));
+            buffer.flip();
+            if (! decoder.decode(buffer)) {
+                // the handler has fallen behind; read on once it catches up
+                log.trace("Suspending reads until the message is consumed");
+                suspendReads();
+            }
+        } catch (final IOException e) {
+            readsEnded = true;
+            suspendReads();
+            decoder.fail(e);
+            dispatcher.execute(new Runnable() {
+                public void run() {
+                    safeHandlerFailure(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Flush queued writes to the channel.  Called from the selector thread.
+     */
+    void handleWritable() {
+        synchronized (lock) {
+            try {
+                ByteBuffer buffer;
+                while ((buffer = writeQueue.peek()) != null) {
+                    queuedBytes -= channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        return;
+                    }
+                    writeQueue.poll();
+                }
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            } catch (IOException e) {
+                log.errorf(e, "Failed to write queued data to %s", channel.socket().getRemoteSocketAddress());
+                writeQueue.clear();
+                queuedBytes = 0;
+                StreamUtils.safeClose(channel);
+            } finally {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void suspendReads() {
+        synchronized (lock) {
+            try {
+                if (key != null && key.isValid()) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                }
+            } catch (CancelledKeyException e) {
+                // already closed
+            }
+        }
+    }
+
+    /**
+     * Read again after the handler caught up.  Called from the selector thread.
+     */
+    private void resumeReads() {
+        synchronized (lock) {
+            try {
+                if (key != null && key.isValid() && ! readsEnded) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                }
+            } catch (CancelledKeyException e) {
+                // already closed
+            }
+        }
+    }
+
+    /**
+     * Send the given buffers, queueing whatever cannot be written right away.  Must be called with {@link #lock} held.
+     *
+     * @param buffers the buffers to send
+     * @throws IOException if the write fails
+     */
+    private void send(final ByteBuffer... buffers) throws IOException {
+        final boolean wasEmpty = writeQueue.isEmpty();
+        if (wasEmpty) {
+            channel.write(buffers);
+        }
+        for (ByteBuffer buffer : buffers) {
+            final int remaining = buffer.remaining();
+            if (remaining > 0) {
+                // the caller owns the buffer, so take a copy
+                final ByteBuffer copy = ByteBuffer.allocate(remaining);
+                copy.put(buffer);
+                copy.flip();
+                writeQueue.add(copy);
+                queuedBytes += remaining;
+            }
+        }
+        if (wasEmpty && ! writeQueue.isEmpty()) {
+            selectorThread.execute(new Runnable() {
+                public void run() {
+                    synchronized (lock) {
+                        try {
+                            if (key != null && key.isValid() && ! writeQueue.isEmpty()) {
+                                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                            }
+                        } catch (CancelledKeyException e) {
+                            // already closed
+                        }
+                    }
+                }
+            });
+        }
+        while (queuedBytes > MAX_QUEUED_BYTES) {
+            if (! channel.isOpen()) {
+                throw new IOException("Write channel closed");
+            }
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    void safeHandleMessage(final InputStream pis) {
+        try {
+            messageHandler.handleMessage(this, pis);
+        } catch (RuntimeException e) {
+            log.errorf(e, "Failed to read a message");
+        } catch (IOException e) {
+            log.errorf(e, "Failed to read a message");
+        } catch (NoClassDefFoundError e) {
+            log.errorf(e, "Failed to read a message");
+        } catch (Error e) {
+            log.errorf(e, "Failed to read a message");
+            throw e;
+        } finally {
+            StreamUtils.safeClose(pis);
+        }
+    }
+
+    void safeHandleShutdown() {
+        try {
+            messageHandler.handleShutdown(this);
+        } catch (IOException e) {
+            log.errorf(e, "Failed to handle socket shut down condition");
+        }
+    }
+
+    void safeHandleFinished() {
+        try {
+            messageHandler.handleFinished(this);
+        } catch (IOException e) {
+            log.errorf(e, "Failed to handle socket finished condition");
+        }
+    }
+
+    void safeHandlerFailure(IOException e) {
+        try {
+            messageHandler.handleFailure(this, e);
+        } catch (IOException e1) {
+            log.errorf(e1, "Failed to handle socket failure condition");
+        }
+    }
+
+    final class MessageOutputStream extends OutputStream {
+        private final byte[] hdr = new byte[5];
+
+        @Override
+        public void write(final int b) throws IOException {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            final byte[] hdr = this.hdr;
+            hdr[0] = (byte) CHUNK_START;
+            hdr[1] = (byte) (len >> 24);
+            hdr[2] = (byte) (len >> 16);
+            hdr[3] = (byte) (len >> 8);
+            hdr[4] = (byte) (len >> 0);
+            synchronized (lock) {
+                if (sender != this || writeDone) {
+                    if (sender == this) sender = null;
+                    lock.notifyAll();
+                    throw new IOException("Write channel closed");
+                }
+                log.tracef("Sending data chunk of size %d", Integer.valueOf(len));
+                send(ByteBuffer.wrap(hdr), ByteBuffer.wrap(b, off, len));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (lock) {
+                if (sender != this) {
+                    return;
+                }
+                sender = null;
+                // wake up waiters
+                lock.notifyAll();
+                if (writeDone) throw new IOException("Write channel closed");
+                if (readDone) {
+                    dispatcher.execute(new Runnable() {
+                        public void run() {
+                            safeHandleFinished();
+                        }
+                    });
+                }
+                log.tracef("Sending end of message");
+                send(ByteBuffer.wrap(new byte[] { (byte) CHUNK_END }));
+            }
+        }
+
+        @Override
+        protected void finalize() throws Throwable {
+            super.finalize();
+            synchronized (lock) {
+                if (sender == this) {
+                    log.warnf("Leaked a message output stream; cleaning");
+                    close();
+                }
+            }
+        }
+    }
+}
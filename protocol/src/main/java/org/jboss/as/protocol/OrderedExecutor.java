@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.protocol;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.jboss.logging.Logger;
+
+/**
+ * An executor which runs its tasks one at a time, in submission order, on a delegate executor.  Connections use
+ * it to hand messages to their {@link MessageHandler} without the reading side ever waiting on the handler, while
+ * still preserving the guarantee that a message is not handled until the previous one has been.
+ */
+public final class OrderedExecutor implements Executor {
+
+    private static final Logger log = Logger.getLogger("org.jboss.as.protocol.connection");
+
+    private final Executor delegate;
+    // protected by {@link #tasks}
+    private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+    // protected by {@link #tasks}
+    private boolean running;
+
+    private final Runnable runner = new Runnable() {
+        public void run() {
+            for (;;) {
+                final Runnable task;
+                synchronized (tasks) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                boolean ok = false;
+                try {
+                    task.run();
+                    ok = true;
+                } catch (RuntimeException e) {
+                    log.errorf(e, "Failed to execute a connection task");
+                    ok = true;
+                } finally {
+                    if (! ok) {
+                        // an error is propagating out of this thread; carry on with the remaining tasks elsewhere
+                        final boolean more;
+                        synchronized (tasks) {
+                            more = ! tasks.isEmpty();
+                            running = more;
+                        }
+                        if (more) {
+                            submit();
+                        }
+                    }
+                }
+            }
+        }
+    };
+
+    /**
+     * Construct a new instance.
+     *
+     * @param delegate the executor which runs the tasks
+     */
+    public OrderedExecutor(final Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    public void execute(final Runnable task) {
+        synchronized (tasks) {
+            tasks.add(task);
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        submit();
+    }
+
+    private void submit() {
+        try {
+            delegate.execute(runner);
+        } catch (RejectedExecutionException e) {
+            log.errorf(e, "Failed to dispatch a connection task");
+            synchronized (tasks) {
+                tasks.clear();
+                running = false;
+            }
+        }
+    }
+}
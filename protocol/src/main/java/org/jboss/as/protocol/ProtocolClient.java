@@ -25,6 +25,7 @@ package org.jboss.as.protocol;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 import org.jboss.logging.Logger;
@@ -47,6 +48,7 @@ public final class ProtocolClient {
     private final int connectTimeout;
     private final int readTimeout;
     private final Executor readExecutor;
+    private final SelectorPool selectorPool;
 
     public ProtocolClient(final Configuration configuration) {
         threadFactory = configuration.getThreadFactory();
@@ -57,10 +59,11 @@ public final class ProtocolClient {
         serverAddress = configuration.getServerAddress();
         readTimeout = configuration.getReadTimeout();
         readExecutor = configuration.getReadExecutor();
-        if (threadFactory == null) {
+        selectorPool = configuration.getSelectorPool();
+        if (threadFactory == null && selectorPool == null) {
             throw new IllegalArgumentException("threadFactory is null");
         }
-        if (socketFactory == null) {
+        if (socketFactory == null && selectorPool == null) {
             throw new IllegalArgumentException("factory is null");
         }
         if (serverAddress == null) {
@@ -76,6 +79,9 @@ public final class ProtocolClient {
 
     public Connection connect() throws IOException {
         log.tracef("Creating connection to %s", serverAddress);
+        if (selectorPool != null) {
+            return connectChannel();
+        }
         final Socket socket = socketFactory.createSocket();
         final ConnectionImpl connection = new ConnectionImpl(socket, messageHandler, readExecutor);
         final Thread thread = threadFactory.newThread(connection.getReadTask());
@@ -91,6 +97,25 @@ public final class ProtocolClient {
         return connection;
     }
 
+    private Connection connectChannel() throws IOException {
+        final SocketChannel channel = SocketChannel.open();
+        boolean ok = false;
+        try {
+            if (bindAddress != null) channel.socket().bind(bindAddress);
+            channel.socket().connect(serverAddress, connectTimeout);
+            channel.configureBlocking(false);
+            final NioConnectionImpl connection = new NioConnectionImpl(channel, selectorPool.nextSelectorThread(), messageHandler, readExecutor);
+            connection.register();
+            ok = true;
+            log.tracef("Connected to %s", serverAddress);
+            return connection;
+        } finally {
+            if (! ok) {
+                StreamUtils.safeClose(channel);
+            }
+        }
+    }
+
     public static final class Configuration {
         private ThreadFactory threadFactory;
         private SocketFactory socketFactory;
@@ -98,6 +123,7 @@ public final class ProtocolClient {
         private MessageHandler messageHandler;
         private InetSocketAddress bindAddress;
         private Executor readExecutor;
+        private SelectorPool selectorPool;
         private int connectTimeout = 0;
         private int readTimeout = 0;
 
@@ -167,5 +193,20 @@ public final class ProtocolClient {
         public void setReadTimeout(final int readTimeout) {
             this.readTimeout = readTimeout;
         }
+
+        public SelectorPool getSelectorPool() {
+            return selectorPool;
+        }
+
+        /**
+         * Set the selector pool used to read the connection.  If {@code null} (the default) the connection is
+         * read by a thread of its own.  The read timeout, socket factory and thread factory are not used when a
+         * pool is set.
+         *
+         * @param selectorPool the selector pool
+         */
+        public void setSelectorPool(final SelectorPool selectorPool) {
+            this.selectorPool = selectorPool;
+        }
     }
 }
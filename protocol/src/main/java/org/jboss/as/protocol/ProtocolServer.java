@@ -26,6 +26,9 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 import org.jboss.logging.Logger;
@@ -46,6 +49,7 @@ public final class ProtocolServer {
     private final int backlog;
     private final int readTimeout;
     private final Executor readExecutor;
+    private final SelectorPool selectorPool;
     private volatile boolean stop;
     private volatile Thread thread;
     private volatile InetSocketAddress boundAddress;
@@ -58,6 +62,7 @@ public final class ProtocolServer {
         backlog = configuration.getBacklog();
         readTimeout = configuration.getReadTimeout();
         readExecutor = configuration.getReadExecutor();
+        selectorPool = configuration.getSelectorPool();
         if (bindAddress == null) {
             throw new IllegalArgumentException("bindAddress is null");
         }
@@ -68,6 +73,10 @@ public final class ProtocolServer {
 
     public void start() throws IOException {
         stop = false;
+        if (selectorPool != null) {
+            startSelecting();
+            return;
+        }
         final ServerSocket serverSocket = socketFactory.createServerSocket();
         thread = threadFactory.newThread(new Runnable() {
             public void run() {
@@ -111,6 +120,40 @@ public final class ProtocolServer {
         thread.start();
     }
 
+    private void startSelecting() throws IOException {
+        final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        thread = threadFactory.newThread(new Runnable() {
+            public void run() {
+                try {
+                    while (serverChannel.isOpen() && ! stop) {
+                        try {
+                            safeHandleConnection(serverChannel.accept());
+                        } catch (ClosedChannelException e) {
+                            // closed by stop()
+                            break;
+                        } catch (IOException e) {
+                            log.errorf(e, "Failed to accept a connection");
+                        }
+                    }
+                } finally {
+                    try {
+                        serverChannel.close();
+                    } catch (IOException e) {
+                        log.errorf(e, "Failed to close the server socket");
+                    }
+                }
+            }
+        });
+        if (thread == null) {
+            serverChannel.close();
+            throw new IOException("Failed to create server thread");
+        }
+        thread.setName("Accept thread");
+        serverChannel.socket().bind(bindAddress, backlog);
+        boundAddress = (InetSocketAddress) serverChannel.socket().getLocalSocketAddress();
+        thread.start();
+    }
+
     public void stop() {
         stop = true;
         final Thread thread = this.thread;
@@ -145,6 +188,23 @@ public final class ProtocolServer {
         }
     }
 
+    private void safeHandleConnection(final SocketChannel channel) {
+        boolean ok = false;
+        try {
+            channel.configureBlocking(false);
+            final NioConnectionImpl connection = new NioConnectionImpl(channel, selectorPool.nextSelectorThread(), MessageHandler.NULL, readExecutor);
+            connection.setMessageHandler(connectionHandler.handleConnected(connection));
+            connection.register();
+            ok = true;
+        } catch (IOException e) {
+            log.errorf(e, "Failed to handle incoming connection");
+        } finally {
+            if (! ok) {
+                StreamUtils.safeClose(channel);
+            }
+        }
+    }
+
     public InetSocketAddress getBoundAddress() {
         return boundAddress;
     }
@@ -158,6 +218,7 @@ public final class ProtocolServer {
         private int backlog;
         private int readTimeout;
         private Executor readExecutor;
+        private SelectorPool selectorPool;
 
         public ThreadFactory getThreadFactory() {
             return threadFactory;
@@ -222,5 +283,19 @@ public final class ProtocolServer {
         public void setReadExecutor(final Executor readExecutor) {
             this.readExecutor = readExecutor;
         }
+
+        public SelectorPool getSelectorPool() {
+            return selectorPool;
+        }
+
+        /**
+         * Set the selector pool used to read incoming connections.  If {@code null} (the default) each connection is
+         * read by a thread of its own.  The read timeout and socket factory are not used when a pool is set.
+         *
+         * @param selectorPool the selector pool
+         */
+        public void setSelectorPool(final SelectorPool selectorPool) {
+            this.selectorPool = selectorPool;
+        }
     }
 }
@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.protocol;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of selector threads shared by any number of {@link ProtocolServer}s and {@link ProtocolClient}s.
+ * When a pool is given to a server or client configuration, connections are read by these few threads
+ * instead of by a dedicated read thread per connection.  Each complete message is still delivered to the
+ * connection's {@link MessageHandler} on the configured read executor.
+ */
+public final class SelectorPool {
+
+    private final ThreadFactory threadFactory;
+    private final int threadCount;
+    private final BufferPool bufferPool;
+    private final AtomicInteger next = new AtomicInteger();
+    // protected by {@code this}
+    private SelectorThread[] selectorThreads;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param threadFactory the factory used to create the selector threads
+     * @param threadCount the number of selector threads
+     */
+    public SelectorPool(final ThreadFactory threadFactory, final int threadCount) {
+        this(threadFactory, threadCount, false);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param threadFactory the factory used to create the selector threads
+     * @param threadCount the number of selector threads
+     * @param directBuffers {@code true} to receive message data into direct buffers
+     */
+    public SelectorPool(final ThreadFactory threadFactory, final int threadCount, final boolean directBuffers) {
+        if (threadFactory == null) {
+            throw new IllegalArgumentException("threadFactory is null");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be at least 1");
+        }
+        this.threadFactory = threadFactory;
+        this.threadCount = threadCount;
+        bufferPool = new BufferPool(8192, 64 * threadCount, directBuffers);
+    }
+
+    /**
+     * Start the selector threads.
+     *
+     * @throws IOException if a selector could not be opened
+     */
+    public synchronized void start() throws IOException {
+        if (selectorThreads != null) {
+            return;
+        }
+        final SelectorThread[] selectorThreads = new SelectorThread[threadCount];
+        int started = 0;
+        boolean ok = false;
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                final SelectorThread selectorThread = new SelectorThread(bufferPool);
+                selectorThreads[i] = selectorThread;
+                final Thread thread = threadFactory.newThread(selectorThread);
+                if (thread == null) {
+                    throw new IOException("Failed to create selector thread");
+                }
+                thread.setName("Selector thread " + (i + 1));
+                thread.start();
+                started++;
+            }
+            ok = true;
+        } finally {
+            if (! ok) {
+                for (int i = 0; i < threadCount; i++) {
+                    final SelectorThread selectorThread = selectorThreads[i];
+                    if (selectorThread == null) {
+                        break;
+                    }
+                    if (i < started) {
+                        // the running thread closes its selector on the way out
+                        selectorThread.stop();
+                    } else {
+                        selectorThread.close();
+                    }
+                }
+            }
+        }
+        this.selectorThreads = selectorThreads;
+    }
+
+    /**
+     * Stop the selector threads.  Any connection still registered with the pool is closed.
+     */
+    public synchronized void stop() {
+        final SelectorThread[] selectorThreads = this.selectorThreads;
+        if (selectorThreads == null) {
+            return;
+        }
+        this.selectorThreads = null;
+        for (SelectorThread selectorThread : selectorThreads) {
+            selectorThread.stop();
+        }
+    }
+
+    /**
+     * Choose the selector thread for a new connection.
+     *
+     * @return the selector thread
+     */
+    synchronized SelectorThread nextSelectorThread() {
+        final SelectorThread[] selectorThreads = this.selectorThreads;
+        if (selectorThreads == null) {
+            throw new IllegalStateException("Selector pool is not started");
+        }
+        return selectorThreads[(next.getAndIncrement() & Integer.MAX_VALUE) % selectorThreads.length];
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A single I/O thread which multiplexes the reads and pending writes of many {@link NioConnectionImpl}s.
+ * Interest changes and registrations are always run on the selector thread itself by way of
+ * {@link #execute(Runnable)}.
+ *
+ * @see SelectorPool
+ */
+final class SelectorThread implements Runnable {
+    private static final Logger log = Logger.getLogger("org.jboss.as.protocol.selector");
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    // only accessed from the selector thread
+    private final ByteBuffer readBuffer;
+    private final BufferPool bufferPool;
+    private volatile boolean stop;
+
+    SelectorThread(final BufferPool bufferPool) throws IOException {
+        this.bufferPool = bufferPool;
+        readBuffer = bufferPool.isDirect() ? ByteBuffer.allocateDirect(8192) : ByteBuffer.allocate(8192);
+        selector = Selector.open();
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Get the shared read buffer.  Must only be used from the selector thread.
+     *
+     * @return the read buffer
+     */
+    ByteBuffer getReadBuffer() {
+        return readBuffer;
+    }
+
+    BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Run a task on the selector thread.
+     *
+     * @param task the task
+     */
+    void execute(final Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    void stop() {
+        stop = true;
+        selector.wakeup();
+    }
+
+    /**
+     * Close the selector of a selector thread which was never run.
+     */
+    void close() {
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.errorf(e, "Failed to close selector");
+        }
+    }
+
+    public void run() {
+        try {
+            while (! stop) {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        log.errorf(e, "Failed to run a selector task");
+                    }
+                }
+                selector.select();
+                final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    final SelectionKey key = iterator.next();
+                    iterator.remove();
+                    final NioConnectionImpl connection = (NioConnectionImpl) key.attachment();
+                    try {
+                        if (key.isValid() && key.isWritable()) {
+                            connection.handleWritable();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.handleReadable();
+                        }
+                    } catch (CancelledKeyException e) {
+                        // connection was closed concurrently
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.errorf(e, "Selector failed");
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                StreamUtils.safeClose((NioConnectionImpl) key.attachment());
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.errorf(e, "Failed to close selector");
+            }
+        }
+    }
+}
@@ -22,6 +22,8 @@
 
 package org.jboss.as.protocol;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
@@ -225,6 +227,24 @@ public final class StreamUtils {
         }
     }
 
+    /**
+     * Take over an inbound message stream so that it can still be read once the message handler it was passed to
+     * returns, which is when the connection closes it.  Messages received from a connection are taken over without
+     * copying; any other stream is read fully into memory.
+     *
+     * @param message the message stream passed to the handler
+     * @return a stream over the rest of the message, which the caller must close
+     * @throws IOException if the message cannot be read
+     */
+    public static InputStream retainMessage(final InputStream message) throws IOException {
+        if (message instanceof BufferInputStream) {
+            return ((BufferInputStream) message).retain();
+        }
+        final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        copyStream(message, copy);
+        return new ByteArrayInputStream(copy.toByteArray());
+    }
+
     public static String readUTFZBytes(final InputStream input) throws IOException {
         final StringBuilder builder = new StringBuilder();
         for (;;) {
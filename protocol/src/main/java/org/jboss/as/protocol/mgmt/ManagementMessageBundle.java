@@ -0,0 +1,245 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.protocol.mgmt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.as.protocol.Connection;
+import org.jboss.as.protocol.MessageHandler;
+import org.jboss.as.protocol.StreamUtils;
+import static org.jboss.as.protocol.StreamUtils.safeClose;
+
+/**
+ * The messages of one side of a management exchange, carried by a single message.  From protocol version
+ * {@link ManagementProtocol#SINGLE_MESSAGE_VERSION} the request messages follow the request header and the response
+ * messages follow the response header, each as a length-prefixed part, so a request costs one message each way
+ * instead of four.  A {@link ManagementRequest#isStreamed() streamed} request sends no parts with its header, and
+ * the rest of its exchange continues with messages of their own.
+ * <p>
+ * The bundle acts as the connection of the handlers of each stage: messages they write are collected as parts, and
+ * the handler they install is the one the next part is passed to.
+ */
+public final class ManagementMessageBundle implements Connection {
+    private final Connection connection;
+    private final List<Part> parts = new ArrayList<Part>();
+    private MessageHandler messageHandler;
+
+    /**
+     * Create a bundle used to collect messages.
+     *
+     * @param connection the connection the bundle is sent on
+     */
+    public ManagementMessageBundle(final Connection connection) {
+        this(connection, MessageHandler.NULL);
+    }
+
+    /**
+     * Create a bundle used to collect messages and to pass received parts to the given handler.
+     *
+     * @param connection the connection the bundle is sent on
+     * @param messageHandler the handler of the first received part
+     */
+    public ManagementMessageBundle(final Connection connection, final MessageHandler messageHandler) {
+        if (connection == null) {
+            throw new IllegalArgumentException("connection is null");
+        }
+        if (messageHandler == null) {
+            throw new IllegalArgumentException("messageHandler is null");
+        }
+        this.connection = connection;
+        this.messageHandler = messageHandler;
+    }
+
+    /**
+     * Pass each part remaining in the input to the current message handler, as though it were a message of its own.
+     *
+     * @param input the input, positioned after the header
+     * @throws IOException if a part cannot be read or handled
+     */
+    public void dispatch(final InputStream input) throws IOException {
+        int b;
+        while ((b = input.read()) != -1) {
+            final int length = b << 24 | StreamUtils.readUnsignedByte(input) << 16 | StreamUtils.readUnsignedByte(input) << 8 | StreamUtils.readUnsignedByte(input);
+            if (length < 0) {
+                throw new IOException("Invalid message part length " + length);
+            }
+            final PartInputStream partInput = new PartInputStream(input, length);
+            try {
+                messageHandler.handleMessage(this, partInput);
+            } finally {
+                partInput.skipRemaining();
+            }
+        }
+    }
+
+    /**
+     * Write the collected messages as parts of a message.
+     *
+     * @param output the message output, positioned after the header
+     * @throws IOException if an error occurs
+     */
+    public void writeTo(final OutputStream output) throws IOException {
+        for (Part part : parts) {
+            StreamUtils.writeInt(output, part.size());
+            part.writeTo(output);
+        }
+    }
+
+    /**
+     * Send each of the collected messages as a message of its own, for peers which do not support bundling.
+     *
+     * @throws IOException if an error occurs
+     */
+    public void send() throws IOException {
+        for (Part part : parts) {
+            final OutputStream output = connection.writeMessage();
+            try {
+                part.writeTo(output);
+                output.close();
+            } finally {
+                safeClose(output);
+            }
+        }
+    }
+
+    /**
+     * Get the message handler last installed by a handler of this bundle.
+     *
+     * @return the message handler
+     */
+    public MessageHandler getMessageHandler() {
+        return messageHandler;
+    }
+
+    /** {@inheritDoc} */
+    public OutputStream writeMessage() throws IOException {
+        return new Part();
+    }
+
+    /** {@inheritDoc} */
+    public void shutdownWrites() throws IOException {
+        connection.shutdownWrites();
+    }
+
+    /** {@inheritDoc} */
+    public void close() throws IOException {
+        connection.close();
+    }
+
+    /** {@inheritDoc} */
+    public void setMessageHandler(final MessageHandler messageHandler) {
+        if (messageHandler == null) {
+            throw new IllegalArgumentException("messageHandler is null");
+        }
+        this.messageHandler = messageHandler;
+    }
+
+    /** {@inheritDoc} */
+    public InetAddress getPeerAddress() {
+        return connection.getPeerAddress();
+    }
+
+    /** {@inheritDoc} */
+    public void attach(final Object attachment) {
+        connection.attach(attachment);
+    }
+
+    /** {@inheritDoc} */
+    public Object getAttachment() {
+        return connection.getAttachment();
+    }
+
+    private final class Part extends ByteArrayOutputStream {
+        private boolean closed;
+
+        public void close() {
+            if (! closed) {
+                closed = true;
+                parts.add(this);
+            }
+        }
+    }
+
+    /**
+     * Input limited to a single part, which leaves the underlying input open.
+     */
+    private static final class PartInputStream extends InputStream {
+        private final InputStream input;
+        private int remaining;
+
+        private PartInputStream(final InputStream input, final int length) {
+            this.input = input;
+            remaining = length;
+        }
+
+        public int read() throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            final int b = input.read();
+            if (b == -1) {
+                throw new IOException("Unexpected end of message part");
+            }
+            remaining--;
+            return b;
+        }
+
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining == 0) {
+                return -1;
+            }
+            final int cnt = input.read(b, off, Math.min(len, remaining));
+            if (cnt == -1) {
+                throw new IOException("Unexpected end of message part");
+            }
+            remaining -= cnt;
+            return cnt;
+        }
+
+        public int available() throws IOException {
+            return Math.min(remaining, input.available());
+        }
+
+        void skipRemaining() throws IOException {
+            while (remaining > 0) {
+                final long cnt = input.skip(remaining);
+                if (cnt <= 0) {
+                    StreamUtils.readByte(input);
+                    remaining--;
+                } else {
+                    remaining -= (int) cnt;
+                }
+            }
+        }
+    }
+}
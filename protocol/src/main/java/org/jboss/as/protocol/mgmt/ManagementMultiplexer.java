@@ -0,0 +1,604 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.protocol.mgmt;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.SocketFactory;
+
+import org.jboss.as.protocol.ByteDataInput;
+import org.jboss.as.protocol.ByteDataOutput;
+import org.jboss.as.protocol.Connection;
+import org.jboss.as.protocol.ConnectionHandler;
+import org.jboss.as.protocol.MessageHandler;
+import org.jboss.as.protocol.OrderedExecutor;
+import org.jboss.as.protocol.ProtocolClient;
+import org.jboss.as.protocol.SimpleByteDataInput;
+import org.jboss.as.protocol.SimpleByteDataOutput;
+import org.jboss.as.protocol.StreamUtils;
+import org.jboss.logging.Logger;
+
+import static org.jboss.as.protocol.StreamUtils.safeClose;
+
+/**
+ * Carries any number of concurrent management requests over a single {@link Connection}.  Every message on a
+ * multiplexed connection starts with the id of the logical channel it belongs to.  Each channel looks like an
+ * ordinary connection to the {@link ManagementRequest} or operation handler using it, so the existing
+ * request/response exchanges run unchanged, one per channel, and complete independently of each other.
+ * <p>
+ * A channel is discarded once its message handler is set back to {@link MessageHandler#NULL}, which is how
+ * both sides of a management exchange signal that they are done.
+ * <p>
+ * Channel messages are sent as a series of fragments of at most {@link #FRAGMENT_SIZE} bytes, each one a message
+ * of the underlying connection, so a large message never holds the shared connection for longer than one fragment
+ * and the fragments of different channels interleave.  The receiving handler starts as soon as the first fragment
+ * arrives.  If it falls behind, the connection stops reading once {@link #MAX_QUEUED_FRAGMENTS} fragments are
+ * waiting for it.
+ *
+ * @see ManagementRequestConnectionStrategy.MultiplexedConnectionStrategy
+ */
+public final class ManagementMultiplexer implements MessageHandler {
+    private static final Logger log = Logger.getLogger("org.jboss.as.management");
+
+    /**
+     * The longest time in milliseconds to wait for the answer to the request for a multiplexed connection.  Peers
+     * which predate multiplexing never answer, so this bounds how long it takes to fall back to a plain connection.
+     */
+    static final int HANDSHAKE_TIMEOUT = 5000;
+
+    /** The largest number of message bytes sent in one fragment. */
+    static final int FRAGMENT_SIZE = 16384;
+
+    /** The number of fragments queued for a channel's handler before the connection stops reading. */
+    static final int MAX_QUEUED_FRAGMENTS = 8;
+
+    private static final int FIRST_FRAGMENT = 0x01;
+    private static final int LAST_FRAGMENT = 0x02;
+
+    private final Connection connection;
+    private final Executor executor;
+    private final ConnectionHandler channelHandler;
+    private final ConcurrentMap<Integer, Channel> channels = new ConcurrentHashMap<Integer, Channel>();
+    private final AtomicInteger nextChannelId = new AtomicInteger();
+    // the messages still receiving fragments; only used by the connection's (serialized) message handling
+    private final Map<Integer, FragmentInputStream> incoming = new HashMap<Integer, FragmentInputStream>();
+    private volatile boolean closed;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param connection The underlying connection
+     * @param executor The executor used to run the handlers of each channel
+     * @param channelHandler The handler used to accept channels opened by the remote side, or {@code null} if
+     *                       only locally opened channels are allowed
+     */
+    public ManagementMultiplexer(final Connection connection, final Executor executor, final ConnectionHandler channelHandler) {
+        if (connection == null) {
+            throw new IllegalArgumentException("connection is null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor is null");
+        }
+        this.connection = connection;
+        this.executor = executor;
+        this.channelHandler = channelHandler;
+    }
+
+    /**
+     * Establish a new multiplexed connection to a remote management endpoint.
+     *
+     * @param address The remote address
+     * @param port The remote port
+     * @param connectTimeout The connect timeout in seconds; the wait for the remote side to accept multiplexing is
+     *                       additionally bounded by {@link #HANDSHAKE_TIMEOUT}
+     * @param executorService The executor service
+     * @param threadFactory The thread factory
+     * @return The multiplexer for the new connection
+     * @throws IOException If the connection could not be established
+     * @throws ManagementException If the remote side does not support multiplexed connections
+     */
+    public static ManagementMultiplexer connect(final InetAddress address, final int port, final long connectTimeout, final ExecutorService executorService, final ThreadFactory threadFactory) throws IOException {
+        final int timeout = (int) TimeUnit.SECONDS.toMillis(connectTimeout);
+        final HandshakeHandler handshakeHandler = new HandshakeHandler(executorService);
+
+        final ProtocolClient.Configuration config = new ProtocolClient.Configuration();
+        config.setMessageHandler(handshakeHandler);
+        config.setConnectTimeout(timeout);
+        config.setReadExecutor(executorService);
+        config.setSocketFactory(SocketFactory.getDefault());
+        config.setServerAddress(new InetSocketAddress(address, port));
+        config.setThreadFactory(threadFactory);
+
+        final Connection connection = new ProtocolClient(config).connect();
+        boolean ok = false;
+        try {
+            OutputStream dataOutput = null;
+            ByteDataOutput output = null;
+            try {
+                dataOutput = connection.writeMessage();
+                output = new SimpleByteDataOutput(dataOutput);
+                final ManagementRequestHeader header = new ManagementRequestHeader(ManagementProtocol.VERSION, 0, ManagementProtocol.MULTIPLEXED_CONNECTION);
+                header.write(output);
+                output.close();
+                dataOutput.close();
+            } finally {
+                safeClose(output);
+                safeClose(dataOutput);
+            }
+            final ManagementMultiplexer multiplexer = handshakeHandler.await(timeout == 0 ? HANDSHAKE_TIMEOUT : Math.min(timeout, HANDSHAKE_TIMEOUT));
+            ok = true;
+            return multiplexer;
+        } finally {
+            if (! ok) {
+                safeClose(connection);
+            }
+        }
+    }
+
+    /**
+     * Open a new channel for a locally initiated request.
+     *
+     * @return The channel
+     * @throws IOException If the multiplexed connection is closed
+     */
+    public Connection openChannel() throws IOException {
+        if (closed) {
+            throw new IOException("Multiplexed connection is closed");
+        }
+        final Channel channel = new Channel(nextChannelId.incrementAndGet(), MessageHandler.NULL);
+        channels.put(Integer.valueOf(channel.id), channel);
+        return channel;
+    }
+
+    /**
+     * Determine whether the underlying connection can still be used.
+     *
+     * @return {@code true} if the connection is open
+     */
+    public boolean isOpen() {
+        return ! closed;
+    }
+
+    /**
+     * Close the underlying connection.
+     */
+    public void close() {
+        closed = true;
+        safeClose(connection);
+    }
+
+    /** {@inheritDoc} */
+    public void handleMessage(final Connection connection, final InputStream dataStream) throws IOException {
+        final Integer channelId = Integer.valueOf(StreamUtils.readInt(dataStream));
+        final int flags = StreamUtils.readUnsignedByte(dataStream);
+        final boolean last = (flags & LAST_FRAGMENT) != 0;
+        if ((flags & FIRST_FRAGMENT) == 0) {
+            final FragmentInputStream message = last ? incoming.remove(channelId) : incoming.get(channelId);
+            if (message == null) {
+                log.debugf("Discarding fragment of an unknown message on channel %s", channelId);
+                return;
+            }
+            // the caller closes the stream once we return, so take it over before queuing it
+            message.add(StreamUtils.retainMessage(dataStream), last);
+            return;
+        }
+        Channel channel = channels.get(channelId);
+        if (channel == null) {
+            if (channelHandler == null) {
+                log.debugf("Discarding message for unknown channel %s", channelId);
+                return;
+            }
+            channel = new Channel(channelId.intValue(), MessageHandler.NULL);
+            channel.messageHandler = channelHandler.handleConnected(channel);
+            channels.put(channelId, channel);
+        }
+        final FragmentInputStream message = new FragmentInputStream();
+        message.add(StreamUtils.retainMessage(dataStream), last);
+        final Channel target = channel;
+        boolean ok = false;
+        try {
+            target.executor.execute(new Runnable() {
+                public void run() {
+                    target.safeHandleMessage(message);
+                }
+            });
+            ok = true;
+        } finally {
+            if (! ok) {
+                safeClose(message);
+            }
+        }
+        if (! last) {
+            final FragmentInputStream previous = incoming.put(channelId, message);
+            if (previous != null) {
+                previous.fail(new EOFException("Message on channel " + channelId + " was not completed"));
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void handleShutdown(final Connection connection) throws IOException {
+        closed = true;
+        failIncoming(new EOFException("Connection closed while receiving a message"));
+        for (final Channel channel : channels.values()) {
+            channel.executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        channel.messageHandler.handleShutdown(channel);
+                    } catch (IOException e) {
+                        log.errorf(e, "Failed to handle channel shut down condition");
+                    }
+                }
+            });
+        }
+        connection.shutdownWrites();
+    }
+
+    /** {@inheritDoc} */
+    public void handleFailure(final Connection connection, final IOException e) throws IOException {
+        closed = true;
+        failIncoming(e);
+        for (final Channel channel : channels.values()) {
+            channel.executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        channel.messageHandler.handleFailure(channel, e);
+                    } catch (IOException e1) {
+                        log.errorf(e1, "Failed to handle channel failure condition");
+                    }
+                }
+            });
+        }
+        connection.close();
+    }
+
+    /** {@inheritDoc} */
+    public void handleFinished(final Connection connection) throws IOException {
+        closed = true;
+        failIncoming(new EOFException("Connection closed while receiving a message"));
+        channels.clear();
+    }
+
+    private void failIncoming(final IOException e) {
+        for (final FragmentInputStream message : incoming.values()) {
+            message.fail(e);
+        }
+        incoming.clear();
+    }
+
+    /**
+     * A logical connection within the multiplexed connection.
+     */
+    private final class Channel implements Connection {
+        private final int id;
+        private final OrderedExecutor executor = new OrderedExecutor(ManagementMultiplexer.this.executor);
+        private volatile MessageHandler messageHandler;
+        private volatile Object attachment;
+
+        private Channel(final int id, final MessageHandler messageHandler) {
+            this.id = id;
+            this.messageHandler = messageHandler;
+        }
+
+        public OutputStream writeMessage() throws IOException {
+            if (closed) {
+                throw new IOException("Multiplexed connection is closed");
+            }
+            return new FragmentOutputStream(id);
+        }
+
+        public void shutdownWrites() throws IOException {
+            // the channel has no write side of its own
+        }
+
+        public void close() throws IOException {
+            channels.remove(Integer.valueOf(id), this);
+        }
+
+        public void setMessageHandler(final MessageHandler messageHandler) {
+            if (messageHandler == null) {
+                throw new IllegalArgumentException("messageHandler is null");
+            }
+            this.messageHandler = messageHandler;
+        }
+
+        public InetAddress getPeerAddress() {
+            return connection.getPeerAddress();
+        }
+
+        public void attach(final Object attachment) {
+            this.attachment = attachment;
+        }
+
+        public Object getAttachment() {
+            return attachment;
+        }
+
+        private void safeHandleMessage(final InputStream message) {
+            try {
+                messageHandler.handleMessage(this, message);
+            } catch (IOException e) {
+                log.errorf(e, "Failed to handle a message on channel %d", Integer.valueOf(id));
+            } catch (RuntimeException e) {
+                log.errorf(e, "Failed to handle a message on channel %d", Integer.valueOf(id));
+            } finally {
+                safeClose(message);
+                if (messageHandler == MessageHandler.NULL) {
+                    channels.remove(Integer.valueOf(id), this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a channel message one fragment at a time.  The shared connection is only held while a fragment is
+     * written, so handlers which do their work while writing the response do not hold up the other channels.
+     */
+    private final class FragmentOutputStream extends OutputStream {
+        private final int id;
+        private final byte[] buffer = new byte[FRAGMENT_SIZE];
+        private int count;
+        private boolean first = true;
+        private boolean done;
+
+        private FragmentOutputStream(final int id) {
+            this.id = id;
+        }
+
+        public void write(final int b) throws IOException {
+            if (done) {
+                throw new IOException("Stream is closed");
+            }
+            if (count == buffer.length) {
+                sendFragment(false);
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        public void write(final byte[] b, int off, int len) throws IOException {
+            if (done) {
+                throw new IOException("Stream is closed");
+            }
+            while (len > 0) {
+                // a full buffer is only sent once more data follows, so that close() always has a fragment to end
+                if (count == buffer.length) {
+                    sendFragment(false);
+                }
+                final int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        public void close() throws IOException {
+            if (done) {
+                return;
+            }
+            done = true;
+            sendFragment(true);
+        }
+
+        private void sendFragment(final boolean last) throws IOException {
+            final OutputStream outputStream = connection.writeMessage();
+            try {
+                StreamUtils.writeInt(outputStream, id);
+                outputStream.write((first ? FIRST_FRAGMENT : 0) | (last ? LAST_FRAGMENT : 0));
+                outputStream.write(buffer, 0, count);
+                outputStream.close();
+            } finally {
+                safeClose(outputStream);
+            }
+            first = false;
+            count = 0;
+        }
+    }
+
+    /**
+     * The receiving side of a channel message, fed with its fragments as they arrive.
+     */
+    private static final class FragmentInputStream extends InputStream {
+        private final Queue<InputStream> fragments = new ArrayDeque<InputStream>();
+        private InputStream current;
+        private boolean complete;
+        private boolean closed;
+        private IOException failure;
+
+        /**
+         * Queue the next fragment, waiting while {@link #MAX_QUEUED_FRAGMENTS} fragments are already queued.  Once
+         * the stream is closed, fragments are discarded.
+         */
+        synchronized void add(final InputStream fragment, final boolean last) {
+            boolean intr = false;
+            try {
+                while (fragments.size() >= MAX_QUEUED_FRAGMENTS && ! closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        intr = true;
+                    }
+                }
+            } finally {
+                if (intr) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (closed) {
+                safeClose(fragment);
+                return;
+            }
+            fragments.add(fragment);
+            complete = last;
+            notifyAll();
+        }
+
+        synchronized void fail(final IOException e) {
+            if (! complete) {
+                failure = e;
+                notifyAll();
+            }
+        }
+
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        public synchronized int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            for (;;) {
+                if (closed) {
+                    throw new IOException("Stream is closed");
+                }
+                if (current != null) {
+                    // fragments are held in memory, so this never blocks
+                    final int n = current.read(b, off, len);
+                    if (n > 0) {
+                        return n;
+                    }
+                    safeClose(current);
+                    current = null;
+                }
+                if (! fragments.isEmpty()) {
+                    current = fragments.remove();
+                    notifyAll();
+                    continue;
+                }
+                if (complete) {
+                    return -1;
+                }
+                if (failure != null) {
+                    final IOException e = new IOException("Failed to receive the rest of the message");
+                    e.initCause(failure);
+                    throw e;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the rest of the message");
+                }
+            }
+        }
+
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            safeClose(current);
+            current = null;
+            for (final InputStream fragment : fragments) {
+                safeClose(fragment);
+            }
+            fragments.clear();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits for the response to the request to switch the connection to multiplexed mode.
+     */
+    private static final class HandshakeHandler extends AbstractMessageHandler {
+        private final Executor executor;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile ManagementMultiplexer multiplexer;
+        private volatile Exception failure;
+
+        private HandshakeHandler(final Executor executor) {
+            this.executor = executor;
+        }
+
+        public void handle(final Connection connection, final InputStream inputStream) throws IOException {
+            ByteDataInput input = null;
+            try {
+                input = new SimpleByteDataInput(inputStream);
+                final ManagementResponseHeader responseHeader = new ManagementResponseHeader(input);
+                if (responseHeader.getVersion() < ManagementProtocol.MULTIPLEXED_VERSION) {
+                    failure = new ManagementException("Remote side does not support multiplexed connections (protocol version " + responseHeader.getVersion() + ")");
+                } else {
+                    final ManagementMultiplexer multiplexer = new ManagementMultiplexer(connection, executor, null);
+                    connection.setMessageHandler(multiplexer);
+                    this.multiplexer = multiplexer;
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                safeClose(input);
+                latch.countDown();
+            }
+        }
+
+        public void handleShutdown(final Connection connection) throws IOException {
+            failure = new EOFException("Connection closed before multiplexing was established");
+            latch.countDown();
+            super.handleShutdown(connection);
+        }
+
+        public void handleFailure(final Connection connection, final IOException e) throws IOException {
+            failure = e;
+            latch.countDown();
+            super.handleFailure(connection, e);
+        }
+
+        private ManagementMultiplexer await(final int timeout) throws IOException {
+            try {
+                if (! latch.await(timeout == 0 ? Long.MAX_VALUE : timeout, TimeUnit.MILLISECONDS)) {
+                    // peers which predate multiplexing never answer an unknown handler id
+                    throw new ManagementException("Remote side did not respond to the request for a multiplexed connection");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while establishing a multiplexed connection");
+            }
+            final Exception failure = this.failure;
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure != null) {
+                throw (ManagementException) failure;
+            }
+            return multiplexer;
+        }
+    }
+}
@@ -29,7 +29,12 @@ public interface ManagementProtocol {
     // Headers
     byte[] SIGNATURE = {Byte.MAX_VALUE, Byte.MIN_VALUE, Byte.MAX_VALUE, Byte.MIN_VALUE};
     int VERSION_FIELD = 0x00; // The version field header
-    int VERSION = 1; // The current protocol version
+    int VERSION = 3; // The current protocol version
+    int MULTIPLEXED_VERSION = 2; // The first protocol version supporting multiplexed connections
+    int SINGLE_MESSAGE_VERSION = 3; // The first protocol version sending the request and response with their headers
+
+    // Handler id used in the request header to switch a connection to multiplexed mode
+    byte MULTIPLEXED_CONNECTION = 0x7F;
 
     int REQUEST_START = 0x01;
     int REQUEST_OPERATION = 0x02;
@@ -22,6 +22,7 @@
 
 package org.jboss.as.protocol.mgmt;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -30,8 +31,8 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.jboss.as.protocol.ByteDataInput;
 import org.jboss.as.protocol.ByteDataOutput;
 import org.jboss.as.protocol.Connection;
 import org.jboss.as.protocol.MessageHandler;
@@ -48,9 +49,12 @@ import static org.jboss.as.protocol.StreamUtils.safeClose;
  * @author John Bailey
  */
 public abstract class ManagementRequest<T> extends AbstractMessageHandler {
-    private int requestId = 0;
+    private static final AtomicInteger requestIds = new AtomicInteger();
+
+    private final int requestId = requestIds.incrementAndGet();
     private final ResponseFuture<T> future = new ResponseFuture<T>();
     private ManagementRequestConnectionStrategy connectionStrategy;
+    private volatile ManagementMessageBundle requestMessages;
     private T result;
 
     /**
@@ -60,6 +64,19 @@ public abstract class ManagementRequest<T> extends AbstractMessageHandler {
      */
     protected abstract byte getHandlerId();
 
+    /**
+     * Determine whether the request is streamed rather than bundled with the request header.  A bundled request and
+     * its response each travel as one message, which is only sent once complete, so they are held in memory in full
+     * and nothing of them reaches the other side until their last byte is written.  Requests carrying large content,
+     * or whose response is read incrementally as it is produced, should therefore be streamed: they are sent once the
+     * header is answered, and the request and response each travel as separate messages.
+     *
+     * @return {@code true} if the request is streamed
+     */
+    protected boolean isStreamed() {
+        return false;
+    }
+
     /**
      * Execute the request by connecting and then delegating to the implementation's execute
      * and return a future used to get the response when complete.
@@ -71,7 +88,7 @@ public abstract class ManagementRequest<T> extends AbstractMessageHandler {
     public Future<T> execute(final ManagementRequestConnectionStrategy connectionStrategy) throws IOException {
         this.connectionStrategy = connectionStrategy;
         OutputStream dataOutput = null;
-        ByteDataOutput output = null;
+        SimpleByteDataOutput output = null;
         try {
             final Connection connection = connectionStrategy.getConnection();
             connection.setMessageHandler(initiatingMessageHandler);
@@ -80,7 +97,13 @@ public abstract class ManagementRequest<T> extends AbstractMessageHandler {
             // Start by writing the header
             final ManagementRequestHeader managementRequestHeader = new ManagementRequestHeader(ManagementProtocol.VERSION, requestId, getHandlerId());
             managementRequestHeader.write(output);
-            connection.setMessageHandler(initiatingMessageHandler);
+            if (! isStreamed()) {
+                // The request follows the header in the same message.  Peers older than SINGLE_MESSAGE_VERSION only
+                // read the header, and are sent the request messages again once they have answered with their version
+                requestMessages = new ManagementMessageBundle(connection);
+                sendRequest(ManagementProtocol.VERSION, requestMessages);
+                requestMessages.writeTo(output);
+            }
             output.close();
             dataOutput.close();
         } finally {
@@ -115,18 +138,60 @@ public abstract class ManagementRequest<T> extends AbstractMessageHandler {
         }
     }
 
-    private MessageHandler initiatingMessageHandler = new AbstractMessageHandler() {
+    /** {@inheritDoc} */
+    public void handleShutdown(final Connection connection) throws IOException {
+        future.setException(new EOFException("Connection closed before a response was received"));
+        super.handleShutdown(connection);
+    }
+
+    /** {@inheritDoc} */
+    public void handleFailure(final Connection connection, final IOException e) throws IOException {
+        future.setException(e);
+        super.handleFailure(connection, e);
+    }
+
+    /**
+     * Base class for the handlers of each stage of the response.  Fails the request if the connection
+     * goes away before the response is complete.
+     */
+    private abstract class ResponseMessageHandler extends AbstractMessageHandler {
+        /** {@inheritDoc} */
+        public void handleShutdown(final Connection connection) throws IOException {
+            ManagementRequest.this.handleShutdown(connection);
+        }
+
+        /** {@inheritDoc} */
+        public void handleFailure(final Connection connection, final IOException e) throws IOException {
+            ManagementRequest.this.handleFailure(connection, e);
+        }
+    }
+
+    private MessageHandler initiatingMessageHandler = new ResponseMessageHandler() {
         public final void handle(final Connection connection, final InputStream inputStream) throws IOException {
             final ManagementResponseHeader responseHeader;
-            ByteDataInput input = null;
+            SimpleByteDataInput input = null;
             try {
                 input = new SimpleByteDataInput(inputStream);
                 responseHeader = new ManagementResponseHeader(input);
                 if (requestId != responseHeader.getResponseId()) {
                     throw new IOException("Invalid request ID expecting " + requestId + " received " + responseHeader.getResponseId());
                 }
-                connection.setMessageHandler(ManagementRequest.this);
-                sendRequest(responseHeader.getVersion(), connection);
+                final ManagementMessageBundle requestMessages = ManagementRequest.this.requestMessages;
+                ManagementRequest.this.requestMessages = null;
+                if (requestMessages == null) {
+                    // A streamed request is sent once the header is answered, and is answered with messages of
+                    // its own whatever the version of the peer
+                    connection.setMessageHandler(ManagementRequest.this);
+                    sendRequest(responseHeader.getVersion(), connection);
+                } else if (responseHeader.getVersion() >= ManagementProtocol.SINGLE_MESSAGE_VERSION) {
+                    // The whole response follows the header
+                    final ManagementMessageBundle responseMessages = new ManagementMessageBundle(connection, ManagementRequest.this);
+                    responseMessages.dispatch(input);
+                    connection.setMessageHandler(responseMessages.getMessageHandler());
+                } else {
+                    connection.setMessageHandler(ManagementRequest.this);
+                    requestMessages.send();
+                }
             } finally {
                 safeClose(input);
             }
@@ -184,7 +249,7 @@ public abstract class ManagementRequest<T> extends AbstractMessageHandler {
 
     protected abstract byte getResponseCode();
 
-    private MessageHandler responseBodyHandler = new AbstractMessageHandler() {
+    private MessageHandler responseBodyHandler = new ResponseMessageHandler() {
         public final void handle(final Connection connection, final InputStream input) throws IOException {
             connection.setMessageHandler(responseEndHandler);
             expectHeader(input, ManagementProtocol.RESPONSE_BODY);
@@ -192,7 +257,7 @@ public abstract class ManagementRequest<T> extends AbstractMessageHandler {
         }
     };
 
-    private MessageHandler responseEndHandler = new AbstractMessageHandler() {
+    private MessageHandler responseEndHandler = new ResponseMessageHandler() {
         public final void handle(final Connection connection, final InputStream input) throws IOException {
             connection.setMessageHandler(MessageHandler.NULL);
             expectHeader(input, ManagementProtocol.RESPONSE_END);
@@ -117,4 +117,26 @@ public interface ManagementRequestConnectionStrategy {
             safeClose(connection);
         }
     }
+
+    /**
+     * Strategy that opens a new channel on a shared multiplexed connection, allowing many requests to be in
+     * flight on the same connection at once.
+     */
+    static class MultiplexedConnectionStrategy implements ManagementRequestConnectionStrategy {
+        private final ManagementMultiplexer multiplexer;
+
+        public MultiplexedConnectionStrategy(final ManagementMultiplexer multiplexer) {
+            this.multiplexer = multiplexer;
+        }
+
+        /** {@inheritDoc} */
+        public Connection getConnection() throws IOException {
+            return multiplexer.openChannel();
+        }
+
+        /** {@inheritDoc} */
+        public void complete() {
+            // NOOP - the channel is discarded once the response is complete
+        }
+    }
 }
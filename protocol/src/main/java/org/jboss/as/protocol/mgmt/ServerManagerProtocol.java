@@ -69,4 +69,6 @@ public interface ServerManagerProtocol {
     int STOP_SERVER_RESPONSE = 0x62;
     int RESTART_SERVER_REQUEST = 0x63;
     int RESTART_SERVER_RESPONSE = 0x64;
+    int HEARTBEAT_REQUEST = 0x65;
+    int HEARTBEAT_RESPONSE = 0x66;
 }
@@ -0,0 +1,278 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link MessageFrameDecoder}.
+ */
+public final class MessageFrameDecoderTest {
+
+    private final List<InputStream> messages = new ArrayList<InputStream>();
+
+    private final MessageFrameDecoder decoder = new MessageFrameDecoder(new BufferPool(16, 4, false), new MessageFrameDecoder.Listener() {
+        public void handleMessage(final InputStream message) {
+            messages.add(message);
+        }
+    });
+
+    @Test
+    public void testWholeMessages() throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writeChunk(stream, bytes(1, 2, 3));
+        writeChunk(stream, bytes(4));
+        stream.write(ProtocolConstants.CHUNK_END);
+        writeChunk(stream, bytes(5, 6));
+        stream.write(ProtocolConstants.CHUNK_END);
+        decoder.decode(ByteBuffer.wrap(stream.toByteArray()));
+        assertEquals(2, messages.size());
+        assertArrayEquals(bytes(1, 2, 3, 4), read(messages.get(0)));
+        assertArrayEquals(bytes(5, 6), read(messages.get(1)));
+    }
+
+    @Test
+    public void testByteAtATime() throws Exception {
+        final byte[] content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writeChunk(stream, content);
+        stream.write(ProtocolConstants.CHUNK_END);
+        for (byte b : stream.toByteArray()) {
+            decoder.decode(ByteBuffer.wrap(new byte[] { b }));
+        }
+        assertEquals(1, messages.size());
+        assertArrayEquals(content, read(messages.get(0)));
+    }
+
+    @Test
+    public void testEmptyMessageIgnored() throws Exception {
+        decoder.decode(ByteBuffer.wrap(bytes(ProtocolConstants.CHUNK_END)));
+        assertTrue(messages.isEmpty());
+    }
+
+    @Test
+    public void testEndOfInput() throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writeChunk(stream, bytes(7, 8));
+        decoder.decode(ByteBuffer.wrap(stream.toByteArray()));
+        assertEquals(1, messages.size());
+        assertEquals(2, messages.get(0).available());
+        decoder.endOfInput();
+        final InputStream last = messages.get(0);
+        assertEquals(7, last.read());
+        assertEquals(8, last.read());
+        assertEquals(-1, last.read());
+    }
+
+    @Test
+    public void testEndOfInputInChunk() throws Exception {
+        decoder.decode(ByteBuffer.wrap(bytes(ProtocolConstants.CHUNK_START, 0, 0, 0, 4, 1)));
+        try {
+            decoder.endOfInput();
+            fail("Expected exception");
+        } catch (EOFException expected) {
+        }
+        try {
+            read(messages.get(0));
+            fail("Expected exception");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testCloseDiscardsRemainder() throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writeChunk(stream, bytes(1, 2, 3));
+        decoder.decode(ByteBuffer.wrap(stream.toByteArray()));
+        messages.get(0).close();
+        stream.reset();
+        writeChunk(stream, new byte[100]);
+        stream.write(ProtocolConstants.CHUNK_END);
+        writeChunk(stream, bytes(9));
+        stream.write(ProtocolConstants.CHUNK_END);
+        decoder.decode(ByteBuffer.wrap(stream.toByteArray()));
+        assertEquals(2, messages.size());
+        assertArrayEquals(bytes(9), read(messages.get(1)));
+    }
+
+    @Test
+    public void testFramingAcrossBufferBoundaries() throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writeChunk(stream, content(40, 0));
+        writeChunk(stream, content(3, 40));
+        stream.write(ProtocolConstants.CHUNK_END);
+        writeChunk(stream, content(17, 1));
+        stream.write(ProtocolConstants.CHUNK_END);
+        final byte[] encoded = stream.toByteArray();
+        // every piece size splits the command bytes, lengths and data at different places
+        for (int piece = 1; piece <= encoded.length; piece++) {
+            messages.clear();
+            for (int pos = 0; pos < encoded.length; pos += piece) {
+                assertTrue(decoder.decode(ByteBuffer.wrap(encoded, pos, Math.min(piece, encoded.length - pos))));
+            }
+            assertEquals("piece size " + piece, 2, messages.size());
+            assertArrayEquals("piece size " + piece, content(43, 0), read(messages.get(0)));
+            assertArrayEquals("piece size " + piece, content(17, 1), read(messages.get(1)));
+        }
+    }
+
+    @Test
+    public void testQueuedBytesAreBounded() throws Exception {
+        final AtomicInteger resumed = new AtomicInteger();
+        final MessageFrameDecoder bounded = new MessageFrameDecoder(new BufferPool(16, 4, false), 32, new Runnable() {
+            public void run() {
+                resumed.incrementAndGet();
+            }
+        }, new MessageFrameDecoder.Listener() {
+            public void handleMessage(final InputStream message) {
+                messages.add(message);
+            }
+        });
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writeChunk(stream, content(20, 0));
+        assertTrue(bounded.decode(ByteBuffer.wrap(stream.toByteArray())));
+        stream.reset();
+        writeChunk(stream, content(20, 20));
+        // the data already read is taken, but reading should stop
+        assertFalse(bounded.decode(ByteBuffer.wrap(stream.toByteArray())));
+        final InputStream message = messages.get(0);
+        assertEquals(40, message.available());
+
+        final byte[] b = new byte[40];
+        assertEquals(16, message.read(b, 0, 16));
+        assertEquals(0, resumed.get());
+        // consuming the second buffer brings the queue below the bound
+        message.read(b, 16, 17);
+        assertEquals(1, resumed.get());
+        stream.reset();
+        writeChunk(stream, content(4, 40));
+        stream.write(ProtocolConstants.CHUNK_END);
+        assertTrue(bounded.decode(ByteBuffer.wrap(stream.toByteArray())));
+        final byte[] rest = read(message);
+        assertEquals(11, rest.length);
+        assertEquals(content(11, 33)[10], rest[10]);
+        assertEquals(1, resumed.get());
+    }
+
+    @Test
+    public void testClosingFullMessageResumes() throws Exception {
+        final AtomicInteger resumed = new AtomicInteger();
+        final MessageFrameDecoder bounded = new MessageFrameDecoder(new BufferPool(16, 4, false), 16, new Runnable() {
+            public void run() {
+                resumed.incrementAndGet();
+            }
+        }, new MessageFrameDecoder.Listener() {
+            public void handleMessage(final InputStream message) {
+                messages.add(message);
+            }
+        });
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writeChunk(stream, content(100, 0));
+        assertFalse(bounded.decode(ByteBuffer.wrap(stream.toByteArray())));
+        messages.get(0).close();
+        assertEquals(1, resumed.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testBlockingReaderWaitsForSpace() throws Exception {
+        final BufferPool pool = new BufferPool(16, 4, false);
+        final BufferInputStream message = new BufferInputStream(pool, 32, null);
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final AtomicInteger pushed = new AtomicInteger();
+        final Thread reader = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    for (int i = 0; i < 8; i++) {
+                        final ByteBuffer buffer = pool.take();
+                        buffer.put(content(16, i * 16));
+                        buffer.flip();
+                        pushed.incrementAndGet();
+                        if (! message.push(buffer)) {
+                            waiting.countDown();
+                            message.awaitSpace();
+                        }
+                    }
+                    message.finish();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        reader.start();
+        assertTrue(waiting.await(5L, TimeUnit.SECONDS));
+        Thread.sleep(100L);
+        // the reader stopped at the bound
+        assertEquals(2, pushed.get());
+        assertArrayEquals(content(128, 0), read(message));
+        reader.join(5000L);
+        assertEquals(8, pushed.get());
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidCommand() throws Exception {
+        decoder.decode(ByteBuffer.wrap(bytes(0x42)));
+    }
+
+    private static byte[] read(final InputStream message) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamUtils.copyStream(message, out);
+        return out.toByteArray();
+    }
+
+    private static void writeChunk(final ByteArrayOutputStream stream, final byte[] data) throws IOException {
+        stream.write(ProtocolConstants.CHUNK_START);
+        StreamUtils.writeInt(stream, data.length);
+        stream.write(data);
+    }
+
+    private static byte[] content(final int length, final int first) {
+        final byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (first + i);
+        }
+        return content;
+    }
+
+    private static byte[] bytes(int... v) {
+        final byte[] bytes = new byte[v.length];
+        for (int i = 0; i < v.length; i++) {
+            bytes[i] = (byte) v[i];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * End-to-end tests of the selector-based transport, connecting a {@link ProtocolClient} to a {@link ProtocolServer}
+ * over a loopback socket.
+ */
+public final class SelectorTransportTest {
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private final ExecutorService readExecutor = Executors.newCachedThreadPool(THREAD_FACTORY);
+    private final BlockingQueue<byte[]> responses = new LinkedBlockingQueue<byte[]>();
+    private SelectorPool selectorPool;
+    private ProtocolServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        selectorPool = new SelectorPool(THREAD_FACTORY, 2);
+        selectorPool.start();
+        final ProtocolServer.Configuration configuration = new ProtocolServer.Configuration();
+        configuration.setBindAddress(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+        configuration.setThreadFactory(THREAD_FACTORY);
+        configuration.setReadExecutor(readExecutor);
+        configuration.setSelectorPool(selectorPool);
+        configuration.setConnectionHandler(new ConnectionHandler() {
+            public MessageHandler handleConnected(final Connection connection) {
+                return new Handler() {
+                    public void handleMessage(final Connection connection, final InputStream dataStream) throws IOException {
+                        // answer with the request reversed
+                        final byte[] request = read(dataStream);
+                        final OutputStream output = connection.writeMessage();
+                        try {
+                            for (int i = request.length - 1; i >= 0; i--) {
+                                output.write(request[i]);
+                            }
+                        } finally {
+                            output.close();
+                        }
+                    }
+                };
+            }
+        });
+        server = new ProtocolServer(configuration);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        selectorPool.stop();
+        readExecutor.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void testRequestResponse() throws Exception {
+        final Connection connection = connect();
+        try {
+            send(connection, new byte[] { 1, 2, 3 });
+            assertArrayEquals(new byte[] { 3, 2, 1 }, responses.poll(5L, TimeUnit.SECONDS));
+
+            // larger than the read buffers, so both ends see the message in several reads
+            final byte[] large = new byte[100000];
+            for (int i = 0; i < large.length; i++) {
+                large[i] = (byte) i;
+            }
+            send(connection, large);
+            final byte[] response = responses.poll(5L, TimeUnit.SECONDS);
+            assertEquals(large.length, response.length);
+            for (int i = 0; i < large.length; i++) {
+                assertEquals(large[large.length - 1 - i], response[i]);
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testConnectionsShareSelectors() throws Exception {
+        final Connection[] connections = new Connection[5];
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = connect();
+        }
+        try {
+            for (int i = 0; i < connections.length; i++) {
+                send(connections[i], new byte[] { (byte) i, 0 });
+            }
+            final boolean[] answered = new boolean[connections.length];
+            for (int i = 0; i < connections.length; i++) {
+                final byte[] response = responses.poll(5L, TimeUnit.SECONDS);
+                assertEquals(0, response[0]);
+                answered[response[1]] = true;
+            }
+            for (boolean b : answered) {
+                assertTrue(b);
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    @Test
+    public void testRefusedThreadClosesSelectors() throws Exception {
+        final AtomicInteger threads = new AtomicInteger();
+        final Thread[] started = new Thread[1];
+        final SelectorPool pool = new SelectorPool(new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+                if (threads.getAndIncrement() > 0) {
+                    return null;
+                }
+                return started[0] = THREAD_FACTORY.newThread(r);
+            }
+        }, 3);
+        try {
+            pool.start();
+            fail("Start succeeded without threads");
+        } catch (IOException expected) {
+        }
+        // the selector thread that did start is stopped again
+        started[0].join(5000L);
+        assertFalse(started[0].isAlive());
+        try {
+            pool.nextSelectorThread();
+            fail("Pool started");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private Connection connect() throws IOException {
+        final ProtocolClient.Configuration configuration = new ProtocolClient.Configuration();
+        configuration.setServerAddress(server.getBoundAddress());
+        configuration.setReadExecutor(readExecutor);
+        configuration.setSelectorPool(selectorPool);
+        configuration.setConnectTimeout(5000);
+        configuration.setMessageHandler(new Handler() {
+            public void handleMessage(final Connection connection, final InputStream dataStream) throws IOException {
+                responses.add(read(dataStream));
+            }
+        });
+        return new ProtocolClient(configuration).connect();
+    }
+
+    private static void send(final Connection connection, final byte[] content) throws IOException {
+        final OutputStream output = connection.writeMessage();
+        try {
+            output.write(content);
+        } finally {
+            output.close();
+        }
+    }
+
+    private static byte[] read(final InputStream input) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int n;
+        while ((n = input.read(buffer)) != -1) {
+            bytes.write(buffer, 0, n);
+        }
+        input.close();
+        return bytes.toByteArray();
+    }
+
+    private abstract static class Handler implements MessageHandler {
+        public void handleShutdown(final Connection connection) throws IOException {
+            connection.shutdownWrites();
+        }
+
+        public void handleFailure(final Connection connection, final IOException e) throws IOException {
+            connection.close();
+        }
+
+        public void handleFinished(final Connection connection) throws IOException {
+        }
+    }
+}
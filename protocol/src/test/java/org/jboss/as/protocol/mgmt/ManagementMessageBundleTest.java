@@ -0,0 +1,194 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.protocol.mgmt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import org.jboss.as.protocol.Connection;
+import org.jboss.as.protocol.MessageHandler;
+import org.jboss.as.protocol.StreamUtils;
+import org.junit.Test;
+import static org.jboss.as.protocol.ProtocolUtils.expectHeader;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ManagementMessageBundle}.
+ */
+public final class ManagementMessageBundleTest {
+
+    private final TestConnection connection = new TestConnection();
+
+    @Test
+    public void testRequestAndResponse() throws Exception {
+        final ManagementMessageBundle requestMessages = new ManagementMessageBundle(connection);
+        new TestRequest(21).sendRequest(ManagementProtocol.VERSION, requestMessages);
+        final ByteArrayOutputStream request = new ByteArrayOutputStream();
+        requestMessages.writeTo(request);
+
+        final ManagementMessageBundle responseMessages = new ManagementMessageBundle(connection, new AbstractMessageHandler() {
+            public void handle(final Connection connection, final InputStream input) throws IOException {
+                expectHeader(input, ManagementProtocol.REQUEST_OPERATION);
+                assertEquals(0x10, StreamUtils.readByte(input));
+                new TestResponse().handle(connection, input);
+            }
+        });
+        responseMessages.dispatch(new ByteArrayInputStream(request.toByteArray()));
+        assertSame(MessageHandler.NULL, responseMessages.getMessageHandler());
+
+        final ByteArrayOutputStream response = new ByteArrayOutputStream();
+        responseMessages.writeTo(response);
+        final InputStream input = new ByteArrayInputStream(response.toByteArray());
+        assertArrayEquals(new byte[] {ManagementProtocol.RESPONSE_START, 0x11}, readPart(input));
+        assertArrayEquals(new byte[] {ManagementProtocol.RESPONSE_BODY, 0, 0, 0, 42}, readPart(input));
+        assertArrayEquals(new byte[] {ManagementProtocol.RESPONSE_END}, readPart(input));
+        assertEquals(-1, input.read());
+        assertTrue(connection.messages.isEmpty());
+    }
+
+    @Test
+    public void testUnreadPartsAreSkipped() throws Exception {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writePart(stream, 1, 2, 3);
+        writePart(stream, 4, 5);
+        final List<Integer> firstBytes = new ArrayList<Integer>();
+        final ManagementMessageBundle bundle = new ManagementMessageBundle(connection, new MessageHandler() {
+            public void handleMessage(final Connection connection, final InputStream input) throws IOException {
+                firstBytes.add(Integer.valueOf(input.read()));
+            }
+
+            public void handleShutdown(final Connection connection) {
+            }
+
+            public void handleFailure(final Connection connection, final IOException e) {
+            }
+
+            public void handleFinished(final Connection connection) {
+            }
+        });
+        bundle.dispatch(new ByteArrayInputStream(stream.toByteArray()));
+        assertEquals(2, firstBytes.size());
+        assertEquals(Integer.valueOf(1), firstBytes.get(0));
+        assertEquals(Integer.valueOf(4), firstBytes.get(1));
+    }
+
+    @Test
+    public void testSendSeparately() throws Exception {
+        final ManagementMessageBundle bundle = new ManagementMessageBundle(connection);
+        new TestRequest(1).sendRequest(ManagementProtocol.VERSION, bundle);
+        bundle.send();
+        assertEquals(3, connection.messages.size());
+        assertArrayEquals(new byte[] {ManagementProtocol.REQUEST_OPERATION, 0x10, ManagementProtocol.REQUEST_START}, connection.messages.get(0).toByteArray());
+        assertArrayEquals(new byte[] {ManagementProtocol.REQUEST_BODY, 0, 0, 0, 1}, connection.messages.get(1).toByteArray());
+        assertArrayEquals(new byte[] {ManagementProtocol.REQUEST_END}, connection.messages.get(2).toByteArray());
+    }
+
+    private static byte[] readPart(final InputStream input) throws IOException {
+        final byte[] part = new byte[StreamUtils.readInt(input)];
+        StreamUtils.readFully(input, part);
+        return part;
+    }
+
+    private static void writePart(final OutputStream output, final int... bytes) throws IOException {
+        StreamUtils.writeInt(output, bytes.length);
+        for (int b : bytes) {
+            output.write(b);
+        }
+    }
+
+    private static final class TestRequest extends ManagementRequest<Integer> {
+        private final int value;
+
+        private TestRequest(final int value) {
+            this.value = value;
+        }
+
+        protected byte getHandlerId() {
+            return 0x01;
+        }
+
+        protected byte getRequestCode() {
+            return 0x10;
+        }
+
+        protected byte getResponseCode() {
+            return 0x11;
+        }
+
+        protected void sendRequest(final int protocolVersion, final OutputStream output) throws IOException {
+            StreamUtils.writeInt(output, value);
+        }
+    }
+
+    private static final class TestResponse extends ManagementResponse {
+        private int value;
+
+        protected byte getResponseCode() {
+            return 0x11;
+        }
+
+        protected void readRequest(final InputStream input) throws IOException {
+            value = StreamUtils.readInt(input);
+        }
+
+        protected void sendResponse(final OutputStream output) throws IOException {
+            StreamUtils.writeInt(output, value * 2);
+        }
+    }
+
+    private static final class TestConnection implements Connection {
+        private final List<ByteArrayOutputStream> messages = new ArrayList<ByteArrayOutputStream>();
+
+        public OutputStream writeMessage() {
+            final ByteArrayOutputStream message = new ByteArrayOutputStream();
+            messages.add(message);
+            return message;
+        }
+
+        public void shutdownWrites() {
+        }
+
+        public void close() {
+        }
+
+        public void setMessageHandler(final MessageHandler messageHandler) {
+        }
+
+        public InetAddress getPeerAddress() {
+            return null;
+        }
+
+        public void attach(final Object attachment) {
+        }
+
+        public Object getAttachment() {
+            return null;
+        }
+    }
+}
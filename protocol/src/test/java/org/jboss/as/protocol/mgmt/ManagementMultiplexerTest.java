@@ -0,0 +1,307 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.protocol.mgmt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.net.ServerSocketFactory;
+import org.jboss.as.protocol.ByteDataInput;
+import org.jboss.as.protocol.Connection;
+import org.jboss.as.protocol.ConnectionHandler;
+import org.jboss.as.protocol.MessageHandler;
+import org.jboss.as.protocol.ProtocolServer;
+import org.jboss.as.protocol.SimpleByteDataInput;
+import org.jboss.as.protocol.SimpleByteDataOutput;
+import org.jboss.as.protocol.StreamUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.jboss.as.protocol.StreamUtils.safeClose;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ManagementMultiplexer}, against a server which answers the request for a multiplexed connection
+ * the way a current peer, an old peer answering with its own version, or an old peer ignoring the request would.
+ */
+public final class ManagementMultiplexerTest {
+
+    private static final byte SLOW = 's';
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(THREAD_FACTORY);
+    private final CountDownLatch releaseSlow = new CountDownLatch(1);
+    private final CountDownLatch echoStarted = new CountDownLatch(1);
+    private volatile int serverVersion = ManagementProtocol.VERSION;
+    private volatile boolean serverAnswers = true;
+    private ProtocolServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        final ProtocolServer.Configuration config = new ProtocolServer.Configuration();
+        config.setBindAddress(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+        config.setSocketFactory(ServerSocketFactory.getDefault());
+        config.setThreadFactory(THREAD_FACTORY);
+        config.setReadExecutor(executor);
+        config.setConnectionHandler(new ConnectionHandler() {
+            public MessageHandler handleConnected(final Connection connection) throws IOException {
+                return new HeaderHandler();
+            }
+        });
+        server = new ProtocolServer(config);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        releaseSlow.countDown();
+        server.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testChannelsCompleteIndependently() throws Exception {
+        final ManagementMultiplexer multiplexer = connect(10L);
+        try {
+            final BlockingQueue<byte[]> slowReplies = new LinkedBlockingQueue<byte[]>();
+            final BlockingQueue<byte[]> fastReplies = new LinkedBlockingQueue<byte[]>();
+            final Connection slow = openChannel(multiplexer, slowReplies);
+            final Connection fast = openChannel(multiplexer, fastReplies);
+
+            send(slow, new byte[] {SLOW, 1, 2});
+            send(fast, new byte[] {3, 4});
+            assertArrayEquals(new byte[] {3, 4}, fastReplies.poll(10L, TimeUnit.SECONDS));
+            assertNull(slowReplies.poll(100L, TimeUnit.MILLISECONDS));
+
+            releaseSlow.countDown();
+            assertArrayEquals(new byte[] {SLOW, 1, 2}, slowReplies.poll(10L, TimeUnit.SECONDS));
+        } finally {
+            multiplexer.close();
+        }
+    }
+
+    @Test
+    public void testLargeMessagesArePassedThrough() throws Exception {
+        final ManagementMultiplexer multiplexer = connect(10L);
+        try {
+            final byte[] message = new byte[1 << 20];
+            for (int i = 0; i < message.length; i++) {
+                message[i] = (byte) (i % 251 + 1);
+            }
+            final BlockingQueue<byte[]> replies = new LinkedBlockingQueue<byte[]>();
+            send(openChannel(multiplexer, replies), message);
+            assertTrue(Arrays.equals(message, replies.poll(10L, TimeUnit.SECONDS)));
+        } finally {
+            multiplexer.close();
+        }
+    }
+
+    @Test
+    public void testMessagesAreStreamedInFragments() throws Exception {
+        final ManagementMultiplexer multiplexer = connect(10L);
+        try {
+            final byte[] message = new byte[ManagementMultiplexer.FRAGMENT_SIZE * 3 + 17];
+            for (int i = 0; i < message.length; i++) {
+                message[i] = (byte) (i % 251 + 1);
+            }
+            final BlockingQueue<byte[]> largeReplies = new LinkedBlockingQueue<byte[]>();
+            final BlockingQueue<byte[]> smallReplies = new LinkedBlockingQueue<byte[]>();
+            final Connection large = openChannel(multiplexer, largeReplies);
+            final Connection small = openChannel(multiplexer, smallReplies);
+
+            final OutputStream output = large.writeMessage();
+            try {
+                output.write(message, 0, ManagementMultiplexer.FRAGMENT_SIZE * 2 + 1);
+                // the remote handler starts on the first fragment, and the unfinished message does not hold up others
+                assertTrue(echoStarted.await(10L, TimeUnit.SECONDS));
+                send(small, new byte[] {5, 6});
+                assertArrayEquals(new byte[] {5, 6}, smallReplies.poll(10L, TimeUnit.SECONDS));
+                output.write(message, ManagementMultiplexer.FRAGMENT_SIZE * 2 + 1, message.length - (ManagementMultiplexer.FRAGMENT_SIZE * 2 + 1));
+                output.close();
+            } finally {
+                safeClose(output);
+            }
+            assertTrue(Arrays.equals(message, largeReplies.poll(10L, TimeUnit.SECONDS)));
+        } finally {
+            multiplexer.close();
+        }
+    }
+
+    @Test
+    public void testEmptyMessageIsPassedThrough() throws Exception {
+        final ManagementMultiplexer multiplexer = connect(10L);
+        try {
+            final BlockingQueue<byte[]> replies = new LinkedBlockingQueue<byte[]>();
+            send(openChannel(multiplexer, replies), new byte[0]);
+            assertArrayEquals(new byte[0], replies.poll(10L, TimeUnit.SECONDS));
+        } finally {
+            multiplexer.close();
+        }
+    }
+
+    @Test
+    public void testOldPeerVersionIsRejected() throws Exception {
+        serverVersion = ManagementProtocol.MULTIPLEXED_VERSION - 1;
+        try {
+            connect(10L);
+            fail("Multiplexed connection established with a peer predating multiplexing");
+        } catch (ManagementException expected) {
+        }
+    }
+
+    @Test
+    public void testSilentOldPeerTimesOut() throws Exception {
+        serverAnswers = false;
+        final long start = System.currentTimeMillis();
+        try {
+            connect(1L);
+            fail("Multiplexed connection established with a peer ignoring the request");
+        } catch (ManagementException expected) {
+        }
+        assertTrue(System.currentTimeMillis() - start < 5000L);
+    }
+
+    @Test
+    public void testSilentOldPeerWithoutTimeoutGivesUp() throws Exception {
+        serverAnswers = false;
+        final long start = System.currentTimeMillis();
+        try {
+            connect(0L);
+            fail("Multiplexed connection established with a peer ignoring the request");
+        } catch (ManagementException expected) {
+        }
+        assertTrue(System.currentTimeMillis() - start < ManagementMultiplexer.HANDSHAKE_TIMEOUT + 5000L);
+    }
+
+    @Test
+    public void testClosedMultiplexerRefusesChannels() throws Exception {
+        final ManagementMultiplexer multiplexer = connect(10L);
+        assertTrue(multiplexer.isOpen());
+        multiplexer.close();
+        assertFalse(multiplexer.isOpen());
+        try {
+            multiplexer.openChannel();
+            fail("Channel opened on a closed multiplexer");
+        } catch (IOException expected) {
+        }
+    }
+
+    private ManagementMultiplexer connect(final long timeout) throws IOException {
+        final InetSocketAddress address = server.getBoundAddress();
+        return ManagementMultiplexer.connect(address.getAddress(), address.getPort(), timeout, executor, THREAD_FACTORY);
+    }
+
+    private static Connection openChannel(final ManagementMultiplexer multiplexer, final BlockingQueue<byte[]> replies) throws IOException {
+        final Connection channel = multiplexer.openChannel();
+        channel.setMessageHandler(new AbstractMessageHandler() {
+            public void handle(final Connection connection, final InputStream input) throws IOException {
+                replies.add(readAll(input));
+                connection.setMessageHandler(MessageHandler.NULL);
+            }
+        });
+        return channel;
+    }
+
+    private static void send(final Connection connection, final byte[] message) throws IOException {
+        final OutputStream output = connection.writeMessage();
+        try {
+            output.write(message);
+            output.close();
+        } finally {
+            safeClose(output);
+        }
+    }
+
+    private static byte[] readAll(final InputStream input) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StreamUtils.copyStream(input, bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Answers the first message on a connection, which must be the request for a multiplexed connection.
+     */
+    private final class HeaderHandler extends AbstractMessageHandler {
+        public void handle(final Connection connection, final InputStream inputStream) throws IOException {
+            final ByteDataInput input = new SimpleByteDataInput(inputStream);
+            final ManagementRequestHeader requestHeader = new ManagementRequestHeader(input);
+            assertEquals(ManagementProtocol.MULTIPLEXED_CONNECTION, requestHeader.getOperationHandlerId());
+            if (! serverAnswers) {
+                return;
+            }
+            if (serverVersion >= ManagementProtocol.MULTIPLEXED_VERSION) {
+                connection.setMessageHandler(new ManagementMultiplexer(connection, executor, new EchoHandler()));
+            }
+            final OutputStream dataOutput = connection.writeMessage();
+            try {
+                final SimpleByteDataOutput output = new SimpleByteDataOutput(dataOutput);
+                new ManagementResponseHeader(serverVersion, requestHeader.getRequestId()).write(output);
+                output.close();
+                dataOutput.close();
+            } finally {
+                safeClose(dataOutput);
+            }
+        }
+    }
+
+    /**
+     * Sends each message back on the channel it came from, holding back those starting with {@link #SLOW}.
+     */
+    private final class EchoHandler implements ConnectionHandler {
+        public MessageHandler handleConnected(final Connection channel) throws IOException {
+            return new AbstractMessageHandler() {
+                public void handle(final Connection connection, final InputStream input) throws IOException {
+                    echoStarted.countDown();
+                    final byte[] message = readAll(input);
+                    if (message.length > 0 && message[0] == SLOW) {
+                        try {
+                            releaseSlow.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("Interrupted");
+                        }
+                    }
+                    send(connection, message);
+                    connection.setMessageHandler(MessageHandler.NULL);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.protocol.mgmt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.net.ServerSocketFactory;
+import org.jboss.as.protocol.Connection;
+import org.jboss.as.protocol.ConnectionHandler;
+import org.jboss.as.protocol.MessageHandler;
+import org.jboss.as.protocol.ProtocolServer;
+import org.jboss.as.protocol.SimpleByteDataInput;
+import org.jboss.as.protocol.SimpleByteDataOutput;
+import org.jboss.as.protocol.StreamUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.jboss.as.protocol.ProtocolUtils.expectHeader;
+import static org.jboss.as.protocol.StreamUtils.safeClose;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for bundled and {@link ManagementRequest#isStreamed() streamed} management requests, against a server
+ * which handles request headers the way the management communication services do.
+ */
+public final class ManagementRequestStreamingTest {
+
+    private static final byte HANDLER_ID = 0x01;
+    private static final byte SUM_REQUEST = 0x10;
+    private static final byte SUM_RESPONSE = 0x11;
+    private static final byte PROGRESS_REQUEST = 0x20;
+    private static final byte PROGRESS_RESPONSE = 0x21;
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(THREAD_FACTORY);
+    private final CountDownLatch releaseProgress = new CountDownLatch(1);
+    private final BlockingQueue<Integer> bundledBytes = new LinkedBlockingQueue<Integer>();
+    private volatile int serverVersion = ManagementProtocol.VERSION;
+    private ProtocolServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        final ProtocolServer.Configuration config = new ProtocolServer.Configuration();
+        config.setBindAddress(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+        config.setSocketFactory(ServerSocketFactory.getDefault());
+        config.setThreadFactory(THREAD_FACTORY);
+        config.setReadExecutor(executor);
+        config.setConnectionHandler(new ConnectionHandler() {
+            public MessageHandler handleConnected(final Connection connection) throws IOException {
+                return new HeaderHandler();
+            }
+        });
+        server = new ProtocolServer(config);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        releaseProgress.countDown();
+        server.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBundledRequest() throws Exception {
+        assertEquals(sum(1000), new SumRequest(false, 1000).executeForResult(connectionStrategy()));
+        assertTrue(bundledBytes.poll(10L, TimeUnit.SECONDS).intValue() > 1000);
+    }
+
+    @Test
+    public void testBundledRequestToOldPeer() throws Exception {
+        serverVersion = ManagementProtocol.SINGLE_MESSAGE_VERSION - 1;
+        assertEquals(sum(1000), new SumRequest(false, 1000).executeForResult(connectionStrategy()));
+    }
+
+    @Test
+    public void testLargeContentIsStreamed() throws Exception {
+        final int size = 16 << 20;
+        assertEquals(sum(size), new SumRequest(true, size).executeForResult(connectionStrategy()));
+        assertEquals(Integer.valueOf(0), bundledBytes.poll(10L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testLargeContentIsStreamedToOldPeer() throws Exception {
+        serverVersion = ManagementProtocol.SINGLE_MESSAGE_VERSION - 1;
+        final int size = 1 << 20;
+        assertEquals(sum(size), new SumRequest(true, size).executeForResult(connectionStrategy()));
+        assertEquals(Integer.valueOf(0), bundledBytes.poll(10L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStreamedResultsArriveAsProduced() throws Exception {
+        final BlockingQueue<Integer> results = new LinkedBlockingQueue<Integer>();
+        final Future<Void> future = new ProgressRequest(results).execute(connectionStrategy());
+        assertEquals(Integer.valueOf(1), results.poll(10L, TimeUnit.SECONDS));
+        assertFalse(future.isDone());
+        assertNull(results.poll(100L, TimeUnit.MILLISECONDS));
+
+        releaseProgress.countDown();
+        assertEquals(Integer.valueOf(2), results.poll(10L, TimeUnit.SECONDS));
+        future.get();
+    }
+
+    private ManagementRequestConnectionStrategy connectionStrategy() {
+        final InetSocketAddress address = server.getBoundAddress();
+        return new ManagementRequestConnectionStrategy.EstablishConnectingStrategy(address.getAddress(), address.getPort(), 10L, executor, THREAD_FACTORY);
+    }
+
+    private static Long sum(final int size) {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += i % 251;
+        }
+        return Long.valueOf(sum);
+    }
+
+    private static final class SumRequest extends ManagementRequest<Long> {
+        private final boolean streamed;
+        private final int size;
+
+        private SumRequest(final boolean streamed, final int size) {
+            this.streamed = streamed;
+            this.size = size;
+        }
+
+        protected byte getHandlerId() {
+            return HANDLER_ID;
+        }
+
+        protected byte getRequestCode() {
+            return SUM_REQUEST;
+        }
+
+        protected byte getResponseCode() {
+            return SUM_RESPONSE;
+        }
+
+        protected boolean isStreamed() {
+            return streamed;
+        }
+
+        protected void sendRequest(final int protocolVersion, final OutputStream output) throws IOException {
+            final byte[] buffer = new byte[8192];
+            int written = 0;
+            while (written < size) {
+                final int cnt = Math.min(buffer.length, size - written);
+                for (int i = 0; i < cnt; i++) {
+                    buffer[i] = (byte) ((written + i) % 251);
+                }
+                output.write(buffer, 0, cnt);
+                written += cnt;
+            }
+        }
+
+        protected Long receiveResponse(final InputStream input) throws IOException {
+            return Long.valueOf(StreamUtils.readLong(input));
+        }
+    }
+
+    private final class ProgressRequest extends ManagementRequest<Void> {
+        private final BlockingQueue<Integer> results;
+
+        private ProgressRequest(final BlockingQueue<Integer> results) {
+            this.results = results;
+        }
+
+        protected byte getHandlerId() {
+            return HANDLER_ID;
+        }
+
+        protected byte getRequestCode() {
+            return PROGRESS_REQUEST;
+        }
+
+        protected byte getResponseCode() {
+            return PROGRESS_RESPONSE;
+        }
+
+        protected boolean isStreamed() {
+            return true;
+        }
+
+        protected Void receiveResponse(final InputStream input) throws IOException {
+            results.add(Integer.valueOf(StreamUtils.readInt(input)));
+            results.add(Integer.valueOf(StreamUtils.readInt(input)));
+            return null;
+        }
+    }
+
+    /**
+     * Answers request headers, passing the request to the operation handler either from the parts following the
+     * header, or from the messages following it.
+     */
+    private final class HeaderHandler extends AbstractMessageHandler {
+        public void handle(final Connection connection, final InputStream inputStream) throws IOException {
+            final SimpleByteDataInput input = new SimpleByteDataInput(inputStream);
+            final ManagementRequestHeader requestHeader = new ManagementRequestHeader(input);
+            assertEquals(HANDLER_ID, requestHeader.getOperationHandlerId());
+            final int workingVersion = Math.min(serverVersion, requestHeader.getVersion());
+            final MessageHandler handler = new OperationHandler();
+            ManagementMessageBundle responseMessages = null;
+            if (workingVersion >= ManagementProtocol.SINGLE_MESSAGE_VERSION) {
+                final ByteArrayOutputStream parts = new ByteArrayOutputStream();
+                StreamUtils.copyStream(input, parts);
+                bundledBytes.add(Integer.valueOf(parts.size()));
+                responseMessages = new ManagementMessageBundle(connection, handler);
+                responseMessages.dispatch(new ByteArrayInputStream(parts.toByteArray()));
+                connection.setMessageHandler(responseMessages.getMessageHandler());
+            } else {
+                bundledBytes.add(Integer.valueOf(0));
+                connection.setMessageHandler(handler);
+            }
+            final OutputStream dataOutput = connection.writeMessage();
+            try {
+                final SimpleByteDataOutput output = new SimpleByteDataOutput(dataOutput);
+                new ManagementResponseHeader(workingVersion, requestHeader.getRequestId()).write(output);
+                if (responseMessages != null) {
+                    responseMessages.writeTo(output);
+                }
+                output.close();
+                dataOutput.close();
+            } finally {
+                safeClose(dataOutput);
+            }
+        }
+    }
+
+    private final class OperationHandler extends AbstractMessageHandler {
+        public void handle(final Connection connection, final InputStream input) throws IOException {
+            expectHeader(input, ManagementProtocol.REQUEST_OPERATION);
+            final byte requestCode = StreamUtils.readByte(input);
+            final ManagementResponse operation = requestCode == SUM_REQUEST ? new SumResponse() : new ProgressResponse();
+            connection.setMessageHandler(operation);
+            operation.handle(connection, input);
+        }
+    }
+
+    private static final class SumResponse extends ManagementResponse {
+        private long sum;
+
+        protected byte getResponseCode() {
+            return SUM_RESPONSE;
+        }
+
+        protected void readRequest(final InputStream input) throws IOException {
+            final byte[] buffer = new byte[8192];
+            int cnt;
+            while ((cnt = input.read(buffer)) != -1) {
+                for (int i = 0; i < cnt; i++) {
+                    sum += buffer[i] & 0xff;
+                }
+            }
+        }
+
+        protected void sendResponse(final OutputStream output) throws IOException {
+            StreamUtils.writeLong(output, sum);
+        }
+    }
+
+    private final class ProgressResponse extends ManagementResponse {
+        protected byte getResponseCode() {
+            return PROGRESS_RESPONSE;
+        }
+
+        protected void sendResponse(final OutputStream output) throws IOException {
+            StreamUtils.writeInt(output, 1);
+            output.flush();
+            try {
+                releaseProgress.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted");
+            }
+            StreamUtils.writeInt(output, 2);
+        }
+    }
+}
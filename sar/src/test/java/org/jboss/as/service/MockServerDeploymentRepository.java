@@ -31,6 +31,7 @@ import java.util.Set;
 
 import org.jboss.as.deployment.ServerDeploymentRepository;
 import org.jboss.as.deployment.module.TempFileProviderService;
+import org.jboss.jandex.Index;
 import org.jboss.msc.service.BatchBuilder;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.StartContext;
@@ -76,6 +77,15 @@ public class MockServerDeploymentRepository implements ServerDeploymentRepositor
         return handle;
     }
 
+    @Override
+    public Index getAnnotationIndex(byte[] deploymentHash) {
+        return null;
+    }
+
+    @Override
+    public void addAnnotationIndex(byte[] deploymentHash, Index index) throws IOException {
+    }
+
     @Override
     public void start(StartContext context) throws StartException {
     }
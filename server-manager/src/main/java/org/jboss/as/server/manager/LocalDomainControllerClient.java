@@ -70,6 +70,18 @@ public class LocalDomainControllerClient implements ServerManagerClient {
         return true;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean heartbeat() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setReachable(final boolean reachable) {
+        // The local server manager is always reachable
+    }
+
     /** {@inheritDoc} */
     @Override
     public void updateDomainModel(final DomainModel domain) {
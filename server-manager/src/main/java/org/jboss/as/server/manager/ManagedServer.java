@@ -54,6 +54,7 @@ import static org.jboss.as.protocol.ProtocolUtils.expectHeader;
 import static org.jboss.as.protocol.ProtocolUtils.unmarshal;
 import org.jboss.as.protocol.mgmt.ManagementRequest;
 import org.jboss.as.protocol.mgmt.ManagementRequestConnectionStrategy;
+import org.jboss.as.server.ServerBootImage;
 import org.jboss.as.server.ServerController;
 import org.jboss.as.server.ServerEnvironment;
 import org.jboss.as.server.ServerManagerClient;
@@ -61,6 +62,7 @@ import org.jboss.as.server.ServerManagerConnectionService;
 import org.jboss.as.server.ServerStartTask;
 import org.jboss.as.server.ServerState;
 import org.jboss.as.server.mgmt.domain.DomainServerProtocol;
+import org.jboss.logging.Logger;
 import org.jboss.marshalling.Marshaller;
 import org.jboss.marshalling.MarshallerFactory;
 import org.jboss.marshalling.Marshalling;
@@ -85,6 +87,7 @@ import org.jboss.msc.service.ServiceController;
  * @author Brian Stansberry
  */
 public final class ManagedServer {
+    private static final Logger log = Logger.getLogger("org.jboss.as.server.manager");
     private static final MarshallerFactory MARSHALLER_FACTORY;
     private static final MarshallingConfiguration CONFIG;
     static {
@@ -119,6 +122,9 @@ public final class ManagedServer {
     private final List<AbstractServerModelUpdate<?>> updateList = new ArrayList<AbstractServerModelUpdate<?>>();
     private final InetSocketAddress managementSocket;
     private volatile ServerState state;
+    private volatile long bootStartTime;
+    private volatile long bootTime = -1;
+    private byte[] bootImageDigest;
     private Connection serverManagementConnection;
 
     private final byte[] authKey;
@@ -200,6 +206,22 @@ public final class ManagedServer {
         this.state = state;
     }
 
+    /**
+     * Gets how long the last boot of this server took, from the launch request to the server reporting that it
+     * had started.
+     *
+     * @return the boot time in milliseconds, or <code>-1</code> if the server has not finished booting
+     */
+    public long getBootTime() {
+        return bootTime;
+    }
+
+    long bootCompleted() {
+        final long bootTime = System.currentTimeMillis() - bootStartTime;
+        this.bootTime = bootTime;
+        return bootTime;
+    }
+
     int incrementAndGetRespawnCount() {
         return respawnCount.incrementAndGet();
     }
@@ -216,7 +238,12 @@ public final class ManagedServer {
         return serverName;
     }
 
-    List<AbstractServerModelUpdate<?>> getUpdates() {
+    /**
+     * Get the updates the server boots with.
+     *
+     * @return a copy of the boot updates
+     */
+    public List<AbstractServerModelUpdate<?>> getUpdates() {
         return new ArrayList<AbstractServerModelUpdate<?>>(updateList);
     }
 
@@ -284,12 +311,21 @@ public final class ManagedServer {
 
     public void startServerProcess() throws IOException {
 
+        if (state != ServerState.AVAILABLE) {
+            // a new launch rather than the config push following SERVER_AVAILABLE
+            bootStartTime = System.currentTimeMillis();
+            bootTime = -1;
+        }
         setState(ServerState.BOOTING);
 
-
         processManagerClient.startProcess(serverProcessName);
         ServiceActivator serverManagerCommActivator = new ServerManagerCommServiceActivator(managementSocket);
-        ServerStartTask startTask = new ServerStartTask(serverName, portOffset, Collections.<ServiceActivator>singletonList(serverManagerCommActivator), updateList);
+        final List<ServiceActivator> startServices = Collections.<ServiceActivator>singletonList(serverManagerCommActivator);
+        // Only the digest is sent if there is one; a server that cannot use its boot image asks for the updates
+        final byte[] bootImageDigest = getBootImageDigest();
+        final ServerStartTask startTask = bootImageDigest != null
+                ? new ServerStartTask(serverName, portOffset, startServices, bootImageDigest, managementSocket)
+                : new ServerStartTask(serverName, portOffset, startServices, updateList);
         final Marshaller marshaller = MARSHALLER_FACTORY.createMarshaller(CONFIG);
         final OutputStream os = processManagerClient.sendStdin(serverProcessName);
         marshaller.start(Marshalling.createByteOutput(os));
@@ -301,6 +337,33 @@ public final class ManagedServer {
         setState(ServerState.STARTING);
     }
 
+    /**
+     * Get the digest keying the server's boot image, computing it if it was not computed or
+     * {@link #setBootImageDigest(byte[]) set} before.
+     *
+     * @return the digest, or {@code null} if it cannot be computed
+     */
+    synchronized byte[] getBootImageDigest() {
+        // updateList does not change once the server is created
+        if (bootImageDigest == null) {
+            try {
+                bootImageDigest = ServerBootImage.digest(serverName, portOffset, updateList, MARSHALLER_FACTORY.createMarshaller(CONFIG));
+            } catch (IOException e) {
+                log.warnf("Failed to compute boot image digest for server %s: %s", serverName, e);
+            }
+        }
+        return bootImageDigest;
+    }
+
+    /**
+     * Set the digest keying the server's boot image, as computed for a server with the same boot updates.
+     *
+     * @param bootImageDigest the digest
+     */
+    synchronized void setBootImageDigest(final byte[] bootImageDigest) {
+        this.bootImageDigest = bootImageDigest;
+    }
+
     public void stopServerProcess() throws IOException {
         processManagerClient.stopProcess(serverProcessName);
     }
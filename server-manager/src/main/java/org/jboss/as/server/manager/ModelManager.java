@@ -26,6 +26,7 @@ import java.io.BufferedInputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.stream.XMLInputFactory;
 
@@ -54,6 +55,8 @@ public class ModelManager {
     private final HostConfigurationPersister configPersister;
     private DomainModel domainModel;
     private volatile HostModel hostModel;
+    /** Incremented whenever the domain or host model is replaced or updated */
+    private final AtomicLong modelVersion = new AtomicLong();
 
     private final StandardElementReaderRegistrar extensionRegistrar;
     private FileRepository repository;
@@ -90,9 +93,20 @@ public class ModelManager {
         return domainModel;
     }
 
+    /**
+     * Get the version of the domain and host models. The version changes whenever either model is replaced or
+     * updated through this manager, so anything derived from the models can be cached against it.
+     *
+     * @return the model version
+     */
+    public long getModelVersion() {
+        return modelVersion.get();
+    }
+
     void setDomainModel(final DomainModel model) {
         assert model != null : "model is null";
         this.domainModel = model;
+        modelVersion.incrementAndGet();
     }
 
     void setFileRepository(final FileRepository repository) {
@@ -108,6 +122,7 @@ public class ModelManager {
                 if (update instanceof NewRepositoryContentUpdate && repository != null)
                     repository.getDeploymentFiles(((NewRepositoryContentUpdate) update).getHash());
 
+                modelVersion.incrementAndGet();
                 domainModel.update(update);
             }
             catch (UpdateFailedException e) {
@@ -140,6 +155,7 @@ public class ModelManager {
         List<HostUpdateApplierResponse> result = new ArrayList<HostUpdateApplierResponse>(updates.size());
 
         // First we apply updates to our local model copy
+        modelVersion.incrementAndGet();
         boolean ok = true;
         List<AbstractHostModelUpdate<?>> rollbacks = new ArrayList<AbstractHostModelUpdate<?>>();
         for (AbstractHostModelUpdate<?> update : updates) {
@@ -230,6 +230,12 @@ public class RemoteDomainControllerConnection implements DomainControllerConnect
             return DomainControllerProtocol.SYNC_FILE_RESPONSE;
         }
 
+        @Override
+        protected boolean isStreamed() {
+            // The files are written out as they are received rather than held in memory
+            return true;
+        }
+
         @Override
         protected final void sendRequest(final int protocolVersion, final OutputStream outputStream) throws IOException {
             super.sendRequest(protocolVersion, outputStream);
@@ -0,0 +1,248 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.manager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Launches the servers of a server manager, booting up to a fixed number of them at the same time.
+ * <p>
+ * Servers are launched in order of their start priority, lowest first, and in the order they were scheduled within
+ * a priority. A server holds its slot from the time it is launched until it reports that it has started, fails to
+ * start or goes down, so the limit applies to the whole JVM boot and not just to the launch request. A server that
+ * neither starts nor fails within the {@link #BOOT_TIMEOUT_PROPERTY boot timeout} gives up its slot, so that a hung
+ * boot does not hold up the servers after it.
+ */
+final class ServerBootScheduler {
+
+    /** System property naming the number of milliseconds a server may take to boot before its slot is released */
+    static final String BOOT_TIMEOUT_PROPERTY = "jboss.server.boot.timeout";
+
+    private static final long DEFAULT_BOOT_TIMEOUT = 5L * 60L * 1000L;
+
+    private static final Logger log = Logger.getLogger("org.jboss.as.server.manager");
+
+    private final int concurrency;
+    private final long bootTimeout;
+    private final ScheduledThreadPoolExecutor executor;
+    private final PriorityQueue<ScheduledBoot> queue = new PriorityQueue<ScheduledBoot>();
+    private final Map<String, ScheduledBoot> booting = new HashMap<String, ScheduledBoot>();
+    private long sequence;
+    private boolean started;
+    private boolean shutdown;
+
+    /**
+     * Create a new scheduler.
+     *
+     * @param concurrency the maximum number of servers to boot at once, or {@code 0} to use the number of
+     *            available processors
+     */
+    ServerBootScheduler(final int concurrency) {
+        this(concurrency, Long.getLong(BOOT_TIMEOUT_PROPERTY, DEFAULT_BOOT_TIMEOUT).longValue());
+    }
+
+    /**
+     * Create a new scheduler.
+     *
+     * @param concurrency the maximum number of servers to boot at once, or {@code 0} to use the number of
+     *            available processors
+     * @param bootTimeout the number of milliseconds after which a server still booting gives up its slot, or
+     *            {@code 0} to wait indefinitely
+     */
+    ServerBootScheduler(final int concurrency, final long bootTimeout) {
+        if (concurrency < 0) {
+            throw new IllegalArgumentException("concurrency is negative");
+        }
+        if (bootTimeout < 0) {
+            throw new IllegalArgumentException("bootTimeout is negative");
+        }
+        this.concurrency = concurrency == 0 ? Runtime.getRuntime().availableProcessors() : concurrency;
+        this.bootTimeout = bootTimeout;
+        // One thread more than launches, so that boot timeouts are not held up by them
+        executor = new ScheduledThreadPoolExecutor(this.concurrency + 1, new BootThreadFactory());
+        executor.setKeepAliveTime(30L, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Schedule the launch of a server. Servers scheduled before {@link #start()} is called are ordered by priority
+     * as a whole; servers scheduled afterwards only compete with those still waiting.
+     *
+     * @param processName the process name of the server
+     * @param priority the start priority of the server
+     * @param launch the task launching the server; should throw an exception if the server could not be launched
+     */
+    void schedule(final String processName, final int priority, final Runnable launch) {
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            queue.add(new ScheduledBoot(processName, priority, sequence++, launch));
+        }
+        launchNext();
+    }
+
+    /**
+     * Start launching the scheduled servers.
+     */
+    void start() {
+        synchronized (this) {
+            started = true;
+        }
+        launchNext();
+    }
+
+    /**
+     * Release the slot held by a server that has finished booting, whether or not it booted successfully, and launch
+     * the next scheduled server. Calls for servers that were not launched by this scheduler are ignored.
+     *
+     * @param processName the process name of the server
+     */
+    void bootFinished(final String processName) {
+        final ScheduledBoot boot;
+        synchronized (this) {
+            boot = booting.remove(processName);
+            if (boot == null) {
+                return;
+            }
+        }
+        if (boot.timeout != null) {
+            boot.timeout.cancel(false);
+        }
+        launchNext();
+    }
+
+    private void bootTimedOut(final ScheduledBoot boot) {
+        synchronized (this) {
+            // The server may have finished and been launched again meanwhile
+            if (booting.get(boot.processName) != boot) {
+                return;
+            }
+            booting.remove(boot.processName);
+        }
+        log.warnf("Server %s has not finished booting within %d ms; launching the next server", boot.processName, Long.valueOf(bootTimeout));
+        launchNext();
+    }
+
+    /**
+     * Discard the servers that have not been launched yet and stop the launch threads.
+     */
+    void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            queue.clear();
+        }
+        executor.shutdown();
+    }
+
+    private void launchNext() {
+        for (;;) {
+            final ScheduledBoot next;
+            synchronized (this) {
+                if (! started || shutdown || booting.size() >= concurrency || queue.isEmpty()) {
+                    return;
+                }
+                next = queue.poll();
+                booting.put(next.processName, next);
+                if (bootTimeout > 0) {
+                    next.timeout = executor.schedule(new Runnable() {
+                        public void run() {
+                            bootTimedOut(next);
+                        }
+                    }, bootTimeout, TimeUnit.MILLISECONDS);
+                }
+            }
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            next.launch.run();
+                        } catch (Throwable t) {
+                            log.errorf(t, "Failed to launch server %s", next.processName);
+                            bootFinished(next.processName);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Shut down since the slot was taken; the server will not be launched, so give its slot back
+                synchronized (this) {
+                    if (booting.get(next.processName) == next) {
+                        booting.remove(next.processName);
+                    }
+                }
+                if (next.timeout != null) {
+                    next.timeout.cancel(false);
+                }
+                log.debugf("Server %s was not launched as the scheduler is shut down", next.processName);
+                return;
+            }
+        }
+    }
+
+    private static final class ScheduledBoot implements Comparable<ScheduledBoot> {
+        private final String processName;
+        private final int priority;
+        private final long sequence;
+        private final Runnable launch;
+        private ScheduledFuture<?> timeout;
+
+        private ScheduledBoot(final String processName, final int priority, final long sequence, final Runnable launch) {
+            this.processName = processName;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.launch = launch;
+        }
+
+        public int compareTo(final ScheduledBoot o) {
+            if (priority != o.priority) {
+                return priority < o.priority ? -1 : 1;
+            }
+            return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+        }
+    }
+
+    private static final class BootThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "Server boot " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -35,6 +35,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -71,6 +73,7 @@ import org.jboss.as.server.manager.mgmt.ManagementCommunicationServiceInjector;
 import org.jboss.as.server.manager.mgmt.ManagementOperationHandlerService;
 import org.jboss.as.server.manager.mgmt.ServerManagerOperationHandler;
 import org.jboss.as.server.manager.mgmt.ServerToServerManagerOperationHandler;
+import org.jboss.as.services.ServiceRegistryIndex;
 import org.jboss.as.services.net.NetworkInterfaceBinding;
 import org.jboss.as.services.net.NetworkInterfaceService;
 import org.jboss.as.threads.ThreadFactoryService;
@@ -109,15 +112,18 @@ public class ServerManager {
     private final StandardElementReaderRegistrar extensionRegistrar;
     private final FileRepository fileRepository;
     private final ModelManager modelManager;
-    private final ServiceContainer serviceContainer = ServiceContainer.Factory.create();
+    private final ServiceContainer serviceContainer = ServiceRegistryIndex.createIndexedContainer();
     private final AtomicBoolean serversStarted = new AtomicBoolean();
     private final AtomicBoolean stopping = new AtomicBoolean();
-    private final Map<String, ManagedServer> servers = new HashMap<String, ManagedServer>();
+    private final Map<String, ManagedServer> servers = new ConcurrentHashMap<String, ManagedServer>();
+    /** Boot image digests by server name, kept so that restarting a server does not compute its digest again */
+    private final Map<String, BootImageDigest> bootImageDigests = new ConcurrentHashMap<String, BootImageDigest>();
 
     private DomainControllerConnection domainControllerConnection;
     private InetSocketAddress managementSocketAddress;
     private ProcessManagerClient processManagerClient;
     private FallbackRepository remoteBackedRepository;
+    private volatile ServerBootScheduler bootScheduler;
 
     /**
      * The auth code of the server manager itself.
@@ -352,6 +358,10 @@ public class ServerManager {
         if(domainControllerConnection != null) {
             domainControllerConnection.unregister();
         }
+        final ServerBootScheduler bootScheduler = this.bootScheduler;
+        if (bootScheduler != null) {
+            bootScheduler.shutdown();
+        }
         serviceContainer.shutdown();
         // FIXME stop any local DomainController, stop other internal SM services
     }
@@ -405,6 +415,8 @@ public class ServerManager {
         }
         checkState(server, ServerState.STARTING);
         server.setState(ServerState.STARTED);
+        log.infof("Server %s started in %d ms", serverName, Long.valueOf(server.bootCompleted()));
+        bootFinished(serverName);
     }
 
     /**
@@ -422,6 +434,7 @@ public class ServerManager {
         }
         checkState(server, ServerState.STARTING);
         server.setState(ServerState.FAILED);
+        bootFinished(serverName);
     }
 
     /**
@@ -482,6 +495,14 @@ public class ServerManager {
 
         } else {
             server.setState(ServerState.FAILED);
+            bootFinished(downServerName);
+        }
+    }
+
+    private void bootFinished(String serverProcessName) {
+        final ServerBootScheduler bootScheduler = this.bootScheduler;
+        if (bootScheduler != null) {
+            bootScheduler.bootFinished(serverProcessName);
         }
     }
 
@@ -698,6 +719,23 @@ public class ServerManager {
         }
     }
 
+    /**
+     * Gets how long each server took to boot the last time it was started.
+     *
+     * @return the boot times in milliseconds, keyed by server name. Servers which have not finished booting are
+     *         not included
+     */
+    public Map<String, Long> getServerBootTimes() {
+        final Map<String, Long> result = new TreeMap<String, Long>();
+        for (ManagedServer server : servers.values()) {
+            final long bootTime = server.getBootTime();
+            if (bootTime >= 0) {
+                result.put(server.getServerName(), Long.valueOf(bootTime));
+            }
+        }
+        return result;
+    }
+
     public Map<String, ManagedServer> getServers() {
         synchronized (servers) {
             return Collections.unmodifiableMap(servers);
@@ -723,20 +761,32 @@ public class ServerManager {
             if (!environment.isRestart()) {
                 synchronizeDeployments();
                 HostModel hostConfig = getHostModel();
+                final ServerBootScheduler bootScheduler = new ServerBootScheduler(hostConfig.getServerBootConcurrency());
+                this.bootScheduler = bootScheduler;
+                log.infof("Booting up to %d servers at a time", Integer.valueOf(bootScheduler.getConcurrency()));
+                final Map<String, ServerElement> serverEls = new TreeMap<String, ServerElement>();
                 for (ServerElement serverEl : hostConfig.getServers()) {
+                    serverEls.put(serverEl.getName(), serverEl);
+                }
+                for (ServerElement serverEl : serverEls.values()) {
                     // TODO take command line input on what servers to start
                     if (serverEl.isStart()) {
-                        String serverName = serverEl.getName();
-                        log.info("Starting server " + serverName);
-                        try {
-                            startServer(serverName, managementSocketAddress);
-                        } catch (IOException e) {
-                            // FIXME handle failure to start server
-                            log.error("Failed to start server " + serverName, e);
-                        }
+                        final String serverName = serverEl.getName();
+                        bootScheduler.schedule(ManagedServer.getServerProcessName(serverName), serverEl.getStartPriority(), new Runnable() {
+                            public void run() {
+                                log.info("Starting server " + serverName);
+                                try {
+                                    startServer(serverName, managementSocketAddress);
+                                } catch (IOException e) {
+                                    // FIXME handle failure to start server
+                                    throw new RuntimeException("Failed to start server " + serverName, e);
+                                }
+                            }
+                        });
                     }
                     else log.info("Server " + serverEl.getName() + " is configured to not be started");
                 }
+                bootScheduler.start();
             } else {
                 // FIXME -- this got dropped in the move to an update-based boot
                 // handle it properly
@@ -825,7 +875,18 @@ public class ServerManager {
     }
 
     private void startServer(String serverName, InetSocketAddress managementSocket) throws IOException {
+        // Read the version first, so that a digest is never cached against a version older than its updates
+        final long modelVersion = modelManager.getModelVersion();
         ManagedServer server = new ManagedServer(serverName, getDomainModel(), getHostModel(), environment, processManagerClient, managementSocket);
+        final BootImageDigest cached = bootImageDigests.get(serverName);
+        if (cached != null && cached.modelVersion == modelVersion) {
+            server.setBootImageDigest(cached.digest);
+        } else {
+            final byte[] digest = server.getBootImageDigest();
+            if (digest != null) {
+                bootImageDigests.put(serverName, new BootImageDigest(modelVersion, digest));
+            }
+        }
         servers.put(server.getServerProcessName(), server);
         server.addServerProcess();
         server.startServerProcess();
@@ -910,4 +971,15 @@ public class ServerManager {
         }
         return result;
     }
+
+    /** The boot image digest of a server, with the version of the models its boot updates were built from */
+    private static final class BootImageDigest {
+        private final long modelVersion;
+        private final byte[] digest;
+
+        private BootImageDigest(final long modelVersion, final byte[] digest) {
+            this.modelVersion = modelVersion;
+            this.digest = digest;
+        }
+    }
 }
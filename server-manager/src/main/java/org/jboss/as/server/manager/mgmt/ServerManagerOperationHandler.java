@@ -140,6 +140,9 @@ public class ServerManagerOperationHandler extends AbstractMessageHandler implem
             case ServerManagerProtocol.RESTART_SERVER_REQUEST: {
                 return new RestartServerOperation();
             }
+            case ServerManagerProtocol.HEARTBEAT_REQUEST: {
+                return new HeartbeatOperation();
+            }
             default: {
                 return null;
             }
@@ -465,6 +468,13 @@ public class ServerManagerOperationHandler extends AbstractMessageHandler implem
         }
     }
 
+    private class HeartbeatOperation extends ManagementResponse {
+        @Override
+        protected final byte getResponseCode() {
+            return ServerManagerProtocol.HEARTBEAT_RESPONSE;
+        }
+    }
+
     private static Marshaller getMarshaller() throws IOException {
         return ProtocolUtils.getMarshaller(ProtocolUtils.MODULAR_CONFIG);
     }
@@ -24,7 +24,11 @@ package org.jboss.as.server.manager.mgmt;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import org.jboss.as.model.AbstractServerModelUpdate;
 import org.jboss.as.protocol.Connection;
+import org.jboss.as.protocol.ProtocolUtils;
 import static org.jboss.as.protocol.ProtocolUtils.expectHeader;
 import org.jboss.as.protocol.StreamUtils;
 import static org.jboss.as.protocol.StreamUtils.readUTFZBytes;
@@ -36,6 +40,8 @@ import org.jboss.as.server.manager.ManagedServer;
 import org.jboss.as.server.manager.ServerManager;
 import org.jboss.as.server.mgmt.domain.DomainServerProtocol;
 import org.jboss.logging.Logger;
+import org.jboss.marshalling.Marshaller;
+import static org.jboss.marshalling.Marshalling.createByteOutput;
 
 /**
  * Operation handler responsible for requests coming in from server processes.
@@ -73,6 +79,9 @@ public class ServerToServerManagerOperationHandler extends AbstractMessageHandle
             case DomainServerProtocol.REGISTER_REQUEST: {
                 return new ServerRegisterCommand();
             }
+            case DomainServerProtocol.GET_BOOT_UPDATES_REQUEST: {
+                return new GetBootUpdatesCommand();
+            }
             default: {
                 return null;
             }
@@ -105,4 +114,42 @@ public class ServerToServerManagerOperationHandler extends AbstractMessageHandle
             managedServer.setServerManagementConnection(connection);
         }
     }
+
+    /**
+     * Sends a booting server its boot updates, for when the server cannot use its boot image.
+     */
+    private class GetBootUpdatesCommand extends ManagementResponse {
+        private List<AbstractServerModelUpdate<?>> updates;
+
+        protected byte getResponseCode() {
+            return DomainServerProtocol.GET_BOOT_UPDATES_RESPONSE;
+        }
+
+        protected void readRequest(final InputStream input) throws IOException {
+            expectHeader(input, DomainServerProtocol.PARAM_SERVER_NAME);
+            final String serverName = readUTFZBytes(input);
+            final ManagedServer managedServer = serverManager.getServer(ManagedServer.getServerProcessName(serverName));
+            if (managedServer == null) {
+                log.errorf("Boot updates requested for unknown server [%s]", serverName);
+                return;
+            }
+            log.debugf("Sending boot updates to server [%s]", serverName);
+            updates = managedServer.getUpdates();
+        }
+
+        protected void sendResponse(final OutputStream output) throws IOException {
+            final Marshaller marshaller = ProtocolUtils.getMarshaller(ProtocolUtils.MODULAR_CONFIG);
+            marshaller.start(createByteOutput(output));
+            marshaller.writeByte(DomainServerProtocol.PARAM_SERVER_MODEL_UPDATE_COUNT);
+            // A negative count tells the server that it is not known here
+            marshaller.writeInt(updates == null ? -1 : updates.size());
+            if (updates != null) {
+                for (AbstractServerModelUpdate<?> update : updates) {
+                    marshaller.writeByte(DomainServerProtocol.PARAM_SERVER_MODEL_UPDATE);
+                    marshaller.writeObject(update);
+                }
+            }
+            marshaller.finish();
+        }
+    }
 }
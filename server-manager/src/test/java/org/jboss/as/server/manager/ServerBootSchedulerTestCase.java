@@ -0,0 +1,181 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests of {@link ServerBootScheduler}.
+ */
+public class ServerBootSchedulerTestCase {
+
+    private final BlockingQueue<String> launched = new LinkedBlockingQueue<String>();
+    private ServerBootScheduler scheduler;
+
+    @After
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testServersStartInPriorityOrder() throws Exception {
+        scheduler = new ServerBootScheduler(1, 0L);
+        schedule("server-c", 0);
+        schedule("server-a", 10);
+        schedule("server-b", -5);
+        schedule("server-d", 0);
+        scheduler.start();
+
+        final List<String> order = new ArrayList<String>();
+        for (int i = 0; i < 4; i++) {
+            final String next = take();
+            order.add(next);
+            assertNull("Launched before " + next + " finished booting", launched.poll(100L, TimeUnit.MILLISECONDS));
+            scheduler.bootFinished(next);
+        }
+        assertEquals(Arrays.asList("server-b", "server-c", "server-d", "server-a"), order);
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        scheduler = new ServerBootScheduler(2, 0L);
+        for (int i = 0; i < 5; i++) {
+            schedule("server-" + i, 0);
+        }
+        scheduler.start();
+        // The first two are launched in parallel, in either order
+        assertEquals(new HashSet<String>(Arrays.asList("server-0", "server-1")), new HashSet<String>(Arrays.asList(take(), take())));
+        assertNull(launched.poll(200L, TimeUnit.MILLISECONDS));
+
+        scheduler.bootFinished("server-1");
+        assertEquals("server-2", take());
+        assertNull(launched.poll(200L, TimeUnit.MILLISECONDS));
+
+        // Servers the scheduler did not launch do not free a slot
+        scheduler.bootFinished("other");
+        assertNull(launched.poll(200L, TimeUnit.MILLISECONDS));
+        scheduler.bootFinished("server-0");
+        assertEquals("server-3", take());
+    }
+
+    @Test
+    public void testNothingLaunchedBeforeStart() throws Exception {
+        scheduler = new ServerBootScheduler(4, 0L);
+        schedule("server-a", 0);
+        assertNull(launched.poll(200L, TimeUnit.MILLISECONDS));
+        scheduler.start();
+        assertEquals("server-a", take());
+        // Once started, servers are launched as they are scheduled
+        schedule("server-b", 0);
+        assertEquals("server-b", take());
+    }
+
+    @Test
+    public void testFailedLaunchFreesSlot() throws Exception {
+        scheduler = new ServerBootScheduler(1, 0L);
+        scheduler.schedule("broken", 0, new Runnable() {
+            public void run() {
+                launched.add("broken");
+                throw new IllegalStateException("launch failed");
+            }
+        });
+        schedule("server-a", 1);
+        scheduler.start();
+        assertEquals("broken", take());
+        assertEquals("server-a", take());
+    }
+
+    @Test
+    public void testHungBootTimesOut() throws Exception {
+        scheduler = new ServerBootScheduler(1, 300L);
+        schedule("hung", 0);
+        schedule("server-a", 1);
+        scheduler.start();
+        assertEquals("hung", take());
+        // hung never reports that it finished booting
+        assertEquals("server-a", take());
+
+        // A late report neither frees a slot nor disturbs the running boot
+        scheduler.bootFinished("hung");
+        schedule("server-b", 0);
+        assertNull(launched.poll(100L, TimeUnit.MILLISECONDS));
+        scheduler.bootFinished("server-a");
+        assertEquals("server-b", take());
+    }
+
+    @Test
+    public void testFinishedBootDoesNotTimeOut() throws Exception {
+        scheduler = new ServerBootScheduler(1, 400L);
+        schedule("server-a", 0);
+        schedule("server-b", 1);
+        scheduler.start();
+        assertEquals("server-a", take());
+        Thread.sleep(200L);
+        scheduler.bootFinished("server-a");
+        assertEquals("server-b", take());
+        schedule("server-c", 2);
+        // server-b holds the slot until its own timeout; the cancelled timeout of server-a must not free it
+        assertNull(launched.poll(300L, TimeUnit.MILLISECONDS));
+        assertEquals("server-c", take());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeConcurrency() {
+        new ServerBootScheduler(-1, 0L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeTimeout() {
+        new ServerBootScheduler(1, -1L);
+    }
+
+    private void schedule(final String name, final int priority) {
+        scheduler.schedule(name, priority, new Runnable() {
+            public void run() {
+                launched.add(name);
+            }
+        });
+    }
+
+    private String take() throws InterruptedException {
+        final String name = launched.poll(5L, TimeUnit.SECONDS);
+        if (name == null) {
+            throw new AssertionError("No server was launched");
+        }
+        return name;
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server;
+
+import static org.jboss.as.protocol.StreamUtils.safeClose;
+import static org.jboss.marshalling.Marshalling.createByteInput;
+import static org.jboss.marshalling.Marshalling.createByteOutput;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.jboss.as.model.AbstractServerModelUpdate;
+import org.jboss.as.model.ServerModel;
+import org.jboss.as.protocol.ProtocolUtils;
+import org.jboss.as.version.Version;
+import org.jboss.logging.Logger;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.Unmarshaller;
+
+/**
+ * The boot image of a domain server: the server's boot updates and the server model built from them, stored in the
+ * server's data directory.
+ * <p>
+ * The image is keyed by a digest of the server name, port offset and boot updates, computed by the server manager
+ * and sent in place of the updates. If the image on disk has the same digest, the server takes the updates from the
+ * image and restores the model from it instead of replaying the updates against an empty model. An image that is
+ * missing, stale or cannot be read is never fatal: the server gets the updates from the server manager, replays them
+ * as it would without an image and stores a new one.
+ * <p>
+ * The file starts with a magic number, a format version and the digest, followed by the length and checksum of the
+ * payload and the payload itself, which holds the marshalled model and updates.
+ */
+public final class ServerBootImage {
+
+    /** Name of the boot image file in the server data directory */
+    public static final String FILE_NAME = "boot-image";
+
+    private static final Logger log = Logger.getLogger("org.jboss.as.server");
+
+    static final int MAGIC = 0x4A424249;
+    static final int VERSION = 3;
+
+    private final ServerModel serverModel;
+    private final List<AbstractServerModelUpdate<?>> updates;
+
+    private ServerBootImage(final ServerModel serverModel, final List<AbstractServerModelUpdate<?>> updates) {
+        this.serverModel = serverModel;
+        this.updates = updates;
+    }
+
+    /**
+     * Get the server model built from the boot updates.
+     *
+     * @return the server model
+     */
+    public ServerModel getServerModel() {
+        return serverModel;
+    }
+
+    /**
+     * Get the boot updates the image was built from.
+     *
+     * @return the updates, in the order they were applied
+     */
+    public List<AbstractServerModelUpdate<?>> getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Compute the digest of a server's boot updates, as used to key the boot image. The digest covers the release
+     * version, so an image is not restored by a different release.
+     *
+     * @param serverName the server name
+     * @param portOffset the server's port offset
+     * @param updates the updates
+     * @param marshaller an unstarted marshaller
+     * @return the digest
+     * @throws IOException if the updates cannot be marshalled
+     */
+    public static byte[] digest(final String serverName, final int portOffset, final List<AbstractServerModelUpdate<?>> updates, final Marshaller marshaller) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        marshaller.start(createByteOutput(bytes));
+        marshaller.writeUTF(String.valueOf(Version.AS_VERSION));
+        marshaller.writeUTF(serverName);
+        marshaller.writeInt(portOffset);
+        marshaller.writeInt(updates.size());
+        for (AbstractServerModelUpdate<?> update : updates) {
+            marshaller.writeObject(update);
+        }
+        marshaller.finish();
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(bytes.toByteArray());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Restore the boot image in a file. An image that does not match the digest, is of another format version or
+     * cannot be read is removed, so that it is replaced once the updates are replayed.
+     *
+     * @param file the boot image file
+     * @param digest the digest of the boot updates
+     * @return the restored image, or {@code null} if the updates must be replayed
+     */
+    public static ServerBootImage restore(final File file, final byte[] digest) {
+        return restore(file, digest, ProtocolUtils.MODULAR_CONFIG);
+    }
+
+    static ServerBootImage restore(final File file, final byte[] digest, final MarshallingConfiguration config) {
+        if (! file.isFile()) {
+            return null;
+        }
+        try {
+            return load(file, digest, config);
+        } catch (IOException e) {
+            log.infof("Cannot boot from boot image %s, replaying the boot updates: %s", file, e);
+        } catch (RuntimeException e) {
+            log.warnf(e, "Cannot boot from boot image %s, replaying the boot updates", file);
+        }
+        if (! file.delete()) {
+            log.warnf("Failed to delete boot image %s", file);
+        }
+        return null;
+    }
+
+    /**
+     * Load the boot image in a file.
+     *
+     * @param file the boot image file
+     * @param digest the expected digest
+     * @param config the configuration the image was marshalled with
+     * @return the boot image
+     * @throws IOException if the file cannot be read, is of another format version, is corrupt, or was not built
+     *      from updates with the given digest
+     */
+    static ServerBootImage load(final File file, final byte[] digest, final MarshallingConfiguration config) throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Boot image " + file + " is not a boot image");
+            }
+            final int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Boot image " + file + " has format version " + version + " rather than " + VERSION);
+            }
+            final int digestLength = input.readInt();
+            if (digestLength <= 0 || digestLength > 64) {
+                throw new IOException("Boot image " + file + " is corrupt");
+            }
+            final byte[] fileDigest = new byte[digestLength];
+            input.readFully(fileDigest);
+            if (! Arrays.equals(fileDigest, digest)) {
+                throw new IOException("Boot image " + file + " does not match the boot updates");
+            }
+            final int length = input.readInt();
+            final long checksum = input.readLong();
+            if (length < 0 || length > file.length()) {
+                throw new IOException("Boot image " + file + " is corrupt");
+            }
+            final byte[] payload = new byte[length];
+            input.readFully(payload);
+            if (checksum(payload) != checksum) {
+                throw new IOException("Boot image " + file + " is corrupt");
+            }
+            final Unmarshaller unmarshaller = ProtocolUtils.getUnmarshaller(config);
+            unmarshaller.start(createByteInput(new ByteArrayInputStream(payload)));
+            final ServerModel serverModel = ProtocolUtils.unmarshal(unmarshaller, ServerModel.class);
+            final int count = unmarshaller.readInt();
+            if (count < 0) {
+                throw new IOException("Boot image " + file + " is corrupt");
+            }
+            final List<AbstractServerModelUpdate<?>> updates = new ArrayList<AbstractServerModelUpdate<?>>(count);
+            for (int i = 0; i < count; i++) {
+                updates.add(ProtocolUtils.unmarshal(unmarshaller, AbstractServerModelUpdate.class));
+            }
+            unmarshaller.finish();
+            return new ServerBootImage(serverModel, Collections.unmodifiableList(updates));
+        } catch (EOFException e) {
+            throw new IOException("Boot image " + file + " is truncated");
+        } finally {
+            safeClose(input);
+        }
+    }
+
+    /**
+     * Marshal a boot image. This should be called before the model can be changed by anything but the boot updates.
+     *
+     * @param digest the digest of the boot updates
+     * @param serverModel the model built from the boot updates
+     * @param updates the boot updates
+     * @return the image content, to pass to {@link #store(File, byte[])}
+     * @throws IOException if the model or updates cannot be marshalled
+     */
+    public static byte[] toBytes(final byte[] digest, final ServerModel serverModel, final List<AbstractServerModelUpdate<?>> updates) throws IOException {
+        return toBytes(digest, serverModel, updates, ProtocolUtils.MODULAR_CONFIG);
+    }
+
+    static byte[] toBytes(final byte[] digest, final ServerModel serverModel, final List<AbstractServerModelUpdate<?>> updates, final MarshallingConfiguration config) throws IOException {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final Marshaller marshaller = ProtocolUtils.getMarshaller(config);
+        marshaller.start(createByteOutput(payload));
+        marshaller.writeObject(serverModel);
+        marshaller.writeInt(updates.size());
+        for (AbstractServerModelUpdate<?> update : updates) {
+            marshaller.writeObject(update);
+        }
+        marshaller.finish();
+        final byte[] model = payload.toByteArray();
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(model.length + digest.length + 24);
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(digest.length);
+        output.write(digest);
+        output.writeInt(model.length);
+        output.writeLong(checksum(model));
+        output.write(model);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write a boot image to a file. The image is written to a temporary file first and then renamed, so a reader
+     * sees either the old image or the new one.
+     *
+     * @param file the boot image file
+     * @param image the image content from {@link #toBytes(byte[], ServerModel, List)}
+     * @throws IOException if the file cannot be written
+     */
+    public static void store(final File file, final byte[] image) throws IOException {
+        final File dir = file.getParentFile();
+        if (! dir.isDirectory() && ! dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        final File tmp = new File(dir, file.getName() + ".tmp");
+        final FileOutputStream output = new FileOutputStream(tmp);
+        try {
+            output.write(image);
+            output.getFD().sync();
+            output.close();
+        } finally {
+            safeClose(output);
+        }
+        if (! tmp.renameTo(file)) {
+            // Windows will not rename over an existing file
+            if (! file.delete() || ! tmp.renameTo(file)) {
+                throw new IOException("Cannot rename " + tmp + " to " + file);
+            }
+        }
+    }
+
+    private static long checksum(final byte[] bytes) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+}
@@ -115,7 +115,8 @@ final class ServerControllerImpl implements ServerController, Service<ServerCont
     }
 
     public <R, P> void update(final AbstractServerModelUpdate<R> update, final UpdateResultHandler<R, P> resultHandler, final P param) {
-        final UpdateContextImpl updateContext = new UpdateContextImpl(container.batchBuilder(), container);
+        final BatchBuilder batchBuilder = container.batchBuilder();
+        final UpdateContextImpl updateContext = new UpdateContextImpl(batchBuilder, container);
         synchronized (serverModel) {
             try {
                 serverModel.update(update);
@@ -194,7 +195,7 @@ final class ServerControllerImpl implements ServerController, Service<ServerCont
         @Override
         public void handleUpdateCommit(ServerUpdateController controller, Status priorStatus) {
             log.tracef("Committed with prior status %s", priorStatus);
-            configurationPersister.configurationModified();
+            configurationPersister.configurationModified(controller);
 
             for (int i = 0; i < count; i++) {
                 responses.add(map.get(Integer.valueOf(i)));
@@ -30,8 +30,6 @@ import java.util.List;
 import org.jboss.as.model.AbstractServerModelUpdate;
 import org.jboss.as.model.ServerModel;
 import org.jboss.as.model.UpdateResultHandlerResponse;
-import org.jboss.as.protocol.ByteDataInput;
-import org.jboss.as.protocol.ByteDataOutput;
 import org.jboss.as.protocol.Connection;
 import org.jboss.as.protocol.MessageHandler;
 import org.jboss.as.protocol.ProtocolUtils;
@@ -43,6 +41,7 @@ import org.jboss.as.protocol.StreamUtils;
 import static org.jboss.as.protocol.StreamUtils.safeClose;
 import static org.jboss.as.protocol.StreamUtils.writeUTFZBytes;
 import org.jboss.as.protocol.mgmt.AbstractMessageHandler;
+import org.jboss.as.protocol.mgmt.ManagementMessageBundle;
 import org.jboss.as.protocol.mgmt.ManagementProtocol;
 import org.jboss.as.protocol.mgmt.ManagementRequest;
 import org.jboss.as.protocol.mgmt.ManagementRequestConnectionStrategy;
@@ -116,7 +115,8 @@ public class ServerManagerClient implements Service<Void> {
         public void handle(Connection connection, InputStream dataStream) throws IOException {
             final int workingVersion;
             final ManagementRequestHeader requestHeader;
-            ByteDataInput input = null;
+            ManagementMessageBundle responseMessages = null;
+            SimpleByteDataInput input = null;
             try {
                 input = new SimpleByteDataInput(dataStream);
 
@@ -130,7 +130,14 @@ public class ServerManagerClient implements Service<Void> {
                 if (handlerId == -1) {
                     throw new IOException("Management request failed.  Invalid handler id");
                 }
-                connection.setMessageHandler(requestStartHeader);
+                if (workingVersion >= ManagementProtocol.SINGLE_MESSAGE_VERSION) {
+                    // The request follows the header, and the response is sent along with the response header
+                    responseMessages = new ManagementMessageBundle(connection, requestStartHeader);
+                    responseMessages.dispatch(input);
+                    connection.setMessageHandler(responseMessages.getMessageHandler());
+                } else {
+                    connection.setMessageHandler(requestStartHeader);
+                }
             } catch (IOException e) {
                 throw e;
             } catch (Throwable t) {
@@ -140,7 +147,7 @@ public class ServerManagerClient implements Service<Void> {
             }
 
             OutputStream dataOutput = null;
-            ByteDataOutput output = null;
+            SimpleByteDataOutput output = null;
             try {
                 dataOutput = connection.writeMessage();
                 output = new SimpleByteDataOutput(dataOutput);
@@ -148,6 +155,9 @@ public class ServerManagerClient implements Service<Void> {
                 // Now write the response header
                 final ManagementResponseHeader responseHeader = new ManagementResponseHeader(workingVersion, requestHeader.getRequestId());
                 responseHeader.write(output);
+                if (responseMessages != null) {
+                    responseMessages.writeTo(output);
+                }
 
                 output.close();
                 dataOutput.close();
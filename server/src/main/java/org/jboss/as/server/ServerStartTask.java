@@ -22,40 +22,56 @@
 
 package org.jboss.as.server;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectInputValidation;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.security.AccessController;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.jboss.as.deployment.chain.JarDeploymentActivator;
+import org.jboss.as.deployment.chain.PhasedDeploymentProcessor;
 import org.jboss.as.deployment.module.ClassifyingModuleLoaderInjector;
 import org.jboss.as.deployment.module.ClassifyingModuleLoaderService;
 import org.jboss.as.deployment.module.DeploymentModuleLoaderImpl;
 import org.jboss.as.deployment.module.DeploymentModuleLoaderService;
 import org.jboss.as.model.AbstractServerModelUpdate;
+import org.jboss.as.model.DeploymentUpdateContext;
 import org.jboss.as.model.ServerModel;
 import org.jboss.as.model.UpdateContext;
 import org.jboss.as.model.UpdateFailedException;
+import org.jboss.as.protocol.ProtocolUtils;
+import org.jboss.as.protocol.mgmt.ManagementRequest;
+import org.jboss.as.protocol.mgmt.ManagementRequestConnectionStrategy;
 import org.jboss.as.server.mgmt.ServerConfigurationPersister;
 import org.jboss.as.server.mgmt.ServerConfigurationPersisterImpl;
 import org.jboss.as.server.mgmt.ShutdownHandlerImpl;
+import org.jboss.as.server.mgmt.domain.DomainServerProtocol;
 import org.jboss.as.server.mgmt.deployment.ServerDeploymentManagerImpl;
 import org.jboss.as.server.mgmt.deployment.ServerDeploymentRepositoryImpl;
 import org.jboss.as.server.standalone.deployment.DeploymentScannerFactoryService;
 import org.jboss.as.server.standalone.management.StandaloneServerManagementServices;
+import org.jboss.as.services.ServiceRegistryIndex;
 import org.jboss.as.services.net.SocketBindingManager;
 import org.jboss.as.services.net.SocketBindingManagerService;
 import org.jboss.as.version.Version;
 import org.jboss.logging.Logger;
 import org.jboss.logging.MDC;
+import org.jboss.marshalling.Unmarshaller;
 import org.jboss.msc.service.BatchBuilder;
 import org.jboss.msc.service.BatchServiceBuilder;
 import org.jboss.msc.service.Service;
@@ -67,6 +83,12 @@ import org.jboss.msc.service.ServiceController.Mode;
 import org.jboss.msc.service.ServiceName;
 import org.jboss.msc.service.ServiceRegistryException;
 import org.jboss.msc.service.StartException;
+import org.jboss.threads.JBossThreadFactory;
+
+import static org.jboss.as.protocol.ProtocolUtils.expectHeader;
+import static org.jboss.as.protocol.ProtocolUtils.unmarshal;
+import static org.jboss.as.protocol.StreamUtils.writeUTFZBytes;
+import static org.jboss.marshalling.Marshalling.createByteInput;
 
 /**
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
@@ -77,33 +99,65 @@ public final class ServerStartTask implements ServerTask, Serializable, ObjectIn
 
     private static final long serialVersionUID = -8505496119636153918L;
 
+    /** Seconds allowed for connecting to the server manager to get the boot updates */
+    private static final long BOOT_UPDATES_CONNECT_TIMEOUT = 10L;
+    /** Seconds allowed for getting the boot updates from the server manager */
+    private static final long BOOT_UPDATES_TIMEOUT = 60L;
+
     private final String serverName;
     private final int portOffset;
     private final List<ServiceActivator> startServices;
     private final List<AbstractServerModelUpdate<?>> updates;
     private final ServerEnvironment providedEnvironment;
+    private final byte[] bootImageDigest;
+    private final InetSocketAddress serverManagerAddress;
 
     private static final Logger log = Logger.getLogger("org.jboss.as.server");
 
     /** Constructor variant for use by the ServerManager */
     public ServerStartTask(final String serverName, final int portOffset, final List<ServiceActivator> startServices, final List<AbstractServerModelUpdate<?>> updates) {
-        this(serverName, portOffset, startServices, updates, null);
+        this(serverName, portOffset, startServices, updates, null, null, null);
+        if (serverName == null || serverName.length() == 0) {
+            throw new IllegalArgumentException("Server name " + serverName + " is invalid; cannot be null or blank");
+        }
+        if (updates == null) {
+            throw new IllegalArgumentException("updates is null");
+        }
+    }
+
+    /**
+     * Constructor variant for use by the ServerManager when the server keeps a {@link ServerBootImage boot image}.
+     * Only the digest of the boot updates is sent. If the boot image was built from updates with that digest the
+     * server boots from the image; otherwise the server gets the updates from the server manager at the given
+     * address, replays them and stores a new boot image.
+     */
+    public ServerStartTask(final String serverName, final int portOffset, final List<ServiceActivator> startServices, final byte[] bootImageDigest, final InetSocketAddress serverManagerAddress) {
+        this(serverName, portOffset, startServices, null, null, bootImageDigest, serverManagerAddress);
         if (serverName == null || serverName.length() == 0) {
             throw new IllegalArgumentException("Server name " + serverName + " is invalid; cannot be null or blank");
         }
+        if (bootImageDigest == null) {
+            throw new IllegalArgumentException("bootImageDigest is null");
+        }
+        if (serverManagerAddress == null) {
+            throw new IllegalArgumentException("serverManagerAddress is null");
+        }
     }
 
     /** Constructor variant for use by StandaloneServer */
     public ServerStartTask(final int portOffset, final List<ServiceActivator> startServices, final List<AbstractServerModelUpdate<?>> updates, final ServerEnvironment environment) {
-        this(null, portOffset, startServices, updates, environment);
+        this(null, portOffset, startServices, updates, environment, null, null);
     }
 
-    private ServerStartTask(final String serverName, final int portOffset, final List<ServiceActivator> startServices, final List<AbstractServerModelUpdate<?>> updates, final ServerEnvironment environment) {
+    private ServerStartTask(final String serverName, final int portOffset, final List<ServiceActivator> startServices, final List<AbstractServerModelUpdate<?>> updates, final ServerEnvironment environment,
+            final byte[] bootImageDigest, final InetSocketAddress serverManagerAddress) {
         this.serverName = serverName;
         this.portOffset = portOffset;
         this.startServices = startServices;
         this.updates = updates;
         this.providedEnvironment = environment;
+        this.bootImageDigest = bootImageDigest;
+        this.serverManagerAddress = serverManagerAddress;
     }
 
     public void run(final List<ServiceActivator> startServices) {
@@ -117,7 +171,7 @@ public final class ServerStartTask implements ServerTask, Serializable, ObjectIn
 
             log.infof("Starting standalone server");
         }
-        final ServiceContainer container = ServiceContainer.Factory.create();
+        final ServiceContainer container = ServiceRegistryIndex.createIndexedContainer();
         final int threads = Runtime.getRuntime().availableProcessors();
         container.setExecutor(new ThreadPoolExecutor(threads, threads, Long.MAX_VALUE, TimeUnit.NANOSECONDS, new LinkedBlockingQueue<Runnable>()));
 
@@ -149,14 +203,26 @@ public final class ServerStartTask implements ServerTask, Serializable, ObjectIn
 
         // Next-stage services
 
-        // Initial model
-        final ServerModel serverModel = new ServerModel(serverName, portOffset);
-
         final Properties systemProperties = System.getProperties();
         final ServerEnvironment environment = providedEnvironment != null
                         ? providedEnvironment
                         : new ServerEnvironment(systemProperties, serverName, false);
 
+        // Initial model
+        final File bootImageFile = bootImageDigest == null ? null : new File(environment.getServerDataDir(), ServerBootImage.FILE_NAME);
+        final ServerBootImage bootImage = bootImageFile == null ? null : ServerBootImage.restore(bootImageFile, bootImageDigest);
+        final boolean replay = bootImage == null;
+        final ServerModel serverModel;
+        final List<AbstractServerModelUpdate<?>> bootUpdates;
+        if (replay) {
+            serverModel = new ServerModel(serverName, portOffset);
+            bootUpdates = updates != null ? updates : requestBootUpdates();
+        } else {
+            serverModel = bootImage.getServerModel();
+            bootUpdates = bootImage.getUpdates();
+            log.debugf("Restored server model from boot image %s", bootImageFile);
+        }
+
         log.info("Activating core services");
 
         // The server controller
@@ -205,11 +271,16 @@ public final class ServerStartTask implements ServerTask, Serializable, ObjectIn
             }
         });
 
-        for (AbstractServerModelUpdate<?> update : updates) {
-            try {
-                serverModel.update(update);
-            } catch (UpdateFailedException e) {
-                throw new IllegalStateException("Failed to start server", e);
+        if (replay) {
+            for (AbstractServerModelUpdate<?> update : bootUpdates) {
+                try {
+                    serverModel.update(update);
+                } catch (UpdateFailedException e) {
+                    throw new IllegalStateException("Failed to start server", e);
+                }
+            }
+            if (bootImageFile != null) {
+                storeBootImage(bootImageFile, serverModel, bootUpdates);
             }
         }
 
@@ -223,7 +294,7 @@ public final class ServerStartTask implements ServerTask, Serializable, ObjectIn
             }
         };
 
-        for (AbstractServerModelUpdate<?> update : updates) {
+        for (AbstractServerModelUpdate<?> update : bootUpdates) {
             if(!update.isDeploymentUpdate()) {
                 update.applyUpdateBootAction(context);
             }
@@ -232,7 +303,7 @@ public final class ServerStartTask implements ServerTask, Serializable, ObjectIn
         StandaloneServerManagementServices.addServices(serverModel, container, batchBuilder);
 
         try {
-            serverStartupListener.startBatch(createDeploymentTask(container, serverStartupListener));
+            serverStartupListener.startBatch(createDeploymentTask(container, serverStartupListener, bootUpdates));
             batchBuilder.install();
             serverStartupListener.finishBatch();
         } catch (ServiceRegistryException e) {
@@ -240,7 +311,52 @@ public final class ServerStartTask implements ServerTask, Serializable, ObjectIn
         }
     }
 
-    private Runnable createDeploymentTask(final ServiceContainer container, final ServerStartupListener serverStartupListener) {
+    /**
+     * Get the boot updates from the server manager, for when they were not sent as the boot image could be used.
+     */
+    private List<AbstractServerModelUpdate<?>> requestBootUpdates() {
+        log.infof("Boot image cannot be used; getting the boot updates from the server manager at %s", serverManagerAddress);
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final List<AbstractServerModelUpdate<?>> updates = new GetBootUpdatesRequest(serverName).execute(
+                    new ManagementRequestConnectionStrategy.EstablishConnectingStrategy(serverManagerAddress.getAddress(), serverManagerAddress.getPort(),
+                            BOOT_UPDATES_CONNECT_TIMEOUT, executor, Executors.defaultThreadFactory())).get(BOOT_UPDATES_TIMEOUT, TimeUnit.SECONDS);
+            if (updates == null) {
+                throw new IllegalStateException("Server " + serverName + " is not known to the server manager");
+            }
+            return updates;
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to get the boot updates from the server manager", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void storeBootImage(final File bootImageFile, final ServerModel serverModel, final List<AbstractServerModelUpdate<?>> bootUpdates) {
+        // Marshal now, before the model can change; write the file off the boot path
+        final byte[] image;
+        try {
+            image = ServerBootImage.toBytes(bootImageDigest, serverModel, bootUpdates);
+        } catch (IOException e) {
+            log.warnf("Failed to create boot image: %s", e);
+            return;
+        }
+        final Thread writer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    ServerBootImage.store(bootImageFile, image);
+                } catch (IOException e) {
+                    log.warnf("Failed to store boot image %s: %s", bootImageFile, e);
+                }
+            }
+        }, "Boot image writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private Runnable createDeploymentTask(final ServiceContainer container, final ServerStartupListener serverStartupListener, final List<AbstractServerModelUpdate<?>> updates) {
         return new Runnable() {
             public void run() {
                 // Activate deployments once the first batch is complete.
@@ -248,20 +364,36 @@ public final class ServerStartTask implements ServerTask, Serializable, ObjectIn
                 deploymentBatchBuilder.addListener(serverStartupListener);
                 serverStartupListener.startBatch(null);
 
-                final UpdateContext context = new UpdateContext() {
-                    public BatchBuilder getBatchBuilder() {
-                        return deploymentBatchBuilder;
-                    }
-
-                    public ServiceContainer getServiceContainer() {
-                        return container;
-                    }
-                };
-
-                for (AbstractServerModelUpdate<?> update : updates) {
-                    if(update.isDeploymentUpdate()) {
-                        update.applyUpdateBootAction(context);
+                // Run independent deployments through their chains together; the threads are daemons, so a
+                // failed boot never keeps the process alive
+                final int threads = Runtime.getRuntime().availableProcessors();
+                final ThreadFactory threadFactory = new JBossThreadFactory(new ThreadGroup("deployment"), Boolean.TRUE, null, "%G-%t", null, null, AccessController.getContext());
+                final ExecutorService deploymentExecutor = Executors.newFixedThreadPool(threads, threadFactory);
+                try {
+                    final PhasedDeploymentProcessor deploymentProcessor = new PhasedDeploymentProcessor(deploymentExecutor);
+
+                    final DeploymentUpdateContext context = new DeploymentUpdateContext() {
+                        public BatchBuilder getBatchBuilder() {
+                            return deploymentBatchBuilder;
+                        }
+
+                        public ServiceContainer getServiceContainer() {
+                            return container;
+                        }
+
+                        public PhasedDeploymentProcessor getDeploymentProcessor() {
+                            return deploymentProcessor;
+                        }
+                    };
+
+                    for (AbstractServerModelUpdate<?> update : updates) {
+                        if(update.isDeploymentUpdate()) {
+                            update.applyUpdateBootAction(context);
+                        }
                     }
+                    deploymentProcessor.processDeployments();
+                } finally {
+                    deploymentExecutor.shutdown();
                 }
 
                 serverStartupListener.finish(); // We have finished adding everything for the server start
@@ -300,7 +432,7 @@ public final class ServerStartTask implements ServerTask, Serializable, ObjectIn
         if (portOffset < 0) {
             throw new InvalidObjectException("portOffset is out of range");
         }
-        if (updates == null) {
+        if (updates == null && (bootImageDigest == null || serverManagerAddress == null)) {
             throw new InvalidObjectException("updates is null");
         }
         if (startServices == null) {
@@ -312,4 +444,53 @@ public final class ServerStartTask implements ServerTask, Serializable, ObjectIn
         ois.defaultReadObject();
         ois.registerValidation(this, 100);
     }
+
+    private static class GetBootUpdatesRequest extends ManagementRequest<List<AbstractServerModelUpdate<?>>> {
+        private final String serverName;
+
+        private GetBootUpdatesRequest(final String serverName) {
+            this.serverName = serverName;
+        }
+
+        @Override
+        protected byte getHandlerId() {
+            return DomainServerProtocol.SERVER_TO_SERVER_MANAGER_OPERATION;
+        }
+
+        @Override
+        protected byte getRequestCode() {
+            return DomainServerProtocol.GET_BOOT_UPDATES_REQUEST;
+        }
+
+        @Override
+        protected byte getResponseCode() {
+            return DomainServerProtocol.GET_BOOT_UPDATES_RESPONSE;
+        }
+
+        @Override
+        protected void sendRequest(final int protocolVersion, final OutputStream output) throws IOException {
+            output.write(DomainServerProtocol.PARAM_SERVER_NAME);
+            writeUTFZBytes(output, serverName);
+        }
+
+        @Override
+        protected List<AbstractServerModelUpdate<?>> receiveResponse(final InputStream input) throws IOException {
+            final Unmarshaller unmarshaller = ProtocolUtils.getUnmarshaller(ProtocolUtils.MODULAR_CONFIG);
+            unmarshaller.start(createByteInput(input));
+            expectHeader(unmarshaller, DomainServerProtocol.PARAM_SERVER_MODEL_UPDATE_COUNT);
+            final int count = unmarshaller.readInt();
+            if (count < 0) {
+                // not known to the server manager
+                unmarshaller.finish();
+                return null;
+            }
+            final List<AbstractServerModelUpdate<?>> updates = new ArrayList<AbstractServerModelUpdate<?>>(count);
+            for (int i = 0; i < count; i++) {
+                expectHeader(unmarshaller, DomainServerProtocol.PARAM_SERVER_MODEL_UPDATE);
+                updates.add(unmarshal(unmarshaller, AbstractServerModelUpdate.class));
+            }
+            unmarshaller.finish();
+            return updates;
+        }
+    }
 }
@@ -31,6 +31,7 @@ import java.util.List;
 import javax.xml.stream.XMLInputFactory;
 
 import org.jboss.as.model.AbstractServerModelUpdate;
+import org.jboss.as.server.mgmt.ServerConfigurationJournal;
 import org.jboss.logging.Logger;
 import org.jboss.msc.service.ServiceActivator;
 import org.jboss.staxmapper.XMLMapper;
@@ -77,6 +78,11 @@ public class StandaloneServer {
         } catch (Exception e) {
             throw new ServerStartException("Caught exception during processing of standalone.xml", e);
         }
+        try {
+            updates.addAll(ServerConfigurationJournal.readUpdates(standalone));
+        } catch (Exception e) {
+            throw new ServerStartException("Caught exception during processing of the standalone.xml journal", e);
+        }
 
         final ServerStartTask startTask = new ServerStartTask(0, serviceActivators, updates, environment);
         startTask.run(Collections.<ServiceActivator>emptyList());
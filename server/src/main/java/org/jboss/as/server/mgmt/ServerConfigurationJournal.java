@@ -0,0 +1,276 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.mgmt;
+
+import static org.jboss.as.protocol.StreamUtils.safeClose;
+import static org.jboss.marshalling.Marshalling.createByteInput;
+import static org.jboss.marshalling.Marshalling.createByteOutput;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.as.model.AbstractServerModelUpdate;
+import org.jboss.as.protocol.ProtocolUtils;
+import org.jboss.logging.Logger;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.Unmarshaller;
+
+/**
+ * Append-only journal of the updates applied to a server configuration file since it was last written.
+ * <p>
+ * The journal starts with a digest of the configuration file it extends, followed by one length-prefixed record per
+ * committed set of updates. Appending a record costs in proportion to the updates rather than the whole model. When
+ * the server boots, the journaled updates are replayed after those parsed from the configuration file, but only if
+ * the file still has the recorded digest. A journal left behind by a write of the configuration file is ignored, and
+ * so is a record cut short by a crash.
+ */
+public class ServerConfigurationJournal {
+
+    /** Suffix appended to the configuration file name to name its journal */
+    public static final String JOURNAL_SUFFIX = ".journal";
+
+    private static final Logger logger = Logger.getLogger("org.jboss.as.server");
+
+    private static final int MAGIC = 0x4A424A4E;
+
+    private final File journalFile;
+    private FileOutputStream fileOutput;
+    private DataOutputStream output;
+
+    /**
+     * Create a journal for a configuration file.
+     *
+     * @param configFile the configuration file
+     */
+    public ServerConfigurationJournal(final File configFile) {
+        this.journalFile = new File(configFile.getParent(), configFile.getName() + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Open the journal for appending. An existing journal is kept if it extends a configuration file with the given
+     * digest, and replaced by an empty one otherwise.
+     *
+     * @param configDigest digest of the current configuration file content
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized void open(final byte[] configDigest) throws IOException {
+        close();
+        final byte[] journalDigest = readDigest(journalFile);
+        if (journalDigest != null && Arrays.equals(journalDigest, configDigest)) {
+            fileOutput = new FileOutputStream(journalFile, true);
+            output = new DataOutputStream(fileOutput);
+        } else {
+            reset(configDigest);
+        }
+    }
+
+    /**
+     * Discard all records and start a new journal extending a configuration file with the given digest.
+     *
+     * @param configDigest digest of the configuration file content just written
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized void reset(final byte[] configDigest) throws IOException {
+        close();
+        fileOutput = new FileOutputStream(journalFile, false);
+        output = new DataOutputStream(fileOutput);
+        output.writeInt(MAGIC);
+        output.writeInt(configDigest.length);
+        output.write(configDigest);
+        sync();
+    }
+
+    /**
+     * Append one record holding the given updates. The record is forced to the storage device before this method
+     * returns, so that updates acknowledged to the caller survive a crash.
+     *
+     * @param updates the updates, in the order they were applied
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void append(final List<AbstractServerModelUpdate<?>> updates) throws IOException {
+        if (output == null) {
+            throw new IllegalStateException("Journal " + journalFile + " is not open");
+        }
+        final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        final Marshaller marshaller = ProtocolUtils.getMarshaller(ProtocolUtils.MODULAR_CONFIG);
+        marshaller.start(createByteOutput(record));
+        marshaller.writeInt(updates.size());
+        for (AbstractServerModelUpdate<?> update : updates) {
+            marshaller.writeObject(update);
+        }
+        marshaller.finish();
+
+        output.writeInt(record.size());
+        record.writeTo(output);
+        sync();
+    }
+
+    /**
+     * Close and remove the journal.
+     */
+    public synchronized void delete() {
+        close();
+        if (journalFile.exists() && !journalFile.delete()) {
+            logger.warnf("Failed deleting configuration journal %s", journalFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Close the journal, keeping its content.
+     */
+    public synchronized void close() {
+        if (output != null) {
+            safeClose(output);
+            output = null;
+            fileOutput = null;
+        }
+    }
+
+    private void sync() throws IOException {
+        output.flush();
+        fileOutput.getFD().sync();
+    }
+
+    /**
+     * Read the updates journaled against a configuration file.
+     *
+     * @param configFile the configuration file
+     * @return the updates to apply after those in the configuration file. Will not return {@code null}
+     * @throws IOException if the configuration file cannot be read
+     */
+    public static List<AbstractServerModelUpdate<?>> readUpdates(final File configFile) throws IOException {
+        final File journalFile = new File(configFile.getParent(), configFile.getName() + JOURNAL_SUFFIX);
+        if (!journalFile.isFile()) {
+            return Collections.emptyList();
+        }
+        final byte[] journalDigest = readDigest(journalFile);
+        if (journalDigest == null || !Arrays.equals(journalDigest, digest(configFile))) {
+            return Collections.emptyList();
+        }
+
+        final List<AbstractServerModelUpdate<?>> updates = new ArrayList<AbstractServerModelUpdate<?>>();
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+        try {
+            input.readInt();
+            input.skipBytes(input.readInt());
+            for (;;) {
+                final byte[] record;
+                try {
+                    final int length = input.readInt();
+                    if (length < 0 || length > journalFile.length()) {
+                        break;
+                    }
+                    record = new byte[length];
+                    input.readFully(record);
+                } catch (EOFException e) {
+                    break;
+                }
+                final Unmarshaller unmarshaller = ProtocolUtils.getUnmarshaller(ProtocolUtils.MODULAR_CONFIG);
+                unmarshaller.start(createByteInput(new ByteArrayInputStream(record)));
+                final int count = unmarshaller.readInt();
+                for (int i = 0; i < count; i++) {
+                    updates.add(ProtocolUtils.unmarshal(unmarshaller, AbstractServerModelUpdate.class));
+                }
+                unmarshaller.finish();
+            }
+        } finally {
+            safeClose(input);
+        }
+        logger.infof("Replaying %d update(s) from configuration journal %s", updates.size(), journalFile.getAbsolutePath());
+        return updates;
+    }
+
+    /**
+     * Compute the digest of a configuration file.
+     *
+     * @param file the file
+     * @return the digest
+     * @throws IOException if the file cannot be read
+     */
+    public static byte[] digest(final File file) throws IOException {
+        final MessageDigest messageDigest = newMessageDigest();
+        final InputStream input = new BufferedInputStream(new FileInputStream(file));
+        try {
+            final byte[] bytes = new byte[8192];
+            int read;
+            while ((read = input.read(bytes)) > -1) {
+                messageDigest.update(bytes, 0, read);
+            }
+        } finally {
+            safeClose(input);
+        }
+        return messageDigest.digest();
+    }
+
+    /**
+     * Compute the digest of configuration file content.
+     *
+     * @param content the content
+     * @return the digest
+     */
+    public static byte[] digest(final byte[] content) {
+        return newMessageDigest().digest(content);
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] readDigest(final File journalFile) throws IOException {
+        if (!journalFile.isFile()) {
+            return null;
+        }
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+        try {
+            if (input.readInt() != MAGIC) {
+                return null;
+            }
+            final byte[] digest = new byte[input.readInt()];
+            input.readFully(digest);
+            return digest;
+        } catch (EOFException e) {
+            return null;
+        } finally {
+            safeClose(input);
+        }
+    }
+}
@@ -40,4 +40,12 @@ public interface ServerConfigurationPersister {
      * and thus needs to be persisted.
      */
     void configurationModified();
+
+    /**
+     * Notification that the server configuration has been modified by
+     * the updates the given controller applied and thus needs to be persisted.
+     *
+     * @param controller the controller that applied the updates to the model
+     */
+    void configurationModified(ServerUpdateController controller);
 }
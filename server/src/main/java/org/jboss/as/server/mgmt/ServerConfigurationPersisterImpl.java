@@ -24,14 +24,22 @@ package org.jboss.as.server.mgmt;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
+import org.jboss.as.model.AbstractServerModelUpdate;
 import org.jboss.as.model.Element;
 import org.jboss.as.model.ServerModel;
 import org.jboss.as.server.ServerEnvironment;
@@ -49,16 +57,49 @@ import org.jboss.staxmapper.XMLMapper;
 
 /**
  * Default implementation of {@link ServerConfigurationPersister}.
+ * <p>
+ * By default the whole configuration file is rewritten on every modification. If the
+ * {@link #PERSIST_DELAY} system property is set to a positive number of milliseconds, the updates of each
+ * modification are instead appended to a {@link ServerConfigurationJournal} on the calling thread, and the
+ * configuration file is rewritten by a background thread once that delay has passed, covering every modification
+ * made in the meantime. Updates the rewritten file already covers, by the {@link ServerModel#getVersion() model
+ * version} it was written at, are left out of the journal. Either way the file is written to a temporary file first
+ * and then renamed over the old one.
  *
  * @author Brian Stansberry
  */
 public class ServerConfigurationPersisterImpl implements ServerConfigurationPersister, Service<ServerConfigurationPersister> {
 
+    /**
+     * Constant that holds the name of the system property for specifying how many
+     * milliseconds to wait, gathering further modifications, before rewriting the
+     * configuration file.
+     *
+     * <p>Defaults to <tt>0</tt>, which rewrites the file on every modification.
+     */
+    public static final String PERSIST_DELAY = "jboss.server.config.persist.delay";
+
     private static Logger logger = Logger.getLogger("org.jboss.as.server");
 
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
     private final InjectedValue<ServerEnvironment> serverEnvironment = new InjectedValue<ServerEnvironment>();
     private final ServerModel configuration;
-    private File configFile;
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final Runnable writeTask = new Runnable() {
+        @Override
+        public void run() {
+            writeScheduled.set(false);
+            writeConfiguration();
+        }
+    };
+    private volatile File configFile;
+    private long persistDelay;
+    private ServerConfigurationJournal journal;
+    private boolean journalValid;
+    /** Version of the model last written to the configuration file */
+    private long writtenVersion;
+    private ScheduledExecutorService writer;
 
     public static void addService(ServerModel configuration, BatchBuilder batchBuilder) {
         ServerConfigurationPersisterImpl service = new ServerConfigurationPersisterImpl(configuration);
@@ -74,42 +115,115 @@ public class ServerConfigurationPersisterImpl implements ServerConfigurationPers
 
     @Override
     public void configurationModified() {
-        if (configFile != null) {
+        modified(null);
+    }
 
-            FileOutputStream fos = null;
-            BufferedOutputStream bos = null;
-            XMLStreamWriter writer = null;
-            try {
-                backupConfigFile();
-                configFile.createNewFile();
-                fos = new FileOutputStream(configFile);
-                bos = new BufferedOutputStream(fos);
-                writer = XMLOutputFactory.newInstance().createXMLStreamWriter(bos);
-                final XMLMapper mapper = XMLMapper.Factory.create();
-                mapper.deparseDocument(new RootElementWriter(), writer);
+    @Override
+    public void configurationModified(ServerUpdateController controller) {
+        modified(controller);
+    }
+
+    private synchronized void modified(final ServerUpdateController controller) {
+        if (configFile == null) {
+            return;
+        }
+        if (writer == null) {
+            writeConfiguration();
+            return;
+        }
+        if (journalValid) {
+            if (controller != null) {
+                try {
+                    // Updates applied before the last write are already in the file
+                    final List<AbstractServerModelUpdate<?>> appliedUpdates = controller.getAppliedModelUpdates(writtenVersion);
+                    if (!appliedUpdates.isEmpty()) {
+                        journal.append(appliedUpdates);
+                    }
+                } catch (Exception e) {
+                    logger.warnf(e, "Failed journaling configuration updates; %s will be rewritten", configFile.getAbsolutePath());
+                    journalValid = false;
+                }
+            } else {
+                journalValid = false;
             }
-            catch (Exception e) {
-                logger.errorf(e, "Failed persisting configuration file %s" , configFile.getAbsolutePath());
+            if (!journalValid) {
+                // Later records would replay against a file missing this modification
+                journal.delete();
             }
-            finally {
-                 if (writer != null) {
-                     try {
-                        writer.close();
-                    } catch (XMLStreamException e) {
-                        logger.warnf(e, "Failed closing writer to configuration file %s" , configFile.getAbsolutePath());
-                    }
-                 }
-                 if (fos != null) {
-                     try {
-                        fos.close();
-                    } catch (IOException e) {
-                        logger.warnf(e, "Failed closing output stream to configuration file %s" , configFile.getAbsolutePath());
-                    }
-                 }
+        }
+        if (writeScheduled.compareAndSet(false, true)) {
+            writer.schedule(writeTask, persistDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized void writeConfiguration() {
+        if (configFile == null) {
+            return;
+        }
+        final File tempFile = new File(configFile.getParent(), configFile.getName() + ".tmp");
+        try {
+            final byte[] content;
+            final long version;
+            // Keep updates from being applied while the model is written out
+            synchronized (configuration) {
+                version = configuration.getVersion();
+                content = serializeConfiguration();
+            }
+            writeFile(tempFile, content);
+            if (configFile.exists()) {
+                backupConfigFile();
             }
+            replaceFile(tempFile, configFile);
+            writtenVersion = version;
+            if (writer == null) {
+                journal.delete();
+            } else {
+                journal.reset(ServerConfigurationJournal.digest(content));
+                journalValid = true;
+            }
+        }
+        catch (Exception e) {
+            logger.errorf(e, "Failed persisting configuration file %s" , configFile.getAbsolutePath());
+        }
+    }
 
+    private byte[] serializeConfiguration() throws XMLStreamException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(32768);
+        final XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(bytes);
+        try {
+            final XMLMapper mapper = XMLMapper.Factory.create();
+            mapper.deparseDocument(new RootElementWriter(), writer);
+        } finally {
+            writer.close();
         }
+        return bytes.toByteArray();
+    }
 
+    private void writeFile(File file, byte[] content) throws IOException {
+        final FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(content);
+            fos.getFD().sync();
+        } finally {
+            try {
+                fos.close();
+            } catch (IOException e) {
+                logger.warnf(e, "Failed closing output stream to configuration file %s" , file.getAbsolutePath());
+            }
+        }
+    }
+
+    private void replaceFile(File source, File target) throws IOException {
+        if (source.renameTo(target)) {
+            return;
+        }
+        // Some platforms cannot rename over an existing file
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Cannot replace " + target.getAbsolutePath());
+        }
+        if (!source.renameTo(target)) {
+            throw new IOException("Cannot rename " + source.getAbsolutePath() + " to " + target.getAbsolutePath());
+        }
     }
 
     private void backupConfigFile() throws IOException {
@@ -122,38 +236,37 @@ public class ServerConfigurationPersisterImpl implements ServerConfigurationPers
         if (backup.exists())
             backup.delete();
 
-        if (!file.renameTo(backup)) {
-            FileOutputStream fos = null;
-            BufferedOutputStream bos = null;
-            FileInputStream fis = null;
+        // Copy rather than rename, so the configuration file stays in place until it is replaced
+        FileOutputStream fos = null;
+        BufferedOutputStream bos = null;
+        FileInputStream fis = null;
+        try {
+            fos = new FileOutputStream(backup);
+            bos = new BufferedOutputStream(fos);
+            fis = new FileInputStream(file);
+            BufferedInputStream bis = new BufferedInputStream(fis);
+            byte[] bytes = new byte[8192];
+            int read;
+            while ((read = bis.read(bytes)) > -1) {
+                bos.write(bytes, 0, read);
+            }
+        }
+        finally {
             try {
-                fos = new FileOutputStream(backup);
-                bos = new BufferedOutputStream(fos);
-                fis = new FileInputStream(file);
-                BufferedInputStream bis = new BufferedInputStream(fis);
-                byte[] bytes = new byte[8192];
-                int read;
-                while ((read = bis.read(bytes)) > -1) {
-                    bos.write(bytes, 0, read);
+                if (bos != null) {
+                    bos.close();
                 }
-            }
-            finally {
-                try {
-                    if (bos != null) {
-                        bos.close();
-                    }
-                 } catch (Exception ignored) {}
-                 try {
-                     if (fos != null) {
-                         fos.close();
-                     }
-                  } catch (Exception ignored) {}
-                  try {
-                      if (fis != null) {
-                          fis.close();
-                      }
-                   } catch (Exception ignored) {}
-            }
+            } catch (Exception ignored) {}
+            try {
+                if (fos != null) {
+                    fos.close();
+                }
+            } catch (Exception ignored) {}
+            try {
+                if (fis != null) {
+                    fis.close();
+                }
+            } catch (Exception ignored) {}
         }
     }
 
@@ -182,7 +295,7 @@ public class ServerConfigurationPersisterImpl implements ServerConfigurationPers
                 throw new StartException("Cannot create directory " + configDir.getAbsolutePath());
             }
 
-            configFile = new File(configDir, "standalone.xml");
+            final File configFile = new File(configDir, "standalone.xml");
             if (configFile.exists()) {
                 if (configFile.isDirectory()) {
                     throw new StartException(configFile.getAbsolutePath() + " is a directory");
@@ -192,12 +305,52 @@ public class ServerConfigurationPersisterImpl implements ServerConfigurationPers
                 }
 
             }
+            start(configFile, Long.getLong(PERSIST_DELAY, 0L).longValue());
         }
     }
 
+    synchronized void start(final File configFile, final long persistDelay) throws StartException {
+        this.persistDelay = persistDelay;
+        this.journal = new ServerConfigurationJournal(configFile);
+        if (persistDelay > 0) {
+            try {
+                journal.open(configFile.exists() ? ServerConfigurationJournal.digest(configFile) : new byte[0]);
+            } catch (IOException e) {
+                throw new StartException("Cannot open configuration journal for " + configFile.getAbsolutePath(), e);
+            }
+            journalValid = true;
+            writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    final Thread thread = new Thread(r, "Configuration Persister");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        this.configFile = configFile;
+    }
+
     @Override
     public void stop(StopContext context) {
-        configFile = null;
+        final ScheduledExecutorService writer;
+        synchronized (this) {
+            writer = this.writer;
+            this.writer = null;
+        }
+        if (writer != null) {
+            writer.shutdownNow();
+            if (writeScheduled.getAndSet(false)) {
+                // Flush modifications still waiting for the delayed write
+                writeConfiguration();
+            }
+        }
+        synchronized (this) {
+            if (journal != null) {
+                journal.close();
+            }
+            configFile = null;
+        }
     }
 
     @Override
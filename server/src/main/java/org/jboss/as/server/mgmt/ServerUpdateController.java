@@ -82,6 +82,10 @@ public class ServerUpdateController {
     private final List<ServerModelUpdateTuple<?,?>> updates = new ArrayList<ServerModelUpdateTuple<?,?>>();
     /** Compensating updates for updates that that have succeeded and may need rollback */
     private final List<ServerModelUpdateTuple<?,?>> rollbacks = new ArrayList<ServerModelUpdateTuple<?,?>>();
+    /** Updates that changed the ServerModel, including compensating updates, in the order applied */
+    private final List<AbstractServerModelUpdate<?>> appliedModelUpdates = new ArrayList<AbstractServerModelUpdate<?>>();
+    /** The ServerModel version reached by each of the appliedModelUpdates */
+    private final List<Long> appliedModelVersions = new ArrayList<Long>();
     /** ServerModel against which updates are executed */
     private final ServerModel serverModel;
     /** ServiceContainer to use for runtime changes */
@@ -155,6 +159,43 @@ public class ServerUpdateController {
         return status;
     }
 
+    /**
+     * Gets the updates that changed the {@link ServerModel}, in the order they were applied. Updates rolled back
+     * are followed by their compensating update, so replaying the list against the prior model yields the current
+     * one. Intended for use from {@link ServerUpdateCommitHandler#handleUpdateCommit(ServerUpdateController, Status)}.
+     *
+     * @return the applied updates. Will not return {@code null}
+     */
+    public synchronized List<AbstractServerModelUpdate<?>> getAppliedModelUpdates() {
+        return new ArrayList<AbstractServerModelUpdate<?>>(appliedModelUpdates);
+    }
+
+    /**
+     * Gets the updates that changed the {@link ServerModel} after it reached the given
+     * {@link ServerModel#getVersion() version}, in the order they were applied.
+     *
+     * @param modelVersion the model version
+     * @return the updates applied after that version. Will not return {@code null}
+     */
+    public synchronized List<AbstractServerModelUpdate<?>> getAppliedModelUpdates(final long modelVersion) {
+        final List<AbstractServerModelUpdate<?>> result = new ArrayList<AbstractServerModelUpdate<?>>();
+        for (int i = 0; i < appliedModelUpdates.size(); i++) {
+            if (appliedModelVersions.get(i).longValue() > modelVersion) {
+                result.add(appliedModelUpdates.get(i));
+            }
+        }
+        return result;
+    }
+
+    /** Only invoke with the object monitor held */
+    private void updateModel(final AbstractServerModelUpdate<?> update) throws UpdateFailedException {
+        synchronized (serverModel) {
+            serverModel.update(update);
+            appliedModelUpdates.add(update);
+            appliedModelVersions.add(Long.valueOf(serverModel.getVersion()));
+        }
+    }
+
     /** Only invoke with the object monitor held */
     private void applyUpdates() {
 
@@ -183,7 +224,7 @@ public class ServerUpdateController {
             try {
                 rollbackTuple = update.getRollbackTuple(serverModel);
 
-                serverModel.update(update.getUpdate());
+                updateModel(update.getUpdate());
                 appliedToModel = true;
                 if (allowRuntimeUpdates) {
                     update.applyUpdate(updateContext);
@@ -214,7 +255,7 @@ public class ServerUpdateController {
                                 // using a batch!!!
                                 rollbackTuple.applyUpdate(updateContext);
                             }
-                            serverModel.update(rollbackTuple.getUpdate());
+                            updateModel(rollbackTuple.getUpdate());
                         } catch (UpdateFailedException e1) {
                             rollbackTuple.handleFailure(e1);
                         }
@@ -260,7 +301,7 @@ public class ServerUpdateController {
                 }
                 else {
                     try {
-                        serverModel.update(update.getUpdate());
+                        updateModel(update.getUpdate());
                     }
                     catch (Exception e) {
                         update.handleFailure(e);
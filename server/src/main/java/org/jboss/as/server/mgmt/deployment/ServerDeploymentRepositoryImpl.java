@@ -30,7 +30,11 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.DigestOutputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -38,6 +42,9 @@ import org.jboss.as.deployment.ServerDeploymentRepository;
 import org.jboss.as.deployment.module.TempFileProviderService;
 import org.jboss.as.server.ServerEnvironment;
 import org.jboss.as.server.ServerEnvironmentService;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.jboss.jandex.IndexWriter;
 import org.jboss.logging.Logger;
 import org.jboss.msc.service.BatchBuilder;
 import org.jboss.msc.service.Service;
@@ -58,9 +65,11 @@ public class ServerDeploymentRepositoryImpl implements ServerDeploymentRepositor
     private static final Logger log = Logger.getLogger("org.jboss.as.server.deployment");
 
     private static final String CONTENT = "content";
+    private static final String ANNOTATION_INDEX = "annotation-index";
+    private static final long TRANSFER_SIZE = 1L << 20;
     private final InjectedValue<ServerEnvironment> serverEnvironment = new InjectedValue<ServerEnvironment>();
+    private final Object contentLock = new Object();
     private File repoRoot;
-    private MessageDigest messageDigest;
 
     /**
      * Creates an instance of ServerDeploymentRepositoryImpl and configures the BatchBuilder to install it.
@@ -79,6 +88,15 @@ public class ServerDeploymentRepositoryImpl implements ServerDeploymentRepositor
     public ServerDeploymentRepositoryImpl() {
     }
 
+    /**
+     * For use in testing.
+     *
+     * @param repoRoot the root directory of the repository
+     */
+    ServerDeploymentRepositoryImpl(final File repoRoot) {
+        this.repoRoot = repoRoot;
+    }
+
 
     @Override
     public byte[] addDeploymentContent(String name, String runtimeName, InputStream stream)
@@ -86,45 +104,51 @@ public class ServerDeploymentRepositoryImpl implements ServerDeploymentRepositor
 
         log.debugf("Adding content with name %s", name);
 
-        byte[] sha1Bytes = null;
+        // Each upload hashes with its own digest so concurrent uploads do not wait on one another
+        final MessageDigest messageDigest = createMessageDigest();
         File tmp = File.createTempFile(name, "tmp", repoRoot);
+        boolean written = false;
         FileOutputStream fos = new FileOutputStream(tmp);
-        synchronized (messageDigest) {
-            messageDigest.reset();
-            try {
-                DigestOutputStream dos = new DigestOutputStream(fos, messageDigest);
-                BufferedInputStream bis = new BufferedInputStream(stream);
-                byte[] bytes = new byte[8192];
-                int read;
-                while ((read = bis.read(bytes)) > -1) {
-                    dos.write(bytes, 0, read);
-                }
+        try {
+            final ReadableByteChannel source = Channels.newChannel(new DigestInputStream(stream, messageDigest));
+            final FileChannel target = fos.getChannel();
+            long position = 0;
+            long transferred;
+            while ((transferred = target.transferFrom(source, position, TRANSFER_SIZE)) > 0) {
+                position += transferred;
             }
-            finally {
-                try { fos.close(); } catch (Exception ignored) {}
+            written = true;
+        }
+        finally {
+            try { fos.close(); } catch (Exception ignored) {}
+            if (!written && !tmp.delete()) {
+                tmp.deleteOnExit();
             }
-            sha1Bytes = messageDigest.digest();
         }
+        byte[] sha1Bytes = messageDigest.digest();
         String sha1 = bytesToHexString(sha1Bytes);
         String partA = sha1.substring(0,2);
         String partB = sha1.substring(2);
         File base = new File(repoRoot, partA);
-        validateDir(base);
         File realDir = new File(base, partB);
-        if (!realDir.exists() && !realDir.mkdirs()) {
-            throw new IllegalStateException("Cannot create directory " + realDir.getAbsolutePath());
-        }
         File realFile = new File(realDir, CONTENT);
-        if (realFile.exists()) {
-            // we've already got this content
-            if (!tmp.delete()) {
-                tmp.deleteOnExit();
+        // Only the check and move are serialized, so identical content is stored once
+        synchronized (contentLock) {
+            validateDir(base);
+            if (!realDir.exists() && !realDir.mkdirs()) {
+                throw new IllegalStateException("Cannot create directory " + realDir.getAbsolutePath());
+            }
+            if (realFile.exists()) {
+                // we've already got this content
+                if (!tmp.delete()) {
+                    tmp.deleteOnExit();
+                }
+                log.debugf("Content with name %s was already present in repository at location %s" , name, realFile.getAbsolutePath());
+            }
+            else {
+                moveTempToPermanent(tmp, realFile);
+                log.infof("Content with name %s added at location %s" , name, realFile.getAbsolutePath());
             }
-            log.debugf("Content with name %s was already present in repository at location %s" , name, realFile.getAbsolutePath());
-        }
-        else {
-            moveTempToPermanent(tmp, realFile);
-            log.infof("Content with name %s added at location %s" , name, realFile.getAbsolutePath());
         }
 
         return sha1Bytes;
@@ -139,11 +163,7 @@ public class ServerDeploymentRepositoryImpl implements ServerDeploymentRepositor
         }
 
         // TODO recognize exploded content stored in a hot-deploy dir
-        String sha1 = bytesToHexString(deploymentHash);
-        String partA = sha1.substring(0,2);
-        String partB = sha1.substring(2);
-        File base = new File(repoRoot, partA);
-        File hashDir = new File(base, partB);
+        File hashDir = getHashDir(deploymentHash);
         File content = new File(hashDir, CONTENT);
         // FIXME
         if(name.endsWith("war")) {
@@ -153,6 +173,53 @@ public class ServerDeploymentRepositoryImpl implements ServerDeploymentRepositor
         }
     }
 
+    @Override
+    public Index getAnnotationIndex(byte[] deploymentHash) {
+        File indexFile = new File(getHashDir(deploymentHash), ANNOTATION_INDEX);
+        if (!indexFile.exists()) {
+            return null;
+        }
+        InputStream is = null;
+        try {
+            is = new BufferedInputStream(new FileInputStream(indexFile));
+            return new IndexReader(is).read();
+        } catch (Exception e) {
+            // A stale or damaged index is simply rebuilt by the caller
+            log.debugf(e, "Failed to read annotation index at %s", indexFile.getAbsolutePath());
+            return null;
+        } finally {
+            try { if (is != null) is.close(); } catch (Exception ignored) {}
+        }
+    }
+
+    @Override
+    public void addAnnotationIndex(byte[] deploymentHash, Index index) throws IOException {
+        File hashDir = getHashDir(deploymentHash);
+        if (!hashDir.isDirectory()) {
+            // Content not held by this repository
+            return;
+        }
+        File tmp = File.createTempFile(ANNOTATION_INDEX, "tmp", hashDir);
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp));
+        try {
+            new IndexWriter(os).write(index);
+        } finally {
+            try { os.close(); } catch (Exception ignored) {}
+        }
+        File indexFile = new File(hashDir, ANNOTATION_INDEX);
+        synchronized (contentLock) {
+            if (indexFile.exists()) {
+                // Another deployment of the same content got there first
+                if (!tmp.delete()) {
+                    tmp.deleteOnExit();
+                }
+            } else {
+                moveTempToPermanent(tmp, indexFile);
+                log.debugf("Stored annotation index at %s", indexFile.getAbsolutePath());
+            }
+        }
+    }
+
 
     @Override
     public void start(StartContext context) throws StartException {
@@ -183,7 +250,7 @@ public class ServerDeploymentRepositoryImpl implements ServerDeploymentRepositor
         this.repoRoot = deployDir;
 
         try {
-            this.messageDigest = MessageDigest.getInstance("SHA-1");
+            MessageDigest.getInstance("SHA-1");
         } catch (NoSuchAlgorithmException e) {
             throw new StartException("Cannot obtain SHA-1 " + MessageDigest.class.getSimpleName(), e);
         }
@@ -205,6 +272,14 @@ public class ServerDeploymentRepositoryImpl implements ServerDeploymentRepositor
         return this;
     }
 
+    private File getHashDir(byte[] deploymentHash) {
+        String sha1 = bytesToHexString(deploymentHash);
+        String partA = sha1.substring(0,2);
+        String partB = sha1.substring(2);
+        File base = new File(repoRoot, partA);
+        return new File(base, partB);
+    }
+
     private void validateDir(File dir) {
         if (!dir.exists()) {
             if (!dir.mkdirs()) {
@@ -219,29 +294,32 @@ public class ServerDeploymentRepositoryImpl implements ServerDeploymentRepositor
         }
     }
 
+    private static MessageDigest createMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Checked on start
+            throw new IllegalStateException(e);
+        }
+    }
+
     private void moveTempToPermanent(File tmpFile, File permanentFile) throws IOException {
 
         if (!tmpFile.renameTo(permanentFile)) {
             FileOutputStream fos = null;
-            BufferedOutputStream bos = null;
             FileInputStream fis = null;
             try {
                 fos = new FileOutputStream(permanentFile);
-                bos = new BufferedOutputStream(fos);
                 fis = new FileInputStream(tmpFile);
-                BufferedInputStream bis = new BufferedInputStream(fis);
-                byte[] bytes = new byte[8192];
-                int read;
-                while ((read = bis.read(bytes)) > -1) {
-                    bos.write(bytes, 0, read);
+                final FileChannel source = fis.getChannel();
+                final FileChannel target = fos.getChannel();
+                final long size = source.size();
+                long position = 0;
+                while (position < size) {
+                    position += source.transferTo(position, size - position, target);
                 }
             }
             finally {
-                try {
-                    if (bos != null) {
-                        bos.close();
-                    }
-                 } catch (Exception ignored) {}
                  try {
                      if (fos != null) {
                          fos.close();
@@ -44,4 +44,7 @@ public interface DomainServerProtocol {
     int RETURN_SERVER_MODEL = 0x21;
     int GET_SERVER_MODEL_RESPONSE = 0x22;
 
+    int GET_BOOT_UPDATES_REQUEST = 0x40;
+    int GET_BOOT_UPDATES_RESPONSE = 0x41;
+
 }
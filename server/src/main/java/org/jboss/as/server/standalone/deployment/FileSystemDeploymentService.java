@@ -26,9 +26,11 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
@@ -54,6 +56,12 @@ import org.jboss.logging.Logger;
 /**
  * Service that monitors the filesystem for deployment content and if found
  * deploys it.
+ * <p>
+ * Only directories whose modification time changed since the previous scan are
+ * listed again; for the others the previous listing is reused, so a scan of an
+ * unchanged tree costs one stat per directory. Content found in a directory is
+ * only deployed once its size and modification time are the same on two
+ * consecutive scans, so archives still being copied in are left alone.
  *
  * @author Brian Stansberry
  */
@@ -62,6 +70,12 @@ class FileSystemDeploymentService implements DeploymentScanner {
     private static final Set<String> ARCHIVES = new HashSet<String>(Arrays.asList(".jar", ".war", ".ear", ".rar", ".sar", ".beans"));
     private static final Logger log = Logger.getLogger("org.jboss.as.deployment");
     private static final String DEPLOYED = ".deployed";
+    /**
+     * Directory modification times are only trusted once they are older than
+     * this, as changes within the file system's timestamp granularity would
+     * otherwise go unnoticed.
+     */
+    private static final long TIMESTAMP_GRANULARITY = 2000;
 
     private File deploymentDir;
     private long scanInterval = 0;
@@ -69,6 +83,10 @@ class FileSystemDeploymentService implements DeploymentScanner {
     private ScheduledFuture<?> scanTask;
     private final Lock scanLock = new ReentrantLock();
     private Set<String> deployed = new HashSet<String>();
+    /** Listing of each directory as of the previous scan. Only accessed with scanLock held */
+    private final Map<File, DirectoryState> directories = new HashMap<File, DirectoryState>();
+    /** Size and modification time of content not yet deployed. Only accessed with scanLock held */
+    private final Map<File, ContentState> pendingContent = new HashMap<File, ContentState>();
 
     private ServerModel serverModel;
     private ServerDeploymentManager deploymentManager;
@@ -208,7 +226,11 @@ class FileSystemDeploymentService implements DeploymentScanner {
                 DeploymentPlanBuilder builder = this.deploymentManager.newDeploymentPlan();
                 Map<String, File> foundDeployed = new HashMap<String, File>();
                 Set<String> newlyAdded = new HashSet<String>();
-                builder = scanDirectory(deploymentDir, builder, foundDeployed, newlyAdded);
+                Set<File> scannedDirectories = new HashSet<File>();
+                Set<File> foundContent = new HashSet<File>();
+                builder = scanDirectory(deploymentDir, builder, foundDeployed, newlyAdded, scannedDirectories, foundContent);
+                directories.keySet().retainAll(scannedDirectories);
+                pendingContent.keySet().retainAll(foundContent);
 
                 // Add remove actions to the plan for anything we count as
                 // deployed that we didn't find on the scan
@@ -280,17 +302,34 @@ class FileSystemDeploymentService implements DeploymentScanner {
      * @param foundDeployed place to store marker files found in the directory; key is the name
      *           of the deployment, value is the marker file
      * @param newlyAdded place to store names of newly added content
+     * @param scannedDirectories place to store the directories visited
+     * @param foundContent place to store content files found but not yet deployed
      *
      * @return the builder the current builder following any changes
      */
-    private DeploymentPlanBuilder scanDirectory(File directory, DeploymentPlanBuilder builder, Map<String, File> foundDeployed, Set<String> newlyAdded) {
+    private DeploymentPlanBuilder scanDirectory(File directory, DeploymentPlanBuilder builder, Map<String, File> foundDeployed, Set<String> newlyAdded,
+            Set<File> scannedDirectories, Set<File> foundContent) {
+
+        scannedDirectories.add(directory);
+        final long lastModified = directory.lastModified();
+        final DirectoryState previous = directories.get(directory);
+        if (previous != null && previous.isCurrent(lastModified)) {
+            // Nothing was added, removed or renamed here since the last scan
+            foundDeployed.putAll(previous.markers);
+            for (File subdirectory : previous.subdirectories) {
+                builder = scanDirectory(subdirectory, builder, foundDeployed, newlyAdded, scannedDirectories, foundContent);
+            }
+            return builder;
+        }
 
         //TODO externalize config of filter?
         File[] children = directory.listFiles(filter);
         if (children == null) {
+            directories.remove(directory);
             return builder;
         }
 
+        final DirectoryState state = new DirectoryState(lastModified, System.currentTimeMillis());
         for (File child : children) {
 
             String fileName = child.getName();
@@ -298,6 +337,7 @@ class FileSystemDeploymentService implements DeploymentScanner {
             if (fileName.endsWith(DEPLOYED)) {
                 String origName = fileName.substring(0, fileName.length() - DEPLOYED.length());
                 foundDeployed.put(origName, child);
+                state.markers.put(origName, child);
             }
             else if (child.isDirectory()) {
                 int idx = fileName.lastIndexOf('.');
@@ -307,11 +347,19 @@ class FileSystemDeploymentService implements DeploymentScanner {
                 }
                 else {
                     // It's just a dir for organizing content. Recurse
-                    builder = scanDirectory(child, builder, foundDeployed, newlyAdded);
+                    state.subdirectories.add(child);
+                    builder = scanDirectory(child, builder, foundDeployed, newlyAdded, scannedDirectories, foundContent);
                 }
             }
+            else if (!isContentStable(child)) {
+                // Still being written; look again on the next scan
+                foundContent.add(child);
+                state.rescan = true;
+            }
             else {
-                // Found a single non-marker file
+                // Found a single non-marker file. List this directory again
+                // next time in case handling it fails below
+                state.rescan = true;
 
                 DeploymentPlanBuilder currentBuilder = builder;
 
@@ -367,9 +415,27 @@ class FileSystemDeploymentService implements DeploymentScanner {
                 }
             }
         }
+        directories.put(directory, state);
         return builder;
     }
 
+    /**
+     * Check whether content has the same size and modification time as on
+     * the previous scan. A one-off scan deploys whatever it finds.
+     */
+    private boolean isContentStable(File content) {
+        if (scanInterval <= 0) {
+            return true;
+        }
+        final ContentState current = new ContentState(content.length(), content.lastModified());
+        final ContentState previous = pendingContent.put(content, current);
+        if (current.equals(previous)) {
+            pendingContent.remove(content);
+            return true;
+        }
+        return false;
+    }
+
     /** Adds a marker file, deletes the regular content file */
     private boolean replaceWithDeployedMarker(File child) {
         boolean ok = false;
@@ -437,4 +503,48 @@ class FileSystemDeploymentService implements DeploymentScanner {
         }
     }
 
+    /** The markers and subdirectories of a directory, as listed by a scan */
+    private static class DirectoryState {
+        private final long lastModified;
+        private final long scanTime;
+        private final Map<String, File> markers = new HashMap<String, File>();
+        private final List<File> subdirectories = new ArrayList<File>();
+        /** Set if the directory held content, which must be looked at again */
+        private boolean rescan;
+
+        private DirectoryState(long lastModified, long scanTime) {
+            this.lastModified = lastModified;
+            this.scanTime = scanTime;
+        }
+
+        /** Whether this listing can be reused for a directory with the given modification time */
+        private boolean isCurrent(long lastModified) {
+            return !rescan && lastModified == this.lastModified && scanTime - lastModified >= TIMESTAMP_GRANULARITY;
+        }
+    }
+
+    /** Size and modification time of a content file */
+    private static class ContentState {
+        private final long length;
+        private final long lastModified;
+
+        private ContentState(long length, long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ContentState)) return false;
+            ContentState that = (ContentState) o;
+            return length == that.length && lastModified == that.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (length ^ (length >>> 32)) * 31 + (int) (lastModified ^ (lastModified >>> 32));
+        }
+    }
+
 }
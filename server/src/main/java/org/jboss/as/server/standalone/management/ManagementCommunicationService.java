@@ -31,8 +31,6 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadFactory;
 import javax.net.ServerSocketFactory;
-import org.jboss.as.protocol.ByteDataInput;
-import org.jboss.as.protocol.ByteDataOutput;
 import org.jboss.as.protocol.Connection;
 import org.jboss.as.protocol.ConnectionHandler;
 import org.jboss.as.protocol.MessageHandler;
@@ -40,6 +38,8 @@ import org.jboss.as.protocol.ProtocolServer;
 import org.jboss.as.protocol.SimpleByteDataInput;
 import org.jboss.as.protocol.SimpleByteDataOutput;
 import static org.jboss.as.protocol.StreamUtils.safeClose;
+import org.jboss.as.protocol.mgmt.ManagementMessageBundle;
+import org.jboss.as.protocol.mgmt.ManagementMultiplexer;
 import org.jboss.as.protocol.mgmt.ManagementOperationHandler;
 import org.jboss.as.protocol.mgmt.ManagementProtocol;
 import org.jboss.as.protocol.mgmt.ManagementRequestHeader;
@@ -170,8 +170,9 @@ public class ManagementCommunicationService implements Service<ManagementCommuni
         public void handleMessage(Connection connection, InputStream dataStream) throws IOException {
             final int workingVersion;
             final ManagementRequestHeader requestHeader;
-            final ManagementOperationHandler handler;
-            ByteDataInput input = null;
+            final MessageHandler handler;
+            ManagementMessageBundle responseMessages = null;
+            SimpleByteDataInput input = null;
             try {
                 input = new SimpleByteDataInput(dataStream);
 
@@ -185,7 +186,12 @@ public class ManagementCommunicationService implements Service<ManagementCommuni
                 if (handlerId == -1) {
                     throw new IOException("Management request failed.  Invalid handler id");
                 }
-                handler = handlers.get(handlerId);
+                if (handlerId == ManagementProtocol.MULTIPLEXED_CONNECTION && workingVersion >= ManagementProtocol.MULTIPLEXED_VERSION) {
+                    // Each further message on this connection belongs to one of many concurrent requests
+                    handler = new ManagementMultiplexer(connection, executorServiceValue.getValue(), ManagementCommunicationService.this);
+                } else {
+                    handler = handlers.get(handlerId);
+                }
                 if (handler == null) {
                     String msg = null;
                     if (handlerId == DOMAIN_CONTROLLER_CLIENT_REQUEST) {
@@ -199,7 +205,14 @@ public class ManagementCommunicationService implements Service<ManagementCommuni
                     }
                     throw new IOException(msg);
                 }
-                connection.setMessageHandler(handler);
+                if (workingVersion >= ManagementProtocol.SINGLE_MESSAGE_VERSION && !(handler instanceof ManagementMultiplexer)) {
+                    // The request follows the header, and the response is sent along with the response header
+                    responseMessages = new ManagementMessageBundle(connection, handler);
+                    responseMessages.dispatch(input);
+                    connection.setMessageHandler(responseMessages.getMessageHandler());
+                } else {
+                    connection.setMessageHandler(handler);
+                }
             } catch (IOException e) {
                 throw e;
             } catch (Throwable t) {
@@ -210,7 +223,7 @@ public class ManagementCommunicationService implements Service<ManagementCommuni
             }
 
             OutputStream dataOutput = null;
-            ByteDataOutput output = null;
+            SimpleByteDataOutput output = null;
             try {
                 dataOutput = connection.writeMessage();
                 output = new SimpleByteDataOutput(dataOutput);
@@ -218,6 +231,9 @@ public class ManagementCommunicationService implements Service<ManagementCommuni
                 // Now write the response header
                 final ManagementResponseHeader responseHeader = new ManagementResponseHeader(workingVersion, requestHeader.getRequestId());
                 responseHeader.write(output);
+                if (responseMessages != null) {
+                    responseMessages.writeTo(output);
+                }
 
                 output.close();
                 dataOutput.close();
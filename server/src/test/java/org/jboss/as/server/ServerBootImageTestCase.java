@@ -0,0 +1,211 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.as.model.AbstractServerModelUpdate;
+import org.jboss.as.model.PropertyAdd;
+import org.jboss.as.model.ServerModel;
+import org.jboss.as.model.ServerSystemPropertyUpdate;
+import org.jboss.as.protocol.ProtocolUtils;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests of {@link ServerBootImage}.
+ */
+public class ServerBootImageTestCase {
+
+    // the modular configuration resolves classes through modules, which are not set up here
+    private static final MarshallingConfiguration CONFIG = new MarshallingConfiguration();
+
+    private File dir;
+    private File file;
+    private List<AbstractServerModelUpdate<?>> updates;
+    private byte[] digest;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("boot-image-test", "");
+        dir.delete();
+        file = new File(dir, ServerBootImage.FILE_NAME);
+        updates = asList(update("a"), update("b"));
+        digest = ServerBootImage.digest("server-one", 0, updates, ProtocolUtils.getMarshaller(ProtocolUtils.MODULAR_CONFIG));
+    }
+
+    @After
+    public void tearDown() {
+        if (dir.isDirectory()) {
+            for (File child : dir.listFiles()) {
+                child.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testModelIsRestored() throws Exception {
+        store(digest);
+        final ServerModel model = ServerBootImage.restore(file, digest, CONFIG).getServerModel();
+        assertEquals("server-one", model.getServerName());
+        assertEquals(asList("a", "b"), asList(model.getSystemProperties().getPropertyNames().toArray()));
+        assertFalse(new File(dir, ServerBootImage.FILE_NAME + ".tmp").exists());
+    }
+
+    @Test
+    public void testUpdatesAreRestored() throws Exception {
+        store(digest);
+        final List<AbstractServerModelUpdate<?>> restored = ServerBootImage.restore(file, digest, CONFIG).getUpdates();
+        assertEquals(updates.size(), restored.size());
+        // the restored updates build the same model again
+        final ServerModel model = new ServerModel("server-one", 0);
+        for (AbstractServerModelUpdate<?> update : restored) {
+            model.update(update);
+        }
+        assertEquals(asList("a", "b"), asList(model.getSystemProperties().getPropertyNames().toArray()));
+    }
+
+    @Test
+    public void testMissingImage() {
+        assertNull(ServerBootImage.restore(file, digest, CONFIG));
+    }
+
+    @Test
+    public void testDigestDependsOnUpdates() throws Exception {
+        assertFalse(Arrays.equals(digest, ServerBootImage.digest("server-one", 0, asList(update("a")), ProtocolUtils.getMarshaller(ProtocolUtils.MODULAR_CONFIG))));
+        assertFalse(Arrays.equals(digest, ServerBootImage.digest("server-one", 100, updates, ProtocolUtils.getMarshaller(ProtocolUtils.MODULAR_CONFIG))));
+    }
+
+    @Test
+    public void testStaleImageIsDiscarded() throws Exception {
+        store(ServerBootImage.digest("server-one", 0, asList(update("a")), ProtocolUtils.getMarshaller(ProtocolUtils.MODULAR_CONFIG)));
+        assertNull(ServerBootImage.restore(file, digest, CONFIG));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testOtherFormatVersionIsDiscarded() throws Exception {
+        store(digest);
+        // the format version follows the magic number
+        overwriteInt(4, ServerBootImage.VERSION + 1);
+        assertNull(ServerBootImage.restore(file, digest, CONFIG));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testOtherFileIsDiscarded() throws Exception {
+        store(digest);
+        overwriteInt(0, 0xCAFEBABE);
+        assertNull(ServerBootImage.restore(file, digest, CONFIG));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testCorruptImageIsDiscarded() throws Exception {
+        store(digest);
+        // flip a byte of the marshalled model
+        final RandomAccessFile image = new RandomAccessFile(file, "rw");
+        try {
+            image.seek(image.length() - 10);
+            final int b = image.read();
+            image.seek(image.length() - 10);
+            image.write(b ^ 0xff);
+        } finally {
+            image.close();
+        }
+        assertNull(ServerBootImage.restore(file, digest, CONFIG));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testTruncatedImageIsDiscarded() throws Exception {
+        store(digest);
+        final RandomAccessFile image = new RandomAccessFile(file, "rw");
+        try {
+            image.setLength(image.length() / 2);
+        } finally {
+            image.close();
+        }
+        assertNull(ServerBootImage.restore(file, digest, CONFIG));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testCorruptLengthIsDiscarded() throws Exception {
+        store(digest);
+        // the model length follows the magic number, version, digest length and digest
+        overwriteInt(12 + digest.length, Integer.MAX_VALUE);
+        assertNull(ServerBootImage.restore(file, digest, CONFIG));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testImageIsReplaced() throws Exception {
+        store(ServerBootImage.digest("server-one", 0, asList(update("a")), ProtocolUtils.getMarshaller(ProtocolUtils.MODULAR_CONFIG)));
+        store(digest);
+        final DataInputStream input = new DataInputStream(new FileInputStream(file));
+        try {
+            assertEquals(ServerBootImage.MAGIC, input.readInt());
+            assertEquals(ServerBootImage.VERSION, input.readInt());
+        } finally {
+            input.close();
+        }
+        assertEquals(asList("a", "b"), asList(ServerBootImage.restore(file, digest, CONFIG).getServerModel().getSystemProperties().getPropertyNames().toArray()));
+    }
+
+    private void store(final byte[] digest) throws Exception {
+        final ServerModel model = new ServerModel("server-one", 0);
+        for (AbstractServerModelUpdate<?> update : updates) {
+            model.update(update);
+        }
+        ServerBootImage.store(file, ServerBootImage.toBytes(digest, model, updates, CONFIG));
+    }
+
+    private void overwriteInt(final long position, final int value) throws IOException {
+        final RandomAccessFile image = new RandomAccessFile(file, "rw");
+        try {
+            image.seek(position);
+            image.writeInt(value);
+        } finally {
+            image.close();
+        }
+    }
+
+    private static AbstractServerModelUpdate<?> update(final String name) {
+        return new ServerSystemPropertyUpdate(new PropertyAdd(name, "value"));
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.mgmt;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.as.model.AbstractServerModelUpdate;
+import org.jboss.as.model.PropertyAdd;
+import org.jboss.as.model.ServerModel;
+import org.jboss.as.model.ServerSystemPropertyUpdate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link ServerConfigurationJournal}.
+ */
+public class ServerConfigurationJournalTestCase {
+
+    private File dir;
+    private File configFile;
+    private File journalFile;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("journal-test", "");
+        dir.delete();
+        dir.mkdirs();
+        configFile = new File(dir, "standalone.xml");
+        journalFile = new File(dir, "standalone.xml" + ServerConfigurationJournal.JOURNAL_SUFFIX);
+        writeConfig("<server/>");
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testRecordsAreReplayedInOrder() throws Exception {
+        final ServerConfigurationJournal journal = new ServerConfigurationJournal(configFile);
+        journal.open(ServerConfigurationJournal.digest(configFile));
+        journal.append(updates("a", "b"));
+        journal.append(updates("c"));
+        journal.close();
+
+        assertEquals(Arrays.asList("a", "b", "c"), apply(ServerConfigurationJournal.readUpdates(configFile)));
+    }
+
+    @Test
+    public void testMissingJournalIsEmpty() throws Exception {
+        assertTrue(ServerConfigurationJournal.readUpdates(configFile).isEmpty());
+    }
+
+    @Test
+    public void testJournalOfOtherContentIsIgnored() throws Exception {
+        final ServerConfigurationJournal journal = new ServerConfigurationJournal(configFile);
+        journal.open(ServerConfigurationJournal.digest(configFile));
+        journal.append(updates("a"));
+        journal.close();
+
+        // The configuration file was rewritten after the journal was
+        writeConfig("<server name=\"other\"/>");
+        assertTrue(ServerConfigurationJournal.readUpdates(configFile).isEmpty());
+    }
+
+    @Test
+    public void testTornRecordIsIgnored() throws Exception {
+        final ServerConfigurationJournal journal = new ServerConfigurationJournal(configFile);
+        journal.open(ServerConfigurationJournal.digest(configFile));
+        journal.append(updates("a"));
+        final long complete = journalFile.length();
+        journal.append(updates("b"));
+        journal.close();
+
+        // Cut the last record short, as a crash while appending would
+        final RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+        try {
+            file.setLength(complete + (journalFile.length() - complete) / 2);
+        } finally {
+            file.close();
+        }
+        assertEquals(Collections.singletonList("a"), apply(ServerConfigurationJournal.readUpdates(configFile)));
+
+        // Only the length of the torn record was written
+        final RandomAccessFile header = new RandomAccessFile(journalFile, "rw");
+        try {
+            header.setLength(complete + 2);
+        } finally {
+            header.close();
+        }
+        assertEquals(Collections.singletonList("a"), apply(ServerConfigurationJournal.readUpdates(configFile)));
+    }
+
+    @Test
+    public void testOpenKeepsMatchingJournal() throws Exception {
+        final byte[] digest = ServerConfigurationJournal.digest(configFile);
+        ServerConfigurationJournal journal = new ServerConfigurationJournal(configFile);
+        journal.open(digest);
+        journal.append(updates("a"));
+        journal.close();
+
+        journal = new ServerConfigurationJournal(configFile);
+        journal.open(digest);
+        journal.append(updates("b"));
+        journal.close();
+        assertEquals(Arrays.asList("a", "b"), apply(ServerConfigurationJournal.readUpdates(configFile)));
+    }
+
+    @Test
+    public void testOpenReplacesStaleJournal() throws Exception {
+        ServerConfigurationJournal journal = new ServerConfigurationJournal(configFile);
+        journal.open(ServerConfigurationJournal.digest(configFile));
+        journal.append(updates("a"));
+        journal.close();
+
+        writeConfig("<server name=\"other\"/>");
+        journal = new ServerConfigurationJournal(configFile);
+        journal.open(ServerConfigurationJournal.digest(configFile));
+        journal.append(updates("b"));
+        journal.close();
+        assertEquals(Collections.singletonList("b"), apply(ServerConfigurationJournal.readUpdates(configFile)));
+    }
+
+    @Test
+    public void testResetDiscardsRecords() throws Exception {
+        final ServerConfigurationJournal journal = new ServerConfigurationJournal(configFile);
+        journal.open(ServerConfigurationJournal.digest(configFile));
+        journal.append(updates("a"));
+        writeConfig("<server name=\"other\"/>");
+        journal.reset(ServerConfigurationJournal.digest(configFile));
+        journal.append(updates("b"));
+        journal.close();
+        assertEquals(Collections.singletonList("b"), apply(ServerConfigurationJournal.readUpdates(configFile)));
+
+        journal.delete();
+        assertTrue(!journalFile.exists());
+        assertTrue(ServerConfigurationJournal.readUpdates(configFile).isEmpty());
+    }
+
+    static List<AbstractServerModelUpdate<?>> updates(final String... names) {
+        final AbstractServerModelUpdate<?>[] updates = new AbstractServerModelUpdate<?>[names.length];
+        for (int i = 0; i < names.length; i++) {
+            updates[i] = new ServerSystemPropertyUpdate(new PropertyAdd(names[i], "value"));
+        }
+        return Arrays.asList(updates);
+    }
+
+    /**
+     * Apply the updates to an empty model, returning the names of the system properties they set.
+     */
+    private static List<String> apply(final List<AbstractServerModelUpdate<?>> updates) throws Exception {
+        final ServerModel model = new ServerModel();
+        for (AbstractServerModelUpdate<?> update : updates) {
+            model.update(update);
+        }
+        return Arrays.asList(model.getSystemProperties().getPropertyNames().toArray(new String[0]));
+    }
+
+    private void writeConfig(final String content) throws IOException {
+        final FileOutputStream out = new FileOutputStream(configFile);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
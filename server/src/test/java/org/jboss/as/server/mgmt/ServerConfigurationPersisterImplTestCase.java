@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.mgmt;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.jboss.as.model.AbstractServerModelUpdate;
+import org.jboss.as.model.PropertyAdd;
+import org.jboss.as.model.ServerModel;
+import org.jboss.as.model.ServerProfileUpdate;
+import org.jboss.as.model.ServerSystemPropertyUpdate;
+import org.jboss.msc.service.ServiceContainer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the delayed mode of {@link ServerConfigurationPersisterImpl}, recovering the system properties from the
+ * configuration file and its journal as a booting server would.
+ */
+public class ServerConfigurationPersisterImplTestCase {
+
+    private static final Executor DIRECT = new Executor() {
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    private File dir;
+    private File configFile;
+    private ServiceContainer container;
+    private ServerModel model;
+    private ServerConfigurationPersisterImpl persister;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("persister-test", "");
+        dir.delete();
+        dir.mkdirs();
+        configFile = new File(dir, "standalone.xml");
+        container = ServiceContainer.Factory.create();
+        model = new ServerModel("test", 0);
+        model.update(new ServerProfileUpdate("test"));
+        persister = new ServerConfigurationPersisterImpl(model);
+        // Long enough for the background write not to happen during the test
+        persister.start(configFile, 60000L);
+        persister.writeConfiguration();
+    }
+
+    @After
+    public void tearDown() {
+        persister.stop(null);
+        container.shutdown();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testCommittedUpdatesAreRecovered() throws Exception {
+        persister.configurationModified(apply("a"));
+        persister.configurationModified(apply("b", "c"));
+        assertEquals(3, ServerConfigurationJournal.readUpdates(configFile).size());
+        assertEquals(Arrays.asList("a", "b", "c"), recover());
+    }
+
+    @Test
+    public void testUpdatesWrittenBeforeCommitAreNotJournaled() throws Exception {
+        final ServerUpdateController first = apply("a");
+        // The delayed write runs after the update is applied but before it is committed
+        persister.writeConfiguration();
+        persister.configurationModified(first);
+        assertTrue(ServerConfigurationJournal.readUpdates(configFile).isEmpty());
+
+        persister.configurationModified(apply("b"));
+        assertEquals(1, ServerConfigurationJournal.readUpdates(configFile).size());
+        assertEquals(Arrays.asList("a", "b"), recover());
+    }
+
+    @Test
+    public void testStopFlushesPendingWrite() throws Exception {
+        persister.configurationModified(apply("a"));
+        persister.stop(null);
+        assertTrue(ServerConfigurationJournal.readUpdates(configFile).isEmpty());
+        assertEquals(Arrays.asList("a"), recover());
+    }
+
+    @Test
+    public void testConfigurationFileIsReplaced() throws Exception {
+        final byte[] before = ServerConfigurationJournal.digest(configFile);
+        apply("a");
+        persister.writeConfiguration();
+
+        final File backup = new File(dir, "standalone.xml.last-known-good");
+        assertTrue(Arrays.equals(before, ServerConfigurationJournal.digest(backup)));
+        assertFalse(Arrays.equals(before, ServerConfigurationJournal.digest(configFile)));
+        assertFalse(new File(dir, "standalone.xml.tmp").exists());
+        assertEquals(Arrays.asList("a"), recover());
+    }
+
+    @Test
+    public void testUnjournaledModificationDiscardsJournal() throws Exception {
+        persister.configurationModified(apply("a"));
+        persister.configurationModified();
+        assertFalse(new File(dir, "standalone.xml" + ServerConfigurationJournal.JOURNAL_SUFFIX).exists());
+        persister.writeConfiguration();
+        assertEquals(Arrays.asList("a"), recover());
+    }
+
+    private ServerUpdateController apply(final String... names) {
+        final ServerUpdateController controller = new ServerUpdateController(model, container, DIRECT, new ServerUpdateController.ServerUpdateCommitHandler() {
+            public void handleUpdateCommit(final ServerUpdateController controller, final ServerUpdateController.Status priorStatus) {
+            }
+        }, false, false);
+        for (String name : names) {
+            controller.addServerModelUpdate(new ServerSystemPropertyUpdate(new PropertyAdd(name, "value")), null, null);
+        }
+        controller.executeUpdates();
+        return controller;
+    }
+
+    /**
+     * Read the system properties of the configuration file and replay its journal, returning the names of the
+     * properties in the order they are set. A property set twice shows up twice.
+     */
+    private List<String> recover() throws Exception {
+        final List<String> names = new ArrayList<String>();
+        final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(configFile);
+        final NodeList properties = document.getElementsByTagName("property");
+        for (int i = 0; i < properties.getLength(); i++) {
+            names.add(((org.w3c.dom.Element) properties.item(i)).getAttribute("name"));
+        }
+
+        final ServerModel recovered = new ServerModel();
+        for (AbstractServerModelUpdate<?> update : ServerConfigurationJournal.readUpdates(configFile)) {
+            recovered.update(update);
+        }
+        names.addAll(recovered.getSystemProperties().getPropertyNames());
+        return names;
+    }
+}
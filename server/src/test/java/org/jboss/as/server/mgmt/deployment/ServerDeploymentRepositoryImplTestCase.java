@@ -0,0 +1,217 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.server.mgmt.deployment;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the content hashing in {@link ServerDeploymentRepositoryImpl}.
+ */
+public class ServerDeploymentRepositoryImplTestCase {
+
+    private static final int UPLOADERS = 8;
+
+    private File repoRoot;
+    private ServerDeploymentRepositoryImpl repository;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        repoRoot = File.createTempFile("repository-test", "");
+        repoRoot.delete();
+        repoRoot.mkdirs();
+        repository = new ServerDeploymentRepositoryImpl(repoRoot);
+        executor = Executors.newFixedThreadPool(UPLOADERS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        delete(repoRoot);
+    }
+
+    @Test
+    public void testContentIsStoredUnderItsHash() throws Exception {
+        final byte[] content = content(1000, 1);
+        final byte[] hash = repository.addDeploymentContent("test.jar", "test.jar", new ByteArrayInputStream(content));
+        assertArrayEquals(sha1(content), hash);
+        assertArrayEquals(content, read(contentFile(hash)));
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    public void testContentLargerThanOneTransferIsHashedWhole() throws Exception {
+        // larger than the repository's transfer size, and not a multiple of it
+        final byte[] content = content((3 << 20) + 17, 2);
+        final byte[] hash = repository.addDeploymentContent("large.jar", "large.jar", new ByteArrayInputStream(content));
+        assertArrayEquals(sha1(content), hash);
+        assertArrayEquals(content, read(contentFile(hash)));
+    }
+
+    @Test
+    public void testConcurrentUploadsOfDifferentContent() throws Exception {
+        final byte[][] contents = new byte[UPLOADERS][];
+        for (int i = 0; i < UPLOADERS; i++) {
+            contents[i] = content(100000 + i, i + 1);
+        }
+        final List<byte[]> hashes = uploadConcurrently(contents);
+        for (int i = 0; i < UPLOADERS; i++) {
+            assertArrayEquals(sha1(contents[i]), hashes.get(i));
+            assertArrayEquals(contents[i], read(contentFile(hashes.get(i))));
+        }
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    public void testConcurrentUploadsOfSameContentAreStoredOnce() throws Exception {
+        final byte[] content = content(200000, 3);
+        final byte[][] contents = new byte[UPLOADERS][];
+        Arrays.fill(contents, content);
+        final List<byte[]> hashes = uploadConcurrently(contents);
+        final byte[] expected = sha1(content);
+        for (byte[] hash : hashes) {
+            assertArrayEquals(expected, hash);
+        }
+        final File hashDir = contentFile(expected).getParentFile();
+        assertEquals(1, hashDir.listFiles().length);
+        assertEquals(1, hashDir.getParentFile().listFiles().length);
+        assertArrayEquals(content, read(contentFile(expected)));
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    public void testFailedUploadLeavesNothingBehind() throws Exception {
+        final InputStream failing = new InputStream() {
+            private int count;
+
+            public int read() throws IOException {
+                if (count++ >= 5000) {
+                    throw new IOException("broken upload");
+                }
+                return count & 0xff;
+            }
+        };
+        try {
+            repository.addDeploymentContent("broken.jar", "broken.jar", failing);
+        } catch (IOException expected) {
+        }
+        assertEquals(0, repoRoot.listFiles().length);
+    }
+
+    private List<byte[]> uploadConcurrently(final byte[][] contents) throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(contents.length);
+        final List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>();
+        for (int i = 0; i < contents.length; i++) {
+            final byte[] content = contents[i];
+            final String name = "test" + i + ".jar";
+            futures.add(executor.submit(new Callable<byte[]>() {
+                public byte[] call() throws Exception {
+                    barrier.await(10L, TimeUnit.SECONDS);
+                    return repository.addDeploymentContent(name, name, new ByteArrayInputStream(content));
+                }
+            }));
+        }
+        final List<byte[]> hashes = new ArrayList<byte[]>();
+        for (Future<byte[]> future : futures) {
+            hashes.add(future.get(30L, TimeUnit.SECONDS));
+        }
+        return hashes;
+    }
+
+    private File contentFile(final byte[] hash) {
+        final String sha1 = ServerDeploymentRepositoryImpl.bytesToHexString(hash);
+        final File file = new File(new File(new File(repoRoot, sha1.substring(0, 2)), sha1.substring(2)), "content");
+        assertTrue(file.getPath(), file.isFile());
+        return file;
+    }
+
+    private int tempFiles() {
+        int count = 0;
+        for (File file : repoRoot.listFiles()) {
+            if (file.isFile()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static byte[] content(final int length, final int seed) {
+        final byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i * seed % 251);
+        }
+        return content;
+    }
+
+    private static byte[] sha1(final byte[] content) throws Exception {
+        return MessageDigest.getInstance("SHA-1").digest(content);
+    }
+
+    private static byte[] read(final File file) throws IOException {
+        final byte[] bytes = new byte[(int) file.length()];
+        final InputStream is = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < bytes.length) {
+                final int n = is.read(bytes, read, bytes.length - read);
+                assertFalse(n == -1);
+                read += n;
+            }
+        } finally {
+            is.close();
+        }
+        return bytes;
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.server.standalone.deployment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.model.ServerModel;
+import org.jboss.as.standalone.client.api.deployment.DeploymentAction;
+import org.jboss.as.standalone.client.api.deployment.DeploymentPlan;
+import org.jboss.as.standalone.client.api.deployment.DuplicateDeploymentNameException;
+import org.jboss.as.standalone.client.api.deployment.InitialDeploymentPlanBuilder;
+import org.jboss.as.standalone.client.api.deployment.ServerDeploymentManager;
+import org.jboss.as.standalone.client.api.deployment.ServerDeploymentPlanResult;
+import org.jboss.as.standalone.client.impl.deployment.DeploymentContentDistributor;
+import org.jboss.as.standalone.client.impl.deployment.InitialDeploymentPlanBuilderFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the scanning done by {@link FileSystemDeploymentService}. Scans are run directly by the test rather than
+ * on a schedule, and directory modification times are set explicitly so that they are older than the file system's
+ * timestamp granularity.
+ */
+public class FileSystemDeploymentServiceTestCase {
+
+    private static final long SCAN_INTERVAL = 5000;
+
+    private File deploymentDir;
+    private RecordingDeploymentManager deploymentManager;
+    private CapturingExecutor executor;
+    private long time;
+
+    @Before
+    public void setUp() throws Exception {
+        deploymentDir = File.createTempFile("deployment-scanner-test", "");
+        deploymentDir.delete();
+        deploymentDir.mkdirs();
+        deploymentManager = new RecordingDeploymentManager();
+        executor = new CapturingExecutor();
+        time = System.currentTimeMillis() - 60000;
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        delete(deploymentDir);
+    }
+
+    @Test
+    public void testContentIsDeployedOnceStable() throws Exception {
+        final Runnable scan = start(SCAN_INTERVAL);
+        write(new File(deploymentDir, "test.jar"), 100);
+
+        scan.run();
+        assertTrue(deploymentManager.plans.isEmpty());
+        assertTrue(new File(deploymentDir, "test.jar").exists());
+
+        scan.run();
+        assertEquals(1, deploymentManager.plans.size());
+        assertAction(deploymentManager.plans.get(0), DeploymentAction.Type.ADD, "test.jar");
+        assertAction(deploymentManager.plans.get(0), DeploymentAction.Type.DEPLOY, "test.jar");
+        assertFalse(new File(deploymentDir, "test.jar").exists());
+        assertTrue(new File(deploymentDir, "test.jar.deployed").exists());
+
+        scan.run();
+        assertEquals(1, deploymentManager.plans.size());
+    }
+
+    @Test
+    public void testContentBeingWrittenIsNotDeployed() throws Exception {
+        final Runnable scan = start(SCAN_INTERVAL);
+        final File content = new File(deploymentDir, "test.jar");
+        write(content, 100);
+        scan.run();
+        write(content, 200);
+        scan.run();
+        assertTrue(deploymentManager.plans.isEmpty());
+
+        scan.run();
+        assertEquals(1, deploymentManager.plans.size());
+        assertAction(deploymentManager.plans.get(0), DeploymentAction.Type.ADD, "test.jar");
+    }
+
+    @Test
+    public void testOneOffScanDeploysImmediately() throws Exception {
+        write(new File(deploymentDir, "test.jar"), 100);
+        start(0).run();
+        assertEquals(1, deploymentManager.plans.size());
+        assertAction(deploymentManager.plans.get(0), DeploymentAction.Type.ADD, "test.jar");
+    }
+
+    @Test
+    public void testRemovedMarkerUndeploys() throws Exception {
+        final Runnable scan = start(0);
+        write(new File(deploymentDir, "test.jar"), 100);
+        scan.run();
+        assertEquals(1, deploymentManager.plans.size());
+
+        assertTrue(new File(deploymentDir, "test.jar.deployed").delete());
+        touch(deploymentDir);
+        scan.run();
+        assertEquals(2, deploymentManager.plans.size());
+        assertAction(deploymentManager.plans.get(1), DeploymentAction.Type.UNDEPLOY, "test.jar");
+    }
+
+    @Test
+    public void testUnchangedDirectoryIsNotListedAgain() throws Exception {
+        final Runnable scan = start(SCAN_INTERVAL);
+        touch(deploymentDir);
+        scan.run();
+
+        // Content added without the directory modification time changing is not seen
+        final long lastModified = deploymentDir.lastModified();
+        write(new File(deploymentDir, "test.jar"), 100);
+        deploymentDir.setLastModified(lastModified);
+        scan.run();
+        scan.run();
+        assertTrue(deploymentManager.plans.isEmpty());
+
+        touch(deploymentDir);
+        scan.run();
+        scan.run();
+        assertEquals(1, deploymentManager.plans.size());
+        assertAction(deploymentManager.plans.get(0), DeploymentAction.Type.ADD, "test.jar");
+    }
+
+    @Test
+    public void testChangedSubdirectoryOfUnchangedDirectoryIsScanned() throws Exception {
+        final Runnable scan = start(SCAN_INTERVAL);
+        final File subdirectory = new File(deploymentDir, "apps");
+        assertTrue(subdirectory.mkdir());
+        touch(subdirectory);
+        touch(deploymentDir);
+        scan.run();
+
+        final long lastModified = deploymentDir.lastModified();
+        write(new File(subdirectory, "test.jar"), 100);
+        touch(subdirectory);
+        assertEquals(lastModified, deploymentDir.lastModified());
+        scan.run();
+        scan.run();
+        assertEquals(1, deploymentManager.plans.size());
+        assertAction(deploymentManager.plans.get(0), DeploymentAction.Type.ADD, "test.jar");
+        assertTrue(new File(subdirectory, "test.jar.deployed").exists());
+    }
+
+    private Runnable start(final long scanInterval) {
+        final FileSystemDeploymentService service = new FileSystemDeploymentService(deploymentDir, scanInterval);
+        service.setDeploymentManager(deploymentManager);
+        service.setScheduledExecutor(executor);
+        service.setServerModel(new ServerModel("server", 0));
+        service.validateAndCreate();
+        service.startScanner();
+        assertNotNull(executor.scan);
+        return executor.scan;
+    }
+
+    /** Give a directory a new modification time, old enough to be trusted by the scanner */
+    private void touch(final File directory) {
+        time += 10000;
+        assertTrue(directory.setLastModified(time));
+    }
+
+    private static void assertAction(final DeploymentPlan plan, final DeploymentAction.Type type, final String name) {
+        for (DeploymentAction action : plan.getDeploymentActions()) {
+            if (action.getType() == type && name.equals(action.getDeploymentUnitUniqueName())) {
+                return;
+            }
+        }
+        throw new AssertionError("No " + type + " action for " + name + " in " + plan.getDeploymentActions());
+    }
+
+    private static void write(final File file, final int length) throws IOException {
+        final OutputStream output = new FileOutputStream(file, true);
+        try {
+            output.write(new byte[length]);
+        } finally {
+            output.close();
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /** Keeps the scan task for the test to run instead of scheduling it */
+    private static class CapturingExecutor extends ScheduledThreadPoolExecutor {
+        private static final Runnable NOOP = new Runnable() {
+            public void run() {
+            }
+        };
+
+        private volatile Runnable scan;
+
+        private CapturingExecutor() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(final Runnable command, final long delay, final TimeUnit unit) {
+            scan = command;
+            return super.schedule(NOOP, 1, TimeUnit.DAYS);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable command, final long initialDelay, final long delay, final TimeUnit unit) {
+            scan = command;
+            return super.schedule(NOOP, 1, TimeUnit.DAYS);
+        }
+    }
+
+    /** Records the plans executed, completing each at once */
+    private static class RecordingDeploymentManager implements ServerDeploymentManager, DeploymentContentDistributor {
+        private final List<DeploymentPlan> plans = new ArrayList<DeploymentPlan>();
+
+        public String addDeploymentContent(File file) {
+            throw new UnsupportedOperationException();
+        }
+
+        public String addDeploymentContent(URL url) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void addDeploymentContent(String name, File file) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void addDeploymentContent(String name, URL url) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void addDeploymentContent(String name, InputStream stream) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void addDeploymentContent(String name, String commonName, InputStream stream) {
+            throw new UnsupportedOperationException();
+        }
+
+        public InitialDeploymentPlanBuilder newDeploymentPlan() {
+            return InitialDeploymentPlanBuilderFactory.newInitialDeploymentPlanBuilder(this);
+        }
+
+        public Future<ServerDeploymentPlanResult> execute(final DeploymentPlan plan) {
+            plans.add(plan);
+            final FutureTask<ServerDeploymentPlanResult> future = new FutureTask<ServerDeploymentPlanResult>(new Callable<ServerDeploymentPlanResult>() {
+                public ServerDeploymentPlanResult call() {
+                    return null;
+                }
+            });
+            future.run();
+            return future;
+        }
+
+        public byte[] distributeDeploymentContent(String uniqueName, String runtimeName, InputStream stream) throws IOException,
+                DuplicateDeploymentNameException {
+            return drain(stream);
+        }
+
+        public byte[] distributeReplacementDeploymentContent(String uniqueName, String runtimeName, InputStream stream) throws IOException {
+            return drain(stream);
+        }
+
+        private static byte[] drain(final InputStream stream) throws IOException {
+            final byte[] buffer = new byte[512];
+            while (stream.read(buffer) != -1) {
+            }
+            return new byte[20];
+        }
+    }
+}
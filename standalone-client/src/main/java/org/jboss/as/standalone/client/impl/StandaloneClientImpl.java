@@ -246,6 +246,13 @@ public class StandaloneClientImpl implements StandaloneClient {
             return StandaloneClientProtocol.ADD_DEPLOYMENT_CONTENT_RESPONSE;
         }
 
+        /** {@inheritDoc} */
+        @Override
+        protected boolean isStreamed() {
+            // The deployment content is sent as it is read rather than held in memory
+            return true;
+        }
+
         /** {@inheritDoc} */
         @Override
         protected void sendRequest(int protocolVersion, OutputStream outputStream) throws IOException {
@@ -302,6 +309,13 @@ public class StandaloneClientImpl implements StandaloneClient {
             return StandaloneClientProtocol.EXECUTE_DEPLOYMENT_PLAN_RESPONSE;
         }
 
+        /** {@inheritDoc} */
+        @Override
+        protected boolean isStreamed() {
+            // The results are read as each step of the plan completes
+            return true;
+        }
+
         /** {@inheritDoc} */
         @Override
         protected void sendRequest(final int protocolVersion, final OutputStream output) throws IOException {
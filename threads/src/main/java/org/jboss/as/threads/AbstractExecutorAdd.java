@@ -26,6 +26,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ThreadFactory;
 
+import javax.management.MBeanServer;
+
 import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.BatchBuilder;
 import org.jboss.msc.service.BatchServiceBuilder;
@@ -44,6 +46,7 @@ public abstract class AbstractExecutorAdd extends AbstractThreadsSubsystemUpdate
 
     private String threadFactory;
     private TimeSpec keepaliveTime;
+    private int statisticsSampleInterval;
 
     protected AbstractExecutorAdd(final String name, final ScaledCount maxThreads) {
         if (name == null) {
@@ -73,6 +76,17 @@ public abstract class AbstractExecutorAdd extends AbstractThreadsSubsystemUpdate
         this.keepaliveTime = keepaliveTime;
     }
 
+    public int getStatisticsSampleInterval() {
+        return statisticsSampleInterval;
+    }
+
+    public void setStatisticsSampleInterval(final int statisticsSampleInterval) {
+        if (statisticsSampleInterval < 0) {
+            throw new IllegalArgumentException("statisticsSampleInterval is negative");
+        }
+        this.statisticsSampleInterval = statisticsSampleInterval;
+    }
+
     public ScaledCount getMaxThreads() {
         return maxThreads;
     }
@@ -96,6 +110,14 @@ public abstract class AbstractExecutorAdd extends AbstractThreadsSubsystemUpdate
         return serviceBuilder.addDependency(threadFactoryName, ThreadFactory.class, injector);
     }
 
+    protected void addStatisticsService(final ServiceName serviceName, final ExecutorStatistics statistics, BatchBuilder builder) {
+        statistics.setSampleInterval(statisticsSampleInterval);
+        final ExecutorStatisticsService service = new ExecutorStatisticsService(name, statistics);
+        builder.addService(ThreadsServices.executorStatisticsName(name), service)
+            .addDependency(serviceName)
+            .addOptionalDependency(ServiceName.JBOSS.append("mbean", "server"), MBeanServer.class, service.getMBeanServerInjector());
+    }
+
     public final ExecutorRemove getCompensatingUpdate(final ThreadsSubsystemElement original) {
         return new ExecutorRemove(name);
     }
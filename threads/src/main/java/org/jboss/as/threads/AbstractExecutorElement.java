@@ -44,6 +44,7 @@ public abstract class AbstractExecutorElement<T extends AbstractExecutorElement<
     private String threadFactory;
     private ScaledCount maxThreads;
     private TimeSpec keepaliveTime;
+    private int statisticsSampleInterval;
 
     protected AbstractExecutorElement(final String name) {
         this.name = name;
@@ -98,6 +99,14 @@ public abstract class AbstractExecutorElement<T extends AbstractExecutorElement<
         this.keepaliveTime = keepaliveTime;
     }
 
+    public int getStatisticsSampleInterval() {
+        return statisticsSampleInterval;
+    }
+
+    void setStatisticsSampleInterval(final int statisticsSampleInterval) {
+        this.statisticsSampleInterval = statisticsSampleInterval;
+    }
+
     public final String getName() {
         return name;
     }
@@ -110,6 +119,9 @@ public abstract class AbstractExecutorElement<T extends AbstractExecutorElement<
 
     protected void writeAttributes(final XMLExtendedStreamWriter streamWriter) throws XMLStreamException {
         streamWriter.writeAttribute("name", getName());
+        if (statisticsSampleInterval > 0) {
+            streamWriter.writeAttribute("statistics-sample-interval", Integer.toString(statisticsSampleInterval));
+        }
     }
 
     protected void writeElements(final XMLExtendedStreamWriter streamWriter) throws XMLStreamException {
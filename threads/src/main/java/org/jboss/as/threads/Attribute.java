@@ -40,6 +40,7 @@ public enum Attribute {
     TIME("time"),
     PER_CPU("per-cpu"),
     PRIORITY("priority"),
+    STATISTICS_SAMPLE_INTERVAL("statistics-sample-interval"),
     UNIT("unit"),
     VALUE("value"),
     ;
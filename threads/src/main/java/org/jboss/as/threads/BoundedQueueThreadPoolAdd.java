@@ -66,6 +66,7 @@ public final class BoundedQueueThreadPoolAdd extends AbstractExecutorAdd {
         final BoundedQueueThreadPoolService service = new BoundedQueueThreadPoolService(coreThreads, maxThreads, queueLength, blocking, getKeepaliveTime(), allowCoreTimeout);
         final BatchServiceBuilder<Executor> serviceBuilder = builder.addService(serviceName, service);
         addThreadFactoryDependency(serviceName, serviceBuilder, service.getThreadFactoryInjector(), builder);
+        addStatisticsService(serviceName, service.getStatistics(), builder);
     }
 
     protected void applyUpdate(final ThreadsSubsystemElement element) throws UpdateFailedException {
@@ -77,6 +78,7 @@ public final class BoundedQueueThreadPoolAdd extends AbstractExecutorAdd {
         poolElement.setQueueLength(queueLength);
         poolElement.setKeepaliveTime(getKeepaliveTime());
         poolElement.setThreadFactory(getThreadFactory());
+        poolElement.setStatisticsSampleInterval(getStatisticsSampleInterval());
         poolElement.setMaxThreads(getMaxThreads());
         element.addExecutor(getName(), new ChildElement<BoundedQueueThreadPoolElement>(Element.BOUNDED_QUEUE_THREAD_POOL.getLocalName(), poolElement));
     }
@@ -110,6 +110,7 @@ public final class BoundedQueueThreadPoolElement extends AbstractExecutorElement
         final BoundedQueueThreadPoolAdd add = new BoundedQueueThreadPoolAdd(getName(), getMaxThreads(), getQueueLength());
         add.setKeepaliveTime(getKeepaliveTime());
         add.setThreadFactory(getThreadFactory());
+        add.setStatisticsSampleInterval(getStatisticsSampleInterval());
         add.setBlocking(blocking);
         add.setHandoffExecutor(handoffExecutor);
         add.setAllowCoreTimeout(allowCoreTimeout);
@@ -43,6 +43,7 @@ import java.util.concurrent.ThreadFactory;
 public class BoundedQueueThreadPoolService implements Service<Executor> {
     private final InjectedValue<ThreadFactory> threadFactoryValue = new InjectedValue<ThreadFactory>();
     private final InjectedValue<Executor> handoffExecutorValue = new InjectedValue<Executor>();
+    private final ExecutorStatistics statistics = new ExecutorStatistics();
 
     private QueueExecutor executor;
     private Executor value;
@@ -64,9 +65,9 @@ public class BoundedQueueThreadPoolService implements Service<Executor> {
     }
 
     public synchronized void start(final StartContext context) throws StartException {
-        executor = new QueueExecutor(coreThreads, maxThreads, keepAlive.getDuration(), keepAlive.getUnit(), queueLength, threadFactoryValue.getValue(), blocking, handoffExecutorValue.getOptionalValue());
+        executor = new QueueExecutor(coreThreads, maxThreads, keepAlive.getDuration(), keepAlive.getUnit(), queueLength, statistics.instrument(threadFactoryValue.getValue()), blocking, handoffExecutorValue.getOptionalValue());
         executor.setAllowCoreThreadTimeout(allowCoreTimeout);
-        value = JBossExecutors.protectedBlockingExecutor(executor);
+        value = statistics.instrument(JBossExecutors.protectedBlockingExecutor(executor));
     }
 
     public synchronized void stop(final StopContext context) {
@@ -101,6 +102,10 @@ public class BoundedQueueThreadPoolService implements Service<Executor> {
         return handoffExecutorValue;
     }
 
+    public ExecutorStatistics getStatistics() {
+        return statistics;
+    }
+
     public synchronized void setCoreThreads(int coreThreads) {
         this.coreThreads = coreThreads;
         final QueueExecutor executor = this.executor;
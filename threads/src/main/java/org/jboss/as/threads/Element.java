@@ -38,6 +38,7 @@ public enum Element {
     HANDOFF_EXECUTOR("handoff-executor"),
     KEEPALIVE_TIME("keepalive-time"),
     MAX_THREADS("max-threads"),
+    PARALLELISM("parallelism"),
     PROPERTIES("properties"),
     PROPERTY("property"),
     QUEUE_LENGTH("queue-length"),
@@ -46,6 +47,7 @@ public enum Element {
     SUBSYSTEM("subsystem"),
     THREAD_FACTORY("thread-factory"),
     UNBOUNDED_QUEUE_THREAD_POOL("unbounded-queue-thread-pool"),
+    WORK_STEALING_THREAD_POOL("work-stealing-thread-pool"),
     ;
 
     private final String name;
@@ -54,6 +54,10 @@ public final class ExecutorRemove extends AbstractThreadsSubsystemUpdate<Void> {
     }
 
     protected <P> void applyUpdate(final UpdateContext updateContext, final UpdateResultHandler<? super Void, P> handler, final P param) {
+        final ServiceController<?> statistics = updateContext.getServiceContainer().getService(ThreadsServices.executorStatisticsName(name));
+        if (statistics != null) {
+            statistics.setMode(ServiceController.Mode.REMOVE);
+        }
         final ServiceController<?> controller = updateContext.getServiceContainer().getService(ThreadsServices.executorName(name));
         if (controller == null) {
             handler.handleSuccess(null, param);
@@ -0,0 +1,540 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.threads;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runtime statistics of a thread pool. The pool services route their executor and thread factory through the
+ * {@code instrument} methods, which count tasks and threads as they pass. Task counters are always maintained;
+ * the queue wait and execution time histograms are only fed when a sample interval is set, and then only for
+ * one in every {@code interval} tasks.
+ */
+public final class ExecutorStatistics implements ExecutorStatisticsMBean {
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger largestActive = new AtomicInteger();
+    private final AtomicInteger threads = new AtomicInteger();
+    private final AtomicInteger largestThreads = new AtomicInteger();
+
+    private final AtomicLong sampleTick = new AtomicLong();
+    private volatile int sampleInterval;
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+
+    /**
+     * Wrap an executor so that the tasks it accepts are counted.
+     *
+     * @param executor the pool executor
+     * @return the instrumented executor
+     */
+    public Executor instrument(final Executor executor) {
+        return new Executor() {
+            public void execute(final Runnable command) {
+                executeInstrumented(executor, command);
+            }
+        };
+    }
+
+    /**
+     * Wrap an executor service so that the tasks it accepts are counted.
+     *
+     * @param executor the pool executor service
+     * @return the instrumented executor service
+     */
+    public ExecutorService instrument(final ExecutorService executor) {
+        return new InstrumentedExecutorService(executor);
+    }
+
+    /**
+     * Wrap a scheduled executor service so that the tasks it accepts are counted. Delayed tasks count as queued
+     * until they first run or are cancelled; the queue wait of a sampled delayed task is measured from the time it
+     * was due.
+     *
+     * @param executor the pool executor service
+     * @return the instrumented executor service
+     */
+    public ScheduledExecutorService instrument(final ScheduledExecutorService executor) {
+        return new InstrumentedScheduledExecutorService(executor);
+    }
+
+    /**
+     * Wrap a thread factory so that the live threads of the pool are counted.
+     *
+     * @param threadFactory the pool thread factory
+     * @return the instrumented thread factory
+     */
+    public ThreadFactory instrument(final ThreadFactory threadFactory) {
+        return new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+                return threadFactory.newThread(new Runnable() {
+                    public void run() {
+                        updateLargest(largestThreads, threads.incrementAndGet());
+                        try {
+                            r.run();
+                        } finally {
+                            threads.decrementAndGet();
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    private void executeInstrumented(final Executor executor, final Runnable command) {
+        final InstrumentedTask task = accept(command, 0L, false);
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            abandon(e);
+            throw e;
+        }
+    }
+
+    private InstrumentedTask accept(final Runnable command, final long delayNanos, final boolean periodic) {
+        if (command == null) {
+            throw new NullPointerException("command is null");
+        }
+        final InstrumentedTask task = new InstrumentedTask(command, delayNanos, periodic);
+        submitted.incrementAndGet();
+        queued.incrementAndGet();
+        return task;
+    }
+
+    private void abandon(final RuntimeException e) {
+        submitted.decrementAndGet();
+        queued.decrementAndGet();
+        if (e instanceof RejectedExecutionException) {
+            rejected.incrementAndGet();
+        }
+    }
+
+    private boolean sample() {
+        final int interval = sampleInterval;
+        return interval > 0 && sampleTick.getAndIncrement() % interval == 0L;
+    }
+
+    private static void updateLargest(final AtomicInteger largest, final int value) {
+        int current;
+        do {
+            current = largest.get();
+        } while (value > current && ! largest.compareAndSet(current, value));
+    }
+
+    /** {@inheritDoc} */
+    public long getSubmittedTaskCount() {
+        return submitted.get();
+    }
+
+    /** {@inheritDoc} */
+    public long getCompletedTaskCount() {
+        return completed.get();
+    }
+
+    /** {@inheritDoc} */
+    public long getFailedTaskCount() {
+        return failed.get();
+    }
+
+    /** {@inheritDoc} */
+    public long getRejectedTaskCount() {
+        return rejected.get();
+    }
+
+    /** {@inheritDoc} */
+    public int getQueueSize() {
+        return queued.get();
+    }
+
+    /** {@inheritDoc} */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /** {@inheritDoc} */
+    public int getLargestActiveCount() {
+        return largestActive.get();
+    }
+
+    /** {@inheritDoc} */
+    public int getCurrentThreadCount() {
+        return threads.get();
+    }
+
+    /** {@inheritDoc} */
+    public int getLargestThreadCount() {
+        return largestThreads.get();
+    }
+
+    /** {@inheritDoc} */
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /** {@inheritDoc} */
+    public void setSampleInterval(final int interval) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("interval is negative");
+        }
+        sampleInterval = interval;
+    }
+
+    /** {@inheritDoc} */
+    public long getMeanQueueWaitMicros() {
+        return queueWait.getMeanMicros();
+    }
+
+    /** {@inheritDoc} */
+    public long getQueueWaitPercentileMicros(final double percentile) {
+        return queueWait.getPercentileMicros(percentile);
+    }
+
+    /** {@inheritDoc} */
+    public long getMeanExecutionMicros() {
+        return execution.getMeanMicros();
+    }
+
+    /** {@inheritDoc} */
+    public long getExecutionPercentileMicros(final double percentile) {
+        return execution.getPercentileMicros(percentile);
+    }
+
+    /** {@inheritDoc} */
+    public long[] getQueueWaitHistogram() {
+        return queueWait.getBucketCounts();
+    }
+
+    /** {@inheritDoc} */
+    public long[] getExecutionHistogram() {
+        return execution.getBucketCounts();
+    }
+
+    /** {@inheritDoc} */
+    public void resetHistograms() {
+        queueWait.reset();
+        execution.reset();
+    }
+
+    /**
+     * Get the queue wait histogram.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * Get the execution time histogram.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getExecution() {
+        return execution;
+    }
+
+    private final class InstrumentedTask implements Runnable {
+        private final Runnable delegate;
+        private final boolean periodic;
+        private final boolean sampled;
+        private final long due;
+        private final AtomicInteger runs = new AtomicInteger();
+        private Set<InstrumentedTask> pending;
+
+        InstrumentedTask(final Runnable delegate, final long delayNanos, final boolean periodic) {
+            this.delegate = delegate;
+            this.periodic = periodic;
+            sampled = sample();
+            due = sampled ? System.nanoTime() + delayNanos : 0L;
+        }
+
+        public void run() {
+            if (runs.getAndIncrement() == 0) {
+                dequeued();
+            }
+            updateLargest(largestActive, active.incrementAndGet());
+            final long start = sampled ? System.nanoTime() : 0L;
+            if (sampled && ! periodic) {
+                queueWait.record(start - due);
+            }
+            boolean ok = false;
+            try {
+                delegate.run();
+                ok = true;
+            } finally {
+                if (sampled) {
+                    execution.record(System.nanoTime() - start);
+                }
+                active.decrementAndGet();
+                if (ok) {
+                    completed.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Take the task off the queue without running it, as the executor will not run it any more.
+         *
+         * @return the task that was submitted
+         */
+        Runnable discard() {
+            if (runs.compareAndSet(0, 1)) {
+                dequeued();
+            }
+            return delegate;
+        }
+
+        private void dequeued() {
+            queued.decrementAndGet();
+            final Set<InstrumentedTask> pending = this.pending;
+            if (pending != null) {
+                pending.remove(this);
+            }
+        }
+    }
+
+    private final class InstrumentedCallable<V> implements Callable<V> {
+        private final InstrumentedTask task;
+        private V result;
+
+        InstrumentedCallable(final Callable<V> callable, final long delayNanos) {
+            task = accept(new Runnable() {
+                public void run() {
+                    try {
+                        result = callable.call();
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new CallableException(e);
+                    }
+                }
+            }, delayNanos, false);
+        }
+
+        public V call() throws Exception {
+            try {
+                task.run();
+            } catch (CallableException e) {
+                throw e.getCause();
+            }
+            return result;
+        }
+    }
+
+    private static final class CallableException extends RuntimeException {
+        private static final long serialVersionUID = 4411532539467271829L;
+
+        CallableException(final Exception cause) {
+            super(cause);
+        }
+
+        public Exception getCause() {
+            return (Exception) super.getCause();
+        }
+    }
+
+    private class InstrumentedExecutorService extends AbstractExecutorService {
+        private final ExecutorService delegate;
+
+        InstrumentedExecutorService(final ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        public void execute(final Runnable command) {
+            executeInstrumented(delegate, command);
+        }
+
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        public List<Runnable> shutdownNow() {
+            final List<Runnable> tasks = delegate.shutdownNow();
+            final List<Runnable> submitted = new ArrayList<Runnable>(tasks.size());
+            for (Runnable task : tasks) {
+                submitted.add(task instanceof InstrumentedTask ? ((InstrumentedTask) task).discard() : task);
+            }
+            return submitted;
+        }
+
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+
+    private final class InstrumentedScheduledExecutorService extends InstrumentedExecutorService implements ScheduledExecutorService {
+        private final ScheduledExecutorService delegate;
+        /** The delayed tasks which have neither run nor been cancelled. */
+        private final Set<InstrumentedTask> pending = Collections.newSetFromMap(new ConcurrentHashMap<InstrumentedTask, Boolean>());
+
+        InstrumentedScheduledExecutorService(final ScheduledExecutorService delegate) {
+            super(delegate);
+            this.delegate = delegate;
+        }
+
+        public List<Runnable> shutdownNow() {
+            // The pool returns its own futures rather than the tasks it was given, so the tasks left in its queue are
+            // known from the pending set
+            final List<Runnable> tasks = super.shutdownNow();
+            for (InstrumentedTask task : pending) {
+                task.discard();
+            }
+            return tasks;
+        }
+
+        public ScheduledFuture<?> schedule(final Runnable command, final long delay, final TimeUnit unit) {
+            final InstrumentedTask task = track(accept(command, unit.toNanos(delay), false));
+            try {
+                return new InstrumentedFuture<Object>(delegate.schedule(task, delay, unit), task);
+            } catch (RuntimeException e) {
+                untrack(task, e);
+                throw e;
+            }
+        }
+
+        public <V> ScheduledFuture<V> schedule(final Callable<V> callable, final long delay, final TimeUnit unit) {
+            if (callable == null) {
+                throw new NullPointerException("callable is null");
+            }
+            final InstrumentedCallable<V> task = new InstrumentedCallable<V>(callable, unit.toNanos(delay));
+            track(task.task);
+            try {
+                return new InstrumentedFuture<V>(delegate.schedule(task, delay, unit), task.task);
+            } catch (RuntimeException e) {
+                untrack(task.task, e);
+                throw e;
+            }
+        }
+
+        public ScheduledFuture<?> scheduleAtFixedRate(final Runnable command, final long initialDelay, final long period, final TimeUnit unit) {
+            final InstrumentedTask task = track(accept(command, unit.toNanos(initialDelay), true));
+            try {
+                return new InstrumentedFuture<Object>(delegate.scheduleAtFixedRate(task, initialDelay, period, unit), task);
+            } catch (RuntimeException e) {
+                untrack(task, e);
+                throw e;
+            }
+        }
+
+        public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable command, final long initialDelay, final long delay, final TimeUnit unit) {
+            final InstrumentedTask task = track(accept(command, unit.toNanos(initialDelay), true));
+            try {
+                return new InstrumentedFuture<Object>(delegate.scheduleWithFixedDelay(task, initialDelay, delay, unit), task);
+            } catch (RuntimeException e) {
+                untrack(task, e);
+                throw e;
+            }
+        }
+
+        private InstrumentedTask track(final InstrumentedTask task) {
+            task.pending = pending;
+            pending.add(task);
+            return task;
+        }
+
+        private void untrack(final InstrumentedTask task, final RuntimeException e) {
+            pending.remove(task);
+            abandon(e);
+        }
+    }
+
+    /**
+     * A future of a delayed task, taking the task off the queue when it is cancelled before it first runs.
+     */
+    private static final class InstrumentedFuture<V> implements ScheduledFuture<V> {
+        private final ScheduledFuture<V> delegate;
+        private final InstrumentedTask task;
+
+        @SuppressWarnings("unchecked")
+        InstrumentedFuture(final ScheduledFuture<?> delegate, final InstrumentedTask task) {
+            this.delegate = (ScheduledFuture<V>) delegate;
+            this.task = task;
+        }
+
+        public long getDelay(final TimeUnit unit) {
+            return delegate.getDelay(unit);
+        }
+
+        public int compareTo(final Delayed o) {
+            return delegate.compareTo(o instanceof InstrumentedFuture ? ((InstrumentedFuture<?>) o).delegate : o);
+        }
+
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            if (delegate.cancel(mayInterruptIfRunning)) {
+                task.discard();
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return delegate.isCancelled();
+        }
+
+        public boolean isDone() {
+            return delegate.isDone();
+        }
+
+        public V get() throws InterruptedException, ExecutionException {
+            return delegate.get();
+        }
+
+        public V get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return delegate.get(timeout, unit);
+        }
+    }
+}
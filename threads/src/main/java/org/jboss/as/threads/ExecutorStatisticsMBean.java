@@ -0,0 +1,158 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.threads;
+
+/**
+ * Management view of the runtime statistics of a thread pool.
+ */
+public interface ExecutorStatisticsMBean {
+
+    /**
+     * Get the number of tasks accepted by the pool.
+     *
+     * @return the submitted task count
+     */
+    long getSubmittedTaskCount();
+
+    /**
+     * Get the number of tasks which ran to completion without throwing an exception.  Tasks which threw are
+     * counted by {@link #getFailedTaskCount()} instead.
+     *
+     * @return the completed task count
+     */
+    long getCompletedTaskCount();
+
+    /**
+     * Get the number of tasks which completed by throwing an exception. Failures of tasks submitted for a
+     * {@code Future} are captured by that future and not counted here.
+     *
+     * @return the failed task count
+     */
+    long getFailedTaskCount();
+
+    /**
+     * Get the number of tasks rejected by the pool.
+     *
+     * @return the rejected task count
+     */
+    long getRejectedTaskCount();
+
+    /**
+     * Get the number of tasks accepted but not yet started, including scheduled tasks which are not yet due.
+     *
+     * @return the queue depth
+     */
+    int getQueueSize();
+
+    /**
+     * Get the number of tasks being run right now.
+     *
+     * @return the active task count
+     */
+    int getActiveCount();
+
+    /**
+     * Get the largest number of tasks which were run at the same time.
+     *
+     * @return the largest active task count
+     */
+    int getLargestActiveCount();
+
+    /**
+     * Get the number of live pool threads.
+     *
+     * @return the current thread count
+     */
+    int getCurrentThreadCount();
+
+    /**
+     * Get the largest number of pool threads alive at the same time.
+     *
+     * @return the largest thread count
+     */
+    int getLargestThreadCount();
+
+    /**
+     * Get the sample interval of the latency histograms.
+     *
+     * @return the interval, {@code 0} if sampling is switched off
+     */
+    int getSampleInterval();
+
+    /**
+     * Set the sample interval of the latency histograms; one in every {@code interval} tasks is timed.
+     *
+     * @param interval the interval, {@code 0} to switch sampling off
+     */
+    void setSampleInterval(int interval);
+
+    /**
+     * Get the mean time sampled tasks spent waiting in the queue.
+     *
+     * @return the mean queue wait in microseconds
+     */
+    long getMeanQueueWaitMicros();
+
+    /**
+     * Get an upper bound of the queue wait time of the given percentile of sampled tasks.
+     *
+     * @param percentile the percentile, between {@code 0} and {@code 100}
+     * @return the queue wait in microseconds
+     */
+    long getQueueWaitPercentileMicros(double percentile);
+
+    /**
+     * Get the mean execution time of sampled tasks.
+     *
+     * @return the mean execution time in microseconds
+     */
+    long getMeanExecutionMicros();
+
+    /**
+     * Get an upper bound of the execution time of the given percentile of sampled tasks.
+     *
+     * @param percentile the percentile, between {@code 0} and {@code 100}
+     * @return the execution time in microseconds
+     */
+    long getExecutionPercentileMicros(double percentile);
+
+    /**
+     * Get the raw queue wait histogram, see {@link LatencyHistogram} for the bucket layout.
+     *
+     * @return the bucket counts
+     */
+    long[] getQueueWaitHistogram();
+
+    /**
+     * Get the raw execution time histogram, see {@link LatencyHistogram} for the bucket layout.
+     *
+     * @return the bucket counts
+     */
+    long[] getExecutionHistogram();
+
+    /**
+     * Discard the sampled latency histograms.
+     */
+    void resetHistograms();
+}
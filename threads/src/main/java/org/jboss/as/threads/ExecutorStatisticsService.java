@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.threads;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.jboss.logging.Logger;
+import org.jboss.msc.inject.Injector;
+import org.jboss.msc.service.Service;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StartException;
+import org.jboss.msc.service.StopContext;
+import org.jboss.msc.value.InjectedValue;
+
+/**
+ * Service publishing the runtime statistics of a thread pool, both as its service value and as an mbean.
+ * It depends on the pool service, so the statistics are only available while the pool is up.
+ */
+public final class ExecutorStatisticsService implements Service<ExecutorStatistics> {
+    private static final Logger log = Logger.getLogger("org.jboss.as.threads");
+
+    private final InjectedValue<MBeanServer> mbeanServerValue = new InjectedValue<MBeanServer>();
+    private final ExecutorStatistics statistics;
+    private final String name;
+    private ObjectName objectName;
+
+    public ExecutorStatisticsService(final String name, final ExecutorStatistics statistics) {
+        this.name = name;
+        this.statistics = statistics;
+    }
+
+    public synchronized void start(final StartContext context) throws StartException {
+        try {
+            objectName = new ObjectName("jboss:type=executor,name=" + ObjectName.quote(name));
+            getMbeanServer().registerMBean(statistics, objectName);
+        } catch (Exception e) {
+            objectName = null;
+            throw new StartException("Failed to register statistics mbean for executor " + name, e);
+        }
+    }
+
+    public synchronized void stop(final StopContext context) {
+        final ObjectName objectName = this.objectName;
+        this.objectName = null;
+        try {
+            getMbeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            log.errorf(e, "Failed to unregister statistics mbean [%s]", objectName);
+        }
+    }
+
+    public ExecutorStatistics getValue() throws IllegalStateException {
+        return statistics;
+    }
+
+    public Injector<MBeanServer> getMBeanServerInjector() {
+        return mbeanServerValue;
+    }
+
+    private MBeanServer getMbeanServer() {
+        MBeanServer mbeanServer = mbeanServerValue.getOptionalValue();
+        if (mbeanServer == null) {
+            mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        }
+        return mbeanServer;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with power-of-two microsecond buckets. Bucket {@code 0} counts samples below one
+ * microsecond, bucket {@code n} counts samples of at least 2<sup>n-1</sup> and less than 2<sup>n</sup> microseconds,
+ * and the last bucket collects everything above.
+ */
+public final class LatencyHistogram {
+
+    /** The number of buckets; the last one is open-ended, starting at 2<sup>30</sup> microseconds (about 17.9 minutes). */
+    public static final int BUCKETS = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Record a sample.
+     *
+     * @param nanos the sampled duration in nanoseconds
+     */
+    public void record(final long nanos) {
+        final long value = nanos < 0L ? 0L : nanos;
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+        long max;
+        do {
+            max = maxNanos.get();
+        } while (value > max && ! maxNanos.compareAndSet(max, value));
+    }
+
+    static int bucketOf(final long nanos) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        final int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return bucket < BUCKETS ? bucket : BUCKETS - 1;
+    }
+
+    /**
+     * Get the upper bound of a bucket in microseconds.
+     *
+     * @param bucket the bucket index
+     * @return the exclusive upper bound, or {@link Long#MAX_VALUE} for the last bucket
+     */
+    public static long getBucketLimitMicros(final int bucket) {
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * Get the number of samples recorded.
+     *
+     * @return the sample count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Get the mean of the recorded samples.
+     *
+     * @return the mean in microseconds, or {@code 0} if nothing was recorded
+     */
+    public long getMeanMicros() {
+        final long count = this.count.get();
+        return count == 0L ? 0L : TimeUnit.NANOSECONDS.toMicros(totalNanos.get() / count);
+    }
+
+    /**
+     * Get the largest recorded sample.
+     *
+     * @return the maximum in microseconds
+     */
+    public long getMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+    }
+
+    /**
+     * Get an upper bound for the given percentile, accurate to the bucket resolution.
+     *
+     * @param percentile the percentile, between {@code 0} and {@code 100}
+     * @return the bucket limit in microseconds below which the requested share of samples fall
+     */
+    public long getPercentileMicros(final double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        final long[] counts = getBucketCounts();
+        long total = 0L;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        final long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i ++) {
+            seen += counts[i];
+            if (seen >= threshold && counts[i] > 0L) {
+                return i == BUCKETS - 1 ? getMaxMicros() : getBucketLimitMicros(i);
+            }
+        }
+        return getMaxMicros();
+    }
+
+    /**
+     * Get a snapshot of the bucket counts.
+     *
+     * @return the counts, indexed by bucket
+     */
+    public long[] getBucketCounts() {
+        final long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i ++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Discard all recorded samples.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i ++) {
+            buckets.set(i, 0L);
+        }
+        count.set(0L);
+        totalNanos.set(0L);
+        maxNanos.set(0L);
+    }
+}
@@ -55,6 +55,7 @@ public final class QueuelessThreadPoolAdd extends AbstractExecutorAdd {
         final QueuelessThreadPoolService service = new QueuelessThreadPoolService(maxThreads, blocking, getKeepaliveTime());
         final BatchServiceBuilder<ExecutorService> serviceBuilder = builder.addService(serviceName, service);
         addThreadFactoryDependency(serviceName, serviceBuilder, service.getThreadFactoryInjector(), builder);
+        addStatisticsService(serviceName, service.getStatistics(), builder);
     }
 
     protected void applyUpdate(final ThreadsSubsystemElement element) throws UpdateFailedException {
@@ -63,6 +64,7 @@ public final class QueuelessThreadPoolAdd extends AbstractExecutorAdd {
         poolElement.setHandoffExecutor(handoffExecutor);
         poolElement.setKeepaliveTime(getKeepaliveTime());
         poolElement.setThreadFactory(getThreadFactory());
+        poolElement.setStatisticsSampleInterval(getStatisticsSampleInterval());
         poolElement.setMaxThreads(getMaxThreads());
         element.addExecutor(getName(), new ChildElement<QueuelessThreadPoolElement>(Element.QUEUELESS_THREAD_POOL.getLocalName(), poolElement));
     }
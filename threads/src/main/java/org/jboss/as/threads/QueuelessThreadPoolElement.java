@@ -80,6 +80,7 @@ public final class QueuelessThreadPoolElement extends AbstractExecutorElement<Qu
         add.setHandoffExecutor(getHandoffExecutor());
         add.setKeepaliveTime(getKeepaliveTime());
         add.setThreadFactory(getThreadFactory());
+        add.setStatisticsSampleInterval(getStatisticsSampleInterval());
         add.getProperties().putAll(getProperties());
         return add;
     }
@@ -42,6 +42,7 @@ public final class ScheduledThreadPoolElement extends AbstractExecutorElement<Sc
         final ScheduledThreadPoolAdd add = new ScheduledThreadPoolAdd(getName(), getMaxThreads());
         add.setKeepaliveTime(getKeepaliveTime());
         add.setThreadFactory(getThreadFactory());
+        add.setStatisticsSampleInterval(getStatisticsSampleInterval());
         add.getProperties().putAll(getProperties());
         return add;
     }
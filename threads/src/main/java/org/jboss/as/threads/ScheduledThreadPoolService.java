@@ -42,6 +42,7 @@ import java.util.concurrent.ThreadFactory;
 public final class ScheduledThreadPoolService implements Service<ScheduledExecutorService> {
 
     private final InjectedValue<ThreadFactory> threadFactoryValue = new InjectedValue<ThreadFactory>();
+    private final ExecutorStatistics statistics = new ExecutorStatistics();
 
     private ScheduledThreadPoolExecutor executor;
     private ScheduledExecutorService value;
@@ -56,11 +57,11 @@ public final class ScheduledThreadPoolService implements Service<ScheduledExecut
     }
 
     public synchronized void start(final StartContext context) throws StartException {
-        executor = new ExecutorImpl(0, threadFactoryValue.getValue());
+        executor = new ExecutorImpl(0, statistics.instrument(threadFactoryValue.getValue()));
         executor.setCorePoolSize(maxThreads);
         if(keepAlive != null)
             executor.setKeepAliveTime(keepAlive.getDuration(), keepAlive.getUnit());
-        value = JBossExecutors.protectedScheduledExecutorService(executor);
+        value = statistics.instrument(JBossExecutors.protectedScheduledExecutorService(executor));
     }
 
     public synchronized void stop(final StopContext context) {
@@ -87,6 +88,10 @@ public final class ScheduledThreadPoolService implements Service<ScheduledExecut
         return threadFactoryValue;
     }
 
+    public ExecutorStatistics getStatistics() {
+        return statistics;
+    }
+
     private class ExecutorImpl extends ScheduledThreadPoolExecutor {
 
         ExecutorImpl(final int corePoolSize, final ThreadFactory threadFactory) {
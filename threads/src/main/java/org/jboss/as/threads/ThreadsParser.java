@@ -104,6 +104,10 @@ public final class ThreadsParser implements XMLElementReader<ParseResult<Extensi
                             parseUnboundedQueueExecutorElement(reader, updates, executorNames);
                             break;
                         }
+                        case WORK_STEALING_THREAD_POOL: {
+                            parseWorkStealingExecutorElement(reader, updates, executorNames);
+                            break;
+                        }
                         default: throw unexpectedElement(reader);
                     }
                     break;
@@ -117,6 +121,7 @@ public final class ThreadsParser implements XMLElementReader<ParseResult<Extensi
     private void parseUnboundedQueueExecutorElement(final XMLExtendedStreamReader reader, final List<? super AbstractThreadsSubsystemUpdate<?>> updates, final Set<String> names) throws XMLStreamException {
         // Attributes
         String name = null;
+        int statisticsSampleInterval = 0;
         final EnumSet<Attribute> required = EnumSet.of(Attribute.NAME);
         final int cnt = reader.getAttributeCount();
         for (int i = 0; i < cnt; i ++) {
@@ -130,6 +135,10 @@ public final class ThreadsParser implements XMLElementReader<ParseResult<Extensi
                     name = reader.getAttributeValue(i);
                     break;
                 }
+                case STATISTICS_SAMPLE_INTERVAL: {
+                    statisticsSampleInterval = reader.getIntAttributeValue(i);
+                    break;
+                }
                 default: {
                     throw unexpectedAttribute(reader, i);
                 }
@@ -186,15 +195,94 @@ public final class ThreadsParser implements XMLElementReader<ParseResult<Extensi
             throw missingRequired(reader, required);
         }
         final UnboundedQueueThreadPoolAdd add = new UnboundedQueueThreadPoolAdd(name, maxThreads);
+        add.setStatisticsSampleInterval(statisticsSampleInterval);
         add.setKeepaliveTime(keepaliveTime);
         add.setThreadFactory(threadFactory);
         updates.add(add);
     }
 
+    private void parseWorkStealingExecutorElement(final XMLExtendedStreamReader reader, final List<? super AbstractThreadsSubsystemUpdate<?>> updates, final Set<String> names) throws XMLStreamException {
+        // Attributes
+        String name = null;
+        int statisticsSampleInterval = 0;
+        final EnumSet<Attribute> required = EnumSet.of(Attribute.NAME);
+        final int cnt = reader.getAttributeCount();
+        for (int i = 0; i < cnt; i ++) {
+            if (reader.getAttributeNamespace(i) != null) {
+                throw unexpectedAttribute(reader, i);
+            }
+            final Attribute attribute = Attribute.forName(reader.getAttributeLocalName(i));
+            required.remove(attribute);
+            switch (attribute) {
+                case NAME: {
+                    name = reader.getAttributeValue(i);
+                    break;
+                }
+                case STATISTICS_SAMPLE_INTERVAL: {
+                    statisticsSampleInterval = reader.getIntAttributeValue(i);
+                    break;
+                }
+                default: {
+                    throw unexpectedAttribute(reader, i);
+                }
+            }
+        }
+        if (! required.isEmpty()) {
+            throw missingRequired(reader, required);
+        }
+        if (! names.add(name)) {
+            throw duplicateNamedElement(reader, name);
+        }
+        // Elements
+        ScaledCount parallelism = null;
+        String threadFactory = null;
+        final EnumSet<Element> requiredElem = EnumSet.of(Element.PARALLELISM);
+        final EnumSet<Element> encountered = EnumSet.noneOf(Element.class);
+        while (reader.nextTag() != END_ELEMENT) {
+            switch (Namespace.forUri(reader.getNamespaceURI())) {
+                case UNKNOWN: {
+                    throw unexpectedElement(reader);
+                }
+            }
+            final Element element = Element.forName(reader.getLocalName());
+            if (! encountered.add(element)) {
+                throw unexpectedElement(reader);
+            }
+            requiredElem.remove(element);
+            switch (element) {
+                case PARALLELISM: {
+                    parallelism = readScaledCountElement(reader);
+                    break;
+                }
+                case THREAD_FACTORY: {
+                    threadFactory = readStringAttributeElement(reader, Attribute.NAME.getLocalName());
+                    break;
+                }
+                case PROPERTIES: {
+                    while (reader.nextTag() != END_ELEMENT) {
+                        while (reader.nextTag() != END_ELEMENT) {}
+                    }
+                    break;
+                }
+                default: {
+                    throw unexpectedElement(reader);
+                }
+            }
+        }
+        if (! requiredElem.isEmpty()) {
+            throw missingRequired(reader, requiredElem);
+        }
+        final WorkStealingThreadPoolAdd add = new WorkStealingThreadPoolAdd(name, parallelism);
+        add.setThreadFactory(threadFactory);
+        add.setStatisticsSampleInterval(statisticsSampleInterval);
+        updates.add(add);
+    }
+
     private void parseQueuelessExecutorElement(final XMLExtendedStreamReader reader, final List<? super AbstractThreadsSubsystemUpdate<?>> updates, final Set<String> names) throws XMLStreamException {
         // Attributes
         String name = null;
         boolean blocking = false;
+        int statisticsSampleInterval = 0;
         final EnumSet<Attribute> required = EnumSet.of(Attribute.NAME);
         final int cnt = reader.getAttributeCount();
         for (int i = 0; i < cnt; i ++) {
@@ -208,6 +296,10 @@ public final class ThreadsParser implements XMLElementReader<ParseResult<Extensi
                     name = reader.getAttributeValue(i);
                     break;
                 }
+                case STATISTICS_SAMPLE_INTERVAL: {
+                    statisticsSampleInterval = reader.getIntAttributeValue(i);
+                    break;
+                }
                 case BLOCKING: {
                     blocking = Boolean.parseBoolean(reader.getAttributeValue(i));
                     break;
@@ -277,6 +369,7 @@ public final class ThreadsParser implements XMLElementReader<ParseResult<Extensi
         add.setThreadFactory(threadFactory);
         add.setBlocking(blocking);
         add.setHandoffExecutor(handoffExecutor);
+        add.setStatisticsSampleInterval(statisticsSampleInterval);
         updates.add(add);
     }
 
@@ -349,8 +442,33 @@ public final class ThreadsParser implements XMLElementReader<ParseResult<Extensi
 
     private void parseScheduledExecutorElement(final XMLExtendedStreamReader reader, final List<? super ScheduledThreadPoolAdd> updates, final Set<String> names) throws XMLStreamException {
         // Attributes
-        requireSingleAttribute(reader, Attribute.NAME.getLocalName());
-        final String name = reader.getAttributeValue(0);
+        String name = null;
+        int statisticsSampleInterval = 0;
+        final EnumSet<Attribute> requiredAttr = EnumSet.of(Attribute.NAME);
+        final int cnt = reader.getAttributeCount();
+        for (int i = 0; i < cnt; i ++) {
+            if (reader.getAttributeNamespace(i) != null) {
+                throw unexpectedAttribute(reader, i);
+            }
+            final Attribute attribute = Attribute.forName(reader.getAttributeLocalName(i));
+            requiredAttr.remove(attribute);
+            switch (attribute) {
+                case NAME: {
+                    name = reader.getAttributeValue(i);
+                    break;
+                }
+                case STATISTICS_SAMPLE_INTERVAL: {
+                    statisticsSampleInterval = reader.getIntAttributeValue(i);
+                    break;
+                }
+                default: {
+                    throw unexpectedAttribute(reader, i);
+                }
+            }
+        }
+        if (! requiredAttr.isEmpty()) {
+            throw missingRequired(reader, requiredAttr);
+        }
         if (! names.add(name)) {
             throw duplicateNamedElement(reader, name);
         }
@@ -387,6 +505,7 @@ public final class ThreadsParser implements XMLElementReader<ParseResult<Extensi
         final ScheduledThreadPoolAdd add = new ScheduledThreadPoolAdd(name, maxSize);
         if (keepaliveTime != null) add.setKeepaliveTime(keepaliveTime);
         if (threadFactoryRef != null) add.setThreadFactory(threadFactoryRef);
+        add.setStatisticsSampleInterval(statisticsSampleInterval);
         add.getProperties().putAll(map);
         updates.add(add);
     }
@@ -397,6 +516,7 @@ public final class ThreadsParser implements XMLElementReader<ParseResult<Extensi
         String name = null;
         boolean allowCoreTimeout = false;
         boolean blocking = false;
+        int statisticsSampleInterval = 0;
         final EnumSet<Attribute> required = EnumSet.of(Attribute.NAME);
         final int cnt = reader.getAttributeCount();
         for (int i = 0; i < cnt; i ++) {
@@ -410,6 +530,10 @@ public final class ThreadsParser implements XMLElementReader<ParseResult<Extensi
                     name = reader.getAttributeValue(i);
                     break;
                 }
+                case STATISTICS_SAMPLE_INTERVAL: {
+                    statisticsSampleInterval = reader.getIntAttributeValue(i);
+                    break;
+                }
                 case ALLOW_CORE_TIMEOUT: {
                     allowCoreTimeout = Boolean.parseBoolean(reader.getAttributeValue(i));
                     break;
@@ -489,6 +613,7 @@ public final class ThreadsParser implements XMLElementReader<ParseResult<Extensi
             throw missingRequired(reader, required);
         }
         final BoundedQueueThreadPoolAdd add = new BoundedQueueThreadPoolAdd(name, maxThreads, queueLength);
+        add.setStatisticsSampleInterval(statisticsSampleInterval);
         add.setBlocking(blocking);
         add.setAllowCoreTimeout(allowCoreTimeout);
         add.setCoreThreads(coreThreads);
@@ -52,12 +52,14 @@ public final class UnboundedQueueThreadPoolAdd extends AbstractExecutorAdd {
         final UnboundedQueueThreadPoolService service = new UnboundedQueueThreadPoolService(maxThreads, getKeepaliveTime());
         final BatchServiceBuilder<ExecutorService> serviceBuilder = builder.addService(serviceName, service);
         addThreadFactoryDependency(serviceName, serviceBuilder, service.getThreadFactoryInjector(), builder);
+        addStatisticsService(serviceName, service.getStatistics(), builder);
     }
 
     protected void applyUpdate(final ThreadsSubsystemElement element) throws UpdateFailedException {
         final UnboundedQueueThreadPoolElement poolElement = new UnboundedQueueThreadPoolElement(getName());
         poolElement.setKeepaliveTime(getKeepaliveTime());
         poolElement.setThreadFactory(getThreadFactory());
+        poolElement.setStatisticsSampleInterval(getStatisticsSampleInterval());
         poolElement.setMaxThreads(getMaxThreads());
         element.addExecutor(getName(), new ChildElement<UnboundedQueueThreadPoolElement>(Element.UNBOUNDED_QUEUE_THREAD_POOL.getLocalName(), poolElement));
     }
@@ -42,6 +42,7 @@ public final class UnboundedQueueThreadPoolElement extends AbstractExecutorEleme
         final UnboundedQueueThreadPoolAdd add = new UnboundedQueueThreadPoolAdd(getName(), getMaxThreads());
         add.setKeepaliveTime(getKeepaliveTime());
         add.setThreadFactory(getThreadFactory());
+        add.setStatisticsSampleInterval(getStatisticsSampleInterval());
         add.getProperties().putAll(getProperties());
         return add;
     }
@@ -43,6 +43,7 @@ import java.util.concurrent.ThreadFactory;
  */
 public class UnboundedQueueThreadPoolService implements Service<ExecutorService> {
     private final InjectedValue<ThreadFactory> threadFactoryValue = new InjectedValue<ThreadFactory>();
+    private final ExecutorStatistics statistics = new ExecutorStatistics();
 
     private JBossThreadPoolExecutor executor;
     private ExecutorService value;
@@ -56,8 +57,8 @@ public class UnboundedQueueThreadPoolService implements Service<ExecutorService>
     }
 
     public synchronized void start(final StartContext context) throws StartException {
-        executor = new JBossThreadPoolExecutor(maxThreads, maxThreads, keepAlive.getDuration(), keepAlive.getUnit(), new LinkedBlockingQueue<Runnable>(), threadFactoryValue.getValue());
-        value = JBossExecutors.protectedExecutorService(executor);
+        executor = new JBossThreadPoolExecutor(maxThreads, maxThreads, keepAlive.getDuration(), keepAlive.getUnit(), new LinkedBlockingQueue<Runnable>(), statistics.instrument(threadFactoryValue.getValue()));
+        value = statistics.instrument(JBossExecutors.protectedExecutorService(executor));
     }
 
     public synchronized void stop(final StopContext context) {
@@ -88,6 +89,10 @@ public class UnboundedQueueThreadPoolService implements Service<ExecutorService>
         return threadFactoryValue;
     }
 
+    public ExecutorStatistics getStatistics() {
+        return statistics;
+    }
+
     public synchronized void setMaxThreads(final int maxThreads) {
         this.maxThreads = maxThreads;
         final JBossThreadPoolExecutor executor = this.executor;
@@ -0,0 +1,343 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed-size executor in which every worker thread owns a task deque. Tasks submitted from outside the pool are
+ * spread over the deques round-robin; tasks submitted by a worker go to the head of its own deque, so that fan-out
+ * work stays on the submitting core. A worker takes from the head of its own deque and, when that runs dry, steals
+ * from the tail of the others. Idle workers park on a shared condition which is only signalled while some are idle.
+ */
+public class WorkStealingExecutor extends AbstractExecutorService {
+
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+    private static final int TERMINATED = 3;
+
+    private final Worker[] workers;
+    private final ThreadLocal<Worker> currentWorker = new ThreadLocal<Worker>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger nextDeque = new AtomicInteger();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition termination = lock.newCondition();
+    private volatile int state = RUNNING;
+    private volatile int idle;
+    // guarded by lock
+    private int live;
+
+    /**
+     * Create and start a new instance.
+     *
+     * @param parallelism the number of worker threads
+     * @param threadFactory the factory used to create the worker threads
+     */
+    public WorkStealingExecutor(final int parallelism, final ThreadFactory threadFactory) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        if (threadFactory == null) {
+            throw new IllegalArgumentException("threadFactory is null");
+        }
+        workers = new Worker[parallelism];
+        for (int i = 0; i < parallelism; i ++) {
+            workers[i] = new Worker(i);
+        }
+        final Thread[] threads = new Thread[parallelism];
+        for (int i = 0; i < parallelism; i ++) {
+            final Thread thread = threadFactory.newThread(workers[i]);
+            if (thread == null) {
+                throw new IllegalStateException("Thread factory did not create a worker thread");
+            }
+            workers[i].thread = thread;
+            threads[i] = thread;
+        }
+        live = parallelism;
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    /**
+     * Get the number of worker threads.
+     *
+     * @return the parallelism
+     */
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    /**
+     * Get the number of tasks waiting in the worker deques.
+     *
+     * @return the number of queued tasks
+     */
+    public int getQueueSize() {
+        return pending.get();
+    }
+
+    public void execute(final Runnable command) {
+        if (command == null) {
+            throw new NullPointerException("command is null");
+        }
+        if (state != RUNNING) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        // count the task before it becomes visible, so no worker can decide to exit while it is in flight
+        pending.incrementAndGet();
+        final Worker self = currentWorker.get();
+        final LinkedBlockingDeque<Runnable> deque;
+        if (self != null) {
+            deque = self.deque;
+            deque.offerFirst(command);
+        } else {
+            deque = workers[(nextDeque.getAndIncrement() & Integer.MAX_VALUE) % workers.length].deque;
+            deque.offerLast(command);
+        }
+        if (state != RUNNING) {
+            // raced with a shutdown; take the task back if nobody is left to run it
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                if ((state == STOP || live == 0) && deque.removeFirstOccurrence(command)) {
+                    pending.decrementAndGet();
+                    throw new RejectedExecutionException("Executor is shut down");
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (idle > 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                workAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public void shutdown() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (state == RUNNING) {
+                state = SHUTDOWN;
+            }
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<Runnable> shutdownNow() {
+        final List<Runnable> unstarted = new ArrayList<Runnable>();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (state < STOP) {
+                state = STOP;
+            }
+            for (Worker worker : workers) {
+                Runnable task;
+                while ((task = worker.deque.pollFirst()) != null) {
+                    pending.decrementAndGet();
+                    unstarted.add(task);
+                }
+                worker.thread.interrupt();
+            }
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return unstarted;
+    }
+
+    public boolean isShutdown() {
+        return state != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return state == TERMINATED;
+    }
+
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            while (state != TERMINATED) {
+                if (remaining <= 0L) {
+                    return false;
+                }
+                remaining = termination.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called once the last worker has exited after a shutdown. The default implementation does nothing.
+     */
+    protected void terminated() {
+    }
+
+    private Runnable steal(final int thief) {
+        final Worker[] workers = this.workers;
+        final int length = workers.length;
+        for (int i = 1; i < length; i ++) {
+            final Runnable task = workers[(thief + i) % length].deque.pollLast();
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wait until there is work to do. A worker which finds the executor shut down and drained is retired while
+     * the lock is still held, so that a racing submitter can tell whether anybody is left to run its task.
+     *
+     * @param worker the waiting worker
+     * @return {@code false} if the worker has been retired
+     */
+    private boolean awaitWork(final Worker worker) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            final int state = this.state;
+            if (state == STOP || state == SHUTDOWN && pending.get() == 0) {
+                worker.retired = true;
+                if (retire()) {
+                    worker.terminated = true;
+                }
+                return false;
+            }
+            idle++;
+            try {
+                if (pending.get() == 0 && this.state == RUNNING) {
+                    workAvailable.await();
+                }
+            } catch (InterruptedException e) {
+                // re-examine the state
+            } finally {
+                idle--;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Account for an exiting worker; must be called with the lock held.
+     *
+     * @return {@code true} if it was the last one
+     */
+    private boolean retire() {
+        if (--live == 0) {
+            state = TERMINATED;
+            termination.signalAll();
+            return true;
+        }
+        return false;
+    }
+
+    private void workerExited(final Worker worker) {
+        boolean last = worker.terminated;
+        if (! worker.retired) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                last = retire();
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (last) {
+            terminated();
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final int index;
+        private final LinkedBlockingDeque<Runnable> deque = new LinkedBlockingDeque<Runnable>();
+        private Thread thread;
+        private boolean retired;
+        private boolean terminated;
+
+        Worker(final int index) {
+            this.index = index;
+        }
+
+        public void run() {
+            currentWorker.set(this);
+            try {
+                for (;;) {
+                    if (state == STOP) {
+                        return;
+                    }
+                    Runnable task = deque.pollFirst();
+                    if (task == null) {
+                        task = steal(index);
+                    }
+                    if (task == null) {
+                        if (! awaitWork(this)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    pending.decrementAndGet();
+                    // clear any interrupt left over from a previous task
+                    Thread.interrupted();
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        final Thread thread = Thread.currentThread();
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                    }
+                }
+            } finally {
+                currentWorker.remove();
+                workerExited(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.threads;
+
+import java.util.concurrent.ExecutorService;
+
+import org.jboss.as.model.ChildElement;
+import org.jboss.as.model.UpdateContext;
+import org.jboss.as.model.UpdateFailedException;
+import org.jboss.as.model.UpdateResultHandler;
+import org.jboss.msc.service.BatchBuilder;
+import org.jboss.msc.service.BatchServiceBuilder;
+import org.jboss.msc.service.ServiceName;
+
+/**
+ * Update adding a work-stealing thread pool. The pool is registered under the same executor service name as the
+ * other pool types, so it can be referenced anywhere an executor is injected.
+ */
+public final class WorkStealingThreadPoolAdd extends AbstractExecutorAdd {
+
+    private static final long serialVersionUID = -2364434781340307924L;
+
+    public WorkStealingThreadPoolAdd(final String name, final ScaledCount parallelism) {
+        super(name, parallelism);
+    }
+
+    protected <P> void applyUpdate(final UpdateContext updateContext, final UpdateResultHandler<? super Void, P> handler, final P param) {
+        final BatchBuilder builder = updateContext.getBatchBuilder();
+        final int parallelism = getParallelism().getScaledCount();
+        final String name = getName();
+        final ServiceName serviceName = ThreadsServices.executorName(name);
+        final WorkStealingThreadPoolService service = new WorkStealingThreadPoolService(parallelism);
+        final BatchServiceBuilder<ExecutorService> serviceBuilder = builder.addService(serviceName, service);
+        addThreadFactoryDependency(serviceName, serviceBuilder, service.getThreadFactoryInjector(), builder);
+        addStatisticsService(serviceName, service.getStatistics(), builder);
+    }
+
+    protected void applyUpdate(final ThreadsSubsystemElement element) throws UpdateFailedException {
+        final WorkStealingThreadPoolElement poolElement = new WorkStealingThreadPoolElement(getName());
+        poolElement.setThreadFactory(getThreadFactory());
+        poolElement.setStatisticsSampleInterval(getStatisticsSampleInterval());
+        poolElement.setParallelism(getParallelism());
+        element.addExecutor(getName(), new ChildElement<WorkStealingThreadPoolElement>(Element.WORK_STEALING_THREAD_POOL.getLocalName(), poolElement));
+    }
+
+    /**
+     * Get the number of worker threads, which is kept as the maximum thread count of the pool.
+     *
+     * @return the parallelism
+     */
+    public ScaledCount getParallelism() {
+        return getMaxThreads();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.threads;
+
+import org.jboss.staxmapper.XMLExtendedStreamWriter;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * A work-stealing thread pool configuration element.
+ */
+public final class WorkStealingThreadPoolElement extends AbstractExecutorElement<WorkStealingThreadPoolElement> {
+
+    private static final long serialVersionUID = 2942917284566911541L;
+
+    private ScaledCount parallelism;
+
+    WorkStealingThreadPoolElement(final String name) {
+        super(name);
+    }
+
+    @Override
+    protected Class<WorkStealingThreadPoolElement> getElementClass() {
+        return WorkStealingThreadPoolElement.class;
+    }
+
+    public ScaledCount getParallelism() {
+        return parallelism;
+    }
+
+    void setParallelism(final ScaledCount parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    protected void writeElements(final XMLExtendedStreamWriter streamWriter) throws XMLStreamException {
+        if (parallelism != null) writeScaledCountElement(streamWriter, parallelism, "parallelism");
+        super.writeElements(streamWriter);
+    }
+
+    WorkStealingThreadPoolAdd getAdd() {
+        final WorkStealingThreadPoolAdd add = new WorkStealingThreadPoolAdd(getName(), parallelism);
+        add.setThreadFactory(getThreadFactory());
+        add.setStatisticsSampleInterval(getStatisticsSampleInterval());
+        add.getProperties().putAll(getProperties());
+        return add;
+    }
+}
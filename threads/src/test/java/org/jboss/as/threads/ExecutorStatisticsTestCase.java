@@ -0,0 +1,188 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.threads;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the task counters kept by {@link ExecutorStatistics}.
+ *
+ * @author John E. Bailey
+ */
+public class ExecutorStatisticsTestCase {
+
+    private ExecutorStatistics statistics;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final Runnable blocker = new Runnable() {
+        public void run() {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    };
+
+    @Before
+    public void setUp() {
+        statistics = new ExecutorStatistics();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    public void testCompletedAndFailedTasksAreCounted() throws Exception {
+        final ExecutorService executor = statistics.instrument(new ThreadPoolExecutor(1, 1, 0L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()));
+        executor.submit(new Runnable() {
+            public void run() {
+            }
+        }).get();
+        final Future<?> failing = executor.submit(new Runnable() {
+            public void run() {
+                throw new IllegalStateException("failing task");
+            }
+        });
+        executor.execute(new Runnable() {
+            public void run() {
+                throw new IllegalStateException("failing task");
+            }
+        });
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+        assertTrue(failing.isDone());
+
+        assertEquals(3L, statistics.getSubmittedTaskCount());
+        assertEquals(2L, statistics.getCompletedTaskCount());
+        // the failure of a submitted task is kept by its future
+        assertEquals(1L, statistics.getFailedTaskCount());
+        assertEquals(0, statistics.getQueueSize());
+        assertEquals(0, statistics.getActiveCount());
+    }
+
+    @Test
+    public void testRejectedTasksAreNotQueued() throws Exception {
+        final ExecutorService executor = statistics.instrument(new ThreadPoolExecutor(1, 1, 0L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(1)));
+        executor.execute(blocker);
+        assertTrue(blocked.await(10L, TimeUnit.SECONDS));
+        executor.execute(new Task());
+        try {
+            executor.execute(new Task());
+            fail("Task accepted by a full queue");
+        } catch (RejectedExecutionException expected) {
+        }
+        assertEquals(1L, statistics.getRejectedTaskCount());
+        assertEquals(2L, statistics.getSubmittedTaskCount());
+        assertEquals(1, statistics.getQueueSize());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testShutdownNowReturnsSubmittedTasks() throws Exception {
+        final ExecutorService executor = statistics.instrument(new ThreadPoolExecutor(1, 1, 0L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()));
+        executor.execute(blocker);
+        assertTrue(blocked.await(10L, TimeUnit.SECONDS));
+        final Task first = new Task();
+        final Task second = new Task();
+        executor.execute(first);
+        executor.execute(second);
+        final Future<?> third = executor.submit(new Task());
+        assertEquals(3, statistics.getQueueSize());
+
+        final List<Runnable> tasks = executor.shutdownNow();
+        assertEquals(Arrays.<Object>asList(first, second, third), tasks);
+        assertSame(third, tasks.get(2));
+        assertEquals(0, statistics.getQueueSize());
+        assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+        assertEquals(1L, statistics.getCompletedTaskCount());
+        assertEquals(0, statistics.getQueueSize());
+    }
+
+    @Test
+    public void testCancelledDelayedTasksLeaveQueue() throws Exception {
+        final ScheduledExecutorService executor = statistics.instrument(new ScheduledThreadPoolExecutor(1));
+        final ScheduledFuture<?> cancelled = executor.schedule(new Task(), 1L, TimeUnit.HOURS);
+        final ScheduledFuture<?> periodic = executor.scheduleAtFixedRate(new Task(), 1L, 1L, TimeUnit.HOURS);
+        assertEquals(2, statistics.getQueueSize());
+
+        assertTrue(cancelled.cancel(false));
+        assertTrue(cancelled.isCancelled());
+        assertFalse(cancelled.cancel(false));
+        assertEquals(1, statistics.getQueueSize());
+        assertTrue(periodic.getDelay(TimeUnit.MINUTES) > 30L);
+        assertTrue(cancelled.compareTo(periodic) < 0);
+
+        executor.shutdownNow();
+        assertEquals(0, statistics.getQueueSize());
+        assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDelayedTasksLeaveQueueWhenRun() throws Exception {
+        final ScheduledExecutorService executor = statistics.instrument(new ScheduledThreadPoolExecutor(1));
+        final ScheduledFuture<String> future = executor.schedule(new Callable<String>() {
+            public String call() {
+                return "done";
+            }
+        }, 10L, TimeUnit.MILLISECONDS);
+        assertEquals("done", future.get(10L, TimeUnit.SECONDS));
+        assertFalse(future.cancel(false));
+        executor.schedule(new Task(), 1L, TimeUnit.HOURS);
+
+        executor.shutdownNow();
+        assertEquals(0, statistics.getQueueSize());
+        assertEquals(2L, statistics.getSubmittedTaskCount());
+        assertEquals(1L, statistics.getCompletedTaskCount());
+    }
+
+    private static final class Task implements Runnable {
+        public void run() {
+        }
+    }
+}
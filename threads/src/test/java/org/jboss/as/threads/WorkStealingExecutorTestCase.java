@@ -0,0 +1,281 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.threads;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of {@link WorkStealingExecutor}.
+ *
+ * @author John E. Bailey
+ */
+public class WorkStealingExecutorTestCase {
+
+    private final AtomicInteger terminatedCalls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private WorkStealingExecutor executor;
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testForkedTasksAreStolen() throws Exception {
+        executor = create(4);
+        final int count = 200;
+        final CountDownLatch done = new CountDownLatch(count);
+        final Set<Thread> runners = Collections.synchronizedSet(new HashSet<Thread>());
+        final AtomicReference<Thread> forker = new AtomicReference<Thread>();
+        executor.execute(new Runnable() {
+            public void run() {
+                forker.set(Thread.currentThread());
+                for (int i = 0; i < count; i++) {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            runners.add(Thread.currentThread());
+                            done.countDown();
+                        }
+                    });
+                }
+                // the forked tasks sit on this worker's deque, so they only complete if other workers steal them
+                try {
+                    assertTrue(done.await(10L, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue("Forked tasks were not stolen", done.await(10L, TimeUnit.SECONDS));
+        assertFalse(runners.contains(forker.get()));
+        assertEquals(0, awaitQueueSize(0));
+    }
+
+    @Test
+    public void testRecursiveTasksComplete() throws Exception {
+        executor = create(3);
+        final int depth = 10;
+        final int expected = (1 << depth) - 1;
+        final AtomicInteger executed = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(expected);
+        executor.execute(new Fork(depth, executed, done));
+        assertTrue(done.await(10L, TimeUnit.SECONDS));
+        assertEquals(expected, executed.get());
+    }
+
+    @Test
+    public void testShutdownRunsQueuedTasks() throws Exception {
+        executor = create(1);
+        final CountDownLatch blocked = block();
+        final AtomicInteger executed = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    executed.incrementAndGet();
+                }
+            });
+        }
+        assertEquals(5, executor.getQueueSize());
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        assertFalse(executor.isTerminated());
+        assertFalse(executor.awaitTermination(50L, TimeUnit.MILLISECONDS));
+
+        blocked.countDown();
+        release.countDown();
+        assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+        assertEquals(5, executed.get());
+        assertEquals(1, terminatedCalls.get());
+    }
+
+    @Test
+    public void testShutdownNowReturnsUnstartedTasks() throws Exception {
+        executor = create(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final CountDownLatch running = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        });
+        assertTrue(running.await(10L, TimeUnit.SECONDS));
+        final Runnable first = new Task();
+        final Runnable second = new Task();
+        executor.execute(first);
+        executor.execute(second);
+
+        final List<Runnable> unstarted = executor.shutdownNow();
+        assertEquals(Arrays.asList(first, second), unstarted);
+        assertEquals(0, executor.getQueueSize());
+        assertTrue("Running task was not interrupted", interrupted.await(10L, TimeUnit.SECONDS));
+        assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+        assertEquals(1, terminatedCalls.get());
+    }
+
+    @Test
+    public void testRejectsTasksAfterShutdown() throws Exception {
+        executor = create(2);
+        final CountDownLatch blocked = block();
+        executor.shutdown();
+        try {
+            executor.execute(new Task());
+            fail("Task accepted after shutdown");
+        } catch (RejectedExecutionException expected) {
+        }
+        blocked.countDown();
+        release.countDown();
+        assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+        try {
+            executor.submit(new Task());
+            fail("Task accepted after termination");
+        } catch (RejectedExecutionException expected) {
+        }
+    }
+
+    @Test
+    public void testWorkersRejectTasksAfterShutdown() throws Exception {
+        executor = create(2);
+        final CountDownLatch shutDown = new CountDownLatch(1);
+        final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    shutDown.await();
+                    executor.execute(new Task());
+                } catch (Throwable t) {
+                    thrown.set(t);
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        executor.shutdown();
+        shutDown.countDown();
+        assertTrue(done.await(10L, TimeUnit.SECONDS));
+        assertTrue(thrown.get() instanceof RejectedExecutionException);
+        assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testInvalidParallelism() {
+        try {
+            new WorkStealingExecutor(0, Executors.defaultThreadFactory());
+            fail("Executor created without workers");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private WorkStealingExecutor create(final int parallelism) {
+        return new WorkStealingExecutor(parallelism, Executors.defaultThreadFactory()) {
+            protected void terminated() {
+                terminatedCalls.incrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Occupy the only worker of the executor until the test releases it.
+     *
+     * @return a latch to count down along with releasing the worker
+     */
+    private CountDownLatch block() throws InterruptedException {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                running.countDown();
+                try {
+                    blocked.await();
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(running.await(10L, TimeUnit.SECONDS));
+        return blocked;
+    }
+
+    private int awaitQueueSize(final int size) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (executor.getQueueSize() != size && System.nanoTime() < deadline) {
+            Thread.sleep(10L);
+        }
+        return executor.getQueueSize();
+    }
+
+    private final class Fork implements Runnable {
+        private final int depth;
+        private final AtomicInteger executed;
+        private final CountDownLatch done;
+
+        Fork(final int depth, final AtomicInteger executed, final CountDownLatch done) {
+            this.depth = depth;
+            this.executed = executed;
+            this.done = done;
+        }
+
+        public void run() {
+            executed.incrementAndGet();
+            if (depth > 1) {
+                executor.execute(new Fork(depth - 1, executed, done));
+                executor.execute(new Fork(depth - 1, executed, done));
+            }
+            done.countDown();
+        }
+    }
+
+    private static final class Task implements Runnable {
+        public void run() {
+        }
+    }
+}
@@ -31,6 +31,8 @@ import java.util.Map;
 enum Attribute {
     UNKNOWN(null),
 
+    ACCEPTOR_COUNT("acceptor-count"),
+
     CHECK_INTERVAL("check-interval"),
 
     DEFAULT_HOST("default-host"), DEVELOPMENT("development"), DIRECTORY("directory"), DISABLED("disabled"), DISPLAY_SOOURCE_FRAGMENT("display-source-fragment"), DUMP_SMAP("dump-smap"),
@@ -43,11 +45,11 @@ enum Attribute {
 
     JAVA_ENCODING("java-encoding"),
 
-    KEEP_GENERATED("keep-generated"),
+    KEEP_ALIVE_TIMEOUT("keep-alive-timeout"), KEEP_GENERATED("keep-generated"),
 
     LISTINGS("listings"),
 
-    MAPPED_FILE("mapped-file"), MAX_DEPTH("max-depth"), MAX_POST_SIZE("max-post-size"), MODIFIFICATION_TEST_INTERVAL("modification-test-interval"), MAX_SAVE_POST_SIZE("max-save-post-size"),
+    MAPPED_FILE("mapped-file"), MAX_CONNECTIONS("max-connections"), MAX_DEPTH("max-depth"), MAX_POST_SIZE("max-post-size"), MODIFIFICATION_TEST_INTERVAL("modification-test-interval"), MAX_SAVE_POST_SIZE("max-save-post-size"), MODE("mode"),
 
     NAME("name"),
 
@@ -0,0 +1,104 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+
+package org.jboss.as.web;
+
+/**
+ * The I/O mode of a web connector, which selects the JBoss Web protocol handler implementation.
+ */
+enum ConnectorMode {
+    /** Blocking I/O, one thread per connection. */
+    BIO("org.apache.coyote.http11.Http11Protocol", "org.apache.coyote.ajp.AjpProtocol", "maxThreads"),
+    /** Non-blocking Java NIO. */
+    NIO("org.apache.coyote.http11.Http11NioProtocol", null, "pollerSize"),
+    /** The native APR library. */
+    APR("org.apache.coyote.http11.Http11AprProtocol", "org.apache.coyote.ajp.AjpAprProtocol", "pollerSize"),
+    ;
+
+    private final String httpHandler;
+    private final String ajpHandler;
+    private final String connectionLimitProperty;
+
+    private ConnectorMode(final String httpHandler, final String ajpHandler, final String connectionLimitProperty) {
+        this.httpHandler = httpHandler;
+        this.ajpHandler = ajpHandler;
+        this.connectionLimitProperty = connectionLimitProperty;
+    }
+
+    /**
+     * Get the protocol handler property bounding the number of connections open at once.  JBoss Web has no
+     * connection limit of its own: the blocking handlers serve each connection on a worker thread, so they are
+     * bounded by their thread count, while the polling handlers are bounded by the number of connections their
+     * poller holds.
+     *
+     * @return the property name
+     */
+    String getConnectionLimitProperty() {
+        return connectionLimitProperty;
+    }
+
+    /**
+     * Get the protocol handler class name to use for the given connector protocol in this mode.
+     *
+     * @param protocol the connector protocol, e.g. {@code HTTP/1.1} or {@code AJP/1.3}
+     * @return the handler class name, or {@code null} if the mode is not available for the protocol
+     */
+    String getProtocolHandlerClassName(final String protocol) {
+        if (protocol == null || "HTTP/1.1".equals(protocol)) {
+            return httpHandler;
+        } else if ("AJP/1.3".equals(protocol)) {
+            return ajpHandler;
+        }
+        return null;
+    }
+
+    /**
+     * Get the mode of the given protocol handler.
+     *
+     * @param className the protocol handler class name
+     * @return the mode, or {@code null} if the handler is not known
+     */
+    static ConnectorMode forProtocolHandler(final String className) {
+        for (ConnectorMode mode : values()) {
+            if (className.equals(mode.httpHandler) || className.equals(mode.ajpHandler)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the mode for the given configuration value.
+     *
+     * @param value the value, e.g. {@code nio}
+     * @return the mode, or {@code null} if the value does not name a mode
+     */
+    static ConnectorMode forName(final String value) {
+        for (ConnectorMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+}
@@ -22,11 +22,15 @@
 
 package org.jboss.as.web;
 
+import java.util.concurrent.Executor;
+
 import org.jboss.as.model.AbstractSubsystemUpdate;
 import org.jboss.as.model.UpdateContext;
 import org.jboss.as.model.UpdateFailedException;
 import org.jboss.as.model.UpdateResultHandler;
 import org.jboss.as.services.net.SocketBinding;
+import org.jboss.as.threads.ThreadsServices;
+import org.jboss.msc.service.BatchServiceBuilder;
 import org.jboss.msc.service.ServiceController.Mode;
 
 /**
@@ -51,6 +55,10 @@ public class WebConnectorAdd extends AbstractWebSubsystemUpdate<Void> {
     private Boolean secure;
     private Integer maxPostSize;
     private Integer maxSavePostSize;
+    private String mode;
+    private Integer acceptorCount;
+    private Integer keepAliveTimeout;
+    private Integer maxConnections;
 
     public WebConnectorAdd(final String name) {
         if(name == null) {
@@ -61,6 +69,9 @@ public class WebConnectorAdd extends AbstractWebSubsystemUpdate<Void> {
 
     /** {@inheritDoc} */
     protected void applyUpdate(WebSubsystemElement element) throws UpdateFailedException {
+        if(mode != null && ConnectorMode.forName(mode) == null) {
+            throw new UpdateFailedException("invalid mode " + mode + " for connector " + name);
+        }
         final WebConnectorElement connector = element.addConnector(name);
         if(connector == null) {
             throw new UpdateFailedException("duplicate connector " + name);
@@ -71,12 +82,16 @@ public class WebConnectorAdd extends AbstractWebSubsystemUpdate<Void> {
         connector.setExecutorRef(executorRef);
         if(enabled != null) connector.setEnabled(enabled);
         if(secure != null) connector.setSecure(secure);
-        if(enableLookups != null) connector.setEnableLookups(enabled);
+        if(enableLookups != null) connector.setEnableLookups(enableLookups);
         if(proxyName != null) connector.setProxyName(proxyName);
         if(proxyPort != null) connector.setProxyPort(proxyPort);
         if(redirectPort != null) connector.setRedirectPort(redirectPort);
         if(maxPostSize != null) connector.setMaxPostSize(maxPostSize);
         if(maxSavePostSize != null) connector.setMaxSavePostSize(maxSavePostSize);
+        connector.setMode(mode);
+        if(acceptorCount != null) connector.setAcceptorCount(acceptorCount);
+        if(keepAliveTimeout != null) connector.setKeepAliveTimeout(keepAliveTimeout);
+        if(maxConnections != null) connector.setMaxConnections(maxConnections);
     }
 
     /** {@inheritDoc} */
@@ -84,17 +99,24 @@ public class WebConnectorAdd extends AbstractWebSubsystemUpdate<Void> {
         final boolean enabled = this.enabled == null || this.enabled;
         final WebConnectorService service = new WebConnectorService(protocol, scheme);
         if(secure != null) service.setSecure(secure);
-        if(enableLookups != null) service.setEnableLookups(enabled);
+        if(enableLookups != null) service.setEnableLookups(enableLookups);
         if(proxyName != null) service.setProxyName(proxyName);
         if(proxyPort != null) service.setProxyPort(proxyPort);
         if(redirectPort != null) service.setRedirectPort(redirectPort);
         if(maxPostSize != null) service.setMaxPostSize(maxPostSize);
         if(maxSavePostSize != null) service.setMaxSavePostSize(maxSavePostSize);
-        context.getBatchBuilder().addService(WebSubsystemElement.JBOSS_WEB_CONNECTOR.append(name), service)
+        if(mode != null) service.setMode(ConnectorMode.forName(mode));
+        if(acceptorCount != null) service.setAcceptorCount(acceptorCount);
+        if(keepAliveTimeout != null) service.setKeepAliveTimeout(keepAliveTimeout);
+        if(maxConnections != null) service.setMaxConnections(maxConnections);
+        final BatchServiceBuilder<?> builder = context.getBatchBuilder().addService(WebSubsystemElement.JBOSS_WEB_CONNECTOR.append(name), service)
             .addDependency(WebSubsystemElement.JBOSS_WEB, WebServer.class, service.getServer())
             .addDependency(SocketBinding.JBOSS_BINDING_NAME.append(bindingRef), SocketBinding.class, service.getBinding())
             .addListener(new UpdateResultHandler.ServiceStartListener<P>(resultHandler, param))
             .setInitialMode(enabled ? Mode.IMMEDIATE : Mode.NEVER);
+        if(executorRef != null) {
+            builder.addDependency(ThreadsServices.executorName(executorRef), Executor.class, service.getExecutor());
+        }
     }
 
     /** {@inheritDoc} */
@@ -202,6 +224,41 @@ public class WebConnectorAdd extends AbstractWebSubsystemUpdate<Void> {
         this.maxSavePostSize = maxSavePostSize;
     }
 
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        if(mode != null && ConnectorMode.forName(mode) == null) {
+            throw new IllegalArgumentException("invalid connector mode " + mode);
+        }
+        this.mode = mode;
+    }
+
+    public Integer getAcceptorCount() {
+        return acceptorCount;
+    }
+
+    public void setAcceptorCount(Integer acceptorCount) {
+        this.acceptorCount = acceptorCount;
+    }
+
+    public Integer getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    public void setKeepAliveTimeout(Integer keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(Integer maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
     static WebConnectorAdd create(final WebConnectorElement connector) {
         final WebConnectorAdd action = new WebConnectorAdd(connector.getName());
         action.setBindingRef(connector.getBindingRef());
@@ -216,6 +273,10 @@ public class WebConnectorAdd extends AbstractWebSubsystemUpdate<Void> {
         action.setRedirectPort(connector.getRedirectPort());
         action.setMaxPostSize(connector.getMaxPostSize());
         action.setMaxSavePostSize(connector.getMaxSavePostSize());
+        action.setMode(connector.getMode());
+        action.setAcceptorCount(connector.getAcceptorCount());
+        action.setKeepAliveTimeout(connector.getKeepAliveTimeout());
+        action.setMaxConnections(connector.getMaxConnections());
         return action;
     }
 
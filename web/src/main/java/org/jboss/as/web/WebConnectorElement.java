@@ -49,6 +49,10 @@ public class WebConnectorElement extends AbstractModelElement<WebConnectorElemen
     private Boolean secure;
     private Integer maxPostSize;
     private Integer maxSavePostSize;
+    private String mode;
+    private Integer acceptorCount;
+    private Integer keepAliveTimeout;
+    private Integer maxConnections;
 
     protected WebConnectorElement(final String name) {
         if(name == null) {
@@ -157,6 +161,38 @@ public class WebConnectorElement extends AbstractModelElement<WebConnectorElemen
         this.maxSavePostSize = maxSavePostSize;
     }
 
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public Integer getAcceptorCount() {
+        return acceptorCount;
+    }
+
+    public void setAcceptorCount(Integer acceptorCount) {
+        this.acceptorCount = acceptorCount;
+    }
+
+    public Integer getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    public void setKeepAliveTimeout(Integer keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(Integer maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
     public Boolean getEnabled() {
         return enabled;
     }
@@ -195,6 +231,16 @@ public class WebConnectorElement extends AbstractModelElement<WebConnectorElemen
         if(maxSavePostSize != null) {
             writeAttribute(Attribute.MAX_SAVE_POST_SIZE, maxSavePostSize.toString(), streamWriter);
         }
+        writeAttribute(Attribute.MODE, mode, streamWriter);
+        if(acceptorCount != null) {
+            writeAttribute(Attribute.ACCEPTOR_COUNT, acceptorCount.toString(), streamWriter);
+        }
+        if(keepAliveTimeout != null) {
+            writeAttribute(Attribute.KEEP_ALIVE_TIMEOUT, keepAliveTimeout.toString(), streamWriter);
+        }
+        if(maxConnections != null) {
+            writeAttribute(Attribute.MAX_CONNECTIONS, maxConnections.toString(), streamWriter);
+        }
         streamWriter.writeEndElement();
     }
 
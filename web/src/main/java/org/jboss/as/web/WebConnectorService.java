@@ -21,11 +21,13 @@
  */
 package org.jboss.as.web;
 
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 import java.util.concurrent.Executor;
 
 import org.apache.catalina.connector.Connector;
 import org.jboss.as.services.net.SocketBinding;
+import org.jboss.logging.Logger;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
@@ -39,6 +41,8 @@ import org.jboss.msc.value.InjectedValue;
  */
 class WebConnectorService implements Service<Connector> {
 
+    private static final Logger log = Logger.getLogger("org.jboss.web");
+
     private String protocol = "HTTP/1.1";
     private String scheme = "http";
 
@@ -49,6 +53,10 @@ class WebConnectorService implements Service<Connector> {
     private Boolean secure = null;
     private Integer maxPostSize = null;
     private Integer maxSavePostSize = null;
+    private ConnectorMode mode = null;
+    private Integer acceptorCount = null;
+    private Integer keepAliveTimeout = null;
+    private Integer maxConnections = null;
 
     private Connector connector;
 
@@ -71,10 +79,10 @@ class WebConnectorService implements Service<Connector> {
         final SocketBinding binding = this.binding.getValue();
         final InetSocketAddress address = binding.getSocketAddress();
         try {
-            // Create connector
-            final Connector connector = new Connector();
+            // Create connector, the protocol handler is instantiated by the constructor
+            final Connector connector = new Connector(getProtocolHandlerClassName());
             connector.setPort(address.getPort());
-            connector.setProtocol(protocol);
+            connector.setProperty("address", address.getAddress().getHostAddress());
             connector.setScheme(scheme);
             if(enableLookups != null) connector.setEnableLookups(enableLookups);
             if(maxPostSize != null) connector.setMaxPostSize(maxPostSize);
@@ -83,7 +91,13 @@ class WebConnectorService implements Service<Connector> {
             if(proxyPort != null) connector.setProxyPort(proxyPort);
             if(redirectPort != null) connector.setRedirectPort(redirectPort);
             if(secure != null) connector.setSecure(secure);
-            // TODO set Executor on ProtocolHandler
+            if(acceptorCount != null) connector.setProperty("acceptorThreadCount", acceptorCount.toString());
+            if(keepAliveTimeout != null) connector.setProperty("keepAliveTimeout", keepAliveTimeout.toString());
+            final Executor executor = this.executor.getOptionalValue();
+            if(maxConnections != null) applyMaxConnections(connector, executor != null);
+            if(executor != null) {
+                setExecutor(connector.getProtocolHandler(), executor);
+            }
             // TODO use server socket factory - or integrate with {@code ManagedBinding}
 
             // Register connector, starts the connector automatically?
@@ -110,11 +124,75 @@ class WebConnectorService implements Service<Connector> {
         return connector;
     }
 
-    protected boolean isEnableLookups() {
+    /**
+     * Resolve the protocol handler for the configured protocol and mode. Without an explicit mode
+     * the protocol name is passed through so the connector keeps its default (native if available) selection.
+     *
+     * @return the protocol or protocol handler class name
+     * @throws StartException if the mode is not supported for the protocol
+     */
+    String getProtocolHandlerClassName() throws StartException {
+        if(mode == null) {
+            return protocol;
+        }
+        final String className = mode.getProtocolHandlerClassName(protocol);
+        if(className == null) {
+            throw new StartException("connector mode " + mode + " is not supported for protocol " + protocol);
+        }
+        return className;
+    }
+
+    /**
+     * Apply the connection limit to the protocol handler. Without an explicit mode the connector may have picked
+     * the native handler, so the property is chosen by the handler actually created.
+     *
+     * @param connector the connector
+     * @param hasExecutor whether the protocol handler runs on a shared executor
+     */
+    private void applyMaxConnections(final Connector connector, final boolean hasExecutor) {
+        final String handler = connector.getProtocolHandler().getClass().getName();
+        final ConnectorMode handlerMode = ConnectorMode.forProtocolHandler(handler);
+        if(handlerMode == null) {
+            log.warnf("Ignoring max-connections, the connection limit of protocol handler %s is not known", handler);
+            return;
+        }
+        if(handlerMode == ConnectorMode.BIO && hasExecutor) {
+            // the blocking handler uses the executor's threads instead of its own
+            log.warnf("Ignoring max-connections of blocking connector on port %d, its connections are limited by the executor", Integer.valueOf(connector.getPort()));
+            return;
+        }
+        if(! connector.setProperty(handlerMode.getConnectionLimitProperty(), maxConnections.toString())) {
+            log.warnf("Ignoring max-connections, protocol handler %s does not support %s", handler, handlerMode.getConnectionLimitProperty());
+        }
+    }
+
+    /**
+     * Share the given executor with the protocol handler. The handler implementations do not have
+     * a common type exposing the executor, so the setter is looked up reflectively.
+     *
+     * @param handler the protocol handler
+     * @param executor the executor
+     * @throws StartException if the handler does not accept an executor
+     */
+    static void setExecutor(final Object handler, final Executor executor) throws StartException {
+        final Method method;
+        try {
+            method = handler.getClass().getMethod("setExecutor", Executor.class);
+        } catch (NoSuchMethodException e) {
+            throw new StartException("protocol handler " + handler.getClass().getName() + " does not support an executor");
+        }
+        try {
+            method.invoke(handler, executor);
+        } catch (Exception e) {
+            throw new StartException("failed to set executor on protocol handler " + handler.getClass().getName(), e);
+        }
+    }
+
+    protected Boolean isEnableLookups() {
         return enableLookups;
     }
 
-    protected void setEnableLookups(boolean enableLookups) {
+    protected void setEnableLookups(Boolean enableLookups) {
         this.enableLookups = enableLookups;
     }
 
@@ -126,46 +204,78 @@ class WebConnectorService implements Service<Connector> {
         this.proxyName = proxyName;
     }
 
-    protected int getProxyPort() {
+    protected Integer getProxyPort() {
         return proxyPort;
     }
 
-    protected void setProxyPort(int proxyPort) {
+    protected void setProxyPort(Integer proxyPort) {
         this.proxyPort = proxyPort;
     }
 
-    protected int getRedirectPort() {
+    protected Integer getRedirectPort() {
         return redirectPort;
     }
 
-    protected void setRedirectPort(int redirectPort) {
+    protected void setRedirectPort(Integer redirectPort) {
         this.redirectPort = redirectPort;
     }
 
-    protected boolean isSecure() {
+    protected Boolean isSecure() {
         return secure;
     }
 
-    protected void setSecure(boolean secure) {
+    protected void setSecure(Boolean secure) {
         this.secure = secure;
     }
 
-    protected int getMaxPostSize() {
+    protected Integer getMaxPostSize() {
         return maxPostSize;
     }
 
-    protected void setMaxPostSize(int maxPostSize) {
+    protected void setMaxPostSize(Integer maxPostSize) {
         this.maxPostSize = maxPostSize;
     }
 
-    protected int getMaxSavePostSize() {
+    protected Integer getMaxSavePostSize() {
         return maxSavePostSize;
     }
 
-    protected void setMaxSavePostSize(int maxSavePostSize) {
+    protected void setMaxSavePostSize(Integer maxSavePostSize) {
         this.maxSavePostSize = maxSavePostSize;
     }
 
+    protected ConnectorMode getMode() {
+        return mode;
+    }
+
+    protected void setMode(ConnectorMode mode) {
+        this.mode = mode;
+    }
+
+    protected Integer getAcceptorCount() {
+        return acceptorCount;
+    }
+
+    protected void setAcceptorCount(Integer acceptorCount) {
+        this.acceptorCount = acceptorCount;
+    }
+
+    protected Integer getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    protected void setKeepAliveTimeout(Integer keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    protected Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    protected void setMaxConnections(Integer maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
     InjectedValue<Executor> getExecutor() {
         return executor;
     }
@@ -270,6 +270,10 @@ public class WebSubsystemParser implements XMLStreamConstants, XMLElementReader<
         String maxSavePostSize = null;
         String secure = null;
         String redirectPort = null;
+        String mode = null;
+        String acceptorCount = null;
+        String keepAliveTimeout = null;
+        String maxConnections = null;
         final int count = reader.getAttributeCount();
         for (int i = 0; i < count; i++) {
             final String value = reader.getAttributeValue(i);
@@ -317,6 +321,21 @@ public class WebSubsystemParser implements XMLStreamConstants, XMLElementReader<
                 case REDIRECT_PORT:
                     redirectPort = value;
                     break;
+                case MODE:
+                    if (ConnectorMode.forName(value) == null) {
+                        throw ParseUtils.invalidAttributeValue(reader, i);
+                    }
+                    mode = value;
+                    break;
+                case ACCEPTOR_COUNT:
+                    acceptorCount = value;
+                    break;
+                case KEEP_ALIVE_TIMEOUT:
+                    keepAliveTimeout = value;
+                    break;
+                case MAX_CONNECTIONS:
+                    maxConnections = value;
+                    break;
                 default:
                     ParseUtils.unexpectedAttribute(reader, i);
                 }
@@ -343,6 +362,10 @@ public class WebSubsystemParser implements XMLStreamConstants, XMLElementReader<
         if(secure != null) action.setSecure(Boolean.valueOf(secure));
         if(maxPostSize != null) action.setMaxPostSize(Integer.valueOf(maxPostSize));
         if(maxSavePostSize != null) action.setMaxSavePostSize(Integer.valueOf(maxSavePostSize));
+        action.setMode(mode);
+        if(acceptorCount != null) action.setAcceptorCount(Integer.valueOf(acceptorCount));
+        if(keepAliveTimeout != null) action.setKeepAliveTimeout(Integer.valueOf(keepAliveTimeout));
+        if(maxConnections != null) action.setMaxConnections(Integer.valueOf(maxConnections));
         list.add(action);
     }
 
@@ -0,0 +1,179 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.web;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import junit.framework.TestCase;
+
+import org.jboss.as.model.UpdateContext;
+import org.jboss.as.model.UpdateResultHandler;
+import org.jboss.as.threads.ThreadsServices;
+import org.jboss.msc.inject.Injector;
+import org.jboss.msc.service.BatchBuilder;
+import org.jboss.msc.service.BatchServiceBuilder;
+import org.jboss.msc.service.ServiceContainer;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.StartException;
+
+/**
+ * Tests of how {@link WebConnectorAdd} wires the connector mode and executor into the connector service.
+ */
+public class WebConnectorAddTestCase extends TestCase {
+
+    public void testInvalidModeIsRejected() {
+        final WebConnectorAdd add = new WebConnectorAdd("http");
+        add.setMode("nio");
+        assertEquals("nio", add.getMode());
+        add.setMode(null);
+        assertNull(add.getMode());
+        try {
+            add.setMode("blocking");
+            fail("invalid connector mode accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testModeAndExecutorAreWired() throws Exception {
+        final WebConnectorAdd add = new WebConnectorAdd("http");
+        add.setProtocol("HTTP/1.1");
+        add.setBindingRef("http");
+        add.setMode("NIO");
+        add.setExecutorRef("web-pool");
+        final RecordingBatch batch = new RecordingBatch();
+        add.applyUpdate(batch.getContext(), UpdateResultHandler.NULL, null);
+
+        assertEquals(WebSubsystemElement.JBOSS_WEB_CONNECTOR.append("http"), batch.serviceName);
+        final WebConnectorService service = (WebConnectorService) batch.service;
+        assertEquals(ConnectorMode.NIO, service.getMode());
+        assertEquals("org.apache.coyote.http11.Http11NioProtocol", service.getProtocolHandlerClassName());
+
+        final Injector<Object> injector = batch.dependencies.get(ThreadsServices.executorName("web-pool"));
+        assertNotNull("no dependency on the executor", injector);
+        final Executor executor = new Executor() {
+            public void execute(final Runnable command) {
+                command.run();
+            }
+        };
+        injector.inject(executor);
+        assertSame(executor, service.getExecutor().getValue());
+    }
+
+    public void testDefaultsLeaveModeAndExecutorUnset() throws Exception {
+        final WebConnectorAdd add = new WebConnectorAdd("ajp");
+        add.setProtocol("AJP/1.3");
+        add.setBindingRef("ajp");
+        final RecordingBatch batch = new RecordingBatch();
+        add.applyUpdate(batch.getContext(), UpdateResultHandler.NULL, null);
+
+        final WebConnectorService service = (WebConnectorService) batch.service;
+        assertNull(service.getMode());
+        // without a mode the connector picks its own handler for the protocol
+        assertEquals("AJP/1.3", service.getProtocolHandlerClassName());
+        for (ServiceName name : batch.dependencies.keySet()) {
+            assertFalse(name.toString(), ThreadsServices.EXECUTOR.isParentOf(name));
+        }
+        assertNull(service.getExecutor().getOptionalValue());
+    }
+
+    public void testModeUnsupportedForProtocolFailsStart() {
+        final WebConnectorService service = new WebConnectorService("AJP/1.3", null);
+        service.setMode(ConnectorMode.NIO);
+        try {
+            service.getProtocolHandlerClassName();
+            fail("NIO accepted for AJP");
+        } catch (StartException expected) {
+        }
+    }
+
+    public void testExecutorIsSetOnProtocolHandler() throws Exception {
+        final ExecutorHandler handler = new ExecutorHandler();
+        final Executor executor = new Executor() {
+            public void execute(final Runnable command) {
+                command.run();
+            }
+        };
+        WebConnectorService.setExecutor(handler, executor);
+        assertSame(executor, handler.executor);
+        try {
+            WebConnectorService.setExecutor(new Object(), executor);
+            fail("executor set on a handler without an executor");
+        } catch (StartException expected) {
+        }
+    }
+
+    /**
+     * A protocol handler accepting an executor, as the JBoss Web handlers do.
+     */
+    public static final class ExecutorHandler {
+        private Executor executor;
+
+        public void setExecutor(final Executor executor) {
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Records the service added to a batch, and its dependencies with their injectors.
+     */
+    private static final class RecordingBatch implements InvocationHandler {
+        private final Map<ServiceName, Injector<Object>> dependencies = new HashMap<ServiceName, Injector<Object>>();
+        private final BatchServiceBuilder<?> serviceBuilder = (BatchServiceBuilder<?>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {BatchServiceBuilder.class}, this);
+        private final BatchBuilder batchBuilder = (BatchBuilder) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {BatchBuilder.class}, this);
+        private ServiceName serviceName;
+        private Object service;
+
+        @SuppressWarnings("unchecked")
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            if (proxy == batchBuilder) {
+                if (method.getName().equals("addService")) {
+                    serviceName = (ServiceName) args[0];
+                    service = args[1];
+                    return serviceBuilder;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+            if (method.getName().equals("addDependency")) {
+                dependencies.put((ServiceName) args[0], args.length == 3 ? (Injector<Object>) args[2] : null);
+            }
+            return serviceBuilder;
+        }
+
+        UpdateContext getContext() {
+            return new UpdateContext() {
+                public BatchBuilder getBatchBuilder() {
+                    return batchBuilder;
+                }
+
+                public ServiceContainer getServiceContainer() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}